@@ -0,0 +1,45 @@
+package de.jivz.agentservice.config;
+
+import de.jivz.shared.webclient.OpenRouterHttpProperties;
+import de.jivz.shared.webclient.OpenRouterWebClientFactory;
+import de.jivz.shared.webclient.SharedWebClientAutoConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.context.annotation.ImportCandidates;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * shared-webclient wird gegen Boot 3.4 gebaut, agent-service läuft auf Boot 4:
+ * prüft, dass die Auto-Konfiguration hier gefunden wird und den OpenRouter-WebClient liefert.
+ */
+class SharedWebClientAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(SharedWebClientAutoConfiguration.class))
+            .withUserConfiguration(OpenRouterProperties.class, OpenRouterWebClientConfig.class)
+            .withPropertyValues(
+                    "spring.ai.openrouter.api-key=test-key",
+                    "openrouter.http.pool.max-connections=7");
+
+    @Test
+    void shouldBeRegisteredAsAutoConfiguration() {
+        assertThat(ImportCandidates.load(AutoConfiguration.class, getClass().getClassLoader()))
+                .contains(SharedWebClientAutoConfiguration.class.getName());
+    }
+
+    @Test
+    void shouldProvideOpenRouterWebClient() {
+        contextRunner.run(context -> {
+            assertThat(context).hasNotFailed();
+            assertThat(context).hasSingleBean(OpenRouterWebClientFactory.class);
+            assertThat(context).hasBean("openRouterWebClient");
+            assertThat(context.getBean("openRouterWebClient")).isInstanceOf(WebClient.class);
+            assertThat(context.getBean(OpenRouterHttpProperties.class).getPool().getMaxConnections())
+                    .isEqualTo(7);
+        });
+    }
+}
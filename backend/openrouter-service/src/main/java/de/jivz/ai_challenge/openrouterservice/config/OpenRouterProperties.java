@@ -19,6 +19,9 @@ public class OpenRouterProperties {
     private Integer defaultMaxTokens = 1000;
     private Double defaultTopP = 0.9;
 
+    // Streaming (SSE) - maximale Dauer einer gestreamten Antwort
+    private Long streamTimeoutMs = 180000L;
+
     // Audio Transcription Configuration (Google Gemini Flash 2.0)
     private String transcriptionModel = "google/gemini-2.0-flash-exp:free";
     private String transcriptionApiUrl = "https://openrouter.ai/api/v1/chat/completions";
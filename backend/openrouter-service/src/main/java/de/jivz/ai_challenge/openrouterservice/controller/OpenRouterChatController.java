@@ -3,6 +3,7 @@ package de.jivz.ai_challenge.openrouterservice.controller;
 import de.jivz.ai_challenge.openrouterservice.dto.ChatRequest;
 import de.jivz.ai_challenge.openrouterservice.dto.ChatResponse;
 import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.service.ChatStreamingService;
 import de.jivz.ai_challenge.openrouterservice.service.ChatWithToolsService;
 import de.jivz.ai_challenge.openrouterservice.service.ConversationHistoryService;
 import de.jivz.ai_challenge.openrouterservice.service.OpenRouterAiChatService;
@@ -15,8 +16,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -29,6 +32,7 @@ import java.util.*;
  * - JSON-Response Formatting
  * - Conversation History Management (neu!)
  * - Conversation Listing mit Sidebar Integration (neu!)
+ * - Streaming-Antworten als Server-Sent Events
  */
 @Slf4j
 @RestController
@@ -39,14 +43,17 @@ public class OpenRouterChatController {
     private final OpenRouterAiChatService chatService;
     private final ChatWithToolsService chatWithToolsService;
     private final ConversationHistoryService historyService;
+    private final ChatStreamingService chatStreamingService;
 
     public OpenRouterChatController(
             OpenRouterAiChatService chatService,
             ChatWithToolsService chatWithToolsService,
-            ConversationHistoryService historyService) {
+            ConversationHistoryService historyService,
+            ChatStreamingService chatStreamingService) {
         this.chatService = chatService;
         this.chatWithToolsService = chatWithToolsService;
         this.historyService = historyService;
+        this.chatStreamingService = chatStreamingService;
         log.info("OpenRouterChatController initialized with conversation management");
     }
 
@@ -116,6 +123,42 @@ public class OpenRouterChatController {
         }
     }
 
+    /**
+     * POST /api/v1/openrouter/chat/stream
+     * Chat-Anfrage mit gestreamter Antwort (Server-Sent Events)
+     */
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Chat-Anfrage mit Streaming (SSE, WITH HISTORY PERSISTENCE)",
+               description = """
+                       Leitet die Antwort Token für Token als Server-Sent Events weiter.
+                       Events: "token" (Text-Delta), "done" (conversationId, ttftMs, responseTimeMs), "error".
+                       Die vollständige Antwort wird nach Stream-Ende in der Historie gespeichert.""")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event-Stream der Antwort",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+        @ApiResponse(responseCode = "400", description = "Leere Nachricht")
+    })
+    public ResponseEntity<SseEmitter> streamChat(
+            @Parameter(description = "Chat-Request mit allen Parametern", required = true)
+            @RequestBody ChatRequest request) {
+        log.info("Received stream chat request - Model: {}, ConversationId: {}",
+                 request.getModel(), request.getConversationId());
+
+        if (request.getMessage() == null || request.getMessage().isBlank()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        if (request.getConversationId() == null || request.getConversationId().isBlank()) {
+            request.setConversationId("openrouter-" + System.currentTimeMillis() +
+                    "-" + System.nanoTime() % 1000000);
+            log.info("Generated new conversationId: {}", request.getConversationId());
+        }
+
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .body(chatStreamingService.stream(request));
+    }
+
     /**
      * POST /api/v1/openrouter/chat/json
      * Chat-Anfrage mit JSON-Response
@@ -177,16 +220,17 @@ public class OpenRouterChatController {
             List<Map<String, Object>> conversations = new ArrayList<>();
             for (String convId : allConvIds) {
                 try {
-                    // Получаем историю для каждой конверсации
-                    var messages = historyService.getHistory(convId);
-                    if (messages != null && !messages.isEmpty()) {
+                    // Первое сообщение из БД: история в кеше - только окно последних сообщений
+                    String firstMessage = historyService.getFirstMessage(convId);
+                    if (firstMessage != null) {
                         Map<String, Object> summary = new HashMap<>();
                         summary.put("conversationId", convId);
                         // Первое сообщение как превью
-                        summary.put("firstMessage", truncateMessage(messages.get(0).getContent()));
+                        summary.put("firstMessage", truncateMessage(firstMessage));
                         // Последнее время - берём из последнего сообщения (примерно)
                         summary.put("lastMessageTime", System.currentTimeMillis());
-                        summary.put("messageCount", messages.size());
+                        // messages - только окно последних сообщений, счётчик берём из БД
+                        summary.put("messageCount", historyService.getMessageCount(convId));
                         summary.put("hasCompression", false);
 
                         conversations.add(summary);
@@ -237,8 +281,8 @@ public class OpenRouterChatController {
         log.info("Received getConversationHistory request for conversationId: {}", conversationId);
 
         try {
-            // Загружаем историю из сервиса
-            List<Message> history = historyService.getHistory(conversationId);
+            // Загружаем полную историю (getHistory отдаёт только окно для контекста LLM)
+            List<Message> history = historyService.getFullHistory(conversationId);
 
             Map<String, Object> response = new HashMap<>();
             response.put("conversationId", conversationId);
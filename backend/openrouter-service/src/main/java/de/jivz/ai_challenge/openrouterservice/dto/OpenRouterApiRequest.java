@@ -30,6 +30,9 @@ public class OpenRouterApiRequest {
     @JsonProperty("top_p")
     private Double topP;
 
+    // true: Antwort kommt als Server-Sent Events (OpenRouterStreamChunk)
+    private Boolean stream;
+
     /**
      * Chat-Nachricht mit optionalem multimodalem Content
      */
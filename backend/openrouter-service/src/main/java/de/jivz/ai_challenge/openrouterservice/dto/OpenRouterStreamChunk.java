@@ -0,0 +1,66 @@
+package de.jivz.ai_challenge.openrouterservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * OpenRouter Streaming Chunk DTO (stream: true)
+ * Ein "data:" Event enthält nur das Delta der Antwort; usage kommt im letzten Chunk.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OpenRouterStreamChunk {
+
+    private String id;
+    private String model;
+    private List<Choice> choices;
+    private OpenRouterApiResponse.Usage usage;
+
+    // Fehler mitten im Stream (HTTP-Status ist dann bereits 200)
+    private Map<String, Object> error;
+
+    /**
+     * Text-Delta des ersten Choice oder null
+     */
+    @JsonIgnore
+    public String getContentDelta() {
+        if (choices == null || choices.isEmpty() || choices.get(0).getDelta() == null) {
+            return null;
+        }
+        return choices.get(0).getDelta().getContent();
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Choice {
+        private Integer index;
+        private Delta delta;
+
+        @JsonProperty("finish_reason")
+        private String finishReason;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Delta {
+        private String role;
+        private String content;
+    }
+}
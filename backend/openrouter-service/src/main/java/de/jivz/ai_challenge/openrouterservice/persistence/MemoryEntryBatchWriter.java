@@ -0,0 +1,57 @@
+package de.jivz.ai_challenge.openrouterservice.persistence;
+
+import de.jivz.ai_challenge.openrouterservice.service.history.PendingHistoryMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Batched JDBC inserts into memory_entries.
+ *
+ * MemoryEntry uses IDENTITY ids, so Hibernate cannot batch its inserts;
+ * a single JDBC batch replaces one INSERT round-trip per message.
+ * The whole batch is written in one transaction (all or nothing).
+ */
+@Repository
+@RequiredArgsConstructor
+public class MemoryEntryBatchWriter {
+
+    private static final String INSERT_SQL = """
+        INSERT INTO memory_entries
+        (conversation_id, role, content, timestamp, model, input_tokens, output_tokens, total_tokens,
+         response_time_ms, is_compressed)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, false)
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts all messages in one JDBC batch.
+     *
+     * @param messages messages in insertion order
+     * @return number of inserted rows
+     */
+    @Transactional
+    public int insertAll(List<PendingHistoryMessage> messages) {
+        if (messages.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setString(1, message.conversationId());
+            ps.setString(2, message.role());
+            ps.setString(3, message.content());
+            ps.setTimestamp(4, Timestamp.valueOf(message.timestamp()));
+            ps.setString(5, message.model());
+            ps.setObject(6, message.inputTokens(), Types.INTEGER);
+            ps.setObject(7, message.outputTokens(), Types.INTEGER);
+            ps.setObject(8, message.totalTokens(), Types.INTEGER);
+            ps.setObject(9, message.responseTimeMs(), Types.BIGINT);
+        });
+        return messages.size();
+    }
+}
@@ -193,6 +193,17 @@ public interface MemoryRepository extends JpaRepository<MemoryEntry, Long> {
            "AND m.isCompressed = true AND m.role = 'system' ORDER BY m.timestamp DESC")
     java.util.Optional<MemoryEntry> findLastSummary(@Param("conversationId") String conversationId);
 
+    /**
+     * Finds the most recent entry with the given role and compression flag.
+     * Unlike findLastSummary, safe when a conversation has several summaries.
+     *
+     * @param conversationId the conversation identifier
+     * @param role the message role (summaries use "system")
+     * @return the most recent compressed entry or empty
+     */
+    java.util.Optional<MemoryEntry> findFirstByConversationIdAndIsCompressedTrueAndRoleOrderByTimestampDesc(
+            String conversationId, String role);
+
     /**
      * ⭐ Finds messages after a specific timestamp (excluding compressed/summary messages).
      * Used to get messages that came after the last summary.
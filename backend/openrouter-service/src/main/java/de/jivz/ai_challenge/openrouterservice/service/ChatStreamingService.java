@@ -0,0 +1,181 @@
+package de.jivz.ai_challenge.openrouterservice.service;
+
+import de.jivz.ai_challenge.openrouterservice.config.OpenRouterProperties;
+import de.jivz.ai_challenge.openrouterservice.dto.ChatRequest;
+import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.dto.OpenRouterApiResponse;
+import de.jivz.ai_challenge.openrouterservice.dto.OpenRouterStreamChunk;
+import de.jivz.ai_challenge.openrouterservice.service.client.OpenRouterApiClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * ChatStreamingService - Streaming-Antworten (SSE) für den Chat.
+ *
+ * Workflow:
+ * 1. Historie laden und User-Nachricht anhängen
+ * 2. OpenRouter mit stream: true aufrufen (OpenRouterApiClient)
+ * 3. Jedes Text-Delta sofort als "token" Event an den Client weiterleiten
+ * 4. Nach Stream-Ende die vollständige Antwort über ConversationHistoryService speichern
+ *    und ein "done" Event mit Metriken senden
+ *
+ * Time-to-first-token wird als Timer "openrouter.chat.stream.ttft" (Tag model) erfasst.
+ * Trennt der Client die Verbindung, wird der Upstream-Stream abgebrochen und nichts gespeichert.
+ * Tool-Aufrufe werden hier nicht unterstützt (dafür /full).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChatStreamingService {
+
+    static final String EVENT_TOKEN = "token";
+    static final String EVENT_DONE = "done";
+    static final String EVENT_ERROR = "error";
+    static final String TTFT_METRIC = "openrouter.chat.stream.ttft";
+
+    private final OpenRouterApiClient apiClient;
+    private final ConversationHistoryService historyService;
+    private final OpenRouterProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Startet eine gestreamte Chat-Antwort.
+     *
+     * @param request ChatRequest (message, conversationId, model, temperature, maxTokens)
+     * @return SseEmitter, der Tokens liefert, sobald sie von OpenRouter ankommen
+     */
+    public SseEmitter stream(ChatRequest request) {
+        String conversationId = request.getConversationId();
+        String userMessage = request.getMessage();
+        String model = request.getModel() != null ? request.getModel() : properties.getDefaultModel();
+
+        List<Message> messages = new ArrayList<>(historyService.getHistory(conversationId));
+        messages.add(new Message("user", userMessage));
+        log.info("🌊 Starting streamed chat - Model: {}, ConversationId: {}, {} messages",
+                model, conversationId, messages.size());
+
+        SseEmitter emitter = new SseEmitter(properties.getStreamTimeoutMs());
+        StringBuilder reply = new StringBuilder();
+        AtomicReference<OpenRouterApiResponse.Usage> usage = new AtomicReference<>();
+        AtomicLong firstTokenAt = new AtomicLong();
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        long startTime = System.currentTimeMillis();
+
+        Disposable subscription = apiClient
+                .streamChatRequest(messages, model, request.getTemperature(), request.getMaxTokens())
+                // Schreiben in den Servlet-Response und JPA blockieren - nicht auf dem Netty Event-Loop
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(
+                        chunk -> {
+                            if (chunk.getError() != null) {
+                                throw new IllegalStateException("OpenRouter stream error: " + chunk.getError());
+                            }
+                            if (chunk.getUsage() != null) {
+                                usage.set(chunk.getUsage());
+                            }
+                            String delta = chunk.getContentDelta();
+                            if (delta == null || delta.isEmpty()) {
+                                return;
+                            }
+                            if (firstTokenAt.compareAndSet(0, System.currentTimeMillis())) {
+                                long ttftMs = firstTokenAt.get() - startTime;
+                                recordTimeToFirstToken(model, ttftMs);
+                                log.info("⚡ First token after {}ms", ttftMs);
+                            }
+                            reply.append(delta);
+                            send(emitter, clientGone, EVENT_TOKEN, delta);
+                        },
+                        error -> {
+                            log.error("❌ Streamed chat failed: {}", error.getMessage());
+                            send(emitter, clientGone, EVENT_ERROR, Map.of("error", "Streaming failed"));
+                            emitter.complete();
+                        },
+                        () -> {
+                            long responseTime = System.currentTimeMillis() - startTime;
+                            saveToHistory(conversationId, userMessage, reply.toString(), model, usage.get(), responseTime);
+
+                            Map<String, Object> done = new LinkedHashMap<>();
+                            done.put("conversationId", conversationId);
+                            done.put("model", model);
+                            done.put("responseTimeMs", responseTime);
+                            done.put("ttftMs", firstTokenAt.get() > 0 ? firstTokenAt.get() - startTime : null);
+                            done.put("length", reply.length());
+                            send(emitter, clientGone, EVENT_DONE, done);
+                            emitter.complete();
+                            log.info("✅ Streamed chat completed in {}ms ({} chars)", responseTime, reply.length());
+                        });
+
+        Runnable cancel = () -> {
+            clientGone.set(true);
+            subscription.dispose();
+        };
+        emitter.onTimeout(() -> {
+            log.warn("⏱️ Streamed chat timed out after {}ms", properties.getStreamTimeoutMs());
+            cancel.run();
+        });
+        emitter.onError(e -> cancel.run());
+        emitter.onCompletion(subscription::dispose);
+
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, AtomicBoolean clientGone, String event, Object data) {
+        if (clientGone.get()) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client hat die Verbindung getrennt - Upstream wird über onError/onCompletion abgebrochen
+            log.debug("Client disconnected during stream: {}", e.getMessage());
+            clientGone.set(true);
+        }
+    }
+
+    private void recordTimeToFirstToken(String model, long ttftMs) {
+        Timer.builder(TTFT_METRIC)
+                .description("Time from request to first streamed token")
+                .tag("model", model)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(ttftMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Speichert User-Nachricht und vollständige Antwort in der Historie.
+     */
+    private void saveToHistory(String conversationId, String userMessage, String assistantReply, String model,
+                               OpenRouterApiResponse.Usage usage, long responseTimeMs) {
+        if (conversationId == null || conversationId.isBlank()) {
+            log.debug("No conversationId provided, skipping history save");
+            return;
+        }
+
+        try {
+            historyService.addMessage(conversationId, "user", userMessage, null);
+            historyService.addMessageWithMetrics(conversationId, "assistant", assistantReply, model,
+                    usage != null ? usage.getPromptTokens() : null,
+                    usage != null ? usage.getCompletionTokens() : null,
+                    responseTimeMs);
+            log.info("💾 Saved streamed conversation to history for conversationId: {}", conversationId);
+        } catch (Exception e) {
+            log.error("❌ Failed to save streamed conversation {}: {}", conversationId, e.getMessage());
+        }
+    }
+}
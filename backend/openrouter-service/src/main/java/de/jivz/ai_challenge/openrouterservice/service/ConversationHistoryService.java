@@ -1,11 +1,21 @@
 package de.jivz.ai_challenge.openrouterservice.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.service.history.HistoryWriteBehindService;
+import de.jivz.ai_challenge.openrouterservice.service.history.TokenEstimator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ConversationHistoryService - Управление историей диалогов
@@ -17,8 +27,16 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Multi-turn диалоги в одной сессии
  *
  * Architecture:
- * - ConcurrentHashMap: L1 кеш для активных конверсаций
+ * - Caffeine: L1 кеш для активных конверсаций, ограничен суммарным числом символов
+ *   (weight) и вытесняет конверсации без обращений дольше idle TTL
+ * - Записи кеша неизменяемы: добавление сообщения заменяет запись атомарно
+ *   (compute по ключу), поэтому вес пересчитывается и параллельные запросы безопасны
+ * - Метрики hit/miss/eviction: Actuator (cache.* с тегом cache=conversation-history)
+ * - В кеше хранится окно последних сообщений в пределах бюджета токенов (плюс summary),
+ *   а не вся история: при промахе БД читается страницами от новых к старым
  * - HistoryPersistenceService: L2 кеш в PostgreSQL
+ * - HistoryWriteBehindService: новые сообщения пишутся в БД асинхронно батчами
+ *   (при заполненной очереди - синхронно через HistoryPersistenceService)
  * - Strategy Pattern: двухуровневое кеширование
  *
  * Flow:
@@ -36,24 +54,71 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class ConversationHistoryService {
 
+    private static final String CACHE_NAME = "conversation-history";
+
+    // Накладные расходы на сообщение (объект, роль) в "символах" для weigher
+    private static final int MESSAGE_OVERHEAD_CHARS = 64;
+
     private final HistoryPersistenceService persistenceService;
+    private final HistoryWriteBehindService writeBehindService;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    /**
+     * Максимальный суммарный размер L1 кеша в символах содержимого сообщений.
+     */
+    @Value("${conversation.cache.max-weight-chars:20000000}")
+    private long maxWeightChars;
+
+    @Value("${conversation.cache.idle-ttl-minutes:60}")
+    private long idleTtlMinutes;
+
+    /**
+     * Бюджет токенов окна истории (оценка ~4 символа на токен).
+     */
+    @Value("${conversation.history.window.token-budget:8000}")
+    private int windowTokenBudget;
+
+    @Value("${conversation.history.window.page-size:50}")
+    private int windowPageSize;
 
-    // L1 кеш: conversationId -> List of Messages (в памяти)
+    // L1 кеш: conversationId -> неизменяемый список сообщений (в памяти)
     // Используется для быстрого доступа к активным конверсациям
-    private final Map<String, List<Message>> conversationCache = new ConcurrentHashMap<>();
+    private Cache<String, CachedConversation> conversationCache;
 
-    public ConversationHistoryService(HistoryPersistenceService persistenceService) {
+    public ConversationHistoryService(HistoryPersistenceService persistenceService,
+                                      HistoryWriteBehindService writeBehindService,
+                                      ObjectProvider<MeterRegistry> meterRegistryProvider) {
         this.persistenceService = persistenceService;
+        this.writeBehindService = writeBehindService;
+        this.meterRegistryProvider = meterRegistryProvider;
         log.info("ConversationHistoryService initialized with persistence layer");
     }
 
+    @PostConstruct
+    void init() {
+        conversationCache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightChars)
+                .weigher((String conversationId, CachedConversation conversation) -> conversation.weight())
+                .expireAfterAccess(Duration.ofMinutes(idleTtlMinutes))
+                .recordStats()
+                .build();
+
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, conversationCache, CACHE_NAME);
+        }
+        log.info("📦 L1 conversation cache: maxWeight={} chars, idleTtl={}min", maxWeightChars, idleTtlMinutes);
+    }
+
     /**
-     * Загружает историю конверсации.
+     * Загружает историю конверсации: окно последних сообщений в пределах
+     * conversation.history.window.token-budget (первым - summary более старой части, если есть).
      *
      * Strategy (Two-level cache):
-     * 1. Проверить L1 кеш (RAM/ConcurrentHashMap)
-     * 2. Если не найдено, загрузить из L2 кеша (PostgreSQL)
-     * 3. Поместить в L1 кеш для будущих запросов
+     * 1. Проверить L1 кеш (RAM/Caffeine)
+     * 2. Если не найдено, загрузить из L2 кеша (PostgreSQL); параллельные промахи
+     *    по одной конверсации ждут одну загрузку
+     * 3. Поместить в L1 кеш для будущих запросов (пустая история не кешируется)
      *
      * @param conversationId ID конверсации
      * @return Список сообщений в хронологическом порядке
@@ -64,26 +129,27 @@ public class ConversationHistoryService {
             return new ArrayList<>();
         }
 
-        // Level 1: Проверяем RAM кеш
-        List<Message> cached = conversationCache.get(conversationId);
-        if (cached != null) {
-            log.debug("📦 L1 cache HIT: Retrieved {} messages from RAM for: {}", cached.size(), conversationId);
-            return new ArrayList<>(cached); // Возвращаем копию для иммутабельности
+        // Level 1: RAM кеш, при промахе - Level 2 (БД)
+        CachedConversation cached = conversationCache.get(conversationId, this::loadFromDatabase);
+        if (cached == null) {
+            return new ArrayList<>();
         }
+        return new ArrayList<>(cached.messages()); // Возвращаем копию для иммутабельности
+    }
 
-        // Level 2: Загружаем из БД
-        log.debug("📦 L1 cache MISS: Loading from database for: {}", conversationId);
-        List<Message> dbMessages = persistenceService.loadHistory(conversationId);
-
-        // Кешируем в RAM если есть данные
-        if (!dbMessages.isEmpty()) {
-            conversationCache.put(conversationId, new ArrayList<>(dbMessages));
-            log.debug("📦 L2 cache HIT: Loaded {} messages from DB and cached in RAM", dbMessages.size());
-        } else {
-            log.debug("📦 L2 cache MISS: No history found in DB for: {}", conversationId);
+    /**
+     * Загружает всю историю конверсации (без окна и без L1 кеша).
+     * Для просмотра/экспорта; для контекста LLM используется getHistory.
+     *
+     * @param conversationId ID конверсации
+     * @return Все сообщения в хронологическом порядке
+     */
+    public List<Message> getFullHistory(String conversationId) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return new ArrayList<>();
         }
-
-        return dbMessages;
+        return writeBehindService.loadWithPending(conversationId,
+                () -> persistenceService.loadHistory(conversationId));
     }
 
     /**
@@ -119,13 +185,15 @@ public class ConversationHistoryService {
             return;
         }
 
-        // Добавляем в L1 кеш
-        Message message = new Message(role, content);
-        conversationCache.computeIfAbsent(conversationId, k -> new ArrayList<>())
-                .add(message);
+        boolean cached = conversationCache.asMap().containsKey(conversationId);
 
-        // Сохраняем в L2 кеш (БД)
-        persistenceService.saveMessage(conversationId, role, content, model);
+        // Сохраняем в L2 кеш (БД): write-behind, иначе синхронно
+        if (!writeBehindService.enqueue(conversationId, role, content, model, null, null, null)) {
+            persistenceService.saveMessage(conversationId, role, content, model);
+        }
+
+        // Добавляем в L1 кеш
+        appendToCache(conversationId, new Message(role, content), cached);
 
         log.debug("Added {} message to conversationId: {}", role, conversationId);
     }
@@ -148,14 +216,17 @@ public class ConversationHistoryService {
             return;
         }
 
-        // Добавляем в L1 кеш
-        Message message = new Message(role, content);
-        conversationCache.computeIfAbsent(conversationId, k -> new ArrayList<>())
-                .add(message);
+        boolean cached = conversationCache.asMap().containsKey(conversationId);
 
-        // Сохраняем в L2 кеш (БД) с метриками
-        persistenceService.saveMessageWithMetrics(conversationId, role, content, model,
-                inputTokens, outputTokens, responseTimeMs);
+        // Сохраняем в L2 кеш (БД) с метриками: write-behind, иначе синхронно
+        if (!writeBehindService.enqueue(conversationId, role, content, model,
+                inputTokens, outputTokens, responseTimeMs)) {
+            persistenceService.saveMessageWithMetrics(conversationId, role, content, model,
+                    inputTokens, outputTokens, responseTimeMs);
+        }
+
+        // Добавляем в L1 кеш
+        appendToCache(conversationId, new Message(role, content), cached);
 
         log.debug("Added {} message with metrics to conversationId: {}", role, conversationId);
     }
@@ -178,12 +249,12 @@ public class ConversationHistoryService {
             return;
         }
 
-        // Обновляем L1 кеш
-        conversationCache.put(conversationId, new ArrayList<>(history));
-
         // Сохраняем в L2 кеш (БД)
         persistenceService.saveMessages(conversationId, history, model);
 
+        // Обновляем L1 кеш
+        conversationCache.put(conversationId, CachedConversation.of(history, 0, windowTokenBudget));
+
         log.info("💾 Saved {} messages to conversationId: {}", history.size(), conversationId);
     }
 
@@ -205,11 +276,11 @@ public class ConversationHistoryService {
             return;
         }
 
-        // Удаляем из L1 кеша (RAM)
-        conversationCache.remove(conversationId);
+        // Удаляем из L2 кеша (БД) вместе с ещё не записанными сообщениями
+        writeBehindService.discard(conversationId, () -> persistenceService.deleteHistory(conversationId));
 
-        // Удаляем из L2 кеша (БД)
-        persistenceService.deleteHistory(conversationId);
+        // Удаляем из L1 кеша (RAM) после БД - параллельная загрузка не закеширует старую историю
+        conversationCache.invalidate(conversationId);
 
         log.info("🗑️ Cleared history for conversationId: {} from both cache levels", conversationId);
     }
@@ -220,14 +291,35 @@ public class ConversationHistoryService {
      * @return количество конверсаций в памяти
      */
     public int getConversationCount() {
-        return conversationCache.size();
+        return (int) conversationCache.estimatedSize();
+    }
+
+    /**
+     * Статистика L1 кеша (для диагностики; метрики также в Actuator)
+     *
+     * @return размер, вес и счётчики hit/miss/eviction
+     */
+    public Map<String, Object> getCacheStats() {
+        CacheStats stats = conversationCache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("conversations", conversationCache.estimatedSize());
+        result.put("weightChars", conversationCache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L));
+        result.put("maxWeightChars", maxWeightChars);
+        result.put("idleTtlMinutes", idleTtlMinutes);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
     }
 
     /**
      * Очищает L1 кеш (осторожно! Данные остаются в БД)
      */
     public void clearL1Cache() {
-        conversationCache.clear();
+        conversationCache.invalidateAll();
         log.info("Cleared L1 cache (in-memory). Data preserved in database.");
     }
 
@@ -244,6 +336,20 @@ public class ConversationHistoryService {
         return persistenceService.getMessageCount(conversationId);
     }
 
+    /**
+     * Получает текст первого сообщения конверсации из БД
+     * (окно истории в L1 кеше начинается с последних сообщений)
+     *
+     * @param conversationId ID конверсации
+     * @return текст первого сообщения или null
+     */
+    public String getFirstMessage(String conversationId) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return null;
+        }
+        return persistenceService.getFirstMessage(conversationId);
+    }
+
     /**
      * Получает статистику конверсации
      *
@@ -269,5 +375,87 @@ public class ConversationHistoryService {
         }
         return persistenceService.historyExists(conversationId);
     }
-}
 
+    // ==================== L1 кеш ====================
+
+    private CachedConversation loadFromDatabase(String conversationId) {
+        log.debug("📦 L1 cache MISS: Loading from database for: {}", conversationId);
+        boolean[] summaryIncluded = new boolean[1];
+        List<Message> dbMessages = writeBehindService.loadWithPending(conversationId, () -> {
+            HistoryPersistenceService.HistoryWindow window =
+                    persistenceService.loadRecentHistory(conversationId, windowTokenBudget, windowPageSize);
+            summaryIncluded[0] = window.summaryIncluded();
+            return window.messages();
+        });
+        if (dbMessages.isEmpty()) {
+            log.debug("📦 L2 cache MISS: No history found in DB for: {}", conversationId);
+            return null;
+        }
+        log.debug("📦 L2 cache HIT: Loaded {} messages from DB and cached in RAM", dbMessages.size());
+        return CachedConversation.of(dbMessages, summaryIncluded[0] ? 1 : 0, windowTokenBudget);
+    }
+
+    /**
+     * Добавляет сообщение к закешированной конверсации (вызывается после записи в БД).
+     * Была ли конверсация в кеше до записи - иначе запись сбрасывается: её могли загрузить
+     * из БД параллельно, и следующая загрузка уже содержит новое сообщение.
+     */
+    private void appendToCache(String conversationId, Message message, boolean wasCached) {
+        if (!wasCached) {
+            conversationCache.invalidate(conversationId);
+            return;
+        }
+        conversationCache.asMap().computeIfPresent(conversationId,
+                (id, conversation) -> conversation.append(message, windowTokenBudget));
+    }
+
+    /**
+     * Неизменяемый снимок окна истории конверсации в L1 кеше.
+     * Первые pinned сообщений (summary) не вытесняются; остальные обрезаются с начала,
+     * пока окно не уложится в бюджет токенов (самое новое сообщение остаётся всегда).
+     *
+     * @param messages сообщения в хронологическом порядке
+     * @param pinned число закреплённых сообщений в начале
+     * @param weight суммарный размер в символах (для вытеснения по весу)
+     */
+    record CachedConversation(List<Message> messages, int pinned, int weight) {
+
+        static CachedConversation of(List<Message> messages, int pinned, int tokenBudget) {
+            return window(messages, pinned, tokenBudget);
+        }
+
+        CachedConversation append(Message message, int tokenBudget) {
+            List<Message> appended = new ArrayList<>(messages.size() + 1);
+            appended.addAll(messages);
+            appended.add(message);
+            return window(appended, pinned, tokenBudget);
+        }
+
+        private static CachedConversation window(List<Message> messages, int pinned, int tokenBudget) {
+            int tokens = 0;
+            for (int i = pinned; i < messages.size(); i++) {
+                tokens += TokenEstimator.estimate(messages.get(i).getContent());
+            }
+            int start = pinned;
+            while (tokens > tokenBudget && messages.size() - start > 1) {
+                tokens -= TokenEstimator.estimate(messages.get(start).getContent());
+                start++;
+            }
+
+            List<Message> kept = new ArrayList<>(messages.size() - start + pinned);
+            kept.addAll(messages.subList(0, pinned));
+            kept.addAll(messages.subList(start, messages.size()));
+            long weight = 0;
+            for (Message message : kept) {
+                weight += weigh(message);
+            }
+            return new CachedConversation(Collections.unmodifiableList(kept), pinned,
+                    (int) Math.min(Integer.MAX_VALUE, weight));
+        }
+
+        private static int weigh(Message message) {
+            String content = message.getContent();
+            return MESSAGE_OVERHEAD_CHARS + (content != null ? content.length() : 0);
+        }
+    }
+}
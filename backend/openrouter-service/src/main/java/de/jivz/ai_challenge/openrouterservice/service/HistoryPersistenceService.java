@@ -3,13 +3,19 @@ package de.jivz.ai_challenge.openrouterservice.service;
 import de.jivz.ai_challenge.openrouterservice.dto.Message;
 import de.jivz.ai_challenge.openrouterservice.persistence.MemoryRepository;
 import de.jivz.ai_challenge.openrouterservice.persistence.entity.MemoryEntry;
+import de.jivz.ai_challenge.openrouterservice.service.history.TokenEstimator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -21,7 +27,7 @@ import java.util.stream.Collectors;
  * - Чистое разделение ответственности
  *
  * Функциональность:
- * - Загрузка истории из PostgreSQL
+ * - Загрузка истории из PostgreSQL (полная или окно последних сообщений)
  * - Сохранение отдельного сообщения
  * - Сохранение множества сообщений (batch operation)
  * - Удаление истории
@@ -76,6 +82,98 @@ public class HistoryPersistenceService {
         }
     }
 
+    /**
+     * Окно последних сообщений конверсации.
+     *
+     * @param messages сообщения в хронологическом порядке (summary, если есть, первым)
+     * @param summaryIncluded первое сообщение - summary более старой части диалога
+     * @param complete окно содержит всю историю (ничего не отброшено)
+     */
+    public record HistoryWindow(List<Message> messages, boolean summaryIncluded, boolean complete) {
+
+        public static HistoryWindow empty() {
+            return new HistoryWindow(new ArrayList<>(), false, true);
+        }
+    }
+
+    /**
+     * Загружает окно последних сообщений, листая страницы от новых к старым.
+     *
+     * Остановка:
+     * - бюджет токенов исчерпан (самое новое сообщение берётся всегда);
+     * - встретилось summary (isCompressed, role=system) - оно покрывает всё, что старше;
+     * - история закончилась.
+     * Если окно обрезано бюджетом, в начало добавляется последнее summary (если есть).
+     *
+     * @param conversationId ID конверсации
+     * @param tokenBudget бюджет токенов окна (оценка TokenEstimator)
+     * @param pageSize размер страницы запроса
+     * @return окно в хронологическом порядке
+     */
+    @Transactional(readOnly = true)
+    public HistoryWindow loadRecentHistory(String conversationId, int tokenBudget, int pageSize) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return HistoryWindow.empty();
+        }
+
+        try {
+            List<MemoryEntry> newestFirst = new ArrayList<>();
+            Set<Long> seenIds = new HashSet<>();
+            MemoryEntry summary = null;
+            boolean complete = false;
+            long tokens = 0;
+            int page = 0;
+
+            paging:
+            while (true) {
+                List<MemoryEntry> entries = memoryRepository.findByConversationIdOrderByTimestampDesc(
+                        conversationId, PageRequest.of(page, pageSize));
+                for (MemoryEntry entry : entries) {
+                    // Новые вставки сдвигают OFFSET - одна строка может прийти на двух страницах
+                    if (!seenIds.add(entry.getId())) {
+                        continue;
+                    }
+                    if (Boolean.TRUE.equals(entry.getIsCompressed()) && entry.isSystemMessage()) {
+                        summary = entry;
+                        break paging;
+                    }
+                    int entryTokens = TokenEstimator.estimate(entry.getContent());
+                    if (!newestFirst.isEmpty() && tokens + entryTokens > tokenBudget) {
+                        break paging;
+                    }
+                    newestFirst.add(entry);
+                    tokens += entryTokens;
+                }
+                if (entries.size() < pageSize) {
+                    complete = true;
+                    break;
+                }
+                page++;
+            }
+
+            if (!complete && summary == null) {
+                Optional<MemoryEntry> lastSummary = memoryRepository
+                        .findFirstByConversationIdAndIsCompressedTrueAndRoleOrderByTimestampDesc(conversationId, "system");
+                summary = lastSummary.orElse(null);
+            }
+
+            Collections.reverse(newestFirst);
+            List<Message> messages = new ArrayList<>(newestFirst.size() + 1);
+            if (summary != null) {
+                messages.add(new Message(summary.getRole(), summary.getContent()));
+            }
+            newestFirst.forEach(entry -> messages.add(new Message(entry.getRole(), entry.getContent())));
+
+            log.debug("📥 Loaded window of {} messages (~{} tokens, {} pages, summary={}, complete={}) for: {}",
+                    newestFirst.size(), tokens, page + 1, summary != null, complete, conversationId);
+            return new HistoryWindow(messages, summary != null, complete);
+
+        } catch (Exception e) {
+            log.error("❌ Error loading history window for conversationId {}: {}", conversationId, e.getMessage());
+            return HistoryWindow.empty();
+        }
+    }
+
     /**
      * Загружает только оригинальные (не сжатые) сообщения
      *
@@ -280,6 +378,27 @@ public class HistoryPersistenceService {
         }
     }
 
+    /**
+     * Получает текст первого (самого старого) сообщения конверсации — для превью
+     *
+     * @param conversationId ID конверсации
+     * @return текст первого сообщения или null
+     */
+    @Transactional(readOnly = true)
+    public String getFirstMessage(String conversationId) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return null;
+        }
+
+        try {
+            MemoryEntry first = memoryRepository.findFirstByConversationIdOrderByTimestampAsc(conversationId);
+            return first != null ? first.getContent() : null;
+        } catch (Exception e) {
+            log.error("Error getting first message: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Получает статистику конверсации (токены, стоимость, количество сообщений)
      *
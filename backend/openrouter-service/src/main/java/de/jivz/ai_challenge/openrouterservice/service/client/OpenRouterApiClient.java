@@ -1,14 +1,21 @@
 package de.jivz.ai_challenge.openrouterservice.service.client;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.jivz.ai_challenge.openrouterservice.config.OpenRouterProperties;
 import de.jivz.ai_challenge.openrouterservice.dto.Message;
 import de.jivz.ai_challenge.openrouterservice.dto.OpenRouterApiRequest;
 import de.jivz.ai_challenge.openrouterservice.dto.OpenRouterApiResponse;
+import de.jivz.ai_challenge.openrouterservice.dto.OpenRouterStreamChunk;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
@@ -23,14 +30,19 @@ import java.util.stream.Collectors;
 @Slf4j
 public class OpenRouterApiClient {
 
+    private static final String STREAM_DONE_MARKER = "[DONE]";
+
     private final WebClient webClient;
     private final OpenRouterProperties properties;
+    private final ObjectMapper objectMapper;
 
     public OpenRouterApiClient(
             @Qualifier("openRouterWebClient") WebClient webClient,
-            OpenRouterProperties properties) {
+            OpenRouterProperties properties,
+            ObjectMapper objectMapper) {
         this.webClient = webClient;
         this.properties = properties;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -85,6 +97,66 @@ public class OpenRouterApiClient {
         }
     }
 
+    /**
+     * Sendet eine Chat-Anfrage mit stream: true.
+     * OpenRouter liefert Server-Sent Events; jedes "data:" Event wird zu einem Chunk,
+     * Kommentare (": OPENROUTER PROCESSING") und "[DONE]" werden verworfen.
+     * Die Anfrage wird erst beim Subscribe gesendet, Cancel bricht die Generierung ab.
+     *
+     * @param messages Die Chat-Nachrichten
+     * @param model Das Modell (null = Standard-Modell)
+     * @param temperature Die Temperatur für die Generierung
+     * @param maxTokens Maximale Anzahl von Tokens
+     * @return Die Chunks der Antwort in Reihenfolge
+     */
+    public Flux<OpenRouterStreamChunk> streamChatRequest(List<Message> messages, String model,
+                                                        Double temperature, Integer maxTokens) {
+        List<OpenRouterApiRequest.ChatMessage> apiMessages = messages.stream()
+                .map(m -> OpenRouterApiRequest.ChatMessage.builder()
+                        .role(m.getRole())
+                        .content(m.getContent())
+                        .build())
+                .collect(Collectors.toList());
+
+        OpenRouterApiRequest request = OpenRouterApiRequest.builder()
+                .model(model != null ? model : properties.getDefaultModel())
+                .messages(apiMessages)
+                .temperature(temperature != null ? temperature : properties.getDefaultTemperature())
+                .maxTokens(maxTokens != null ? maxTokens : properties.getDefaultMaxTokens())
+                .topP(properties.getDefaultTopP())
+                .stream(true)
+                .build();
+
+        return webClient.post()
+                .uri("/chat/completions")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(request)
+                .retrieve()
+                .onStatus(HttpStatusCode::is4xxClientError, r -> r.bodyToMono(String.class)
+                        .flatMap(body -> Mono.error(new RuntimeException("Client error: " + body))))
+                .onStatus(HttpStatusCode::is5xxServerError, r -> r.bodyToMono(String.class)
+                        .flatMap(body -> Mono.error(new RuntimeException("Server error: " + body))))
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE_MARKER.equals(data.trim()))
+                .mapNotNull(this::parseStreamChunk)
+                .doOnSubscribe(s -> log.info("📤 Streaming from OpenRouter with {} messages", messages.size()))
+                .doOnError(e -> log.error("❌ Error streaming from OpenRouter: {}", e.getMessage()));
+    }
+
+    private OpenRouterStreamChunk parseStreamChunk(String data) {
+        if (data.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(data, OpenRouterStreamChunk.class);
+        } catch (JsonProcessingException e) {
+            // Ein defektes Event soll nicht den ganzen Stream abbrechen
+            log.warn("⚠️ Skipping unparsable stream chunk: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+
     /**
      * Sendet eine schnelle Anfrage für Kontext-Erkennung.
      * Verwendet niedrige max_tokens für schnelle Antwort.
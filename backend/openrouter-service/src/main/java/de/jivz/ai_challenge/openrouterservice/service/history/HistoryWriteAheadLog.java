@@ -0,0 +1,181 @@
+package de.jivz.ai_challenge.openrouterservice.service.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Локальный журнал (WAL) сообщений, ещё не записанных в БД.
+ *
+ * Формат - строки:
+ * - "M {json}" - сообщение (PendingHistoryMessage)
+ * - "C {sequence}" - все сообщения до sequence включительно записаны в БД
+ * - "D {sequence} {json conversationId}" - конверсация удалена, её сообщения
+ *   до sequence включительно при восстановлении пропускаются
+ *
+ * При fsync=true каждая запись принудительно сбрасывается на диск (FileChannel.force),
+ * иначе данные переживают падение процесса, но не ОС.
+ * Когда журнал превышает compactThresholdBytes, он переписывается без подтверждённых
+ * и удалённых сообщений (временный файл + атомарная замена).
+ * Гарантия at-least-once: при падении между INSERT и записью "C" батч повторится.
+ *
+ * Не потокобезопасен - синхронизацией управляет HistoryWriteBehindService.
+ */
+@Slf4j
+final class HistoryWriteAheadLog implements Closeable {
+
+    private static final String MESSAGE_PREFIX = "M ";
+    private static final String CHECKPOINT_PREFIX = "C ";
+    private static final String DISCARD_PREFIX = "D ";
+
+    private final Path path;
+    private final boolean fsync;
+    private final long compactThresholdBytes;
+    private final ObjectMapper objectMapper;
+    private FileChannel channel;
+
+    /**
+     * Результат чтения журнала.
+     *
+     * @param messages неподтверждённые и не удалённые сообщения (в порядке записи)
+     * @param lastSequence наибольший номер в журнале (новые номера должны быть больше)
+     */
+    record Recovery(List<PendingHistoryMessage> messages, long lastSequence) {
+    }
+
+    HistoryWriteAheadLog(Path path, boolean fsync, long compactThresholdBytes,
+                         ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.fsync = fsync;
+        this.compactThresholdBytes = compactThresholdBytes;
+        this.objectMapper = objectMapper;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = open();
+    }
+
+    /**
+     * Сообщения из журнала, которые не подтверждены checkpoint'ом и не удалены.
+     * Неполная последняя строка (падение во время записи) пропускается.
+     */
+    Recovery recover() throws IOException {
+        List<PendingHistoryMessage> messages = new ArrayList<>();
+        Map<String, Long> discarded = new HashMap<>();
+        long checkpoint = 0;
+        long lastSequence = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            try {
+                if (line.startsWith(MESSAGE_PREFIX)) {
+                    PendingHistoryMessage message = objectMapper.readValue(
+                            line.substring(MESSAGE_PREFIX.length()), PendingHistoryMessage.class);
+                    messages.add(message);
+                    lastSequence = Math.max(lastSequence, message.sequence());
+                } else if (line.startsWith(CHECKPOINT_PREFIX)) {
+                    checkpoint = Math.max(checkpoint, Long.parseLong(line.substring(CHECKPOINT_PREFIX.length()).trim()));
+                } else if (line.startsWith(DISCARD_PREFIX)) {
+                    String[] parts = line.substring(DISCARD_PREFIX.length()).split(" ", 2);
+                    long sequence = Long.parseLong(parts[0]);
+                    discarded.merge(objectMapper.readValue(parts[1], String.class), sequence, Math::max);
+                    lastSequence = Math.max(lastSequence, sequence);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("⚠️ Skipping corrupt WAL line in {}: {}", path, e.getMessage());
+            }
+        }
+        long confirmed = checkpoint;
+        List<PendingHistoryMessage> pending = messages.stream()
+                .filter(message -> message.sequence() > confirmed)
+                .filter(message -> message.sequence() > discarded.getOrDefault(message.conversationId(), 0L))
+                .toList();
+        return new Recovery(pending, lastSequence);
+    }
+
+    void append(PendingHistoryMessage message) throws IOException {
+        write(MESSAGE_PREFIX + objectMapper.writeValueAsString(message) + "\n");
+    }
+
+    /**
+     * Подтверждает сообщения до sequence; при превышении порога журнал сжимается.
+     */
+    void checkpoint(long sequence) throws IOException {
+        write(CHECKPOINT_PREFIX + sequence + "\n");
+        if (channel.size() > compactThresholdBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * Помечает сообщения конверсации до sequence включительно как удалённые.
+     */
+    void discard(String conversationId, long sequence) throws IOException {
+        write(DISCARD_PREFIX + sequence + " " + objectMapper.writeValueAsString(conversationId) + "\n");
+    }
+
+    void truncate() throws IOException {
+        channel.truncate(0);
+        if (fsync) {
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Переписывает журнал, оставляя только неподтверждённые и не удалённые сообщения.
+     * При падении во время сжатия остаётся старый журнал целиком.
+     */
+    private void compact() throws IOException {
+        long before = channel.size();
+        List<PendingHistoryMessage> pending = recover().messages();
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (PendingHistoryMessage message : pending) {
+                writeFully(out, MESSAGE_PREFIX + objectMapper.writeValueAsString(message) + "\n");
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = open();
+        log.debug("🗜️ Compacted history WAL {}: {} -> {} bytes, {} pending messages",
+                path, before, channel.size(), pending.size());
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void write(String line) throws IOException {
+        writeFully(channel, line);
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    private static void writeFully(FileChannel target, String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+package de.jivz.ai_challenge.openrouterservice.service.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.persistence.MemoryEntryBatchWriter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind запись истории чата.
+ *
+ * Единственная ответственность (SRP):
+ * Сообщения ставятся в ограниченную очередь и записываются в memory_entries
+ * фоновым потоком батчами (MemoryEntryBatchWriter), поэтому ответ чата не ждёт БД.
+ *
+ * - Backpressure: при заполненной очереди вызывающий ждёт до enqueue-timeout-ms,
+ *   затем enqueue возвращает false и сообщение пишется синхронно (как раньше)
+ * - Durability: опциональный WAL с fsync (HistoryWriteAheadLog), при старте
+ *   неподтверждённые сообщения из журнала дописываются в БД (кроме удалённых конверсаций)
+ * - Shutdown: @PreDestroy останавливает поток и выгружает очередь до закрытия DataSource
+ * - Согласованность чтения: loadWithPending отдаёт строки БД + ещё не записанные сообщения;
+ *   батч пишется под write-lock, поэтому сообщение видно ровно в одном из источников
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HistoryWriteBehindService {
+
+    private static final long MAX_RETRY_BACKOFF_MS = 30_000;
+
+    private final MemoryEntryBatchWriter batchWriter;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Value("${conversation.history.write-behind.enabled:true}")
+    private boolean enabled;
+
+    @Value("${conversation.history.write-behind.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${conversation.history.write-behind.batch-size:200}")
+    private int batchSize;
+
+    @Value("${conversation.history.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    /**
+     * Сколько ждать места в очереди, прежде чем писать синхронно.
+     */
+    @Value("${conversation.history.write-behind.enqueue-timeout-ms:50}")
+    private long enqueueTimeoutMs;
+
+    @Value("${conversation.history.write-behind.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${conversation.history.write-behind.wal.enabled:false}")
+    private boolean walEnabled;
+
+    @Value("${conversation.history.write-behind.wal.path:./data/history-wal.log}")
+    private String walPath;
+
+    @Value("${conversation.history.write-behind.wal.fsync:true}")
+    private boolean walFsync;
+
+    /**
+     * Размер журнала, после которого он сжимается до неподтверждённых сообщений.
+     */
+    @Value("${conversation.history.write-behind.wal.compact-threshold-bytes:16777216}")
+    private long walCompactThresholdBytes;
+
+    private final Object journalLock = new Object();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final AtomicLong flushedMessages = new AtomicLong();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong fallbackWrites = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    private BlockingQueue<PendingHistoryMessage> queue;
+    // Батч, не записанный из-за ошибки БД; пишется первым (guarded by flushLock)
+    private List<PendingHistoryMessage> retryBatch = new ArrayList<>();
+    private HistoryWriteAheadLog wal;
+    private long lastSequence;
+    private long lastFlushedSequence;
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            log.info("💾 History write-behind disabled, messages are written synchronously");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (walEnabled) {
+            openWal();
+        }
+
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("conversation.history.write-behind.queue", queue, BlockingQueue::size)
+                    .description("Messages waiting to be written to the database")
+                    .register(registry);
+            Gauge.builder("conversation.history.write-behind.fallback", fallbackWrites, AtomicLong::get)
+                    .description("Messages written synchronously because the queue was full")
+                    .register(registry);
+        }
+
+        running = true;
+        accepting = true;
+        writerThread = Thread.ofPlatform()
+                .name("history-write-behind")
+                .daemon(true)
+                .start(this::runWriter);
+        log.info("💾 History write-behind started: capacity={}, batchSize={}, flushInterval={}ms, wal={}",
+                queueCapacity, batchSize, flushIntervalMs, walEnabled ? walPath + (walFsync ? " (fsync)" : "") : "off");
+    }
+
+    /**
+     * Ставит сообщение в очередь на запись.
+     *
+     * @return false - сообщение не принято (выключено, очередь полна, остановка),
+     *         вызывающий должен записать его синхронно
+     */
+    public boolean enqueue(String conversationId, String role, String content, String model,
+                           Integer inputTokens, Integer outputTokens, Long responseTimeMs) {
+        if (!accepting || conversationId == null || conversationId.isBlank()
+                || content == null || content.isBlank()) {
+            return false;
+        }
+        PendingHistoryMessage message = new PendingHistoryMessage(0, conversationId, role, content, model,
+                inputTokens, outputTokens, responseTimeMs, LocalDateTime.now());
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(enqueueTimeoutMs);
+        while (true) {
+            // Номер, журнал и очередь меняются вместе: порядок в очереди = порядок в WAL
+            synchronized (journalLock) {
+                if (queue.remainingCapacity() > 0) {
+                    PendingHistoryMessage numbered = message.withSequence(++lastSequence);
+                    if (wal != null && !appendToWal(numbered)) {
+                        lastSequence--;
+                        return false;
+                    }
+                    queue.add(numbered);
+                    break;
+                }
+            }
+            if (System.nanoTime() >= deadline) {
+                fallbackWrites.incrementAndGet();
+                log.warn("⚠️ History write-behind queue full ({}), writing synchronously", queueCapacity);
+                return false;
+            }
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        if (queue.size() >= batchSize) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    /**
+     * История из БД плюс ещё не записанные сообщения конверсации (в порядке постановки).
+     * Во время чтения батч не пишется, поэтому сообщения не теряются и не дублируются.
+     *
+     * @param conversationId ID конверсации
+     * @param databaseLoader загрузка из БД
+     */
+    public List<Message> loadWithPending(String conversationId, Supplier<List<Message>> databaseLoader) {
+        if (!enabled) {
+            return databaseLoader.get();
+        }
+        flushLock.readLock().lock();
+        try {
+            List<Message> messages = new ArrayList<>(databaseLoader.get());
+            int persisted = messages.size();
+            for (PendingHistoryMessage pending : retryBatch) {
+                if (pending.conversationId().equals(conversationId)) {
+                    messages.add(new Message(pending.role(), pending.content()));
+                }
+            }
+            for (PendingHistoryMessage pending : queue) {
+                if (pending.conversationId().equals(conversationId)) {
+                    messages.add(new Message(pending.role(), pending.content()));
+                }
+            }
+            if (messages.size() > persisted) {
+                log.debug("📥 Added {} pending messages to history of {}", messages.size() - persisted, conversationId);
+            }
+            return messages;
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет ещё не записанные сообщения конверсации и выполняет удаление из БД,
+     * не пересекаясь с записью батча (иначе удалённая история "воскреснет").
+     */
+    public void discard(String conversationId, Runnable databaseDelete) {
+        if (!enabled) {
+            databaseDelete.run();
+            return;
+        }
+        flushLock.writeLock().lock();
+        try {
+            retryBatch.removeIf(pending -> pending.conversationId().equals(conversationId));
+            synchronized (journalLock) {
+                queue.removeIf(pending -> pending.conversationId().equals(conversationId));
+                // Удалённые сообщения не должны вернуться из журнала после перезапуска
+                discardInWal(conversationId, lastSequence);
+            }
+            databaseDelete.run();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Записывает всё, что стоит в очереди (синхронно, в потоке вызывающего).
+     *
+     * @return true - очередь пуста и ошибок записи нет
+     */
+    public boolean flush() {
+        if (!enabled) {
+            return true;
+        }
+        while (hasPending()) {
+            if (flushOnce() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (enabled) {
+            stats.put("queued", queue.size());
+            stats.put("queueCapacity", queueCapacity);
+            stats.put("retryPending", retryBatch.size());
+        }
+        stats.put("flushedMessages", flushedMessages.get());
+        stats.put("flushedBatches", flushedBatches.get());
+        stats.put("fallbackWrites", fallbackWrites.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("wal", walEnabled);
+        return stats;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean flushed = flush();
+        int remaining = queue.size() + retryBatch.size();
+        if (flushed) {
+            log.info("💾 History write-behind stopped, all messages flushed ({} total)", flushedMessages.get());
+        } else if (wal != null) {
+            log.error("❌ History write-behind stopped with {} unflushed messages, kept in WAL {}", remaining, walPath);
+        } else {
+            log.error("❌ History write-behind stopped with {} unflushed messages (no WAL, lost)", remaining);
+        }
+        closeWal();
+    }
+
+    // ==================== Внутренние методы ====================
+
+    private void runWriter() {
+        long backoffMs = flushIntervalMs;
+        while (running) {
+            if (!hasPending()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+                continue;
+            }
+            if (flushOnce() < 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                backoffMs = Math.min(MAX_RETRY_BACKOFF_MS, backoffMs * 2);
+            } else {
+                backoffMs = flushIntervalMs;
+            }
+        }
+    }
+
+    private boolean hasPending() {
+        flushLock.readLock().lock();
+        try {
+            return !retryBatch.isEmpty() || !queue.isEmpty();
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Один батч: ошибочный батч повторяется первым, затем добор из очереди.
+     *
+     * @return число записанных сообщений или -1 при ошибке БД
+     */
+    private int flushOnce() {
+        long flushedUpTo;
+        int written;
+        flushLock.writeLock().lock();
+        try {
+            List<PendingHistoryMessage> batch = new ArrayList<>(retryBatch);
+            retryBatch = new ArrayList<>();
+            queue.drainTo(batch, Math.max(0, batchSize - batch.size()));
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            try {
+                written = batchWriter.insertAll(batch);
+            } catch (Exception e) {
+                retryBatch = batch;
+                failedFlushes.incrementAndGet();
+                log.error("❌ Failed to write {} history messages, will retry: {}", batch.size(), e.getMessage());
+                return -1;
+            }
+            flushedUpTo = batch.getLast().sequence();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        flushedMessages.addAndGet(written);
+        flushedBatches.incrementAndGet();
+        checkpoint(flushedUpTo);
+        log.debug("💾 Flushed {} history messages", written);
+        return written;
+    }
+
+    private void openWal() {
+        try {
+            wal = new HistoryWriteAheadLog(Path.of(walPath), walFsync, walCompactThresholdBytes, objectMapper);
+            HistoryWriteAheadLog.Recovery recovery = wal.recover();
+            List<PendingHistoryMessage> recovered = recovery.messages();
+            if (recovered.isEmpty()) {
+                wal.truncate();
+                return;
+            }
+            lastSequence = recovery.lastSequence();
+            log.warn("♻️ Recovering {} unflushed history messages from WAL {}", recovered.size(), walPath);
+            try {
+                flushedMessages.addAndGet(batchWriter.insertAll(recovered));
+                lastFlushedSequence = lastSequence;
+                wal.truncate();
+            } catch (Exception e) {
+                // БД недоступна - сообщения остаются в журнале и пишутся фоновым потоком
+                log.error("❌ WAL recovery write failed, retrying in background: {}", e.getMessage());
+                retryBatch = new ArrayList<>(recovered);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open history WAL " + walPath, e);
+        }
+    }
+
+    private boolean appendToWal(PendingHistoryMessage message) {
+        try {
+            wal.append(message);
+            return true;
+        } catch (IOException e) {
+            log.error("❌ Failed to append to history WAL, writing synchronously: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void discardInWal(String conversationId, long upTo) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            wal.discard(conversationId, upTo);
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to write discard marker to history WAL: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Подтверждает запись в журнале; при пустой очереди журнал обрезается,
+     * иначе сжимается до неподтверждённых сообщений по порогу размера.
+     */
+    private void checkpoint(long flushedUpTo) {
+        synchronized (journalLock) {
+            lastFlushedSequence = Math.max(lastFlushedSequence, flushedUpTo);
+            if (wal == null) {
+                return;
+            }
+            try {
+                if (lastFlushedSequence == lastSequence) {
+                    wal.truncate();
+                } else {
+                    wal.checkpoint(lastFlushedSequence);
+                }
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to checkpoint history WAL: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void closeWal() {
+        if (wal == null) {
+            return;
+        }
+        try {
+            wal.close();
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to close history WAL: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package de.jivz.ai_challenge.openrouterservice.service.history;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сообщение истории, ожидающее записи в БД (write-behind).
+ *
+ * @param sequence порядковый номер в журнале (0 - запись мимо журнала)
+ * @param timestamp время постановки в очередь; сохраняется в memory_entries.timestamp
+ */
+public record PendingHistoryMessage(
+        long sequence,
+        String conversationId,
+        String role,
+        String content,
+        String model,
+        Integer inputTokens,
+        Integer outputTokens,
+        Long responseTimeMs,
+        LocalDateTime timestamp) {
+
+    public Integer totalTokens() {
+        return inputTokens != null && outputTokens != null ? inputTokens + outputTokens : null;
+    }
+
+    PendingHistoryMessage withSequence(long sequence) {
+        return new PendingHistoryMessage(sequence, conversationId, role, content, model,
+                inputTokens, outputTokens, responseTimeMs, timestamp);
+    }
+}
@@ -0,0 +1,20 @@
+package de.jivz.ai_challenge.openrouterservice.service.history;
+
+/**
+ * Грубая оценка числа токенов без токенизатора (~4 символа на токен).
+ * Используется только для ограничения окна истории, не для биллинга.
+ */
+public final class TokenEstimator {
+
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
@@ -8,18 +8,35 @@ import de.jivz.ai_challenge.openrouterservice.mcp.model.MCPToolResult;
 import de.jivz.ai_challenge.openrouterservice.service.client.OpenRouterApiClient;
 import de.jivz.ai_challenge.openrouterservice.service.parser.ResponseParsingService;
 import de.jivz.ai_challenge.openrouterservice.service.source.SourceExtractionService;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Orchestrator für den Tool-Execution-Loop.
  * Koordiniert den iterativen Prozess: LLM → Tools → LLM → ... → Final Answer
+ *
+ * Die Tool-Calls eines Schritts sind voneinander unabhängig und laufen parallel auf
+ * Virtual Threads (Latenz = langsamster Call statt Summe). Pro Call gilt ein eigenes Timeout,
+ * pro MCP-Server begrenzt ein Semaphore die gleichzeitigen Aufrufe. Die Ergebnisse
+ * erscheinen im TOOL_RESULT in der Reihenfolge der tool_calls.
  */
 @Service
 @Slf4j
@@ -37,6 +54,26 @@ public class ToolExecutionOrchestrator {
     private final SourceExtractionService sourceExtractionService;
     private final ObjectMapper objectMapper;
 
+    @Value("${mcp.tools.parallel:true}")
+    private boolean parallel;
+
+    /**
+     * Timeout eines Tool-Calls ab Erhalt des Server-Slots.
+     */
+    @Value("${mcp.tools.call-timeout-ms:30000}")
+    private long callTimeoutMs;
+
+    @Value("${mcp.tools.max-concurrent-per-server:4}")
+    private int maxConcurrentPerServer;
+
+    private final ExecutorService toolExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Semaphore> serverPermits = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    public void shutdown() {
+        toolExecutor.shutdownNow();
+    }
+
     /**
      * Führt den Tool-Execution-Loop aus.
      *
@@ -92,11 +129,15 @@ public class ToolExecutionOrchestrator {
         // Antwort des Modells als assistant hinzufügen
         messages.add(new Message("assistant", objectMapper.valueToTree(parsed).toString()));
 
+        List<ToolResponse.ToolCall> toolCalls = parsed.getToolCalls();
+        List<String> toolResults = executeAll(toolCalls);
+
         StringBuilder allToolResults = new StringBuilder();
         allToolResults.append("Tool execution results:\n\n");
 
-        for (ToolResponse.ToolCall toolCall : parsed.getToolCalls()) {
-            String toolResult = executeSingleTool(toolCall);
+        for (int i = 0; i < toolCalls.size(); i++) {
+            ToolResponse.ToolCall toolCall = toolCalls.get(i);
+            String toolResult = toolResults.get(i);
 
             // Quellen aus RAG-Ergebnissen extrahieren
             if (RAG_SEARCH_TOOL.equals(toolCall.getName())) {
@@ -113,6 +154,77 @@ public class ToolExecutionOrchestrator {
         log.info("📨 Added tool results as user message");
     }
 
+    /**
+     * Führt die Tool-Calls eines Schritts aus (parallel, falls aktiviert).
+     *
+     * @return Ergebnisse in der Reihenfolge der Tool-Calls
+     */
+    private List<String> executeAll(List<ToolResponse.ToolCall> toolCalls) {
+        long startTime = System.currentTimeMillis();
+        List<String> results = new ArrayList<>(toolCalls.size());
+
+        if (!parallel || toolCalls.size() == 1) {
+            for (ToolResponse.ToolCall toolCall : toolCalls) {
+                results.add(executeWithLimits(toolCall));
+            }
+        } else {
+            List<CompletableFuture<String>> futures = toolCalls.stream()
+                    .map(toolCall -> CompletableFuture.supplyAsync(() -> executeWithLimits(toolCall), toolExecutor))
+                    .toList();
+            // join() in Call-Reihenfolge → deterministische Reihenfolge im TOOL_RESULT
+            futures.forEach(future -> results.add(future.join()));
+        }
+
+        log.info("⚡ Executed {} tool call(s) in {}ms (parallel={})",
+                toolCalls.size(), System.currentTimeMillis() - startTime, parallel);
+        return results;
+    }
+
+    /**
+     * Führt einen Tool-Call mit Server-Limit und Timeout aus.
+     * Fehler werden wie bei executeSingleTool als "ERROR: ..." zurückgegeben.
+     */
+    private String executeWithLimits(ToolResponse.ToolCall toolCall) {
+        Semaphore permits = serverPermits.computeIfAbsent(serverOf(toolCall.getName()),
+                server -> new Semaphore(Math.max(1, maxConcurrentPerServer)));
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR: Tool execution interrupted";
+        }
+
+        try {
+            Future<String> call = toolExecutor.submit(() -> executeSingleTool(toolCall));
+            try {
+                return call.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                call.cancel(true);
+                log.warn("⏱️ MCP tool {} timed out after {}ms", toolCall.getName(), callTimeoutMs);
+                return String.format("ERROR: Tool %s timed out after %dms", toolCall.getName(), callTimeoutMs);
+            } catch (ExecutionException e) {
+                return String.format("ERROR: %s", e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                call.cancel(true);
+                Thread.currentThread().interrupt();
+                return "ERROR: Tool execution interrupted";
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Server-Präfix aus "server:tool" (Schlüssel für das Concurrency-Limit).
+     */
+    private static String serverOf(String fullToolName) {
+        if (fullToolName == null) {
+            return "";
+        }
+        int separator = fullToolName.indexOf(':');
+        return separator > 0 ? fullToolName.substring(0, separator) : fullToolName;
+    }
+
     /**
      * Führt ein einzelnes MCP-Tool aus.
      */
@@ -0,0 +1,91 @@
+package de.jivz.ai_challenge.openrouterservice.service;
+
+import de.jivz.ai_challenge.openrouterservice.config.OpenRouterProperties;
+import de.jivz.ai_challenge.openrouterservice.dto.ChatRequest;
+import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.dto.OpenRouterApiResponse;
+import de.jivz.ai_challenge.openrouterservice.dto.OpenRouterStreamChunk;
+import de.jivz.ai_challenge.openrouterservice.service.client.OpenRouterApiClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatStreamingServiceTest {
+
+    private OpenRouterApiClient apiClient;
+    private ConversationHistoryService historyService;
+    private SimpleMeterRegistry meterRegistry;
+    private ChatStreamingService service;
+
+    @BeforeEach
+    void setUp() {
+        apiClient = mock(OpenRouterApiClient.class);
+        historyService = mock(ConversationHistoryService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        OpenRouterProperties properties = new OpenRouterProperties();
+        properties.setDefaultModel("test/model");
+        service = new ChatStreamingService(apiClient, historyService, properties, meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamPersistsFullReplyAndRecordsTtft() {
+        when(historyService.getHistory("conv-1")).thenReturn(List.of(new Message("user", "Hallo")));
+        when(apiClient.streamChatRequest(anyList(), eq("test/model"), any(), any())).thenReturn(Flux.just(
+                chunk("Hal", null),
+                chunk("lo ", null),
+                chunk("Welt", null),
+                chunk(null, OpenRouterApiResponse.Usage.builder().promptTokens(12).completionTokens(3).build())));
+
+        service.stream(ChatRequest.builder().message("Sag hallo").conversationId("conv-1").build());
+
+        verify(historyService, timeout(2000)).addMessageWithMetrics(
+                eq("conv-1"), eq("assistant"), eq("Hallo Welt"), eq("test/model"), eq(12), eq(3), any());
+        verify(historyService).addMessage("conv-1", "user", "Sag hallo", null);
+
+        ArgumentCaptor<List<Message>> captor = ArgumentCaptor.forClass(List.class);
+        verify(apiClient).streamChatRequest(captor.capture(), eq("test/model"), any(), any());
+        assertThat(captor.getValue()).extracting(Message::getContent).containsExactly("Hallo", "Sag hallo");
+
+        assertThat(meterRegistry.get(ChatStreamingService.TTFT_METRIC).tag("model", "test/model").timer().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void testStreamErrorDoesNotPersist() {
+        when(historyService.getHistory("conv-2")).thenReturn(List.of());
+        when(apiClient.streamChatRequest(anyList(), any(), any(), any()))
+                .thenReturn(Flux.concat(Flux.just(chunk("Teil", null)), Flux.error(new RuntimeException("boom"))));
+
+        service.stream(ChatRequest.builder().message("Frage").conversationId("conv-2").build());
+
+        verify(historyService, after(300).never())
+                .addMessageWithMetrics(anyString(), anyString(), anyString(), any(), any(), any(), any());
+        verify(historyService, never()).addMessage(anyString(), anyString(), anyString(), any());
+    }
+
+    private static OpenRouterStreamChunk chunk(String content, OpenRouterApiResponse.Usage usage) {
+        List<OpenRouterStreamChunk.Choice> choices = content == null ? List.of() : List.of(
+                OpenRouterStreamChunk.Choice.builder()
+                        .index(0)
+                        .delta(OpenRouterStreamChunk.Delta.builder().content(content).build())
+                        .build());
+        return OpenRouterStreamChunk.builder().choices(choices).usage(usage).build();
+    }
+}
@@ -0,0 +1,167 @@
+package de.jivz.ai_challenge.openrouterservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.persistence.MemoryEntryBatchWriter;
+import de.jivz.ai_challenge.openrouterservice.service.history.HistoryWriteBehindService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationHistoryServiceTest {
+
+    private HistoryPersistenceService persistenceService;
+    private SimpleMeterRegistry meterRegistry;
+    private ConversationHistoryService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        persistenceService = mock(HistoryPersistenceService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(meterRegistry);
+
+        // Write-behind выключен: сообщения пишутся синхронно через HistoryPersistenceService
+        HistoryWriteBehindService writeBehindService = new HistoryWriteBehindService(
+                mock(MemoryEntryBatchWriter.class), new ObjectMapper(), provider);
+        ReflectionTestUtils.setField(writeBehindService, "enabled", false);
+
+        service = new ConversationHistoryService(persistenceService, writeBehindService, provider);
+        ReflectionTestUtils.setField(service, "maxWeightChars", 10_000L);
+        ReflectionTestUtils.setField(service, "idleTtlMinutes", 60L);
+        ReflectionTestUtils.setField(service, "windowTokenBudget", 8000);
+        ReflectionTestUtils.setField(service, "windowPageSize", 50);
+        service.init();
+    }
+
+    @Test
+    void testMissLoadsFromPersistenceOnce() {
+        stubWindow("conv-1", false, new Message("user", "Hallo"));
+
+        service.getHistory("conv-1");
+        List<Message> history = service.getHistory("conv-1");
+
+        assertThat(history).extracting(Message::getContent).containsExactly("Hallo");
+        verify(persistenceService, times(1)).loadRecentHistory("conv-1", 8000, 50);
+        assertThat(service.getCacheStats()).containsEntry("hitCount", 1L).containsEntry("missCount", 1L);
+        assertThat(meterRegistry.find("cache.gets").tag("cache", "conversation-history").meters()).isNotEmpty();
+    }
+
+    @Test
+    void testAppendUpdatesCachedConversation() {
+        stubWindow("conv-1", false, new Message("user", "Hallo"));
+        service.getHistory("conv-1");
+
+        service.addMessage("conv-1", "assistant", "Hi!", "model");
+
+        assertThat(service.getHistory("conv-1")).extracting(Message::getContent).containsExactly("Hallo", "Hi!");
+        verify(persistenceService).saveMessage("conv-1", "assistant", "Hi!", "model");
+        verify(persistenceService, times(1)).loadRecentHistory("conv-1", 8000, 50);
+    }
+
+    @Test
+    void testConcurrentAppendsAreNotLost() throws Exception {
+        ReflectionTestUtils.setField(service, "maxWeightChars", 1_000_000L);
+        service.init();
+        stubWindow("conv-1", false, new Message("system", "start"));
+        service.getHistory("conv-1");
+
+        int threads = 8;
+        int perThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    service.addMessage("conv-1", "user", "m", null);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(service.getHistory("conv-1")).hasSize(1 + threads * perThread);
+    }
+
+    @Test
+    void testEvictsByTotalCharacters() {
+        String large = "x".repeat(4_000);
+        when(persistenceService.loadRecentHistory(anyString(), anyInt(), anyInt()))
+                .thenAnswer(inv -> new HistoryPersistenceService.HistoryWindow(
+                        new ArrayList<>(List.of(new Message("user", large))), false, true));
+
+        for (int i = 0; i < 10; i++) {
+            service.getHistory("conv-" + i);
+        }
+        service.getHistory("conv-9");
+
+        assertThat((Long) service.getCacheStats().get("weightChars")).isLessThanOrEqualTo(10_000L);
+        assertThat((Long) service.getCacheStats().get("evictionCount")).isPositive();
+    }
+
+    @Test
+    void testEmptyHistoryIsNotCached() {
+        when(persistenceService.loadRecentHistory(any(), anyInt(), anyInt()))
+                .thenReturn(HistoryPersistenceService.HistoryWindow.empty());
+
+        service.getHistory("conv-empty");
+        service.getHistory("conv-empty");
+
+        verify(persistenceService, times(2)).loadRecentHistory("conv-empty", 8000, 50);
+        assertThat(service.getConversationCount()).isZero();
+    }
+
+    @Test
+    void testAppendTrimsOldestButKeepsSummary() {
+        ReflectionTestUtils.setField(service, "windowTokenBudget", 10);
+        stubWindow("conv-1", true,
+                new Message("system", "summary"),
+                new Message("user", "a".repeat(16)),
+                new Message("assistant", "b".repeat(16)));
+        service.getHistory("conv-1");
+
+        service.addMessage("conv-1", "user", "c".repeat(16), null);
+
+        assertThat(service.getHistory("conv-1")).extracting(Message::getContent)
+                .containsExactly("summary", "b".repeat(16), "c".repeat(16));
+    }
+
+    @Test
+    void testFullHistoryBypassesWindow() {
+        stubWindow("conv-1", false, new Message("user", "neu"));
+        when(persistenceService.loadHistory("conv-1"))
+                .thenReturn(List.of(new Message("user", "alt"), new Message("user", "neu")));
+
+        assertThat(service.getHistory("conv-1")).hasSize(1);
+        assertThat(service.getFullHistory("conv-1")).extracting(Message::getContent).containsExactly("alt", "neu");
+    }
+
+    private void stubWindow(String conversationId, boolean summaryIncluded, Message... messages) {
+        when(persistenceService.loadRecentHistory(eq(conversationId), anyInt(), anyInt()))
+                .thenReturn(new HistoryPersistenceService.HistoryWindow(List.of(messages), summaryIncluded, true));
+    }
+}
@@ -0,0 +1,93 @@
+package de.jivz.ai_challenge.openrouterservice.service;
+
+import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.persistence.MemoryRepository;
+import de.jivz.ai_challenge.openrouterservice.persistence.entity.MemoryEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HistoryPersistenceServiceTest {
+
+    private MemoryRepository memoryRepository;
+    private HistoryPersistenceService service;
+
+    @BeforeEach
+    void setUp() {
+        memoryRepository = mock(MemoryRepository.class);
+        service = new HistoryPersistenceService(memoryRepository);
+    }
+
+    @Test
+    void testWindowPagesUntilHistoryEnds() {
+        when(memoryRepository.findByConversationIdOrderByTimestampDesc("conv-1", PageRequest.of(0, 2)))
+                .thenReturn(List.of(entry(3, "user", "c"), entry(2, "assistant", "b")));
+        when(memoryRepository.findByConversationIdOrderByTimestampDesc("conv-1", PageRequest.of(1, 2)))
+                .thenReturn(List.of(entry(1, "user", "a")));
+
+        HistoryPersistenceService.HistoryWindow window = service.loadRecentHistory("conv-1", 100, 2);
+
+        assertThat(window.messages()).extracting(Message::getContent).containsExactly("a", "b", "c");
+        assertThat(window.complete()).isTrue();
+        assertThat(window.summaryIncluded()).isFalse();
+        verify(memoryRepository, never())
+                .findFirstByConversationIdAndIsCompressedTrueAndRoleOrderByTimestampDesc("conv-1", "system");
+    }
+
+    @Test
+    void testWindowStopsAtSummary() {
+        MemoryEntry summary = entry(2, "system", "summary");
+        summary.setIsCompressed(true);
+        when(memoryRepository.findByConversationIdOrderByTimestampDesc("conv-1", PageRequest.of(0, 10)))
+                .thenReturn(List.of(entry(3, "user", "neu"), summary, entry(1, "user", "alt")));
+
+        HistoryPersistenceService.HistoryWindow window = service.loadRecentHistory("conv-1", 100, 10);
+
+        assertThat(window.messages()).extracting(Message::getContent).containsExactly("summary", "neu");
+        assertThat(window.summaryIncluded()).isTrue();
+    }
+
+    @Test
+    void testWindowCutByBudgetPrependsLatestSummary() {
+        MemoryEntry summary = entry(1, "system", "summary");
+        summary.setIsCompressed(true);
+        when(memoryRepository.findByConversationIdOrderByTimestampDesc("conv-1", PageRequest.of(0, 2)))
+                .thenReturn(List.of(entry(5, "user", "x".repeat(40)), entry(4, "assistant", "y".repeat(40))));
+        when(memoryRepository.findFirstByConversationIdAndIsCompressedTrueAndRoleOrderByTimestampDesc("conv-1", "system"))
+                .thenReturn(Optional.of(summary));
+
+        // Бюджет 10 токенов: входит только самое новое сообщение
+        HistoryPersistenceService.HistoryWindow window = service.loadRecentHistory("conv-1", 10, 2);
+
+        assertThat(window.messages()).extracting(Message::getContent).containsExactly("summary", "x".repeat(40));
+        assertThat(window.complete()).isFalse();
+        assertThat(window.summaryIncluded()).isTrue();
+    }
+
+    @Test
+    void testFirstMessageComesFromOldestEntry() {
+        when(memoryRepository.findFirstByConversationIdOrderByTimestampAsc("conv-1"))
+                .thenReturn(entry(1, "user", "erste Frage"));
+
+        assertThat(service.getFirstMessage("conv-1")).isEqualTo("erste Frage");
+        assertThat(service.getFirstMessage("unknown")).isNull();
+    }
+
+    private static MemoryEntry entry(long id, String role, String content) {
+        return MemoryEntry.builder()
+                .id(id)
+                .conversationId("conv-1")
+                .role(role)
+                .content(content)
+                .build();
+    }
+}
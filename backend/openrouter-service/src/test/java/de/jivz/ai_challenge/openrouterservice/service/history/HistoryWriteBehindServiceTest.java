@@ -0,0 +1,218 @@
+package de.jivz.ai_challenge.openrouterservice.service.history;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.persistence.MemoryEntryBatchWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HistoryWriteBehindServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MemoryEntryBatchWriter batchWriter;
+    private final List<HistoryWriteBehindService> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        batchWriter = mock(MemoryEntryBatchWriter.class);
+        when(batchWriter.insertAll(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+    }
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(HistoryWriteBehindService::shutdown);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMessagesAreFlushedInBatches() {
+        HistoryWriteBehindService service = start(newService(100, 10_000));
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(service.enqueue("conv-1", "user", "m" + i, null, null, null, null)).isTrue();
+        }
+        assertThat(service.flush()).isTrue();
+
+        ArgumentCaptor<List<PendingHistoryMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(batchWriter, atLeastOnce()).insertAll(captor.capture());
+        assertThat(captor.getAllValues().stream().flatMap(List::stream).map(PendingHistoryMessage::content))
+                .containsExactly("m0", "m1", "m2", "m3", "m4");
+    }
+
+    @Test
+    void testPendingMessagesAreVisibleBeforeFlush() {
+        HistoryWriteBehindService service = newService(100, 60_000);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 60_000L);
+        start(service);
+
+        service.enqueue("conv-1", "user", "neu", null, null, null, null);
+        service.enqueue("conv-2", "user", "andere", null, null, null, null);
+
+        List<Message> history = service.loadWithPending("conv-1",
+                () -> List.of(new Message("assistant", "alt")));
+
+        assertThat(history).extracting(Message::getContent).containsExactly("alt", "neu");
+    }
+
+    @Test
+    void testFullQueueFallsBackToSynchronousWrite() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(batchWriter.insertAll(anyList())).thenAnswer(inv -> {
+            release.await();
+            return ((List<?>) inv.getArgument(0)).size();
+        });
+        HistoryWriteBehindService service = start(newService(2, 10));
+
+        service.enqueue("conv-1", "user", "a", null, null, null, null);
+        // Writer завис на первом батче; в очередь помещаются ровно два сообщения
+        verify(batchWriter, timeout(2000)).insertAll(anyList());
+        service.enqueue("conv-1", "user", "b", null, null, null, null);
+        service.enqueue("conv-1", "user", "c", null, null, null, null);
+        boolean accepted = service.enqueue("conv-1", "user", "d", null, null, null, null);
+        release.countDown();
+
+        assertThat(accepted).isFalse();
+        assertThat(service.getStats()).containsEntry("fallbackWrites", 1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWalRecoversUnflushedMessagesAfterRestart() {
+        Path wal = tempDir.resolve("history-wal.log");
+        when(batchWriter.insertAll(anyList())).thenThrow(new IllegalStateException("db down"));
+        HistoryWriteBehindService crashed = newService(100, 60_000);
+        enableWal(crashed, wal);
+        crashed.start();
+        crashed.enqueue("conv-1", "user", "überlebt", null, 1, 2, 3L);
+        // "Падение" процесса: без shutdown(), сообщение есть только в WAL
+
+        MemoryEntryBatchWriter recoveredWriter = mock(MemoryEntryBatchWriter.class);
+        when(recoveredWriter.insertAll(anyList())).thenReturn(1);
+        HistoryWriteBehindService restarted = new HistoryWriteBehindService(
+                recoveredWriter, new ObjectMapper().findAndRegisterModules(), mock(ObjectProvider.class));
+        configure(restarted, 100, 60_000);
+        enableWal(restarted, wal);
+        start(restarted);
+
+        ArgumentCaptor<List<PendingHistoryMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(recoveredWriter).insertAll(captor.capture());
+        assertThat(captor.getValue()).singleElement()
+                .satisfies(message -> {
+                    assertThat(message.content()).isEqualTo("überlebt");
+                    assertThat(message.totalTokens()).isEqualTo(3);
+                });
+        ReflectionTestUtils.setField(crashed, "running", false);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWalSkipsDiscardedConversationsAfterRestart() {
+        Path wal = tempDir.resolve("history-wal.log");
+        when(batchWriter.insertAll(anyList())).thenThrow(new IllegalStateException("db down"));
+        HistoryWriteBehindService crashed = newService(100, 60_000);
+        enableWal(crashed, wal);
+        crashed.start();
+        crashed.enqueue("conv-1", "user", "gelöscht", null, null, null, null);
+        crashed.enqueue("conv-2", "user", "bleibt", null, null, null, null);
+        crashed.discard("conv-1", () -> { });
+        // Очередь не пуста (conv-2), журнал не обрезан - удаление фиксирует маркер "D"
+
+        MemoryEntryBatchWriter recoveredWriter = mock(MemoryEntryBatchWriter.class);
+        when(recoveredWriter.insertAll(anyList())).thenReturn(1);
+        HistoryWriteBehindService restarted = new HistoryWriteBehindService(
+                recoveredWriter, new ObjectMapper().findAndRegisterModules(), mock(ObjectProvider.class));
+        configure(restarted, 100, 60_000);
+        enableWal(restarted, wal);
+        start(restarted);
+
+        ArgumentCaptor<List<PendingHistoryMessage>> captor = ArgumentCaptor.forClass(List.class);
+        verify(recoveredWriter).insertAll(captor.capture());
+        assertThat(captor.getValue()).extracting(PendingHistoryMessage::content).containsExactly("bleibt");
+        ReflectionTestUtils.setField(crashed, "running", false);
+    }
+
+    @Test
+    void testWalCompactsConfirmedMessages() throws Exception {
+        Path path = tempDir.resolve("history-wal.log");
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        try (HistoryWriteAheadLog wal = new HistoryWriteAheadLog(path, false, 1, objectMapper)) {
+            for (long sequence = 1; sequence <= 3; sequence++) {
+                wal.append(new PendingHistoryMessage(sequence, "conv-1", "user", "m" + sequence,
+                        null, null, null, null, LocalDateTime.now()));
+            }
+            wal.checkpoint(2);
+            wal.append(new PendingHistoryMessage(4, "conv-1", "user", "m4",
+                    null, null, null, null, LocalDateTime.now()));
+
+            assertThat(Files.readAllLines(path)).hasSize(2).allMatch(line -> line.startsWith("M "));
+            assertThat(wal.recover().messages()).extracting(PendingHistoryMessage::content)
+                    .containsExactly("m3", "m4");
+        }
+    }
+
+    @Test
+    void testShutdownFlushesQueue() {
+        HistoryWriteBehindService service = newService(100, 60_000);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 60_000L);
+        service.start();
+        service.enqueue("conv-1", "user", "letzte", null, null, null, null);
+
+        service.shutdown();
+
+        verify(batchWriter).insertAll(anyList());
+        assertThat(service.enqueue("conv-1", "user", "zu spät", null, null, null, null)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private HistoryWriteBehindService newService(int capacity, long enqueueTimeoutMs) {
+        ObjectProvider<MeterRegistry> provider = mock(ObjectProvider.class);
+        HistoryWriteBehindService service = new HistoryWriteBehindService(
+                batchWriter, new ObjectMapper().findAndRegisterModules(), provider);
+        configure(service, capacity, enqueueTimeoutMs);
+        return service;
+    }
+
+    private static void configure(HistoryWriteBehindService service, int capacity, long enqueueTimeoutMs) {
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "queueCapacity", capacity);
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 20L);
+        ReflectionTestUtils.setField(service, "enqueueTimeoutMs", enqueueTimeoutMs);
+        ReflectionTestUtils.setField(service, "shutdownTimeoutMs", 2000L);
+    }
+
+    private static void enableWal(HistoryWriteBehindService service, Path wal) {
+        ReflectionTestUtils.setField(service, "walEnabled", true);
+        ReflectionTestUtils.setField(service, "walPath", wal.toString());
+        ReflectionTestUtils.setField(service, "walFsync", true);
+    }
+
+    private HistoryWriteBehindService start(HistoryWriteBehindService service) {
+        service.start();
+        started.add(service);
+        return service;
+    }
+}
@@ -0,0 +1,141 @@
+package de.jivz.ai_challenge.openrouterservice.service.orchestrator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jivz.ai_challenge.openrouterservice.dto.Message;
+import de.jivz.ai_challenge.openrouterservice.dto.ToolResponse;
+import de.jivz.ai_challenge.openrouterservice.mcp.MCPFactory;
+import de.jivz.ai_challenge.openrouterservice.mcp.model.MCPToolResult;
+import de.jivz.ai_challenge.openrouterservice.service.client.OpenRouterApiClient;
+import de.jivz.ai_challenge.openrouterservice.service.parser.ResponseParsingService;
+import de.jivz.ai_challenge.openrouterservice.service.source.SourceExtractionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ToolExecutionOrchestratorTest {
+
+    private static final long TOOL_LATENCY_MS = 300;
+
+    private OpenRouterApiClient apiClient;
+    private ResponseParsingService parsingService;
+    private MCPFactory mcpFactory;
+    private ToolExecutionOrchestrator orchestrator;
+
+    @BeforeEach
+    void setUp() {
+        apiClient = mock(OpenRouterApiClient.class);
+        parsingService = mock(ResponseParsingService.class);
+        mcpFactory = mock(MCPFactory.class);
+        orchestrator = new ToolExecutionOrchestrator(apiClient, parsingService, mcpFactory,
+                mock(SourceExtractionService.class), new ObjectMapper());
+        ReflectionTestUtils.setField(orchestrator, "parallel", true);
+        ReflectionTestUtils.setField(orchestrator, "callTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(orchestrator, "maxConcurrentPerServer", 4);
+
+        when(apiClient.sendChatRequest(anyList(), any(), any())).thenReturn("raw");
+        when(parsingService.parseWithRetry(anyString(), anyList(), any())).thenReturn(
+                ToolResponse.builder().step("tool").toolCalls(List.of(
+                        call("rag:search_documents"),
+                        call("git:get_pr_info"),
+                        call("docker:list_containers"))).build(),
+                ToolResponse.builder().step("final").answer("fertig").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        orchestrator.shutdown();
+    }
+
+    @Test
+    void testToolCallsRunInParallelWithStableOrder() {
+        // Jeder Call wartet, bis alle drei laufen - sequentiell bliebe der Peak bei 1
+        CountDownLatch allStarted = new CountDownLatch(3);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(mcpFactory.route(anyString(), anyMap())).thenAnswer(inv -> {
+            String name = inv.getArgument(0);
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            allStarted.countDown();
+            allStarted.await(2, TimeUnit.SECONDS);
+            // Erster Call am langsamsten - Reihenfolge darf sich trotzdem nicht ändern
+            Thread.sleep(name.startsWith("rag") ? TOOL_LATENCY_MS : TOOL_LATENCY_MS / 3);
+            active.decrementAndGet();
+            return success(name);
+        });
+        List<Message> messages = new ArrayList<>();
+
+        String answer = orchestrator.executeToolLoop(messages, 0.0);
+
+        assertThat(answer).isEqualTo("fertig");
+        assertThat(maxActive).hasValue(3);
+        String toolResults = messages.get(1).getContent();
+        assertThat(toolResults.indexOf("TOOL_RESULT rag:search_documents"))
+                .isLessThan(toolResults.indexOf("TOOL_RESULT git:get_pr_info"));
+        assertThat(toolResults.indexOf("TOOL_RESULT git:get_pr_info"))
+                .isLessThan(toolResults.indexOf("TOOL_RESULT docker:list_containers"));
+    }
+
+    @Test
+    void testSlowToolTimesOutWithoutBlockingOthers() {
+        ReflectionTestUtils.setField(orchestrator, "callTimeoutMs", 100L);
+        when(mcpFactory.route(anyString(), anyMap())).thenAnswer(inv -> {
+            String name = inv.getArgument(0);
+            if (name.startsWith("git")) {
+                Thread.sleep(5000);
+            }
+            return success(name);
+        });
+        List<Message> messages = new ArrayList<>();
+
+        orchestrator.executeToolLoop(messages, 0.0);
+
+        String toolResults = messages.get(1).getContent();
+        assertThat(toolResults).contains("TOOL_RESULT git:get_pr_info:\nERROR: Tool git:get_pr_info timed out");
+        assertThat(toolResults).contains("TOOL_RESULT docker:list_containers:\n\"ok docker:list_containers\"");
+    }
+
+    @Test
+    void testConcurrencyIsCappedPerServer() {
+        ReflectionTestUtils.setField(orchestrator, "maxConcurrentPerServer", 1);
+        when(parsingService.parseWithRetry(anyString(), anyList(), any())).thenReturn(
+                ToolResponse.builder().step("tool").toolCalls(List.of(
+                        call("rag:a"), call("rag:b"), call("rag:c"))).build(),
+                ToolResponse.builder().step("final").answer("fertig").build());
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(mcpFactory.route(anyString(), anyMap())).thenAnswer(inv -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            active.decrementAndGet();
+            return success(inv.getArgument(0));
+        });
+
+        orchestrator.executeToolLoop(new ArrayList<>(), 0.0);
+
+        assertThat(maxActive).hasValue(1);
+    }
+
+    private static ToolResponse.ToolCall call(String name) {
+        return ToolResponse.ToolCall.builder().name(name).arguments(Map.of()).build();
+    }
+
+    private static MCPToolResult success(String name) {
+        return MCPToolResult.builder().success(true).result("ok " + name).toolName(name).build();
+    }
+}
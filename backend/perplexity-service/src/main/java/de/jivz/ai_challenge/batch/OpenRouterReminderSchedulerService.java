@@ -7,6 +7,7 @@ import de.jivz.ai_challenge.dto.Message;
 import de.jivz.ai_challenge.dto.StructuredSummaryDto;
 import de.jivz.ai_challenge.entity.ReminderSummary;
 import de.jivz.ai_challenge.entity.ReminderSummary.Priority;
+import de.jivz.ai_challenge.entity.ReminderSummary.Source;
 import de.jivz.ai_challenge.entity.ReminderSummary.SummaryType;
 import de.jivz.ai_challenge.mcp.MCPFactory;
 import de.jivz.ai_challenge.mcp.model.MCPToolResult;
@@ -434,6 +435,7 @@ public class OpenRouterReminderSchedulerService {
             .itemsCount(itemsCount)
             .priority(priority)
             .notified(false)
+            .source(Source.OPENROUTER)
             .nextReminderAt(LocalDateTime.now().plusDays(1))
             .build();
 
@@ -0,0 +1,355 @@
+package de.jivz.ai_challenge.batch;
+
+import de.jivz.ai_challenge.entity.ReminderSummary;
+import de.jivz.ai_challenge.entity.ReminderSummary.SummaryType;
+import de.jivz.ai_challenge.repository.ReminderSummaryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ReminderDispatcher - führt fällige Erinnerungen (nextReminderAt) für beliebig viele Benutzer aus.
+ * Berücksichtigt nur Zusammenfassungen des ReminderSchedulerService (source=PERPLEXITY);
+ * Planungen anderer Scheduler (z.B. OpenRouterReminderSchedulerService) bleiben unberührt.
+ *
+ * Ablauf:
+ * 1. Ein Poller lädt periodisch Erinnerungen, die innerhalb des Lookahead-Fensters fällig werden,
+ *    in eine DelayQueue (Priority Queue nach Fälligkeit)
+ * 2. Der Dispatcher-Thread nimmt jede Erinnerung genau zum Fälligkeitszeitpunkt aus der Queue
+ * 3. Row-Level-Claim (UPDATE ... WHERE claimed_until < now) - bei mehreren Instanzen
+ *    führt genau eine die Erinnerung aus; solange der Workflow läuft, verlängert ein Heartbeat
+ *    den Claim, nach einem Absturz läuft er nach claim-lease-seconds ab
+ * 4. Per-User-Rate-Limit: höchstens ein Lauf pro Benutzer gleichzeitig (instanzübergreifend
+ *    im Claim geprüft) und frühestens per-user-min-interval-seconds nach der letzten
+ *    Zusammenfassung - sonst wird neu geplant
+ * 5. Ein begrenzter Worker-Pool führt den Reminder-Workflow aus (ReminderSchedulerService.runReminder);
+ *    die neue Zusammenfassung plant die nächste Erinnerung, ältere Planungen des Benutzers entfallen
+ *
+ * Konfiguration via application.properties:
+ * - reminder.dispatcher.enabled=true
+ * - reminder.dispatcher.worker-threads=4
+ * - reminder.dispatcher.poll-interval-ms=30000
+ * - reminder.dispatcher.per-user-min-interval-seconds=300
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReminderDispatcher {
+
+    /**
+     * Wartezeit wenn für den Benutzer gerade ein Workflow läuft.
+     */
+    private static final Duration BUSY_USER_DELAY = Duration.ofSeconds(30);
+
+    private final ReminderSummaryRepository reminderRepository;
+    private final ReminderSchedulerService reminderSchedulerService;
+
+    @Value("${reminder.dispatcher.enabled:true}")
+    private boolean enabled;
+
+    @Value("${reminder.dispatcher.worker-threads:4}")
+    private int workerThreads;
+
+    /**
+     * Erinnerungen, die innerhalb dieses Fensters fällig werden, kommen in die Queue.
+     */
+    @Value("${reminder.dispatcher.lookahead-seconds:120}")
+    private long lookaheadSeconds;
+
+    @Value("${reminder.dispatcher.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * Gültigkeit eines Claims; während des Laufs alle claim-lease-seconds / 3 verlängert.
+     */
+    @Value("${reminder.dispatcher.claim-lease-seconds:600}")
+    private long claimLeaseSeconds;
+
+    @Value("${reminder.dispatcher.per-user-min-interval-seconds:300}")
+    private long perUserMinIntervalSeconds;
+
+    @Value("${reminder.dispatcher.retry-delay-seconds:300}")
+    private long retryDelaySeconds;
+
+    /**
+     * Kennung dieser Instanz für Claims (leer - Hostname und PID).
+     */
+    @Value("${reminder.dispatcher.instance-id:}")
+    private String instanceId;
+
+    private final DelayQueue<DueReminder> dueQueue = new DelayQueue<>();
+    private final Set<Long> queuedIds = ConcurrentHashMap.newKeySet();
+    private final Set<String> runningUsers = ConcurrentHashMap.newKeySet();
+    private Semaphore workerPermits;
+    private ExecutorService workers;
+    private ScheduledExecutorService heartbeat;
+    private Thread dispatchThread;
+
+    @PostConstruct
+    void start() {
+        if (instanceId == null || instanceId.isBlank()) {
+            instanceId = defaultInstanceId();
+        }
+        int threads = Math.max(1, workerThreads);
+        workerPermits = new Semaphore(threads);
+        workers = Executors.newFixedThreadPool(threads, Thread.ofPlatform()
+                .name("reminder-worker-", 0)
+                .daemon(true)
+                .factory());
+        heartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("reminder-claim-heartbeat")
+                .daemon(true)
+                .factory());
+
+        if (enabled) {
+            dispatchThread = Thread.ofPlatform()
+                    .name("reminder-dispatcher")
+                    .daemon(true)
+                    .start(this::dispatchLoop);
+            log.info("⏰ ReminderDispatcher gestartet (Instanz: {}, Worker: {})", instanceId, threads);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (dispatchThread != null) {
+            dispatchThread.interrupt();
+        }
+        // Laufende Claims verfallen nach claim-lease-seconds und werden von anderen Instanzen übernommen
+        workers.shutdownNow();
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Lädt Erinnerungen, die im Lookahead-Fenster fällig werden, in die Queue.
+     * Bereits eingereihte Erinnerungen werden übersprungen.
+     */
+    @Scheduled(fixedDelayString = "${reminder.dispatcher.poll-interval-ms:30000}")
+    public void loadDueReminders() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<ReminderSummary> due = reminderRepository.findDueReminders(ReminderSchedulerService.SOURCE,
+                    now.plusSeconds(lookaheadSeconds), now, PageRequest.of(0, batchSize));
+
+            int added = 0;
+            for (ReminderSummary reminder : due) {
+                if (queuedIds.add(reminder.getId())) {
+                    dueQueue.offer(new DueReminder(reminder.getId(), reminder.getUserId(),
+                            reminder.getNextReminderAt()));
+                    added++;
+                }
+            }
+            if (added > 0) {
+                log.debug("📥 {} fällige Erinnerungen eingereiht (Queue: {})", added, dueQueue.size());
+            }
+        } catch (Exception e) {
+            log.error("❌ Laden fälliger Erinnerungen fehlgeschlagen: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Status für den Reminder-Status-Endpoint.
+     */
+    public Map<String, Object> getStatus() {
+        return Map.of(
+                "enabled", enabled,
+                "instanceId", instanceId,
+                "queued", dueQueue.size(),
+                "runningUsers", runningUsers.size(),
+                "freeWorkers", workerPermits.availablePermits()
+        );
+    }
+
+    // ==================== Internal ====================
+
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                DueReminder reminder = dueQueue.take();
+                // Backpressure: nur claimen, wenn ein Worker frei ist
+                workerPermits.acquire();
+                boolean started = false;
+                try {
+                    started = dispatch(reminder);
+                } catch (Exception e) {
+                    // Claim (falls vorhanden) verfällt, der Poller reiht die Erinnerung erneut ein
+                    queuedIds.remove(reminder.id());
+                    log.error("❌ Erinnerung {} konnte nicht gestartet werden: {}", reminder.id(), e.getMessage());
+                } finally {
+                    if (!started) {
+                        workerPermits.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("❌ Fehler im Reminder-Dispatcher: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Claimt eine fällige Erinnerung und übergibt sie an einen Worker.
+     * Der Aufrufer hält eine Worker-Permit; sie wird vom Worker freigegeben.
+     *
+     * @return true wenn ein Worker gestartet wurde (Permit übergeben)
+     */
+    boolean dispatch(DueReminder reminder) {
+        LocalDateTime now = LocalDateTime.now();
+        if (reminderRepository.claim(reminder.id(), instanceId, now, now.plusSeconds(claimLeaseSeconds)) == 0) {
+            // Von einer anderen Instanz übernommen oder inzwischen neu geplant
+            queuedIds.remove(reminder.id());
+            return false;
+        }
+
+        LocalDateTime allowedAt = rateLimitedUntil(reminder.userId(), now);
+        if (allowedAt != null) {
+            log.debug("⏳ Rate-Limit für Benutzer {} - Erinnerung {} verschoben auf {}",
+                    reminder.userId(), reminder.id(), allowedAt);
+            reminderRepository.releaseClaimed(reminder.id(), instanceId, allowedAt);
+            queuedIds.remove(reminder.id());
+            return false;
+        }
+
+        try {
+            workers.execute(() -> runReminder(reminder));
+        } catch (RejectedExecutionException e) {
+            // Nur beim Herunterfahren - der Claim verfällt nach claim-lease-seconds
+            runningUsers.remove(userKey(reminder.userId()));
+            queuedIds.remove(reminder.id());
+            return false;
+        }
+        return true;
+    }
+
+    private void runReminder(DueReminder reminder) {
+        ScheduledFuture<?> lease = scheduleClaimRenewal(reminder);
+        try {
+            log.info("🔔 Fällige Erinnerung {} für Benutzer {} (fällig: {})",
+                    reminder.id(), reminder.userId(), reminder.dueAt());
+
+            ReminderSummary summary = reminderSchedulerService.runReminder(reminder.userId());
+
+            reminderRepository.completeClaimed(reminder.id(), instanceId);
+            if (summary != null && summary.getId() != null) {
+                // Die neue Zusammenfassung trägt die nächste Erinnerung - eine Planung pro Benutzer
+                reminderRepository.supersedeReminders(reminder.userId(), ReminderSchedulerService.SOURCE,
+                        summary.getId(), LocalDateTime.now());
+            }
+        } catch (Exception e) {
+            LocalDateTime retryAt = LocalDateTime.now().plusSeconds(retryDelaySeconds);
+            log.error("❌ Erinnerung {} für Benutzer {} fehlgeschlagen, neuer Versuch um {}: {}",
+                    reminder.id(), reminder.userId(), retryAt, e.getMessage());
+            reminderRepository.releaseClaimed(reminder.id(), instanceId, retryAt);
+        } finally {
+            lease.cancel(false);
+            runningUsers.remove(userKey(reminder.userId()));
+            queuedIds.remove(reminder.id());
+            workerPermits.release();
+        }
+    }
+
+    /**
+     * Verlängert den Claim alle claim-lease-seconds / 3, solange der Workflow läuft.
+     */
+    private ScheduledFuture<?> scheduleClaimRenewal(DueReminder reminder) {
+        long periodMs = Math.max(1000, claimLeaseSeconds * 1000 / 3);
+        return heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (reminderRepository.renewClaim(reminder.id(), instanceId,
+                        LocalDateTime.now().plusSeconds(claimLeaseSeconds)) == 0) {
+                    log.warn("⚠️ Claim der Erinnerung {} verloren", reminder.id());
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Claim der Erinnerung {} konnte nicht verlängert werden: {}",
+                        reminder.id(), e.getMessage());
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Prüft das Per-User-Rate-Limit und reserviert bei Erfolg den Benutzer (lokal;
+     * andere Instanzen schließt bereits der Claim aus).
+     *
+     * @return null wenn der Lauf erlaubt ist, sonst der früheste erlaubte Zeitpunkt
+     */
+    private LocalDateTime rateLimitedUntil(String userId, LocalDateTime now) {
+        String userKey = userKey(userId);
+        if (!runningUsers.add(userKey)) {
+            return now.plus(BUSY_USER_DELAY);
+        }
+
+        LocalDateTime lastSummaryAt = reminderRepository
+                .findTopByUserIdAndSourceAndSummaryTypeOrderByCreatedAtDesc(
+                        userId, ReminderSchedulerService.SOURCE, SummaryType.TASKS)
+                .map(ReminderSummary::getCreatedAt)
+                .orElse(null);
+        if (lastSummaryAt != null) {
+            LocalDateTime allowedAt = lastSummaryAt.plusSeconds(perUserMinIntervalSeconds);
+            if (allowedAt.isAfter(now)) {
+                runningUsers.remove(userKey);
+                return allowedAt;
+            }
+        }
+        return null;
+    }
+
+    private static String userKey(String userId) {
+        return userId != null ? userId : "";
+    }
+
+    private static String defaultInstanceId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown-host";
+        }
+        return host + ":" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Eintrag der DelayQueue - wird zum Fälligkeitszeitpunkt verfügbar.
+     */
+    record DueReminder(Long id, String userId, LocalDateTime dueAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Duration.between(LocalDateTime.now(), dueAt));
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof DueReminder reminder) {
+                return dueAt.compareTo(reminder.dueAt);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
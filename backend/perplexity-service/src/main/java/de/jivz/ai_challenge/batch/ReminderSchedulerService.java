@@ -11,6 +11,7 @@ import de.jivz.ai_challenge.dto.SonarToolDto.ToolCall;
 import de.jivz.ai_challenge.dto.SonarToolDto.DueTask;
 import de.jivz.ai_challenge.entity.ReminderSummary;
 import de.jivz.ai_challenge.entity.ReminderSummary.Priority;
+import de.jivz.ai_challenge.entity.ReminderSummary.Source;
 import de.jivz.ai_challenge.entity.ReminderSummary.SummaryType;
 import de.jivz.ai_challenge.mcp.MCPFactory;
 import de.jivz.ai_challenge.mcp.model.MCPToolResult;
@@ -24,7 +25,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -46,6 +46,12 @@ import java.util.Map;
  * - reminder.scheduler.enabled=true
  * - reminder.scheduler.cron=0 0 9 * * ?  (ежедневно в 9:00)
  * - reminder.scheduler.user-id=default-user
+ *
+ * Последующие запуски по nextReminderAt (для всех пользователей) выполняет ReminderDispatcher.
+ * Сводки помечаются source=PERPLEXITY - диспетчер выполняет только их.
+ *
+ * Workflow не выполняется в одной транзакции: Tool-Loop (Sonar, MCP) может длиться минутами,
+ * поэтому транзакционны только записи в БД (сохранение сводки, отметка уведомления).
  */
 @Service
 @Slf4j
@@ -56,6 +62,11 @@ public class ReminderSchedulerService {
     private static final String STEP_TOOL = "tool";
     private static final String STEP_FINAL = "final";
 
+    /**
+     * Источник сводок этого сервиса (поле source, по нему работает ReminderDispatcher).
+     */
+    public static final Source SOURCE = Source.PERPLEXITY;
+
 
     private final PerplexityToolClient perplexityToolClient;
     private final ReminderSummaryRepository reminderRepository;
@@ -78,31 +89,51 @@ public class ReminderSchedulerService {
      * По умолчанию: каждый день в 9:00
      * Может быть переопределено в application.properties:
      * reminder.scheduler.cron=0 0 9 * * ?
+     *
+     * Только запускает цепочку напоминаний для reminder.scheduler.user-id:
+     * если у пользователя уже есть запланированное напоминание (nextReminderAt),
+     * дальнейшие запуски выполняет ReminderDispatcher по сроку.
      */
     @Scheduled(cron = "${reminder.scheduler.cron:0 0 9 * * ?}")
-    @Transactional
     public void scheduledReminderTask() {
         if (!schedulerEnabled) {
             log.debug("⏸️ Scheduler напоминаний отключен");
             return;
         }
 
+        if (reminderRepository.existsByUserIdAndSourceAndNextReminderAtIsNotNull(defaultUserId, SOURCE)) {
+            log.debug("⏭️ У пользователя {} уже есть запланированное напоминание", defaultUserId);
+            return;
+        }
+
         log.info("⏰ Запуск планового задания напоминания в {}", LocalDateTime.now());
 
         try {
-            ReminderSummary summary = executeReminderWorkflow(defaultUserId);
+            runReminder(defaultUserId);
+        } catch (Exception e) {
+            log.error("❌ Задание напоминания не удалось: {}", e.getMessage(), e);
+        }
+    }
 
-            if (summary != null) {
-                log.info("✅ Задание напоминания завершено. ID сводки: {}, Название: {}",
-                    summary.getId(), summary.getTitle());
+    /**
+     * Выполняет workflow напоминания и отправляет уведомление.
+     * Используется cron-заданием и ReminderDispatcher (для любого пользователя).
+     * Без общей транзакции - вызов через this из scheduledReminderTask допустим.
+     *
+     * @param userId ID пользователя для сводки
+     * @return Созданная сводка (с nextReminderAt для следующего запуска)
+     */
+    public ReminderSummary runReminder(String userId) {
+        ReminderSummary summary = executeReminderWorkflow(userId);
 
-                // Опционально: отправить уведомление
-                triggerNotification(summary);
-            }
+        if (summary != null) {
+            log.info("✅ Задание напоминания завершено. ID сводки: {}, Название: {}",
+                summary.getId(), summary.getTitle());
 
-        } catch (Exception e) {
-            log.error("❌ Задание напоминания не удалось: {}", e.getMessage(), e);
+            // Опционально: отправить уведомление
+            triggerNotification(summary);
         }
+        return summary;
     }
 
     /**
@@ -112,7 +143,6 @@ public class ReminderSchedulerService {
      * @param userId ID пользователя для сводки
      * @return Созданная сводка
      */
-    @Transactional
     public ReminderSummary executeReminderWorkflow(String userId) {
         log.info("🚀 Выполнение workflow напоминания для пользователя: {}", userId);
 
@@ -303,7 +333,7 @@ public class ReminderSchedulerService {
 
 
     /**
-     * Сохраняет сводку в базе данных.
+     * Сохраняет сводку в базе данных (транзакция репозитория save()).
      */
     private ReminderSummary saveReminderSummary(String userId, ToolLoopResult result) {
         String title = "Сводка по задачам";
@@ -350,6 +380,7 @@ public class ReminderSchedulerService {
             .itemsCount(itemsCount)
             .priority(priority)
             .notified(false)
+            .source(SOURCE)
             .nextReminderAt(LocalDateTime.now().plusDays(1))
             .build();
 
@@ -370,10 +401,11 @@ public class ReminderSchedulerService {
         log.info("📧 Уведомление активировано для сводки: {} (Приоритет: {})",
             summary.getTitle(), summary.getPriority());
 
-        // Отметить как уведомленное
+        // Отметить как уведомленное (собственная транзакция markAsNotified)
+        LocalDateTime notifiedAt = LocalDateTime.now();
+        reminderRepository.markAsNotified(summary.getId(), notifiedAt);
         summary.setNotified(true);
-        summary.setNotifiedAt(LocalDateTime.now());
-        reminderRepository.save(summary);
+        summary.setNotifiedAt(notifiedAt);
     }
 
     /**
@@ -1,19 +1,30 @@
 package de.jivz.ai_challenge.controller;
 
-import de.jivz.ai_challenge.dto.ConversationSummaryDTO;
+import de.jivz.ai_challenge.dto.ConversationSummaryPageDTO;
 import de.jivz.ai_challenge.dto.Message;
+import de.jivz.ai_challenge.service.ConversationExportService;
+import de.jivz.ai_challenge.service.ConversationExportService.ExportFormat;
+import de.jivz.ai_challenge.service.ConversationRollupService;
 import de.jivz.ai_challenge.service.MemoryService;
+import de.jivz.ai_challenge.service.UsageStatsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST API Controller for long-term memory management.
@@ -33,7 +44,16 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class MemoryController {
 
+    private static final int MAX_PAGE_SIZE = 200;
+
+    private static final int DEFAULT_BREAKDOWN_DAYS = 30;
+
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final MemoryService memoryService;
+    private final UsageStatsService usageStatsService;
+    private final ConversationRollupService conversationRollupService;
+    private final ConversationExportService conversationExportService;
 
     /**
      * GET /api/memory/conversations/{userId}
@@ -170,38 +190,90 @@ public class MemoryController {
     }
 
     /**
-     * GET /api/memory/conversation/{conversationId}/export
+     * GET /api/memory/conversation/{conversationId}/export?format=json|ndjson&gzip=false
      *
-     * Exports full conversation to JSON format.
-     * Includes all messages, metadata, and statistics.
+     * Streams the full conversation to the response.
+     * Entries are paged from the database and written one by one - the export is never held in memory.
+     * JSON includes all messages, metadata, and statistics; NDJSON writes one message per line.
      *
      * @param conversationId conversation identifier
-     * @return JSON export of the conversation
+     * @param format json (default) or ndjson
+     * @param gzip compress the response body
+     * @return streamed export of the conversation
      */
-    @GetMapping(value = "/conversation/{conversationId}/export",
-                produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<String> exportConversation(
-            @PathVariable String conversationId
+    @GetMapping("/conversation/{conversationId}/export")
+    public ResponseEntity<StreamingResponseBody> exportConversation(
+            @PathVariable String conversationId,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "false") boolean gzip
     ) {
-        log.info("📤 GET /api/memory/conversation/{}/export", conversationId);
+        log.info("📤 GET /api/memory/conversation/{}/export (format={}, gzip={})", conversationId, format, gzip);
 
-        try {
-            String json = memoryService.exportToJson(conversationId);
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        if (!memoryService.conversationExists(conversationId)) {
+            return ResponseEntity.notFound().build();
+        }
 
-            if (json.contains("\"error\"")) {
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(json);
-            }
+        StreamingResponseBody body = out -> writeExport(out, gzip,
+                target -> conversationExportService.exportConversation(conversationId, exportFormat, target));
 
-            return ResponseEntity.ok()
-                    .header("Content-Disposition",
-                            "attachment; filename=\"conversation_" + conversationId + ".json\"")
-                    .body(json);
+        return exportResponse("conversation_" + conversationId, exportFormat, gzip, body);
+    }
 
-        } catch (Exception e) {
-            log.error("❌ Failed to export conversation: {}", e.getMessage());
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"error\": \"" + e.getMessage() + "\"}");
+    /**
+     * GET /api/memory/export?userId=...&format=json|ndjson&gzip=true
+     *
+     * Bulk export of all conversations (or all conversations of one user) for backups.
+     * Streamed the same way as the single conversation export; gzip is on by default.
+     *
+     * @param userId user filter (optional, default all users)
+     * @param format json (default) or ndjson
+     * @param gzip compress the response body
+     * @return streamed export of all matching conversations
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAllConversations(
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "true") boolean gzip
+    ) {
+        log.info("📤 GET /api/memory/export (userId={}, format={}, gzip={})", userId, format, gzip);
+
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        StreamingResponseBody body = out -> writeExport(out, gzip,
+                target -> conversationExportService.exportAll(userId, exportFormat, target));
+
+        String fileName = userId != null ? "conversations_" + userId : "conversations";
+        return exportResponse(fileName, exportFormat, gzip, body);
+    }
+
+    private interface ExportWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private static void writeExport(OutputStream out, boolean gzip, ExportWriter writer) throws IOException {
+        if (!gzip) {
+            writer.write(out);
+            return;
         }
+        // finish() writes the gzip trailer; the servlet stream itself is closed by the container
+        GZIPOutputStream gzipOut = new GZIPOutputStream(out, EXPORT_BUFFER_SIZE);
+        writer.write(gzipOut);
+        gzipOut.finish();
+    }
+
+    private static ResponseEntity<StreamingResponseBody> exportResponse(String baseName, ExportFormat format,
+                                                                        boolean gzip, StreamingResponseBody body) {
+        String fileName = baseName + (format == ExportFormat.NDJSON ? ".ndjson" : ".json") + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : format == ExportFormat.NDJSON ? MediaType.parseMediaType("application/x-ndjson")
+                : MediaType.APPLICATION_JSON;
+
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
 
     /**
@@ -299,27 +371,103 @@ public class MemoryController {
     }
 
     /**
-     * GET /api/memory/conversations
+     * GET /api/memory/stats/breakdown?from=2025-01-01&to=2025-01-31
      *
-     * Retrieves list of all conversations with metadata (summaries).
+     * Usage per day and per model from the incrementally maintained counters.
+     * Defaults to the last 30 days.
+     *
+     * @param from first day, ISO date (optional)
+     * @param to last day, ISO date (optional, default today)
+     * @return daily and per-model usage
+     */
+    @GetMapping("/stats/breakdown")
+    public ResponseEntity<Map<String, Object>> getUsageBreakdown(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to
+    ) {
+        log.info("📊 GET /api/memory/stats/breakdown (from={}, to={})", from, to);
+
+        try {
+            LocalDate toDay = to != null ? LocalDate.parse(to) : LocalDate.now();
+            LocalDate fromDay = from != null ? LocalDate.parse(from) : toDay.minusDays(DEFAULT_BREAKDOWN_DAYS - 1);
+            if (fromDay.isAfter(toDay)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "from must not be after to"));
+            }
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("from", fromDay.toString());
+            response.put("to", toDay.toString());
+            response.put("byDay", usageStatsService.getDailyBreakdown(fromDay, toDay));
+            response.put("byModel", usageStatsService.getModelBreakdown(fromDay, toDay));
+            response.put("timestamp", new Date().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid date: " + e.getParsedString()));
+        } catch (Exception e) {
+            log.error("❌ Failed to get usage breakdown: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * POST /api/memory/stats/rebuild
+     *
+     * Recomputes the usage counters and the conversation rollup from all stored messages.
+     * Full-table aggregate - only needed after writes that bypassed the memory service.
+     *
+     * @return global statistics after the rebuild
+     */
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildUsageStats() {
+        log.info("🔄 POST /api/memory/stats/rebuild");
+
+        try {
+            usageStatsService.rebuild();
+            conversationRollupService.rebuild();
+            return ResponseEntity.ok(usageStatsService.getTotals());
+
+        } catch (Exception e) {
+            log.error("❌ Failed to rebuild usage stats: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/memory/conversations?limit=50&cursor=...
+     *
+     * Retrieves one page of conversations with metadata (summaries).
      * Returns brief information for each conversation sorted by most recent first.
+     * Pass nextCursor of the response as cursor to get the next page.
      *
-     * @return list of conversation summaries
+     * @param limit page size (1..MAX_PAGE_SIZE)
+     * @param cursor cursor from the previous page (optional)
+     * @return page of conversation summaries
      */
     @GetMapping("/conversations")
-    public ResponseEntity<Map<String, Object>> getAllConversationSummaries() {
-        log.info("📋 GET /api/memory/conversations");
+    public ResponseEntity<Map<String, Object>> getAllConversationSummaries(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        log.info("📋 GET /api/memory/conversations (limit={}, cursor={})", limit, cursor != null);
 
         try {
-            List<ConversationSummaryDTO> summaries = memoryService.getConversationSummaries();
+            ConversationSummaryPageDTO page = memoryService.getConversationSummaryPage(null, cursor, clampLimit(limit));
 
             Map<String, Object> response = new HashMap<>();
-            response.put("totalConversations", summaries.size());
-            response.put("conversations", summaries);
+            response.put("totalConversations", page.getConversations().size());
+            response.put("conversations", page.getConversations());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
             response.put("timestamp", new Date().toString());
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("❌ Failed to get conversation summaries: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -328,31 +476,39 @@ public class MemoryController {
     }
 
     /**
-     * GET /api/memory/user/{userId}/conversations
+     * GET /api/memory/user/{userId}/conversations?limit=50&cursor=...
      *
-     * Retrieves list of conversations for a specific user with metadata.
+     * Retrieves one page of conversations for a specific user with metadata.
      * Returns brief information for each conversation sorted by most recent first.
      *
      * @param userId user identifier
-     * @return list of conversation summaries for the user
+     * @param limit page size (1..MAX_PAGE_SIZE)
+     * @param cursor cursor from the previous page (optional)
+     * @return page of conversation summaries for the user
      */
     @GetMapping("/user/{userId}/conversations")
     public ResponseEntity<Map<String, Object>> getUserConversationSummaries(
-            @PathVariable String userId
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("📋 GET /api/memory/user/{}/conversations", userId);
+        log.info("📋 GET /api/memory/user/{}/conversations (limit={}, cursor={})", userId, limit, cursor != null);
 
         try {
-            List<ConversationSummaryDTO> summaries = memoryService.getConversationSummariesForUser(userId);
+            ConversationSummaryPageDTO page = memoryService.getConversationSummaryPage(userId, cursor, clampLimit(limit));
 
             Map<String, Object> response = new HashMap<>();
             response.put("userId", userId);
-            response.put("totalConversations", summaries.size());
-            response.put("conversations", summaries);
+            response.put("totalConversations", page.getConversations().size());
+            response.put("conversations", page.getConversations());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.isHasMore());
             response.put("timestamp", new Date().toString());
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("❌ Failed to get conversation summaries for user {}: {}", userId, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -360,6 +516,10 @@ public class MemoryController {
         }
     }
 
+    private static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
     /**
      * GET /api/memory/health
      *
@@ -2,6 +2,7 @@ package de.jivz.ai_challenge.controller;
 
 import de.jivz.ai_challenge.entity.ReminderSummary;
 import de.jivz.ai_challenge.batch.OpenRouterReminderSchedulerService;
+import de.jivz.ai_challenge.batch.ReminderDispatcher;
 import de.jivz.ai_challenge.batch.ReminderSchedulerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,6 +32,7 @@ public class ReminderController {
 
     private final ReminderSchedulerService reminderService;
     private final OpenRouterReminderSchedulerService openRouterReminderService;
+    private final ReminderDispatcher reminderDispatcher;
 
     /**
      * Manueller Trigger des Perplexity-Reminder-Workflows.
@@ -192,7 +194,8 @@ public class ReminderController {
             "schedulerEnabled", true,
             "pendingNotifications", pending.size(),
             "latestSummaryId", latest != null ? latest.getId() : "none",
-            "latestSummaryTime", latest != null ? latest.getCreatedAt().toString() : "never"
+            "latestSummaryTime", latest != null ? latest.getCreatedAt().toString() : "never",
+            "dispatcher", reminderDispatcher.getStatus()
         ));
     }
 }
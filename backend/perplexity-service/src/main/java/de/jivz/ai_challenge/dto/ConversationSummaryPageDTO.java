@@ -0,0 +1,38 @@
+package de.jivz.ai_challenge.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Страница списка диалогов (keyset-пагинация).
+ *
+ * Поля:
+ * - conversations: диалоги страницы, новые сверху
+ * - nextCursor: курсор следующей страницы (null - страниц больше нет)
+ * - hasMore: есть ли следующая страница
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummaryPageDTO {
+
+    /**
+     * Диалоги страницы
+     */
+    private List<ConversationSummaryDTO> conversations;
+
+    /**
+     * Непрозрачный курсор для запроса следующей страницы
+     */
+    private String nextCursor;
+
+    /**
+     * Есть ли следующая страница
+     */
+    private boolean hasMore;
+}
@@ -0,0 +1,49 @@
+package de.jivz.ai_challenge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA Entity for conversation participation (one row per user and conversation).
+ *
+ * Maintained by ConversationRollupService together with conversation_summary_rollup,
+ * so the per-user conversation list pages over this table instead of filtering
+ * all memory_entries of the user.
+ *
+ * - lastMessageTime mirrors the conversation's last message time (summaries and
+ *   other participants' messages included)
+ * - the index matches the per-user list order and serves the keyset WHERE clause
+ */
+@Entity
+@Table(name = "conversation_participant_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_conversation_participant",
+                columnNames = {"user_id", "conversation_id"}),
+        indexes = {
+            @Index(name = "idx_conversation_participant_user_last_message",
+                    columnList = "user_id, last_message_time DESC, conversation_id DESC"),
+            @Index(name = "idx_conversation_participant_conversation", columnList = "conversation_id")
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationParticipantRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false, length = 255)
+    private String userId;
+
+    @Column(name = "conversation_id", nullable = false, length = 255)
+    private String conversationId;
+
+    @Column(name = "last_message_time", nullable = false)
+    private LocalDateTime lastMessageTime;
+}
@@ -0,0 +1,45 @@
+package de.jivz.ai_challenge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA Entity for the per-conversation summary rollup (one row per conversation).
+ *
+ * Maintained by ConversationRollupService whenever MemoryService saves or deletes
+ * messages, so the conversation list pages over this table instead of a
+ * GROUP BY over memory_entries.
+ *
+ * - lastMessageTime is the latest message timestamp (summaries included)
+ * - the index matches the list order (lastMessageTime, conversationId descending)
+ *   and serves the keyset WHERE clause
+ */
+@Entity
+@Table(name = "conversation_summary_rollup", indexes = {
+    @Index(name = "idx_conversation_rollup_last_message",
+            columnList = "last_message_time DESC, conversation_id DESC")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationSummaryRollup {
+
+    @Id
+    @Column(name = "conversation_id", nullable = false, length = 255)
+    private String conversationId;
+
+    @Column(name = "last_message_time", nullable = false)
+    private LocalDateTime lastMessageTime;
+
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    @Column(name = "compressed_message_count", nullable = false)
+    private long compressedMessageCount;
+}
@@ -21,7 +21,9 @@ import java.time.LocalDateTime;
     @Index(name = "idx_reminder_user_id", columnList = "user_id"),
     @Index(name = "idx_reminder_created_at", columnList = "created_at"),
     @Index(name = "idx_reminder_type", columnList = "summary_type"),
-    @Index(name = "idx_reminder_notified", columnList = "notified")
+    @Index(name = "idx_reminder_notified", columnList = "notified"),
+    @Index(name = "idx_reminder_next_reminder_at", columnList = "next_reminder_at"),
+    @Index(name = "idx_reminder_source_next_reminder_at", columnList = "source, next_reminder_at")
 })
 @Data
 @Builder
@@ -104,6 +106,26 @@ public class ReminderSummary {
     @Column(name = "next_reminder_at")
     private LocalDateTime nextReminderAt;
 
+    /**
+     * Welcher Scheduler die Zusammenfassung erstellt hat.
+     * Der ReminderDispatcher führt nur Planungen des ReminderSchedulerService (PERPLEXITY) aus.
+     */
+    @Column(name = "source", length = 20)
+    @Enumerated(EnumType.STRING)
+    private Source source;
+
+    /**
+     * Instanz, die die fällige Erinnerung gerade ausführt (Row-Level-Claim des ReminderDispatcher)
+     */
+    @Column(name = "claimed_by", length = 255)
+    private String claimedBy;
+
+    /**
+     * Ablauf des Claims - danach darf eine andere Instanz die Erinnerung übernehmen
+     */
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+
     /**
      * Typen von Zusammenfassungen
      */
@@ -115,6 +137,14 @@ public class ReminderSummary {
         WEEKLY_DIGEST   // Wöchentliche Übersicht
     }
 
+    /**
+     * Herkunft einer Zusammenfassung (erzeugender Workflow)
+     */
+    public enum Source {
+        PERPLEXITY,     // ReminderSchedulerService
+        OPENROUTER      // OpenRouterReminderSchedulerService
+    }
+
     /**
      * Prioritätsstufen
      */
@@ -0,0 +1,37 @@
+package de.jivz.ai_challenge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * JPA Entity for the rebuild epoch of usage_stats_rollup (single row, id 1).
+ *
+ * Every transaction that saves or deletes messages reads the epoch with a shared lock,
+ * and UsageStatsService tags its unflushed deltas with it. A rebuild increments the epoch
+ * under an exclusive lock, so it waits for in-flight writes on all instances; deltas
+ * tagged with an older epoch are already contained in the rebuilt rollup and are dropped.
+ */
+@Entity
+@Table(name = "usage_stats_epoch")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsageStatsEpoch {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "epoch", nullable = false)
+    private long epoch;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,55 @@
+package de.jivz.ai_challenge.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * JPA Entity for checkpointed usage counters (one row per day and model).
+ *
+ * Written by UsageStatsService from its in-memory counters, so global
+ * statistics never aggregate over memory_entries.
+ *
+ * - model is "" for messages without a model (user messages, summaries)
+ * - conversationCount counts conversations started that day and is kept on the "" row
+ */
+@Entity
+@Table(name = "usage_stats_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_usage_stats_day_model", columnNames = {"stat_day", "model"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsageStatsRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "stat_day", nullable = false)
+    private LocalDate statDay;
+
+    @Column(name = "model", nullable = false, length = 255)
+    private String model;
+
+    @Column(name = "conversation_count", nullable = false)
+    private long conversationCount;
+
+    @Column(name = "message_count", nullable = false)
+    private long messageCount;
+
+    @Column(name = "total_tokens", nullable = false)
+    private long totalTokens;
+
+    @Column(name = "total_cost", nullable = false, precision = 14, scale = 6)
+    private BigDecimal totalCost;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,115 @@
+package de.jivz.ai_challenge.repository;
+
+import de.jivz.ai_challenge.entity.ConversationParticipantRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the (user, conversation) participation rollup.
+ *
+ * The per-user list pages with a keyset WHERE clause on (userId, lastMessageTime, conversationId),
+ * served by idx_conversation_participant_user_last_message.
+ */
+@Repository
+public interface ConversationParticipantRollupRepository extends JpaRepository<ConversationParticipantRollup, Long> {
+
+    // ========== MAINTENANCE ==========
+
+    /**
+     * Records that a user took part in a conversation; no-op if already recorded.
+     *
+     * @param userId the user identifier
+     * @param conversationId the conversation identifier
+     * @param timestamp timestamp of the user's message
+     * @return number of inserted rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO conversation_participant_rollup (user_id, conversation_id, last_message_time) " +
+                   "VALUES (:userId, :conversationId, :timestamp) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") String userId,
+                       @Param("conversationId") String conversationId,
+                       @Param("timestamp") LocalDateTime timestamp);
+
+    /**
+     * Copies the conversation's last message time (from conversation_summary_rollup)
+     * to all its participants.
+     *
+     * @param conversationId the conversation identifier
+     * @return number of updated rows
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConversationParticipantRollup p SET p.lastMessageTime = " +
+           "(SELECT r.lastMessageTime FROM ConversationSummaryRollup r WHERE r.conversationId = :conversationId) " +
+           "WHERE p.conversationId = :conversationId")
+    int syncLastMessageTime(@Param("conversationId") String conversationId);
+
+    /**
+     * Removes the participants of a deleted conversation.
+     *
+     * @param conversationId the conversation identifier
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ConversationParticipantRollup p WHERE p.conversationId = :conversationId")
+    int deleteByConversationId(@Param("conversationId") String conversationId);
+
+    /**
+     * Fills the (empty) table with one row per user and conversation of memory_entries.
+     * Requires a filled conversation_summary_rollup.
+     *
+     * @return number of inserted rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO conversation_participant_rollup (user_id, conversation_id, last_message_time) " +
+                   "SELECT m.user_id, m.conversation_id, MAX(r.last_message_time) " +
+                   "FROM memory_entries m " +
+                   "JOIN conversation_summary_rollup r ON r.conversation_id = m.conversation_id " +
+                   "WHERE m.user_id IS NOT NULL " +
+                   "GROUP BY m.user_id, m.conversation_id",
+           nativeQuery = true)
+    int seedFromMemoryEntries();
+
+    // ========== CONVERSATION LIST (keyset pagination) ==========
+
+    /**
+     * First page of the conversations a user took part in, newest activity first.
+     *
+     * @param userId the user identifier
+     * @param pageable limit only (page 0)
+     * @return rows ordered by last message time, then conversation ID (both descending)
+     */
+    @Query("SELECT p FROM ConversationParticipantRollup p WHERE p.userId = :userId " +
+           "ORDER BY p.lastMessageTime DESC, p.conversationId DESC")
+    List<ConversationParticipantRollup> findFirstPage(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * Next page of a user's conversations after the keyset cursor (lastMessageTime, conversationId).
+     *
+     * @param userId the user identifier
+     * @param cursorTime last message time of the previous page's last row
+     * @param cursorId conversation ID of the previous page's last row
+     * @param pageable limit only (page 0)
+     * @return rows strictly after the cursor
+     */
+    @Query("SELECT p FROM ConversationParticipantRollup p WHERE p.userId = :userId " +
+           "AND (p.lastMessageTime < :cursorTime " +
+           "OR (p.lastMessageTime = :cursorTime AND p.conversationId < :cursorId)) " +
+           "ORDER BY p.lastMessageTime DESC, p.conversationId DESC")
+    List<ConversationParticipantRollup> findPageAfter(@Param("userId") String userId,
+                                                      @Param("cursorTime") LocalDateTime cursorTime,
+                                                      @Param("cursorId") String cursorId,
+                                                      Pageable pageable);
+}
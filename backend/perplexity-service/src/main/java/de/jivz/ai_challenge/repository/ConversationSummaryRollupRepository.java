@@ -0,0 +1,115 @@
+package de.jivz.ai_challenge.repository;
+
+import de.jivz.ai_challenge.entity.ConversationSummaryRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for the per-conversation summary rollup.
+ *
+ * List queries page with a keyset WHERE clause on (lastMessageTime, conversationId),
+ * served by idx_conversation_rollup_last_message. Per-user lists page over
+ * ConversationParticipantRollupRepository instead.
+ */
+@Repository
+public interface ConversationSummaryRollupRepository extends JpaRepository<ConversationSummaryRollup, String> {
+
+    // ========== MAINTENANCE ==========
+
+    /**
+     * Adds one message to an existing conversation row.
+     * Additive, so concurrent writers of the same conversation do not overwrite each other.
+     *
+     * @param conversationId the conversation identifier
+     * @param timestamp timestamp of the saved message
+     * @param compressed 1 for a summary entry, 0 otherwise
+     * @return number of updated rows (0 if the row does not exist yet)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ConversationSummaryRollup r SET " +
+           "r.messageCount = r.messageCount + 1, " +
+           "r.compressedMessageCount = r.compressedMessageCount + :compressed, " +
+           "r.lastMessageTime = CASE WHEN r.lastMessageTime < :timestamp THEN :timestamp ELSE r.lastMessageTime END " +
+           "WHERE r.conversationId = :conversationId")
+    int addMessage(@Param("conversationId") String conversationId,
+                   @Param("timestamp") LocalDateTime timestamp,
+                   @Param("compressed") long compressed);
+
+    /**
+     * Creates an empty row for a new conversation; no-op if another transaction created it first.
+     *
+     * @param conversationId the conversation identifier
+     * @param timestamp timestamp of the first message
+     * @return number of inserted rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO conversation_summary_rollup " +
+                   "(conversation_id, last_message_time, message_count, compressed_message_count) " +
+                   "VALUES (:conversationId, :timestamp, 0, 0) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("conversationId") String conversationId,
+                       @Param("timestamp") LocalDateTime timestamp);
+
+    /**
+     * Removes the row of a deleted conversation.
+     *
+     * @param conversationId the conversation identifier
+     * @return number of deleted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ConversationSummaryRollup r WHERE r.conversationId = :conversationId")
+    int deleteByConversationId(@Param("conversationId") String conversationId);
+
+    /**
+     * Fills the (empty) rollup with one aggregate row per conversation of memory_entries.
+     *
+     * @return number of inserted rows
+     */
+    @Modifying
+    @Transactional
+    @Query("INSERT INTO ConversationSummaryRollup " +
+           "(conversationId, lastMessageTime, messageCount, compressedMessageCount) " +
+           "SELECT m.conversationId, MAX(m.timestamp), COUNT(m), " +
+           "SUM(CASE WHEN m.isCompressed = true THEN 1 ELSE 0 END) " +
+           "FROM MemoryEntry m GROUP BY m.conversationId")
+    int seedFromMemoryEntries();
+
+    // ========== CONVERSATION LIST (keyset pagination) ==========
+
+    /**
+     * First page of conversations, newest activity first.
+     *
+     * @param pageable limit only (page 0)
+     * @return rows ordered by last message time, then conversation ID (both descending)
+     */
+    @Query("SELECT r FROM ConversationSummaryRollup r " +
+           "ORDER BY r.lastMessageTime DESC, r.conversationId DESC")
+    List<ConversationSummaryRollup> findFirstPage(Pageable pageable);
+
+    /**
+     * Next page of conversations after the keyset cursor (lastMessageTime, conversationId).
+     *
+     * @param cursorTime last message time of the previous page's last row
+     * @param cursorId conversation ID of the previous page's last row
+     * @param pageable limit only (page 0)
+     * @return rows strictly after the cursor
+     */
+    @Query("SELECT r FROM ConversationSummaryRollup r " +
+           "WHERE r.lastMessageTime < :cursorTime " +
+           "OR (r.lastMessageTime = :cursorTime AND r.conversationId < :cursorId) " +
+           "ORDER BY r.lastMessageTime DESC, r.conversationId DESC")
+    List<ConversationSummaryRollup> findPageAfter(@Param("cursorTime") LocalDateTime cursorTime,
+                                                  @Param("cursorId") String cursorId,
+                                                  Pageable pageable);
+}
@@ -9,8 +9,11 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -140,36 +143,59 @@ public interface MemoryRepository extends JpaRepository<MemoryEntry, Long> {
     List<MemoryEntry> findByConversationIdOrderByTimestampDesc(String conversationId, Pageable pageable);
 
     /**
-     * Counts total conversations (distinct conversation IDs).
+     * Usage of messages grouped by day and model (for UsageStatsService).
+     */
+    interface UsageBucket {
+        LocalDate getDay();
+
+        String getModel();
+
+        long getMessageCount();
+
+        long getTotalTokens();
+
+        BigDecimal getTotalCost();
+    }
+
+    /**
+     * Usage across all conversations grouped by day and model.
+     * Full-table aggregate - only used to seed or rebuild the usage rollup.
      *
-     * @return number of unique conversations
+     * @return one bucket per (day, model)
      */
-    @Query("SELECT COUNT(DISTINCT m.conversationId) FROM MemoryEntry m")
-    long countDistinctConversations();
+    @Query("SELECT CAST(m.timestamp AS LocalDate) AS day, m.model AS model, COUNT(m) AS messageCount, " +
+           "COALESCE(SUM(m.totalTokens), 0) AS totalTokens, COALESCE(SUM(m.cost), 0) AS totalCost " +
+           "FROM MemoryEntry m GROUP BY CAST(m.timestamp AS LocalDate), m.model")
+    List<UsageBucket> aggregateUsageByDayAndModel();
 
     /**
-     * Counts total messages across all conversations.
+     * Usage of one conversation grouped by day and model (subtracted from the rollup on delete).
      *
-     * @return total number of messages
+     * @param conversationId the conversation identifier
+     * @return one bucket per (day, model)
      */
-    @Query("SELECT COUNT(m) FROM MemoryEntry m")
-    long countAllMessages();
+    @Query("SELECT CAST(m.timestamp AS LocalDate) AS day, m.model AS model, COUNT(m) AS messageCount, " +
+           "COALESCE(SUM(m.totalTokens), 0) AS totalTokens, COALESCE(SUM(m.cost), 0) AS totalCost " +
+           "FROM MemoryEntry m WHERE m.conversationId = :conversationId " +
+           "GROUP BY CAST(m.timestamp AS LocalDate), m.model")
+    List<UsageBucket> aggregateUsageByDayAndModel(@Param("conversationId") String conversationId);
 
     /**
-     * Gets total token usage across all conversations.
+     * Start time (first message) of every conversation.
      *
-     * @return sum of all total_tokens
+     * @return one timestamp per conversation
      */
-    @Query("SELECT COALESCE(SUM(m.totalTokens), 0) FROM MemoryEntry m WHERE m.totalTokens IS NOT NULL")
-    long sumTotalTokens();
+    @Query("SELECT MIN(m.timestamp) FROM MemoryEntry m GROUP BY m.conversationId")
+    List<LocalDateTime> findConversationStartTimes();
 
     /**
-     * Gets total cost across all conversations.
+     * Start time (first message) of a conversation.
      *
-     * @return sum of all costs
+     * @param conversationId the conversation identifier
+     * @return timestamp of the first message, null if the conversation does not exist
      */
-    @Query("SELECT COALESCE(SUM(m.cost), 0) FROM MemoryEntry m WHERE m.cost IS NOT NULL")
-    Double sumTotalCost();
+    @Query("SELECT MIN(m.timestamp) FROM MemoryEntry m WHERE m.conversationId = :conversationId")
+    LocalDateTime findConversationStartTime(@Param("conversationId") String conversationId);
 
     /**
      * Gets conversation statistics (aggregated data).
@@ -185,13 +211,24 @@ public interface MemoryRepository extends JpaRepository<MemoryEntry, Long> {
     /**
      * ⭐ Finds the last (most recent) summary for a conversation.
      * Returns the most recent compressed/summary message.
+     * Limited to one row - a conversation accumulates several summaries over time.
      *
      * @param conversationId the conversation identifier
      * @return the most recent summary or empty if no summary exists
      */
-    @Query("SELECT m FROM MemoryEntry m WHERE m.conversationId = :conversationId " +
-           "AND m.isCompressed = true AND m.role = 'system' ORDER BY m.timestamp DESC")
-    java.util.Optional<MemoryEntry> findLastSummary(@Param("conversationId") String conversationId);
+    default java.util.Optional<MemoryEntry> findLastSummary(String conversationId) {
+        return findFirstByConversationIdAndIsCompressedTrueAndRoleOrderByTimestampDesc(conversationId, "system");
+    }
+
+    /**
+     * Finds the most recent compressed entry with the given role.
+     *
+     * @param conversationId the conversation identifier
+     * @param role the message role (summaries use "system")
+     * @return the most recent compressed entry or empty
+     */
+    java.util.Optional<MemoryEntry> findFirstByConversationIdAndIsCompressedTrueAndRoleOrderByTimestampDesc(
+            String conversationId, String role);
 
     /**
      * ⭐ Finds messages after a specific timestamp (excluding compressed/summary messages).
@@ -199,9 +236,9 @@ public interface MemoryRepository extends JpaRepository<MemoryEntry, Long> {
      *
      * @param conversationId the conversation identifier
      * @param after the timestamp to start from (exclusive)
-     * @return list of non-compressed messages after the given time
+     * @return list of non-compressed messages after the given time (oldest first)
      */
-    List<MemoryEntry> findByConversationIdAndTimestampAfterAndIsCompressedFalse(
+    List<MemoryEntry> findByConversationIdAndTimestampAfterAndIsCompressedFalseOrderByTimestampAsc(
             String conversationId, LocalDateTime after);
 
     /**
@@ -230,5 +267,85 @@ public interface MemoryRepository extends JpaRepository<MemoryEntry, Long> {
      * @return the first message or null
      */
     MemoryEntry findFirstByConversationIdOrderByTimestampAsc(String conversationId);
-}
 
+    // ========== CONVERSATION LIST (counts come from conversation_summary_rollup) ==========
+
+    /**
+     * First (oldest) entries of the given conversations in one query, for preview and owner.
+     * Several rows per conversation are possible when timestamps tie.
+     *
+     * @param conversationIds conversation identifiers of one page
+     * @return entries with the minimal timestamp of their conversation
+     */
+    @Query("SELECT m FROM MemoryEntry m WHERE m.conversationId IN :conversationIds " +
+           "AND m.timestamp = (SELECT MIN(f.timestamp) FROM MemoryEntry f WHERE f.conversationId = m.conversationId)")
+    List<MemoryEntry> findFirstEntriesByConversationIds(@Param("conversationIds") Collection<String> conversationIds);
+
+    // ========== EXPORT (keyset pagination, constant memory) ==========
+
+    /**
+     * First page of a conversation's entries for export.
+     *
+     * @param conversationId the conversation identifier
+     * @param pageable limit only (page 0)
+     * @return entries ordered by timestamp, then ID
+     */
+    @Query("SELECT m FROM MemoryEntry m WHERE m.conversationId = :conversationId ORDER BY m.timestamp, m.id")
+    List<MemoryEntry> findExportPage(@Param("conversationId") String conversationId, Pageable pageable);
+
+    /**
+     * Next page of a conversation's entries after the keyset cursor (timestamp, id).
+     */
+    @Query("SELECT m FROM MemoryEntry m WHERE m.conversationId = :conversationId " +
+           "AND (m.timestamp > :afterTime OR (m.timestamp = :afterTime AND m.id > :afterId)) " +
+           "ORDER BY m.timestamp, m.id")
+    List<MemoryEntry> findExportPageAfter(@Param("conversationId") String conversationId,
+                                          @Param("afterTime") LocalDateTime afterTime,
+                                          @Param("afterId") Long afterId,
+                                          Pageable pageable);
+
+    /**
+     * First page of all entries for bulk export.
+     *
+     * @param pageable limit only (page 0)
+     * @return entries ordered by conversation ID, timestamp, ID
+     */
+    @Query("SELECT m FROM MemoryEntry m ORDER BY m.conversationId, m.timestamp, m.id")
+    List<MemoryEntry> findBulkExportPage(Pageable pageable);
+
+    /**
+     * Next page of all entries after the keyset cursor (conversationId, timestamp, id).
+     */
+    @Query("SELECT m FROM MemoryEntry m WHERE m.conversationId > :afterConversationId " +
+           "OR (m.conversationId = :afterConversationId AND (m.timestamp > :afterTime " +
+           "OR (m.timestamp = :afterTime AND m.id > :afterId))) " +
+           "ORDER BY m.conversationId, m.timestamp, m.id")
+    List<MemoryEntry> findBulkExportPageAfter(@Param("afterConversationId") String afterConversationId,
+                                              @Param("afterTime") LocalDateTime afterTime,
+                                              @Param("afterId") Long afterId,
+                                              Pageable pageable);
+
+    /**
+     * First page of bulk export for the conversations a user took part in.
+     * Includes entries without user ID (e.g. summaries) of those conversations.
+     */
+    @Query("SELECT m FROM MemoryEntry m " +
+           "WHERE m.conversationId IN (SELECT u.conversationId FROM MemoryEntry u WHERE u.userId = :userId) " +
+           "ORDER BY m.conversationId, m.timestamp, m.id")
+    List<MemoryEntry> findBulkExportPageByUserId(@Param("userId") String userId, Pageable pageable);
+
+    /**
+     * Next page of a user's conversations after the keyset cursor (conversationId, timestamp, id).
+     */
+    @Query("SELECT m FROM MemoryEntry m " +
+           "WHERE m.conversationId IN (SELECT u.conversationId FROM MemoryEntry u WHERE u.userId = :userId) " +
+           "AND (m.conversationId > :afterConversationId " +
+           "OR (m.conversationId = :afterConversationId AND (m.timestamp > :afterTime " +
+           "OR (m.timestamp = :afterTime AND m.id > :afterId)))) " +
+           "ORDER BY m.conversationId, m.timestamp, m.id")
+    List<MemoryEntry> findBulkExportPageByUserIdAfter(@Param("userId") String userId,
+                                                      @Param("afterConversationId") String afterConversationId,
+                                                      @Param("afterTime") LocalDateTime afterTime,
+                                                      @Param("afterId") Long afterId,
+                                                      Pageable pageable);
+}
@@ -3,6 +3,7 @@ package de.jivz.ai_challenge.repository;
 import de.jivz.ai_challenge.entity.ReminderSummary;
 import de.jivz.ai_challenge.entity.ReminderSummary.SummaryType;
 import de.jivz.ai_challenge.entity.ReminderSummary.Priority;
+import de.jivz.ai_challenge.entity.ReminderSummary.Source;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,6 +11,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -58,6 +60,13 @@ public interface ReminderSummaryRepository extends JpaRepository<ReminderSummary
      */
     Optional<ReminderSummary> findTopByUserIdAndSummaryTypeOrderByCreatedAtDesc(String userId, SummaryType summaryType);
 
+    /**
+     * Findet die neueste Zusammenfassung eines Typs und einer Herkunft für einen Benutzer.
+     * Wird vom ReminderDispatcher für das Per-User-Rate-Limit verwendet.
+     */
+    Optional<ReminderSummary> findTopByUserIdAndSourceAndSummaryTypeOrderByCreatedAtDesc(
+            String userId, Source source, SummaryType summaryType);
+
     /**
      * Findet alle Zusammenfassungen die nach einem bestimmten Datum erstellt wurden.
      */
@@ -74,6 +83,89 @@ public interface ReminderSummaryRepository extends JpaRepository<ReminderSummary
      */
     List<ReminderSummary> findByNextReminderAtBeforeAndNotifiedFalse(LocalDateTime before);
 
+    /**
+     * Findet fällige Erinnerungen einer Herkunft bis zum angegebenen Zeitpunkt, die nicht (mehr) geclaimt sind.
+     * Wird vom ReminderDispatcher verwendet um seine Warteschlange zu füllen.
+     */
+    @Query("SELECT r FROM ReminderSummary r WHERE r.source = :source " +
+           "AND r.nextReminderAt IS NOT NULL AND r.nextReminderAt <= :before " +
+           "AND (r.claimedUntil IS NULL OR r.claimedUntil < :now) ORDER BY r.nextReminderAt, r.id")
+    List<ReminderSummary> findDueReminders(@Param("source") Source source,
+                                           @Param("before") LocalDateTime before,
+                                           @Param("now") LocalDateTime now,
+                                           Pageable pageable);
+
+    /**
+     * Prüft ob ein Benutzer bereits eine geplante Erinnerung dieser Herkunft hat.
+     */
+    boolean existsByUserIdAndSourceAndNextReminderAtIsNotNull(String userId, Source source);
+
+    /**
+     * Claimt eine fällige Erinnerung für eine Instanz (atomar, instanzübergreifend).
+     * Gelingt nur, wenn die Erinnerung noch geplant ist, kein gültiger Claim existiert
+     * und keine andere Erinnerung desselben Benutzers und derselben Herkunft gerade geclaimt ist
+     * (höchstens ein Lauf pro Benutzer über alle Instanzen).
+     *
+     * @return 1 wenn der Claim gewonnen wurde, sonst 0
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReminderSummary r SET r.claimedBy = :owner, r.claimedUntil = :until " +
+           "WHERE r.id = :id AND r.nextReminderAt IS NOT NULL AND r.nextReminderAt <= :now " +
+           "AND (r.claimedUntil IS NULL OR r.claimedUntil < :now) " +
+           "AND NOT EXISTS (SELECT o.id FROM ReminderSummary o WHERE o.userId = r.userId " +
+           "AND o.source = r.source AND o.id <> r.id AND o.claimedUntil >= :now)")
+    int claim(@Param("id") Long id,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now,
+              @Param("until") LocalDateTime until);
+
+    /**
+     * Verlängert den Claim einer laufenden Erinnerung (Heartbeat des Workers).
+     *
+     * @return 1 wenn der Claim noch dieser Instanz gehört, sonst 0
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReminderSummary r SET r.claimedUntil = :until WHERE r.id = :id AND r.claimedBy = :owner")
+    int renewClaim(@Param("id") Long id,
+                   @Param("owner") String owner,
+                   @Param("until") LocalDateTime until);
+
+    /**
+     * Schließt eine ausgeführte Erinnerung ab: sie wird nicht mehr geplant, der Claim wird freigegeben.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReminderSummary r SET r.nextReminderAt = NULL, r.claimedBy = NULL, r.claimedUntil = NULL " +
+           "WHERE r.id = :id AND r.claimedBy = :owner")
+    int completeClaimed(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * Entfernt alle übrigen, nicht geclaimten Planungen eines Benutzers derselben Herkunft
+     * (eine Erinnerung pro Benutzer und Scheduler).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReminderSummary r SET r.nextReminderAt = NULL WHERE r.userId = :userId AND r.source = :source " +
+           "AND r.id <> :keepId AND r.nextReminderAt IS NOT NULL " +
+           "AND (r.claimedUntil IS NULL OR r.claimedUntil < :now)")
+    int supersedeReminders(@Param("userId") String userId,
+                           @Param("source") Source source,
+                           @Param("keepId") Long keepId,
+                           @Param("now") LocalDateTime now);
+
+    /**
+     * Gibt einen Claim frei und plant die Erinnerung neu (z.B. nach Fehler oder Rate-Limit).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReminderSummary r SET r.nextReminderAt = :nextReminderAt, r.claimedBy = NULL, " +
+           "r.claimedUntil = NULL WHERE r.id = :id AND r.claimedBy = :owner")
+    int releaseClaimed(@Param("id") Long id,
+                       @Param("owner") String owner,
+                       @Param("nextReminderAt") LocalDateTime nextReminderAt);
+
     /**
      * Zählt alle Zusammenfassungen für einen Benutzer.
      */
@@ -105,6 +197,7 @@ public interface ReminderSummaryRepository extends JpaRepository<ReminderSummary
      * Markiert eine einzelne Summary als benachrichtigt.
      */
     @Modifying
+    @Transactional
     @Query("UPDATE ReminderSummary r SET r.notified = true, r.notifiedAt = :notifiedAt WHERE r.id = :id")
     int markAsNotified(@Param("id") Long id, @Param("notifiedAt") LocalDateTime notifiedAt);
 
@@ -0,0 +1,57 @@
+package de.jivz.ai_challenge.repository;
+
+import de.jivz.ai_challenge.entity.UsageStatsEpoch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repository for the usage stats rebuild epoch (see UsageStatsEpoch).
+ */
+@Repository
+public interface UsageStatsEpochRepository extends JpaRepository<UsageStatsEpoch, Long> {
+
+    /**
+     * Creates the epoch row; no-op if it exists.
+     *
+     * @return number of inserted rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usage_stats_epoch (id, epoch, updated_at) VALUES (:id, 0, :now) " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Reads the epoch with a shared lock held until the surrounding transaction ends,
+     * so a rebuild cannot run in between.
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT e FROM UsageStatsEpoch e WHERE e.id = :id")
+    Optional<UsageStatsEpoch> findForShare(@Param("id") Long id);
+
+    /**
+     * Reads the epoch with an exclusive lock (serializes seeding across instances).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM UsageStatsEpoch e WHERE e.id = :id")
+    Optional<UsageStatsEpoch> findForUpdate(@Param("id") Long id);
+
+    /**
+     * Starts a new epoch. Waits until all transactions holding the shared lock have ended.
+     *
+     * @return number of updated rows
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE UsageStatsEpoch e SET e.epoch = e.epoch + 1, e.updatedAt = :now WHERE e.id = :id")
+    int increment(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
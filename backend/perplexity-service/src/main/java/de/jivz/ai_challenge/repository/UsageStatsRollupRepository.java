@@ -0,0 +1,58 @@
+package de.jivz.ai_challenge.repository;
+
+import de.jivz.ai_challenge.entity.UsageStatsRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Repository for checkpointed usage counters.
+ */
+@Repository
+public interface UsageStatsRollupRepository extends JpaRepository<UsageStatsRollup, Long> {
+
+    /**
+     * Adds counter deltas to an existing (day, model) row.
+     * Additive, so checkpoints from several instances do not overwrite each other.
+     *
+     * @return number of updated rows (0 if the row does not exist yet)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UsageStatsRollup r SET " +
+           "r.conversationCount = r.conversationCount + :conversations, " +
+           "r.messageCount = r.messageCount + :messages, " +
+           "r.totalTokens = r.totalTokens + :tokens, " +
+           "r.totalCost = r.totalCost + :cost, " +
+           "r.updatedAt = :updatedAt " +
+           "WHERE r.statDay = :statDay AND r.model = :model")
+    int addToBucket(@Param("statDay") LocalDate statDay,
+                    @Param("model") String model,
+                    @Param("conversations") long conversations,
+                    @Param("messages") long messages,
+                    @Param("tokens") long tokens,
+                    @Param("cost") BigDecimal cost,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Creates an empty (day, model) row; no-op if another transaction created it first.
+     *
+     * @return number of inserted rows
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO usage_stats_rollup " +
+                   "(stat_day, model, conversation_count, message_count, total_tokens, total_cost, updated_at) " +
+                   "VALUES (:statDay, :model, 0, 0, 0, 0, :updatedAt) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("statDay") LocalDate statDay,
+                       @Param("model") String model,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+}
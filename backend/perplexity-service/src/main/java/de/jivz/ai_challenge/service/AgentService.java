@@ -21,7 +21,7 @@ import java.util.List;
  * - Validate requests
  * - Orchestrate the conversation flow
  * - Coordinate between history, parsing, and LLM services
- * - Automatically compress history when threshold is reached
+ * - Schedule background history compression when the token budget is reached
  */
 @Slf4j
 @Service
@@ -52,8 +52,8 @@ public class AgentService {
         String userId = request.getUserId();
         logRequestInfo(request, conversationId);
 
-        // 1. Load conversation history (with automatic compression if needed)
-        List<Message> history = loadHistoryWithCompression(conversationId);
+        // 1. Load conversation history (summary + recent messages)
+        List<Message> history = loadHistory(conversationId);
 
         // 2. Prepare history with user message (and JSON instruction if needed)
         historyManager.prepareHistory(history, request);
@@ -78,6 +78,9 @@ public class AgentService {
         memoryService.saveMessage(conversationId, userId, "assistant", parsedReply, modelName, metrics);
         log.debug("💾 Saved assistant message to database with metrics");
 
+        // 6. Compress in background if the tail after the last summary exceeds the token budget
+        compressionService.scheduleCompression(conversationId);
+
         long requestEndTime = System.nanoTime();
         long totalRequestTimeMs = (requestEndTime - requestStartTime) / 1_000_000;
         log.info("⏱️ Total request processing time: {} ms", totalRequestTimeMs);
@@ -110,55 +113,20 @@ public class AgentService {
     }
 
     /**
-     * ⭐ UPDATED: Loads conversation history with automatic compression and summary reuse.
-     *
-     * Key improvements:
-     * 1. Checks if a saved summary exists in PostgreSQL
-     * 2. If yes - uses summary + recent messages (saves tokens!)
-     * 3. If no - loads full history
-     * 4. Automatically checks if new compression is needed
-     * 5. Uses compressed version if available
+     * Loads conversation history for the LLM: last saved summary + messages after it.
      *
-     * Token savings:
-     * - Summary created once, reused forever (0 tokens to create)
-     * - Only recent messages after summary are sent
-     * - LLM understands full context with fewer tokens
-     *
-     * Flow:
-     * 1. Try to load optimized history with saved summary
-     * 2. Check if compression threshold reached (5+ messages)
-     * 3. If yes - compress and save summary
-     * 4. Use compressed version if available, otherwise optimized history
+     * No compression happens here - it runs in the background after the reply is stored
+     * (see DialogCompressionService.scheduleCompression), so the request never waits
+     * for a summarization call.
      *
      * @param conversationId The conversation identifier
-     * @return The conversation history (optimized with summary or full)
+     * @return The conversation history (with summary if available)
      */
-    private List<Message> loadHistoryWithCompression(String conversationId) {
-        // ⭐ FIRST: Try to load with saved summary from PostgreSQL
-        List<Message> optimizedHistory = memoryService.loadHistoryForLLM(conversationId);
+    private List<Message> loadHistory(String conversationId) {
+        List<Message> history = memoryService.loadHistoryForLLM(conversationId);
         log.info("📚 Loaded {} messages for conversation: {} (using saved summary if available)",
-                optimizedHistory.size(), conversationId);
-
-        // Check if compression is needed and perform it
-        boolean wasCompressed = compressionService.checkAndCompress(conversationId);
-
-        if (wasCompressed) {
-            log.info("🗜️ History was compressed, new summary saved to PostgreSQL");
-            // Reload with the newly created summary
-            return memoryService.loadHistoryForLLM(conversationId);
-        }
-
-        // Try to use compressed version if available (for RAM cache efficiency)
-        if (compressionService.hasCompressedVersion(conversationId)) {
-            List<Message> compressedHistory = compressionService.getCompressedHistory(conversationId);
-            log.info("✅ Using compressed history from RAM: {} messages (optimized: {})",
-                    compressedHistory.size(), optimizedHistory.size());
-            return compressedHistory;
-        }
-
-        // Otherwise use optimized history (with saved summary if available)
-        log.debug("Using optimized history with saved summary (compression not needed yet)");
-        return optimizedHistory;
+                history.size(), conversationId);
+        return history;
     }
 
     /**
@@ -227,10 +195,7 @@ public class AgentService {
     }
 
     /**
-     * ⭐ UPDATED: Saves conversation to BOTH full and compressed history.
-     *
-     * Always saves to full history (for compression source).
-     * If compressed version exists, also updates it with the new message.
+     * Saves conversation history (RAM).
      *
      * @param history        The conversation history
      * @param reply          The assistant's reply
@@ -238,28 +203,9 @@ public class AgentService {
      */
     private void saveToHistory(List<Message> history, String reply, String conversationId) {
         historyManager.addAssistantResponse(history, reply);
-
-        // Determine if we're working with compressed or full history
-        boolean isCompressed = compressionService.hasCompressedVersion(conversationId) &&
-                history.size() < historyService.getHistory(conversationId).size();
-
-        if (isCompressed) {
-            // Save back to compressed version
-            String compressedId = conversationId + "_compressed";
-            historyService.saveHistory(compressedId, history);
-            log.info("💾 Saved to compressed history ({} messages)", history.size());
-
-            // Also add to full history
-            List<Message> fullHistory = historyService.getHistory(conversationId);
-            fullHistory.add(new Message("assistant", reply));
-            historyService.saveHistory(conversationId, fullHistory);
-            log.info("💾 Also saved to full history ({} messages)", fullHistory.size());
-        } else {
-            // Save to full history only
-            historyService.saveHistory(conversationId, history);
-            log.info("💾 Saved conversation history ({} messages) for conversationId: {}",
-                    history.size(), conversationId);
-        }
+        historyService.saveHistory(conversationId, history);
+        log.info("💾 Saved conversation history ({} messages) for conversationId: {}",
+                history.size(), conversationId);
     }
 
     /**
@@ -0,0 +1,280 @@
+package de.jivz.ai_challenge.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jivz.ai_challenge.entity.MemoryEntry;
+import de.jivz.ai_challenge.repository.MemoryRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Streaming export of conversations (single conversation or bulk backup).
+ *
+ * Entries are read page by page with keyset pagination and written straight to the
+ * output with Jackson's JsonGenerator - heap usage is bounded by one page, not by the
+ * size of the conversation or the table.
+ *
+ * Formats:
+ * - JSON: one document (conversation object, or {"conversations": [...]} for bulk)
+ * - NDJSON: one MemoryEntry per line, every line carries its conversationId
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversationExportService {
+
+    private final MemoryRepository memoryRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    @Value("${memory.export.page-size:500}")
+    private int pageSize;
+
+    /**
+     * Export output format.
+     */
+    public enum ExportFormat {
+        JSON,
+        NDJSON;
+
+        /**
+         * Parses a request parameter (case-insensitive, empty - JSON).
+         */
+        public static ExportFormat fromString(String value) {
+            if (value == null || value.isBlank()) {
+                return JSON;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown export format: " + value + " (expected json or ndjson)");
+            }
+        }
+    }
+
+    /**
+     * Keyset page source: next page after the given entry (null - first page).
+     */
+    private interface PageSource {
+        List<MemoryEntry> next(MemoryEntry last);
+    }
+
+    /**
+     * Streams one conversation.
+     * JSON layout: conversationId, exportedAt, messages, messageCount, statistics.
+     *
+     * @param conversationId conversation identifier
+     * @param format output format
+     * @param out target stream (not closed)
+     * @return number of exported messages
+     */
+    public long exportConversation(String conversationId, ExportFormat format, OutputStream out) throws IOException {
+        PageSource source = last -> last == null
+                ? memoryRepository.findExportPage(conversationId, firstPage())
+                : memoryRepository.findExportPageAfter(conversationId, last.getTimestamp(), last.getId(), firstPage());
+
+        try (JsonGenerator generator = createGenerator(out)) {
+            long count;
+            if (format == ExportFormat.NDJSON) {
+                count = writeNdjson(generator, source);
+            } else {
+                generator.writeStartObject();
+                generator.writeStringField("conversationId", conversationId);
+                generator.writeStringField("exportedAt", Instant.now().toString());
+                generator.writeArrayFieldStart("messages");
+
+                ConversationTotals totals = new ConversationTotals(conversationId);
+                for (List<MemoryEntry> page = source.next(null); !page.isEmpty(); page = nextPage(source, page)) {
+                    for (MemoryEntry entry : page) {
+                        generator.writeObject(entry);
+                        totals.add(entry);
+                    }
+                    generator.flush();
+                }
+
+                generator.writeEndArray();
+                generator.writeNumberField("messageCount", totals.messageCount);
+                generator.writeFieldName("statistics");
+                totals.write(generator);
+                generator.writeEndObject();
+                count = totals.messageCount;
+            }
+
+            log.info("📤 Exported conversation {} as {} ({} messages)", conversationId, format, count);
+            return count;
+        }
+    }
+
+    /**
+     * Streams all conversations (or all conversations a user took part in) for backups.
+     * Entries without user ID (e.g. summaries) of those conversations are included.
+     * JSON layout: exportedAt, userId, conversations [{conversationId, messages, messageCount}],
+     * conversationCount, messageCount.
+     *
+     * @param userId user filter (null - all users)
+     * @param format output format
+     * @param out target stream (not closed)
+     * @return number of exported messages
+     */
+    public long exportAll(String userId, ExportFormat format, OutputStream out) throws IOException {
+        PageSource source = userId == null
+                ? last -> last == null
+                        ? memoryRepository.findBulkExportPage(firstPage())
+                        : memoryRepository.findBulkExportPageAfter(last.getConversationId(), last.getTimestamp(),
+                                last.getId(), firstPage())
+                : last -> last == null
+                        ? memoryRepository.findBulkExportPageByUserId(userId, firstPage())
+                        : memoryRepository.findBulkExportPageByUserIdAfter(userId, last.getConversationId(),
+                                last.getTimestamp(), last.getId(), firstPage());
+
+        try (JsonGenerator generator = createGenerator(out)) {
+            long count;
+            if (format == ExportFormat.NDJSON) {
+                count = writeNdjson(generator, source);
+            } else {
+                generator.writeStartObject();
+                generator.writeStringField("exportedAt", Instant.now().toString());
+                generator.writeStringField("userId", userId);
+                generator.writeArrayFieldStart("conversations");
+
+                String currentConversation = null;
+                long conversationMessages = 0;
+                long conversations = 0;
+                count = 0;
+                for (List<MemoryEntry> page = source.next(null); !page.isEmpty(); page = nextPage(source, page)) {
+                    for (MemoryEntry entry : page) {
+                        if (!Objects.equals(entry.getConversationId(), currentConversation)) {
+                            if (currentConversation != null) {
+                                endConversation(generator, conversationMessages);
+                            }
+                            currentConversation = entry.getConversationId();
+                            conversationMessages = 0;
+                            conversations++;
+                            generator.writeStartObject();
+                            generator.writeStringField("conversationId", currentConversation);
+                            generator.writeArrayFieldStart("messages");
+                        }
+                        generator.writeObject(entry);
+                        conversationMessages++;
+                        count++;
+                    }
+                    generator.flush();
+                }
+                if (currentConversation != null) {
+                    endConversation(generator, conversationMessages);
+                }
+
+                generator.writeEndArray();
+                generator.writeNumberField("conversationCount", conversations);
+                generator.writeNumberField("messageCount", count);
+                generator.writeEndObject();
+            }
+
+            log.info("📤 Bulk export{} as {} ({} messages)",
+                    userId != null ? " for user " + userId : "", format, count);
+            return count;
+        }
+    }
+
+    // ==================== Internal ====================
+
+    private long writeNdjson(JsonGenerator generator, PageSource source) throws IOException {
+        long count = 0;
+        for (List<MemoryEntry> page = source.next(null); !page.isEmpty(); page = nextPage(source, page)) {
+            for (MemoryEntry entry : page) {
+                generator.writeObject(entry);
+                generator.writeRaw('\n');
+                count++;
+            }
+            generator.flush();
+        }
+        return count;
+    }
+
+    private List<MemoryEntry> nextPage(PageSource source, List<MemoryEntry> page) {
+        if (page.size() < pageSize) {
+            return List.of();
+        }
+        MemoryEntry last = page.getLast();
+        // Written entries are not needed anymore; keeps an open-in-view EntityManager from growing
+        entityManager.clear();
+        return source.next(last);
+    }
+
+    private static void endConversation(JsonGenerator generator, long messageCount) throws IOException {
+        generator.writeEndArray();
+        generator.writeNumberField("messageCount", messageCount);
+        generator.writeEndObject();
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.createGenerator(out, JsonEncoding.UTF8);
+        // The caller owns the stream (servlet or gzip wrapper)
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private PageRequest firstPage() {
+        return PageRequest.of(0, pageSize);
+    }
+
+    /**
+     * Conversation statistics accumulated while streaming (no extra query).
+     * Same keys as MemoryService.getConversationStats.
+     */
+    private static final class ConversationTotals {
+        private final String conversationId;
+        private long messageCount;
+        private long totalTokens;
+        private BigDecimal totalCost = BigDecimal.ZERO;
+        private LocalDateTime firstMessageAt;
+        private LocalDateTime lastMessageAt;
+
+        ConversationTotals(String conversationId) {
+            this.conversationId = conversationId;
+        }
+
+        void add(MemoryEntry entry) {
+            messageCount++;
+            if (entry.getTotalTokens() != null) {
+                totalTokens += entry.getTotalTokens();
+            }
+            if (entry.getCost() != null) {
+                totalCost = totalCost.add(entry.getCost());
+            }
+            if (firstMessageAt == null) {
+                firstMessageAt = entry.getTimestamp();
+            }
+            lastMessageAt = entry.getTimestamp();
+        }
+
+        void write(JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("conversationId", conversationId);
+            generator.writeNumberField("messageCount", messageCount);
+            generator.writeNumberField("totalTokens", totalTokens);
+            generator.writeNumberField("totalCost", totalCost.doubleValue());
+            generator.writeNumberField("averageTokensPerMessage", messageCount > 0 ? totalTokens / messageCount : 0);
+            if (firstMessageAt != null) {
+                generator.writeStringField("firstMessageAt", firstMessageAt.toString());
+                generator.writeStringField("lastMessageAt", lastMessageAt.toString());
+                generator.writeStringField("duration", MemoryService.calculateDuration(firstMessageAt, lastMessageAt));
+            }
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package de.jivz.ai_challenge.service;
+
+import de.jivz.ai_challenge.entity.MemoryEntry;
+import de.jivz.ai_challenge.repository.ConversationParticipantRollupRepository;
+import de.jivz.ai_challenge.repository.ConversationSummaryRollupRepository;
+import de.jivz.ai_challenge.repository.MemoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Maintains conversation_summary_rollup (message counts and last message time per conversation)
+ * and conversation_participant_rollup (which users took part in which conversation).
+ *
+ * MemoryService reports every saved and deleted message here, inside its own transaction,
+ * so the rollup commits or rolls back together with memory_entries:
+ * - a saved message adds 1 to its conversation row (created on first use), registers its
+ *   user as participant and copies the last message time to all participant rows
+ * - a deleted conversation removes its rows
+ * - on startup an empty rollup is seeded once from memory_entries
+ *
+ * Entries written directly through MemoryRepository (bypassing MemoryService) are not
+ * reflected until rebuild() is called.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ConversationRollupService {
+
+    private final ConversationSummaryRollupRepository rollupRepository;
+    private final ConversationParticipantRollupRepository participantRepository;
+    private final MemoryRepository memoryRepository;
+
+    @PostConstruct
+    void load() {
+        try {
+            if (rollupRepository.count() == 0 && memoryRepository.count() > 0) {
+                int seeded = rollupRepository.seedFromMemoryEntries();
+                log.info("📋 Conversation rollup seeded from memory_entries: {} conversations", seeded);
+            }
+            if (participantRepository.count() == 0 && rollupRepository.count() > 0) {
+                int seeded = participantRepository.seedFromMemoryEntries();
+                log.info("📋 Conversation participants seeded from memory_entries: {} rows", seeded);
+            }
+        } catch (Exception e) {
+            log.error("❌ Failed to seed conversation rollup: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a saved message to its conversation row and participant rows.
+     *
+     * @param entry saved entry
+     */
+    @Transactional
+    public void recordMessage(MemoryEntry entry) {
+        if (entry == null || entry.getConversationId() == null || entry.getTimestamp() == null) {
+            return;
+        }
+        String conversationId = entry.getConversationId();
+        long compressed = Boolean.TRUE.equals(entry.getIsCompressed()) ? 1 : 0;
+        if (rollupRepository.addMessage(conversationId, entry.getTimestamp(), compressed) == 0) {
+            // First message of the conversation; a concurrent insert makes this a no-op
+            rollupRepository.insertIfAbsent(conversationId, entry.getTimestamp());
+            rollupRepository.addMessage(conversationId, entry.getTimestamp(), compressed);
+        }
+        if (entry.getUserId() != null) {
+            participantRepository.insertIfAbsent(entry.getUserId(), conversationId, entry.getTimestamp());
+        }
+        // The conversation row is locked by addMessage, so concurrent writers sync in order
+        participantRepository.syncLastMessageTime(conversationId);
+    }
+
+    /**
+     * Removes the rows of a deleted conversation.
+     *
+     * @param conversationId conversation identifier
+     */
+    @Transactional
+    public void recordConversationDeleted(String conversationId) {
+        participantRepository.deleteByConversationId(conversationId);
+        rollupRepository.deleteByConversationId(conversationId);
+    }
+
+    /**
+     * Recomputes both rollups from memory_entries (full-table aggregate).
+     * For repair after writes that bypassed MemoryService.
+     */
+    @Transactional
+    public void rebuild() {
+        log.info("🔄 Rebuilding conversation rollup from memory_entries");
+        participantRepository.deleteAllInBatch();
+        rollupRepository.deleteAllInBatch();
+        int seeded = rollupRepository.seedFromMemoryEntries();
+        int participants = participantRepository.seedFromMemoryEntries();
+        log.info("📋 Conversation rollup rebuilt: {} conversations, {} participant rows", seeded, participants);
+    }
+}
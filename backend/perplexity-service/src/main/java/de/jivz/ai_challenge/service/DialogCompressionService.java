@@ -2,129 +2,183 @@ package de.jivz.ai_challenge.service;
 
 import de.jivz.ai_challenge.dto.CompressionInfo;
 import de.jivz.ai_challenge.dto.Message;
+import de.jivz.ai_challenge.entity.MemoryEntry;
 import de.jivz.ai_challenge.service.openrouter.OpenRouterToolClient;
 import de.jivz.ai_challenge.service.openrouter.model.OpenRouterResponseWithMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Service for compressing dialog history using summary mechanism.
- * Implements automatic compression after N messages threshold.
+ *
+ * Compression runs in a background worker, off the chat request path:
+ * - AgentService serves requests from the previous summary + raw tail (MemoryService.loadHistoryForLLM)
+ *   and calls scheduleCompression() after the reply is stored
+ * - at most one compression per conversation is in flight; requests arriving meanwhile
+ *   only mark the conversation for one re-check after the running job
+ * - trigger is a token budget of the raw tail (~4 chars per token), not a fixed message count
+ * - the new summary folds in the previous one, the last keep-recent messages stay raw
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class DialogCompressionService {
 
+    private static final int CHARS_PER_TOKEN = 4;
+
     private final OpenRouterToolClient openRouterClient;
-    private final ConversationHistoryService conversationHistoryService;
-    private final MemoryService memoryService;  // ⭐ NEW: For saving summary to DB
+    private final MemoryService memoryService;  // ⭐ Summaries are stored in PostgreSQL
 
-    // Compression threshold - after how many messages to create summary
-    private static final int COMPRESSION_THRESHOLD = 5;
+    /**
+     * Estimated tokens of the raw tail (after the last summary) that trigger a new summary.
+     */
+    @Value("${dialog.compression.token-threshold:3000}")
+    private int tokenThreshold;
 
-    // Suffix for compressed conversation IDs
-    private static final String COMPRESSED_SUFFIX = "_compressed";
+    /**
+     * Most recent messages that stay raw after compression.
+     */
+    @Value("${dialog.compression.keep-recent-messages:2}")
+    private int keepRecentMessages;
+
+    @Value("${dialog.compression.worker-threads:2}")
+    private int workerThreads;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Set<String> recheckRequested = ConcurrentHashMap.newKeySet();
+    private ExecutorService executor;
+
+    @PostConstruct
+    void start() {
+        executor = Executors.newFixedThreadPool(Math.max(1, workerThreads), Thread.ofPlatform()
+                .name("dialog-compression-", 0)
+                .daemon(true)
+                .factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
 
     /**
-     * Checks if conversation needs compression and performs it if needed.
+     * Schedules a background compression check for the conversation.
+     * Returns immediately; duplicate calls while a job is running are coalesced.
      *
      * @param conversationId original conversation ID
-     * @return true if compression was performed
+     * @return true if a new job was submitted, false if one is already in flight
      */
-    public boolean checkAndCompress(String conversationId) {
-        List<Message> history = conversationHistoryService.getHistory(conversationId);
-
-        if (shouldCompress(history)) {
-            log.info("🔄 Compression triggered for conversation: {} (messages: {})",
-                    conversationId, history.size());
-            compressHistory(conversationId, history);
+    public boolean scheduleCompression(String conversationId) {
+        if (conversationId == null || conversationId.isBlank()) {
+            return false;
+        }
+        if (!inFlight.add(conversationId)) {
+            recheckRequested.add(conversationId);
+            log.debug("🔄 Compression already in flight for: {}", conversationId);
+            return false;
+        }
+        try {
+            executor.execute(() -> runCompression(conversationId));
             return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(conversationId);
+            log.warn("⚠️ Compression worker rejected job for {}: {}", conversationId, e.getMessage());
+            return false;
         }
-
-        return false;
     }
 
     /**
-     * Determines if history should be compressed.
+     * Checks the token budget of the raw tail and creates a new summary if it is exceeded.
+     * Runs on the worker thread; callable directly (e.g. from tests).
+     *
+     * @param conversationId original conversation ID
+     * @return true if a summary was created
      */
-    private boolean shouldCompress(List<Message> history) {
-        // Remove system messages from count
-        long messageCount = history.stream()
-                .filter(msg -> !"system".equals(msg.getRole()))
-                .count();
-
-        return messageCount >= COMPRESSION_THRESHOLD &&
-                messageCount % COMPRESSION_THRESHOLD == 0;
-    }
+    public boolean compressIfOverBudget(String conversationId) {
+        List<MemoryEntry> tail = memoryService.getEntriesAfterLastSummary(conversationId);
+        int tailTokens = estimateTokens(tail.stream().map(MemoryEntry::getContent).toList());
 
-    /**
-     * Compresses the conversation history by creating a summary.
-     * Keeps system prompt + summary + last few messages.
-     */
-    private void compressHistory(String conversationId, List<Message> fullHistory) {
-        String compressedId = conversationId + COMPRESSED_SUFFIX;
+        if (tailTokens < tokenThreshold || tail.size() <= keepRecentMessages) {
+            return false;
+        }
 
-        // Separate system messages from conversation
-        List<Message> systemMessages = new ArrayList<>();
-        List<Message> conversationMessages = new ArrayList<>();
+        log.info("🔄 Compression triggered for conversation: {} (tail: {} messages, ~{} tokens)",
+                conversationId, tail.size(), tailTokens);
 
-        for (Message msg : fullHistory) {
-            if ("system".equals(msg.getRole())) {
-                systemMessages.add(msg);
-            } else {
-                conversationMessages.add(msg);
-            }
-        }
+        Optional<MemoryEntry> previousSummary = memoryService.getLastSummaryEntry(conversationId);
+        List<MemoryEntry> toCompress = tail.subList(0, tail.size() - keepRecentMessages);
 
-        // Calculate how many messages to summarize
-        int messagesToSummarize = conversationMessages.size() - 2; // Keep last 2 messages
-        if (messagesToSummarize <= 0) {
-            log.warn("Not enough messages to compress");
-            return;
-        }
+        List<Message> summaryInput = new ArrayList<>();
+        previousSummary.ifPresent(summary ->
+                summaryInput.add(new Message("system", "Предыдущее резюме:\n" + summary.getContent())));
+        toCompress.forEach(entry -> summaryInput.add(new Message(entry.getRole(), entry.getContent())));
 
-        // Get messages for summary (exclude last 2)
-        List<Message> messagesToCompress = conversationMessages.subList(0, messagesToSummarize);
+        String summary = createSummary(summaryInput);
+        if (summary == null) {
+            return false;
+        }
 
-        // Create summary
-        String summary = createSummary(messagesToCompress);
+        int compressedCount = toCompress.size() + previousSummary
+                .map(MemoryEntry::getCompressedMessagesCount)
+                .filter(Objects::nonNull)
+                .orElse(0);
 
-        // ⭐ SAVE SUMMARY TO POSTGRESQL
-        memoryService.saveSummary(
-                conversationId,
-                summary,
-                messagesToCompress.size(),
-                LocalDateTime.now()
-        );
-        log.info("✅ Summary saved to PostgreSQL for conversation: {}", conversationId);
+        // Timestamp of the last summarized message: the kept messages (and anything written
+        // while the summary was generated) stay "after the summary" in loadHistoryForLLM
+        memoryService.saveSummary(conversationId, summary, compressedCount, toCompress.getLast().getTimestamp());
 
-        // Build compressed history: system + summary + last messages
-        List<Message> compressedHistory = new ArrayList<>(systemMessages);
-        compressedHistory.add(new Message("user",
-                "📝 SUMMARY предыдущего диалога:\n\n" + summary));
-        compressedHistory.add(new Message("assistant",
-                "Понял, учту информацию из summary в дальнейшем разговоре."));
+        log.info("✅ Summary saved to PostgreSQL for conversation: {} ({} messages summarized, {} kept raw)",
+                conversationId, toCompress.size(), tail.size() - toCompress.size());
+        return true;
+    }
 
-        // Add last 2 messages
-        compressedHistory.addAll(conversationMessages.subList(messagesToSummarize, conversationMessages.size()));
+    /**
+     * Compression jobs currently running or queued.
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
 
-        // Save compressed version
-        conversationHistoryService.saveHistory(compressedId, compressedHistory);
+    private void runCompression(String conversationId) {
+        try {
+            do {
+                recheckRequested.remove(conversationId);
+                compressIfOverBudget(conversationId);
+            } while (recheckRequested.contains(conversationId));
+        } catch (Exception e) {
+            log.error("❌ Background compression failed for {}: {}", conversationId, e.getMessage());
+        } finally {
+            inFlight.remove(conversationId);
+        }
+    }
 
-        log.info("✅ Compressed history saved: {} -> {} messages",
-                fullHistory.size(), compressedHistory.size());
-        log.info("📊 Summary created for {} messages", messagesToCompress.size());
+    static int estimateTokens(List<String> contents) {
+        long chars = 0;
+        for (String content : contents) {
+            chars += content != null ? content.length() : 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN);
     }
 
     /**
      * Creates a summary of messages using AI model.
+     *
+     * @return summary text or null if the model call failed
      */
     private String createSummary(List<Message> messages) {
         log.info("🤖 Creating summary for {} messages...", messages.size());
@@ -169,31 +223,19 @@ public class DialogCompressionService {
             return response.getReply();
 
         } catch (Exception e) {
+            // No summary is stored - the raw tail stays and the next reply re-triggers compression
             log.error("❌ Failed to create summary: {}", e.getMessage());
-            return "Резюме недоступно из-за ошибки: " + e.getMessage();
+            return null;
         }
     }
 
-    /**
-     * Gets the compressed version of conversation if exists.
-     */
-    public List<Message> getCompressedHistory(String conversationId) {
-        String compressedId = conversationId + COMPRESSED_SUFFIX;
-        return conversationHistoryService.getHistory(compressedId);
-    }
-
-    /**
-     * Checks if compressed version exists.
-     */
-    public boolean hasCompressedVersion(String conversationId) {
-        String compressedId = conversationId + COMPRESSED_SUFFIX;
-        return !conversationHistoryService.getHistory(compressedId).isEmpty();
-    }
-
     /**
      * ⭐ NEW: Get comprehensive compression information for a conversation.
      * Contains all business logic for calculating compression stats.
      *
+     * Compares the original messages with the history actually sent to the LLM
+     * (last summary + raw tail).
+     *
      * @param conversationId the conversation identifier
      * @return CompressionInfo with all metrics
      */
@@ -201,23 +243,23 @@ public class DialogCompressionService {
         log.debug("Getting compression info for conversationId: {}", conversationId);
 
         try {
-            // Get full history
-            List<Message> fullHistory = conversationHistoryService.getHistory(conversationId);
-            int fullSize = fullHistory.size();
+            List<Message> originalHistory = memoryService.getOriginalHistory(conversationId);
+            List<Message> llmHistory = memoryService.loadHistoryForLLM(conversationId);
+            int fullSize = originalHistory.size();
 
-            // Check if compressed version exists
-            boolean isCompressed = hasCompressedVersion(conversationId);
+            // Check if a summary exists
+            boolean isCompressed = memoryService.getLastSummaryEntry(conversationId).isPresent();
 
             if (isCompressed) {
                 // Calculate compression metrics
-                List<Message> compressedHistory = getCompressedHistory(conversationId);
-                int compressedSize = compressedHistory.size();
-                int messagesSaved = fullSize - compressedSize;
+                int compressedSize = llmHistory.size();
+                int messagesSaved = Math.max(0, fullSize - compressedSize);
                 double compressionRatioValue = fullSize > 0 ? ((double) messagesSaved / fullSize) * 100 : 0;
                 String compressionRatio = String.format("%.1f%%", compressionRatioValue);
 
-                // Estimate token savings (rough estimate: ~100 tokens per message)
-                int estimatedTokensSaved = messagesSaved * 100;
+                int estimatedTokensSaved = Math.max(0,
+                        estimateTokens(originalHistory.stream().map(Message::getContent).toList())
+                                - estimateTokens(llmHistory.stream().map(Message::getContent).toList()));
 
                 log.debug("Compression active: {} -> {} messages ({} saved, {})",
                         fullSize, compressedSize, messagesSaved, compressionRatio);
@@ -264,4 +306,4 @@ public class DialogCompressionService {
                     .build();
         }
     }
-}
\ No newline at end of file
+}
@@ -1,20 +1,24 @@
 package de.jivz.ai_challenge.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import de.jivz.ai_challenge.dto.ConversationSummaryDTO;
+import de.jivz.ai_challenge.dto.ConversationSummaryPageDTO;
 import de.jivz.ai_challenge.dto.Message;
 import de.jivz.ai_challenge.dto.ResponseMetrics;
+import de.jivz.ai_challenge.entity.ConversationParticipantRollup;
+import de.jivz.ai_challenge.entity.ConversationSummaryRollup;
 import de.jivz.ai_challenge.entity.MemoryEntry;
+import de.jivz.ai_challenge.repository.ConversationParticipantRollupRepository;
+import de.jivz.ai_challenge.repository.ConversationSummaryRollupRepository;
 import de.jivz.ai_challenge.repository.MemoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.Instant;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
@@ -27,7 +31,7 @@ import java.util.stream.Collectors;
  * - Save all messages to database (full history preservation)
  * - Retrieve conversation history
  * - Provide statistics and analytics
- * - Export conversations to JSON
+ * - Export conversations (streamed by ConversationExportService)
  * - Handle database errors gracefully (fallback to RAM)
  *
  * IMPORTANT:
@@ -40,9 +44,14 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class MemoryService {
 
+    private static final int SUMMARY_BATCH_SIZE = 500;
+    private static final int PREVIEW_LENGTH = 50;
+
     private final MemoryRepository memoryRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper()
-            .enable(SerializationFeature.INDENT_OUTPUT);
+    private final UsageStatsService usageStatsService;
+    private final ConversationRollupService conversationRollupService;
+    private final ConversationSummaryRollupRepository conversationRollupRepository;
+    private final ConversationParticipantRollupRepository participantRollupRepository;
 
     /**
      * Saves a message to the database with full metrics.
@@ -89,7 +98,10 @@ public class MemoryService {
             }
 
             MemoryEntry entry = builder.build();
+            boolean newConversation = !memoryRepository.existsByConversationId(conversationId);
             MemoryEntry saved = memoryRepository.save(entry);
+            usageStatsService.recordMessage(saved, newConversation);
+            conversationRollupService.recordMessage(saved);
 
             log.debug("💾 Saved {} message to DB: conversationId={}, id={}, tokens={}",
                     role, conversationId, saved.getId(),
@@ -198,7 +210,13 @@ public class MemoryService {
     @Transactional
     public int deleteConversation(String conversationId) {
         try {
+            List<MemoryRepository.UsageBucket> usage = memoryRepository.aggregateUsageByDayAndModel(conversationId);
+            LocalDateTime startedAt = memoryRepository.findConversationStartTime(conversationId);
             int deletedCount = memoryRepository.deleteByConversationId(conversationId);
+            if (deletedCount > 0) {
+                usageStatsService.recordConversationDeleted(usage, startedAt);
+            }
+            conversationRollupService.recordConversationDeleted(conversationId);
             log.info("🗑️ Deleted {} messages for conversation: {}", deletedCount, conversationId);
             return deletedCount;
 
@@ -253,39 +271,6 @@ public class MemoryService {
         return stats;
     }
 
-    /**
-     * Exports full conversation history to JSON format.
-     * Includes all messages and metadata.
-     *
-     * @param conversationId conversation identifier
-     * @return JSON string representation of the conversation
-     */
-    @Transactional(readOnly = true)
-    public String exportToJson(String conversationId) {
-        try {
-            List<MemoryEntry> entries = memoryRepository
-                    .findByConversationIdOrderByTimestampAsc(conversationId);
-
-            Map<String, Object> export = new HashMap<>();
-            export.put("conversationId", conversationId);
-            export.put("exportedAt", Instant.now().toString());
-            export.put("messageCount", entries.size());
-            export.put("messages", entries);
-
-            // Add statistics
-            export.put("statistics", getConversationStats(conversationId));
-
-            String json = objectMapper.writeValueAsString(export);
-            log.info("📤 Exported conversation {} to JSON ({} bytes)", conversationId, json.length());
-
-            return json;
-
-        } catch (Exception e) {
-            log.error("❌ Failed to export conversation: {}", e.getMessage());
-            return "{\"error\": \"" + e.getMessage() + "\"}";
-        }
-    }
-
     /**
      * Checks if a conversation exists in the database.
      *
@@ -334,26 +319,15 @@ public class MemoryService {
 
     /**
      * Gets global statistics across all conversations.
+     * Served from UsageStatsService counters - no aggregate over memory_entries.
      *
      * @return map with global statistics
      */
-    @Transactional(readOnly = true)
     public Map<String, Object> getGlobalStats() {
-        Map<String, Object> stats = new HashMap<>();
-
-        try {
-            stats.put("totalConversations", memoryRepository.countDistinctConversations());
-            stats.put("totalMessages", memoryRepository.countAllMessages());
-            stats.put("totalTokens", memoryRepository.sumTotalTokens());
-            stats.put("totalCost", memoryRepository.sumTotalCost());
+        Map<String, Object> stats = usageStatsService.getTotals();
 
-            log.debug("🌍 Global stats: {} conversations, {} messages",
-                    stats.get("totalConversations"), stats.get("totalMessages"));
-
-        } catch (Exception e) {
-            log.error("❌ Failed to get global stats: {}", e.getMessage());
-            stats.put("error", e.getMessage());
-        }
+        log.debug("🌍 Global stats: {} conversations, {} messages",
+                stats.get("totalConversations"), stats.get("totalMessages"));
 
         return stats;
     }
@@ -367,7 +341,15 @@ public class MemoryService {
     @Transactional
     public List<MemoryEntry> saveAll(List<MemoryEntry> entries) {
         try {
+            Set<String> newConversations = entries.stream()
+                    .map(MemoryEntry::getConversationId)
+                    .filter(id -> !memoryRepository.existsByConversationId(id))
+                    .collect(Collectors.toSet());
             List<MemoryEntry> saved = memoryRepository.saveAll(entries);
+            for (MemoryEntry entry : saved) {
+                usageStatsService.recordMessage(entry, newConversations.remove(entry.getConversationId()));
+                conversationRollupService.recordMessage(entry);
+            }
             log.info("💾 Batch saved {} messages", saved.size());
             return saved;
 
@@ -382,21 +364,15 @@ public class MemoryService {
      * Returns conversation metadata: ID, first message, last message time, message count, compression status.
      * Sorted by most recent first.
      *
+     * Walks the keyset pages (see getConversationSummaryPage), so the cost is
+     * two indexed queries per SUMMARY_BATCH_SIZE conversations instead of four per conversation.
+     *
      * @return list of conversation summaries sorted by last message time (descending)
      */
     @Transactional(readOnly = true)
     public List<ConversationSummaryDTO> getConversationSummaries() {
         try {
-            List<String> conversationIds = memoryRepository.findAllConversationIds();
-            List<ConversationSummaryDTO> summaries = new ArrayList<>();
-
-            for (String conversationId : conversationIds) {
-                ConversationSummaryDTO summary = buildConversationSummary(conversationId);
-                if (summary != null) {
-                    summaries.add(summary);
-                }
-            }
-
+            List<ConversationSummaryDTO> summaries = collectAllSummaries(null);
             log.info("📋 Built summaries for {} conversations", summaries.size());
             return summaries;
 
@@ -417,16 +393,7 @@ public class MemoryService {
     @Transactional(readOnly = true)
     public List<ConversationSummaryDTO> getConversationSummariesForUser(String userId) {
         try {
-            List<String> conversationIds = memoryRepository.findDistinctConversationIdsByUserId(userId);
-            List<ConversationSummaryDTO> summaries = new ArrayList<>();
-
-            for (String conversationId : conversationIds) {
-                ConversationSummaryDTO summary = buildConversationSummary(conversationId, userId);
-                if (summary != null) {
-                    summaries.add(summary);
-                }
-            }
-
+            List<ConversationSummaryDTO> summaries = collectAllSummaries(userId);
             log.info("📋 Built {} conversation summaries for user: {}", summaries.size(), userId);
             return summaries;
 
@@ -437,59 +404,172 @@ public class MemoryService {
     }
 
     /**
-     * Helper method to build a single conversation summary DTO.
-     * Collects all necessary metadata for a conversation.
+     * Gets one page of conversation summaries using keyset pagination.
+     * Costs two queries regardless of the number of conversations:
+     * one index range scan over conversation_summary_rollup for counts/last time,
+     * one for the first entries (preview, owner).
+     * With a user filter the range scan runs over conversation_participant_rollup,
+     * plus one primary key lookup of the page's rollup rows.
      *
-     * @param conversationId conversation identifier
-     * @return conversation summary or null if conversation not found
+     * @param userId optional user filter (null = all conversations)
+     * @param cursor nextCursor of the previous page (null = first page)
+     * @param limit page size
+     * @return page of summaries sorted by last message time (descending)
+     * @throws IllegalArgumentException if the cursor is malformed
      */
-    private ConversationSummaryDTO buildConversationSummary(String conversationId) {
-        return buildConversationSummary(conversationId, null);
+    @Transactional(readOnly = true)
+    public ConversationSummaryPageDTO getConversationSummaryPage(String userId, String cursor, int limit) {
+        int pageSize = Math.max(1, limit);
+        // One extra row tells whether another page exists
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        ConversationCursor after = ConversationCursor.decode(cursor);
+
+        List<ConversationSummaryRollup> rows;
+        boolean hasMore;
+        String nextCursor = null;
+        if (userId == null) {
+            rows = after == null
+                    ? conversationRollupRepository.findFirstPage(pageable)
+                    : conversationRollupRepository.findPageAfter(
+                            after.lastMessageTime(), after.conversationId(), pageable);
+            hasMore = rows.size() > pageSize;
+            if (hasMore) {
+                rows = rows.subList(0, pageSize);
+                ConversationSummaryRollup last = rows.getLast();
+                nextCursor = new ConversationCursor(last.getLastMessageTime(), last.getConversationId()).encode();
+            }
+        } else {
+            List<ConversationParticipantRollup> participants = after == null
+                    ? participantRollupRepository.findFirstPage(userId, pageable)
+                    : participantRollupRepository.findPageAfter(
+                            userId, after.lastMessageTime(), after.conversationId(), pageable);
+            hasMore = participants.size() > pageSize;
+            if (hasMore) {
+                participants = participants.subList(0, pageSize);
+                ConversationParticipantRollup last = participants.getLast();
+                nextCursor = new ConversationCursor(last.getLastMessageTime(), last.getConversationId()).encode();
+            }
+            rows = findRollupRows(participants);
+        }
+
+        return ConversationSummaryPageDTO.builder()
+                .conversations(toSummaries(rows, userId))
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    private List<ConversationSummaryDTO> collectAllSummaries(String userId) {
+        List<ConversationSummaryDTO> summaries = new ArrayList<>();
+        String cursor = null;
+        do {
+            ConversationSummaryPageDTO page = getConversationSummaryPage(userId, cursor, SUMMARY_BATCH_SIZE);
+            summaries.addAll(page.getConversations());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return summaries;
     }
 
     /**
-     * Helper method to build a single conversation summary DTO with optional userId.
+     * Loads the conversation rollup rows of one page of participation rows (primary key lookup).
      *
-     * @param conversationId conversation identifier
-     * @param userId optional user identifier
-     * @return conversation summary or null if conversation not found
+     * @param participants page of participation rows
+     * @return rollup rows in the order of the participation rows
      */
-    private ConversationSummaryDTO buildConversationSummary(String conversationId, String userId) {
-        try {
-            // Get first message for preview
-            MemoryEntry firstEntry = memoryRepository.findFirstByConversationIdOrderByTimestampAsc(conversationId);
-            if (firstEntry == null) {
-                return null;
+    private List<ConversationSummaryRollup> findRollupRows(List<ConversationParticipantRollup> participants) {
+        if (participants.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, ConversationSummaryRollup> byId = conversationRollupRepository.findAllById(
+                        participants.stream().map(ConversationParticipantRollup::getConversationId).toList())
+                .stream()
+                .collect(Collectors.toMap(ConversationSummaryRollup::getConversationId, row -> row));
+
+        List<ConversationSummaryRollup> rows = new ArrayList<>(participants.size());
+        for (ConversationParticipantRollup participant : participants) {
+            ConversationSummaryRollup row = byId.get(participant.getConversationId());
+            if (row != null) {
+                rows.add(row);
             }
+        }
+        return rows;
+    }
 
-            // Get last message for timestamp
-            MemoryEntry lastEntry = memoryRepository.findFirstByConversationIdOrderByTimestampDesc(conversationId);
+    /**
+     * Builds summary DTOs for one page of rollup rows.
+     * First entries of all conversations on the page are loaded with a single query.
+     *
+     * @param rows page of conversation rollup rows
+     * @param userId optional user identifier (overrides the owner of the first entry)
+     * @return summaries in the order of the rows
+     */
+    private List<ConversationSummaryDTO> toSummaries(List<ConversationSummaryRollup> rows, String userId) {
+        if (rows.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            // Get message count
-            long messageCount = memoryRepository.countByConversationId(conversationId);
+        List<String> conversationIds = rows.stream()
+                .map(ConversationSummaryRollup::getConversationId)
+                .toList();
 
-            // Get compressed message count
-            long compressedCount = memoryRepository.countByConversationIdAndIsCompressedTrue(conversationId);
+        // Several first entries may share the minimal timestamp - keep the one inserted first
+        Map<String, MemoryEntry> firstEntries = memoryRepository.findFirstEntriesByConversationIds(conversationIds)
+                .stream()
+                .collect(Collectors.toMap(MemoryEntry::getConversationId, entry -> entry,
+                        (a, b) -> a.getId() <= b.getId() ? a : b));
+
+        List<ConversationSummaryDTO> summaries = new ArrayList<>(rows.size());
+        for (ConversationSummaryRollup row : rows) {
+            MemoryEntry firstEntry = firstEntries.get(row.getConversationId());
+            if (firstEntry == null) {
+                // Deleted between the two queries
+                continue;
+            }
 
             // Extract first 50 characters for preview
             String firstMessage = firstEntry.getContent();
-            if (firstMessage.length() > 50) {
-                firstMessage = firstMessage.substring(0, 50) + "...";
+            if (firstMessage.length() > PREVIEW_LENGTH) {
+                firstMessage = firstMessage.substring(0, PREVIEW_LENGTH) + "...";
             }
 
-            return ConversationSummaryDTO.builder()
-                    .conversationId(conversationId)
+            summaries.add(ConversationSummaryDTO.builder()
+                    .conversationId(row.getConversationId())
                     .firstMessage(firstMessage)
-                    .lastMessageTime(lastEntry != null ? lastEntry.getTimestamp() : firstEntry.getTimestamp())
-                    .messageCount(messageCount)
-                    .compressedMessageCount(compressedCount)
-                    .hasCompression(compressedCount > 0)
+                    .lastMessageTime(row.getLastMessageTime())
+                    .messageCount(row.getMessageCount())
+                    .compressedMessageCount(row.getCompressedMessageCount())
+                    .hasCompression(row.getCompressedMessageCount() > 0)
                     .userId(userId != null ? userId : firstEntry.getUserId())
-                    .build();
+                    .build());
+        }
+        return summaries;
+    }
 
-        } catch (Exception e) {
-            log.warn("⚠️ Failed to build summary for conversation {}: {}", conversationId, e.getMessage());
-            return null;
+    /**
+     * Keyset cursor of the conversation list: position after (lastMessageTime, conversationId).
+     * Encoded as URL-safe Base64 so clients treat it as opaque.
+     */
+    record ConversationCursor(LocalDateTime lastMessageTime, String conversationId) {
+
+        String encode() {
+            String raw = lastMessageTime + "|" + conversationId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ConversationCursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new ConversationCursor(
+                        LocalDateTime.parse(raw.substring(0, separator)),
+                        raw.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid conversation cursor: " + cursor);
+            }
         }
     }
 
@@ -505,7 +585,7 @@ public class MemoryService {
     /**
      * Calculates human-readable duration between two timestamps.
      */
-    private String calculateDuration(LocalDateTime start, LocalDateTime end) {
+    static String calculateDuration(LocalDateTime start, LocalDateTime end) {
         long seconds = end.toEpochSecond(ZoneOffset.UTC) - start.toEpochSecond(ZoneOffset.UTC);
 
         if (seconds < 60) {
@@ -549,6 +629,8 @@ public class MemoryService {
                     .build();
 
             MemoryEntry saved = memoryRepository.save(summaryEntry);
+            usageStatsService.recordMessage(saved, false);
+            conversationRollupService.recordMessage(saved);
             log.info("💾 Summary saved to database for conversation: {} ({} messages compressed)",
                     conversationId, messagesCount);
             return saved;
@@ -617,7 +699,7 @@ public class MemoryService {
 
             // Get messages after the summary timestamp
             List<MemoryEntry> entries = memoryRepository
-                    .findByConversationIdAndTimestampAfterAndIsCompressedFalse(
+                    .findByConversationIdAndTimestampAfterAndIsCompressedFalseOrderByTimestampAsc(
                             conversationId,
                             lastSummary.get().getTimestamp()
                     );
@@ -634,6 +716,31 @@ public class MemoryService {
         }
     }
 
+    /**
+     * Gets the original entries not yet covered by a summary (the raw tail), oldest first.
+     * Used by DialogCompressionService to decide on and build the next summary.
+     *
+     * @param conversationId conversation identifier
+     * @return entries after the last summary (or all original entries if no summary exists)
+     */
+    @Transactional(readOnly = true)
+    public List<MemoryEntry> getEntriesAfterLastSummary(String conversationId) {
+        try {
+            java.util.Optional<MemoryEntry> lastSummary = memoryRepository.findLastSummary(conversationId);
+
+            return lastSummary
+                    .map(summary -> memoryRepository
+                            .findByConversationIdAndTimestampAfterAndIsCompressedFalseOrderByTimestampAsc(
+                                    conversationId, summary.getTimestamp()))
+                    .orElseGet(() -> memoryRepository
+                            .findByConversationIdAndIsCompressedFalseOrderByTimestampAsc(conversationId));
+
+        } catch (Exception e) {
+            log.error("❌ Failed to get entries after summary: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
     /**
      * ⭐ Loads conversation history optimized for LLM use.
      * This is the main method that uses saved summaries to reduce token usage.
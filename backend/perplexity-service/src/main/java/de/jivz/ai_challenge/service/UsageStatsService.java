@@ -0,0 +1,424 @@
+package de.jivz.ai_challenge.service;
+
+import de.jivz.ai_challenge.entity.MemoryEntry;
+import de.jivz.ai_challenge.repository.MemoryRepository;
+import de.jivz.ai_challenge.service.UsageStatsStore.Snapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incrementally maintained usage statistics (conversations, messages, tokens, cost).
+ *
+ * MemoryService reports every saved and deleted message here, so /api/memory/stats
+ * does not aggregate over memory_entries:
+ * - the shared totals live in usage_stats_rollup (one row per day and model)
+ * - each instance keeps striped counters (LongAdder/DoubleAdder) for deltas not yet flushed
+ * - checkpoint() adds the deltas to the rollup and re-reads it, so every instance serves
+ *   the shared rollup plus its own unflushed deltas (other instances' deltas show up after
+ *   their next checkpoint)
+ * - deltas are tagged with the rebuild epoch read (with a shared lock) in the writing
+ *   transaction; deltas of an epoch older than the rollup's are already contained in a
+ *   rebuild and are dropped (see UsageStatsEpoch)
+ * - changes are applied after the surrounding transaction commits
+ *
+ * Entries written directly through MemoryRepository (bypassing MemoryService) are not
+ * counted until rebuild() is called.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UsageStatsService {
+
+    /**
+     * Bucket model for messages without a model; also holds conversation starts.
+     */
+    static final String NO_MODEL = "";
+
+    private final UsageStatsStore store;
+
+    /**
+     * Guards snapshot/pending/flushing: recording and reading take the read lock,
+     * swapping the maps in checkpoint() and rebuild() takes the write lock.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Snapshot snapshot = Snapshot.EMPTY;
+    private Map<Long, Map<Bucket, Counters>> pending = new ConcurrentHashMap<>();
+    private Map<Long, Map<Bucket, Counters>> flushing = Map.of();
+
+    record Bucket(LocalDate day, String model) {
+        static Bucket of(LocalDateTime timestamp, String model) {
+            return of(timestamp.toLocalDate(), model);
+        }
+
+        static Bucket of(LocalDate day, String model) {
+            return new Bucket(day, model != null ? model : NO_MODEL);
+        }
+    }
+
+    record Usage(long conversations, long messages, long tokens, double cost) {
+        static final Usage ZERO = new Usage(0, 0, 0, 0.0);
+
+        Usage plus(Usage other) {
+            return new Usage(conversations + other.conversations, messages + other.messages,
+                    tokens + other.tokens, cost + other.cost);
+        }
+
+        boolean isZero() {
+            return conversations == 0 && messages == 0 && tokens == 0 && cost == 0;
+        }
+    }
+
+    static final class Counters {
+        final LongAdder conversations = new LongAdder();
+        final LongAdder messages = new LongAdder();
+        final LongAdder tokens = new LongAdder();
+        final DoubleAdder cost = new DoubleAdder();
+
+        void add(long conversations, long messages, long tokens, double cost) {
+            if (conversations != 0) this.conversations.add(conversations);
+            if (messages != 0) this.messages.add(messages);
+            if (tokens != 0) this.tokens.add(tokens);
+            if (cost != 0) this.cost.add(cost);
+        }
+
+        Usage sum() {
+            return new Usage(conversations.sum(), messages.sum(), tokens.sum(), cost.sum());
+        }
+    }
+
+    @PostConstruct
+    void load() {
+        try {
+            store.initialize();
+            Snapshot loaded = store.load();
+            lock.writeLock().lock();
+            try {
+                snapshot = loaded;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Usage total = totalOf(view());
+            log.info("📊 Usage stats loaded from {} rollup rows: {} conversations, {} messages",
+                    loaded.buckets().size(), total.conversations(), total.messages());
+        } catch (Exception e) {
+            log.error("❌ Failed to load usage stats, counting from zero: {}", e.getMessage());
+        }
+    }
+
+    // ==================== Recording ====================
+
+    /**
+     * Counts a saved message (after commit of the current transaction).
+     *
+     * @param entry saved entry
+     * @param newConversation true if this is the first message of its conversation
+     */
+    public void recordMessage(MemoryEntry entry, boolean newConversation) {
+        if (entry == null || entry.getTimestamp() == null) {
+            return;
+        }
+        long tokens = entry.getTotalTokens() != null ? entry.getTotalTokens() : 0;
+        double cost = entry.getCost() != null ? entry.getCost().doubleValue() : 0.0;
+        Bucket bucket = Bucket.of(entry.getTimestamp(), entry.getModel());
+        long epoch = store.lockEpoch();
+
+        afterCommit(() -> {
+            apply(epoch, bucket, 0, 1, tokens, cost);
+            if (newConversation) {
+                apply(epoch, new Bucket(bucket.day(), NO_MODEL), 1, 0, 0, 0.0);
+            }
+        });
+    }
+
+    /**
+     * Subtracts a deleted conversation (after commit of the current transaction).
+     *
+     * @param usage usage of the conversation by day and model, queried before the delete
+     * @param startedAt timestamp of its first message
+     */
+    public void recordConversationDeleted(List<MemoryRepository.UsageBucket> usage, LocalDateTime startedAt) {
+        if (usage == null || usage.isEmpty()) {
+            return;
+        }
+        long epoch = store.lockEpoch();
+        afterCommit(() -> {
+            for (MemoryRepository.UsageBucket bucket : usage) {
+                apply(epoch, Bucket.of(bucket.getDay(), bucket.getModel()),
+                        0, -bucket.getMessageCount(), -bucket.getTotalTokens(),
+                        -bucket.getTotalCost().doubleValue());
+            }
+            if (startedAt != null) {
+                apply(epoch, new Bucket(startedAt.toLocalDate(), NO_MODEL), -1, 0, 0, 0.0);
+            }
+        });
+    }
+
+    // ==================== Reading ====================
+
+    /**
+     * Global totals (same keys as the former full-table aggregates).
+     */
+    public Map<String, Object> getTotals() {
+        Usage total = totalOf(view());
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalConversations", total.conversations());
+        stats.put("totalMessages", total.messages());
+        stats.put("totalTokens", total.tokens());
+        stats.put("totalCost", roundCost(total.cost()));
+        return stats;
+    }
+
+    /**
+     * Usage per day in [from, to], oldest first.
+     */
+    public List<Map<String, Object>> getDailyBreakdown(LocalDate from, LocalDate to) {
+        Map<LocalDate, long[]> counts = new TreeMap<>();
+        Map<LocalDate, Double> costs = new TreeMap<>();
+        view().forEach((bucket, usage) -> {
+            if (bucket.day().isBefore(from) || bucket.day().isAfter(to)) {
+                return;
+            }
+            long[] c = counts.computeIfAbsent(bucket.day(), d -> new long[3]);
+            c[0] += usage.conversations();
+            c[1] += usage.messages();
+            c[2] += usage.tokens();
+            costs.merge(bucket.day(), usage.cost(), Double::sum);
+        });
+
+        List<Map<String, Object>> days = new ArrayList<>();
+        counts.forEach((day, c) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("day", day.toString());
+            row.put("conversations", c[0]);
+            row.put("messages", c[1]);
+            row.put("tokens", c[2]);
+            row.put("cost", roundCost(costs.get(day)));
+            days.add(row);
+        });
+        return days;
+    }
+
+    /**
+     * Usage per model in [from, to], most expensive first. Messages without a model are skipped.
+     */
+    public List<Map<String, Object>> getModelBreakdown(LocalDate from, LocalDate to) {
+        Map<String, long[]> counts = new HashMap<>();
+        Map<String, Double> costs = new HashMap<>();
+        view().forEach((bucket, usage) -> {
+            if (NO_MODEL.equals(bucket.model()) || bucket.day().isBefore(from) || bucket.day().isAfter(to)) {
+                return;
+            }
+            long[] c = counts.computeIfAbsent(bucket.model(), m -> new long[2]);
+            c[0] += usage.messages();
+            c[1] += usage.tokens();
+            costs.merge(bucket.model(), usage.cost(), Double::sum);
+        });
+
+        List<Map<String, Object>> models = new ArrayList<>();
+        counts.forEach((model, c) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("model", model);
+            row.put("messages", c[0]);
+            row.put("tokens", c[1]);
+            row.put("cost", roundCost(costs.get(model)));
+            models.add(row);
+        });
+        models.sort(Comparator.comparing((Map<String, Object> row) -> (Double) row.get("cost")).reversed());
+        return models;
+    }
+
+    // ==================== Checkpoint / rebuild ====================
+
+    /**
+     * Adds the deltas since the last checkpoint to usage_stats_rollup, then re-reads the rollup
+     * (picking up other instances' checkpoints and rebuilds).
+     * Failed buckets keep their deltas for the next run; deltas of an outdated epoch are dropped.
+     *
+     * @return number of written buckets
+     */
+    @Scheduled(fixedDelayString = "${memory.stats.checkpoint-interval-ms:10000}")
+    public synchronized int checkpoint() {
+        Map<Long, Map<Bucket, Counters>> drained;
+        lock.writeLock().lock();
+        try {
+            drained = pending;
+            pending = new ConcurrentHashMap<>();
+            // Still served until the re-read rollup contains them
+            flushing = drained;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        int written = 0;
+        int dropped = 0;
+        Map<Long, Map<Bucket, Counters>> failed = new HashMap<>();
+        for (Map.Entry<Long, Map<Bucket, Counters>> epochDeltas : drained.entrySet()) {
+            long epoch = epochDeltas.getKey();
+            for (Map.Entry<Bucket, Counters> entry : epochDeltas.getValue().entrySet()) {
+                Usage delta = entry.getValue().sum();
+                if (delta.isZero()) {
+                    continue;
+                }
+                try {
+                    if (store.addDeltas(epoch, entry.getKey(), delta)) {
+                        written++;
+                    } else {
+                        dropped++;
+                    }
+                } catch (Exception e) {
+                    failed.computeIfAbsent(epoch, k -> new HashMap<>()).put(entry.getKey(), entry.getValue());
+                    log.warn("⚠️ Usage stats checkpoint failed for {}: {}", entry.getKey(), e.getMessage());
+                }
+            }
+        }
+
+        Snapshot reloaded = null;
+        try {
+            reloaded = store.load();
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to re-read usage stats rollup: {}", e.getMessage());
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (reloaded != null) {
+                snapshot = reloaded;
+                flushing = Map.of();
+            } else {
+                // Keep serving the written deltas on top of the old rollup until the next re-read
+                failed.forEach((epoch, buckets) -> buckets.keySet().forEach(drained.get(epoch)::remove));
+                flushing = drained;
+            }
+            failed.forEach((epoch, buckets) -> buckets.forEach((bucket, counters) -> {
+                Usage delta = counters.sum();
+                addPending(epoch, bucket, delta.conversations(), delta.messages(), delta.tokens(), delta.cost());
+            }));
+            dropOutdated();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (written > 0 || dropped > 0) {
+            log.debug("📊 Usage stats checkpoint: {} buckets written, {} dropped after rebuild", written, dropped);
+        }
+        return written;
+    }
+
+    /**
+     * Recomputes the rollup from memory_entries (full-table aggregate).
+     * For repair after writes that bypassed MemoryService.
+     *
+     * Safe with several instances: the rebuild waits for in-flight message writes, and
+     * unflushed deltas recorded before it (on any instance) are dropped at their next checkpoint.
+     */
+    public synchronized void rebuild() {
+        log.info("🔄 Rebuilding usage stats from memory_entries");
+        Snapshot rebuilt = store.rebuild();
+        lock.writeLock().lock();
+        try {
+            snapshot = rebuilt;
+            flushing = Map.of();
+            dropOutdated();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Usage total = totalOf(view());
+        log.info("📊 Usage stats rebuilt: {} conversations, {} messages", total.conversations(), total.messages());
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try {
+            checkpoint();
+        } catch (Exception e) {
+            log.warn("⚠️ Final usage stats checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    // ==================== Internal ====================
+
+    private void apply(long epoch, Bucket bucket, long conversations, long messages, long tokens, double cost) {
+        lock.readLock().lock();
+        try {
+            addPending(epoch, bucket, conversations, messages, tokens, cost);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addPending(long epoch, Bucket bucket, long conversations, long messages, long tokens, double cost) {
+        pending.computeIfAbsent(epoch, e -> new ConcurrentHashMap<>())
+                .computeIfAbsent(bucket, b -> new Counters())
+                .add(conversations, messages, tokens, cost);
+    }
+
+    /**
+     * Removes deltas the current rollup already contains (recorded before its rebuild).
+     * Caller holds the write lock.
+     */
+    private void dropOutdated() {
+        pending.keySet().removeIf(epoch -> epoch < snapshot.epoch());
+    }
+
+    /**
+     * Rollup snapshot plus deltas not yet contained in it.
+     */
+    private Map<Bucket, Usage> view() {
+        lock.readLock().lock();
+        try {
+            Map<Bucket, Usage> view = new HashMap<>(snapshot.buckets());
+            addDeltas(view, flushing);
+            addDeltas(view, pending);
+            return view;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addDeltas(Map<Bucket, Usage> view, Map<Long, Map<Bucket, Counters>> deltas) {
+        deltas.forEach((epoch, buckets) -> {
+            if (epoch < snapshot.epoch()) {
+                return;
+            }
+            buckets.forEach((bucket, counters) -> view.merge(bucket, counters.sum(), Usage::plus));
+        });
+    }
+
+    private static Usage totalOf(Map<Bucket, Usage> view) {
+        return view.values().stream().reduce(Usage.ZERO, Usage::plus);
+    }
+
+    private static double roundCost(double cost) {
+        return BigDecimal.valueOf(cost).setScale(6, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package de.jivz.ai_challenge.service;
+
+import de.jivz.ai_challenge.entity.UsageStatsEpoch;
+import de.jivz.ai_challenge.entity.UsageStatsRollup;
+import de.jivz.ai_challenge.repository.MemoryRepository;
+import de.jivz.ai_challenge.repository.UsageStatsEpochRepository;
+import de.jivz.ai_challenge.repository.UsageStatsRollupRepository;
+import de.jivz.ai_challenge.service.UsageStatsService.Bucket;
+import de.jivz.ai_challenge.service.UsageStatsService.Usage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Database side of UsageStatsService: usage_stats_rollup and its rebuild epoch.
+ *
+ * Writes of checkpointed deltas hold the shared epoch lock and only apply if the
+ * epoch they were recorded in is still current; rebuilds take the exclusive lock
+ * (see UsageStatsEpoch).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UsageStatsStore {
+
+    private final MemoryRepository memoryRepository;
+    private final UsageStatsRollupRepository rollupRepository;
+    private final UsageStatsEpochRepository epochRepository;
+
+    /**
+     * Rollup rows as read in one epoch.
+     */
+    record Snapshot(long epoch, Map<Bucket, Usage> buckets) {
+        static final Snapshot EMPTY = new Snapshot(0, Map.of());
+    }
+
+    /**
+     * Creates the epoch row and seeds an empty rollup from memory_entries.
+     * Serialized across instances, so only the first one to start seeds.
+     */
+    @Transactional
+    public void initialize() {
+        LocalDateTime now = LocalDateTime.now();
+        epochRepository.insertIfAbsent(UsageStatsEpoch.ID, now);
+        epochRepository.findForUpdate(UsageStatsEpoch.ID);
+        if (rollupRepository.count() == 0 && memoryRepository.count() > 0) {
+            // Deltas other instances recorded so far are part of the seed
+            epochRepository.increment(UsageStatsEpoch.ID, now);
+            seedFromMemoryEntries(now);
+        }
+    }
+
+    /**
+     * Current epoch, locked (shared) until the surrounding transaction ends.
+     * Called by every transaction that saves or deletes messages.
+     */
+    @Transactional
+    public long lockEpoch() {
+        return epochRepository.findForShare(UsageStatsEpoch.ID)
+                .map(UsageStatsEpoch::getEpoch)
+                .orElse(0L);
+    }
+
+    /**
+     * Adds checkpointed deltas to a (day, model) row.
+     *
+     * @param epoch epoch the deltas were recorded in
+     * @return false if a rebuild started a new epoch since - the deltas are already contained in it
+     */
+    @Transactional
+    public boolean addDeltas(long epoch, Bucket bucket, Usage delta) {
+        if (lockEpoch() != epoch) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        BigDecimal cost = BigDecimal.valueOf(delta.cost());
+        if (addToBucket(bucket, delta, cost, now) == 0) {
+            // First delta of the bucket; a concurrent insert makes this a no-op
+            rollupRepository.insertIfAbsent(bucket.day(), bucket.model(), now);
+            addToBucket(bucket, delta, cost, now);
+        }
+        return true;
+    }
+
+    /**
+     * Reads all rollup rows together with their epoch.
+     */
+    @Transactional
+    public Snapshot load() {
+        long epoch = lockEpoch();
+        Map<Bucket, Usage> buckets = new HashMap<>();
+        for (UsageStatsRollup row : rollupRepository.findAll()) {
+            buckets.put(new Bucket(row.getStatDay(), row.getModel()), new Usage(row.getConversationCount(),
+                    row.getMessageCount(), row.getTotalTokens(), row.getTotalCost().doubleValue()));
+        }
+        return new Snapshot(epoch, Map.copyOf(buckets));
+    }
+
+    /**
+     * Starts a new epoch and recomputes the rollup from memory_entries (full-table aggregate).
+     * Waits for in-flight message writes on all instances.
+     *
+     * @return the rebuilt rollup
+     */
+    @Transactional
+    public Snapshot rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        epochRepository.insertIfAbsent(UsageStatsEpoch.ID, now);
+        epochRepository.increment(UsageStatsEpoch.ID, now);
+        rollupRepository.deleteAllInBatch();
+        seedFromMemoryEntries(now);
+        return load();
+    }
+
+    // ==================== Internal ====================
+
+    private void seedFromMemoryEntries(LocalDateTime now) {
+        Map<Bucket, UsageStatsRollup> rows = new HashMap<>();
+
+        for (MemoryRepository.UsageBucket usage : memoryRepository.aggregateUsageByDayAndModel()) {
+            Bucket bucket = Bucket.of(usage.getDay(), usage.getModel());
+            UsageStatsRollup row = rows.computeIfAbsent(bucket, b -> emptyRow(b, now));
+            row.setMessageCount(row.getMessageCount() + usage.getMessageCount());
+            row.setTotalTokens(row.getTotalTokens() + usage.getTotalTokens());
+            row.setTotalCost(row.getTotalCost().add(usage.getTotalCost()));
+        }
+        for (LocalDateTime startedAt : memoryRepository.findConversationStartTimes()) {
+            UsageStatsRollup row = rows.computeIfAbsent(Bucket.of(startedAt.toLocalDate(), null),
+                    b -> emptyRow(b, now));
+            row.setConversationCount(row.getConversationCount() + 1);
+        }
+
+        rollupRepository.saveAll(rows.values());
+        log.info("📊 Usage stats seeded from memory_entries: {} buckets", rows.size());
+    }
+
+    private int addToBucket(Bucket bucket, Usage delta, BigDecimal cost, LocalDateTime now) {
+        return rollupRepository.addToBucket(bucket.day(), bucket.model(), delta.conversations(),
+                delta.messages(), delta.tokens(), cost, now);
+    }
+
+    private static UsageStatsRollup emptyRow(Bucket bucket, LocalDateTime now) {
+        return UsageStatsRollup.builder()
+                .statDay(bucket.day())
+                .model(bucket.model())
+                .totalCost(BigDecimal.ZERO)
+                .updatedAt(now)
+                .build();
+    }
+}
@@ -0,0 +1,176 @@
+package de.jivz.ai_challenge.batch;
+
+import de.jivz.ai_challenge.batch.ReminderDispatcher.DueReminder;
+import de.jivz.ai_challenge.entity.ReminderSummary;
+import de.jivz.ai_challenge.entity.ReminderSummary.Source;
+import de.jivz.ai_challenge.entity.ReminderSummary.SummaryType;
+import de.jivz.ai_challenge.repository.ReminderSummaryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ReminderDispatcher: row claiming, per-user rate limit and completion.
+ */
+@DisplayName("ReminderDispatcher Tests")
+class ReminderDispatcherTest {
+
+    private static final String USER_ID = "user-a";
+    private static final String INSTANCE_ID = "test-instance";
+
+    private ReminderSummaryRepository repository;
+    private ReminderSchedulerService schedulerService;
+    private ReminderDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ReminderSummaryRepository.class);
+        schedulerService = mock(ReminderSchedulerService.class);
+
+        dispatcher = new ReminderDispatcher(repository, schedulerService);
+        // no dispatch thread - tests call dispatch() directly
+        ReflectionTestUtils.setField(dispatcher, "enabled", false);
+        ReflectionTestUtils.setField(dispatcher, "workerThreads", 2);
+        ReflectionTestUtils.setField(dispatcher, "claimLeaseSeconds", 600L);
+        ReflectionTestUtils.setField(dispatcher, "perUserMinIntervalSeconds", 300L);
+        ReflectionTestUtils.setField(dispatcher, "retryDelaySeconds", 300L);
+        ReflectionTestUtils.setField(dispatcher, "instanceId", INSTANCE_ID);
+        dispatcher.start();
+
+        when(repository.claim(anyLong(), eq(INSTANCE_ID), any(), any())).thenReturn(1);
+        when(repository.findTopByUserIdAndSourceAndSummaryTypeOrderByCreatedAtDesc(
+                USER_ID, Source.PERPLEXITY, SummaryType.TASKS))
+                .thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should run the workflow and complete the claimed reminder")
+    void shouldRunAndComplete() {
+        when(schedulerService.runReminder(USER_ID)).thenReturn(ReminderSummary.builder().id(42L).build());
+
+        assertThat(dispatcher.dispatch(due(1L))).isTrue();
+
+        verify(repository, timeout(2000)).completeClaimed(1L, INSTANCE_ID);
+        verify(repository, timeout(2000)).supersedeReminders(eq(USER_ID), eq(Source.PERPLEXITY), eq(42L), any());
+    }
+
+    @Test
+    @DisplayName("Should skip a reminder claimed by another instance")
+    void shouldSkipWhenClaimLost() {
+        when(repository.claim(eq(1L), eq(INSTANCE_ID), any(), any())).thenReturn(0);
+
+        assertThat(dispatcher.dispatch(due(1L))).isFalse();
+
+        verify(schedulerService, never()).runReminder(anyString());
+    }
+
+    @Test
+    @DisplayName("Should reschedule when the user ran recently")
+    void shouldRescheduleWhenRateLimited() {
+        LocalDateTime lastSummaryAt = LocalDateTime.now().minusSeconds(60);
+        when(repository.findTopByUserIdAndSourceAndSummaryTypeOrderByCreatedAtDesc(
+                USER_ID, Source.PERPLEXITY, SummaryType.TASKS))
+                .thenReturn(Optional.of(ReminderSummary.builder().createdAt(lastSummaryAt).build()));
+
+        assertThat(dispatcher.dispatch(due(1L))).isFalse();
+
+        verify(repository).releaseClaimed(1L, INSTANCE_ID, lastSummaryAt.plusSeconds(300));
+        verify(schedulerService, never()).runReminder(anyString());
+    }
+
+    @Test
+    @DisplayName("Should run at most one workflow per user at a time")
+    void shouldNotRunSameUserConcurrently() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(schedulerService.runReminder(USER_ID)).thenAnswer(inv -> {
+            started.countDown();
+            release.await(2, TimeUnit.SECONDS);
+            return ReminderSummary.builder().id(42L).build();
+        });
+
+        assertThat(dispatcher.dispatch(due(1L))).isTrue();
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(dispatcher.dispatch(due(2L))).isFalse();
+        verify(repository).releaseClaimed(eq(2L), eq(INSTANCE_ID), any());
+
+        release.countDown();
+        verify(repository, timeout(2000)).completeClaimed(1L, INSTANCE_ID);
+    }
+
+    @Test
+    @DisplayName("Should renew the claim while the workflow runs")
+    void shouldRenewClaimWhileRunning() throws InterruptedException {
+        ReflectionTestUtils.setField(dispatcher, "claimLeaseSeconds", 3L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(schedulerService.runReminder(USER_ID)).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return ReminderSummary.builder().id(42L).build();
+        });
+
+        assertThat(dispatcher.dispatch(due(1L))).isTrue();
+
+        verify(repository, timeout(3000).atLeastOnce()).renewClaim(eq(1L), eq(INSTANCE_ID), any());
+        release.countDown();
+        verify(repository, timeout(2000)).completeClaimed(1L, INSTANCE_ID);
+    }
+
+    @Test
+    @DisplayName("Should release the claim with a retry time when the workflow fails")
+    void shouldRetryOnFailure() {
+        when(schedulerService.runReminder(USER_ID)).thenThrow(new RuntimeException("Sonar down"));
+
+        assertThat(dispatcher.dispatch(due(1L))).isTrue();
+
+        verify(repository, timeout(2000)).releaseClaimed(eq(1L), eq(INSTANCE_ID), any());
+        verify(repository, never()).completeClaimed(anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("Should queue each due reminder only once")
+    void shouldQueueOnce() {
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReminderSummary reminder = ReminderSummary.builder()
+                .id(1L)
+                .userId(USER_ID)
+                .nextReminderAt(LocalDateTime.now().plusMinutes(1))
+                .build();
+        when(repository.findDueReminders(eq(Source.PERPLEXITY), any(), any(), any())).thenReturn(List.of(reminder));
+
+        dispatcher.loadDueReminders();
+        dispatcher.loadDueReminders();
+
+        assertThat(dispatcher.getStatus()).containsEntry("queued", 1);
+        verify(repository, never()).findDueReminders(eq(Source.OPENROUTER), any(), any(), any());
+    }
+
+    private static DueReminder due(Long id) {
+        return new DueReminder(id, USER_ID, LocalDateTime.now());
+    }
+}
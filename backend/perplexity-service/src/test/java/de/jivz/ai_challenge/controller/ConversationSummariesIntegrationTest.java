@@ -2,8 +2,12 @@ package de.jivz.ai_challenge.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.jivz.ai_challenge.dto.ConversationSummaryDTO;
+import de.jivz.ai_challenge.dto.ConversationSummaryPageDTO;
 import de.jivz.ai_challenge.entity.MemoryEntry;
+import de.jivz.ai_challenge.repository.ConversationParticipantRollupRepository;
+import de.jivz.ai_challenge.repository.ConversationSummaryRollupRepository;
 import de.jivz.ai_challenge.repository.MemoryRepository;
+import de.jivz.ai_challenge.service.ConversationRollupService;
 import de.jivz.ai_challenge.service.MemoryService;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,6 +51,15 @@ class ConversationSummariesIntegrationTest {
     @Autowired
     private MemoryService memoryService;
 
+    @Autowired
+    private ConversationRollupService conversationRollupService;
+
+    @Autowired
+    private ConversationSummaryRollupRepository rollupRepository;
+
+    @Autowired
+    private ConversationParticipantRollupRepository participantRepository;
+
     private static final String USER_1 = "user-summaries-1";
     private static final String USER_2 = "user-summaries-2";
     private static String conversationId1;
@@ -164,6 +177,9 @@ class ConversationSummariesIntegrationTest {
             memoryRepository.save(assistantMsg);
         }
 
+        // Written through the repository, bypassing MemoryService
+        conversationRollupService.rebuild();
+
         System.out.println("\n✅ Test data created:");
         System.out.println("   - Conversation 1 (User 1): " + conversationId1 + " (10 messages)");
         System.out.println("   - Conversation 2 (User 1): " + conversationId2 + " (6 messages)");
@@ -301,7 +317,7 @@ class ConversationSummariesIntegrationTest {
         System.out.println("✅ Before deletion: " + countBefore + " messages");
 
         // 🗑️ Delete the conversation
-        int deletedCount = memoryRepository.deleteByConversationId(conversationId1);
+        int deletedCount = memoryService.deleteConversation(conversationId1);
 
         // ✅ Verify delete count
         assertThat(deletedCount).isEqualTo(10);
@@ -334,6 +350,99 @@ class ConversationSummariesIntegrationTest {
         System.out.println("✅ Summaries updated: now has " + summaries.size() + " conversations");
     }
 
+    // ============================================================================
+    // TEST 4: Keyset Pagination
+    // ============================================================================
+
+    @Test
+    @Order(4)
+    @Transactional
+    @DisplayName("Test 4: MemoryService.getConversationSummaryPage() - Should page with keyset cursor")
+    void testConversationSummaryPagination() {
+        createTestConversations();
+        // Summary rows have no userId but still belong to the user's conversation
+        memoryService.saveSummary(conversationId2, "Summary of conversation 2", 4, LocalDateTime.now().minusDays(1));
+
+        ConversationSummaryPageDTO first = memoryService.getConversationSummaryPage(null, null, 2);
+        assertThat(first.getConversations()).hasSize(2);
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(first.getNextCursor()).isNotBlank();
+
+        ConversationSummaryPageDTO second = memoryService.getConversationSummaryPage(null, first.getNextCursor(), 2);
+        assertThat(second.getConversations()).hasSize(1);
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+
+        // Newest first, no duplicates across pages
+        assertThat(first.getConversations()).extracting(ConversationSummaryDTO::getConversationId)
+                .containsExactly(conversationId3, conversationId2);
+        assertThat(second.getConversations()).extracting(ConversationSummaryDTO::getConversationId)
+                .containsExactly(conversationId1);
+
+        ConversationSummaryPageDTO userPage = memoryService.getConversationSummaryPage(USER_1, null, 10);
+        ConversationSummaryDTO conv2Summary = userPage.getConversations().stream()
+                .filter(s -> s.getConversationId().equals(conversationId2))
+                .findFirst()
+                .orElseThrow();
+        assertThat(userPage.getConversations()).hasSize(2);
+        assertThat(conv2Summary.getMessageCount()).isEqualTo(7);
+        assertThat(conv2Summary.getCompressedMessageCount()).isEqualTo(1);
+        assertThat(conv2Summary.isHasCompression()).isTrue();
+        assertThat(conv2Summary.getFirstMessage()).isEqualTo("Summary of conversation 2");
+
+        assertThatThrownBy(() -> memoryService.getConversationSummaryPage(null, "not-a-cursor", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ============================================================================
+    // TEST 5: Rollup maintained by MemoryService
+    // ============================================================================
+
+    @Test
+    @Order(5)
+    @DisplayName("Test 5: Conversation rollup - Should follow saves, summaries and deletes without rebuild")
+    void testRollupMaintainedByMemoryService() {
+        String conversationId = "conv-rollup-" + System.nanoTime();
+
+        memoryService.saveMessage(conversationId, USER_1, "user", "First question", null, null);
+        memoryService.saveMessage(conversationId, USER_1, "assistant", "First answer", "gpt-4", null);
+        memoryService.saveSummary(conversationId, "Summary", 2, LocalDateTime.now().minusDays(1));
+
+        assertThat(rollupRepository.findById(conversationId)).hasValueSatisfying(row -> {
+            assertThat(row.getMessageCount()).isEqualTo(3);
+            assertThat(row.getCompressedMessageCount()).isEqualTo(1);
+            // The older summary timestamp does not move the last message time back
+            assertThat(row.getLastMessageTime()).isAfter(LocalDateTime.now().minusHours(1));
+        });
+        // One participant row per user; the summary without user ID adds none
+        assertThat(participantRepository.findAll())
+                .filteredOn(p -> p.getConversationId().equals(conversationId))
+                .singleElement()
+                .satisfies(p -> {
+                    assertThat(p.getUserId()).isEqualTo(USER_1);
+                    assertThat(p.getLastMessageTime())
+                            .isEqualTo(rollupRepository.findById(conversationId).orElseThrow().getLastMessageTime());
+                });
+
+        ConversationSummaryDTO summary = memoryService.getConversationSummaryPage(USER_1, null, 10)
+                .getConversations().stream()
+                .filter(s -> s.getConversationId().equals(conversationId))
+                .findFirst()
+                .orElseThrow();
+        assertThat(summary.getMessageCount()).isEqualTo(3);
+        assertThat(summary.isHasCompression()).isTrue();
+
+        memoryService.deleteConversation(conversationId);
+
+        assertThat(rollupRepository.findById(conversationId)).isEmpty();
+        assertThat(participantRepository.findAll())
+                .extracting(p -> p.getConversationId())
+                .doesNotContain(conversationId);
+        assertThat(memoryService.getConversationSummaryPage(USER_1, null, 10).getConversations())
+                .extracting(ConversationSummaryDTO::getConversationId)
+                .doesNotContain(conversationId);
+    }
+
     // ============================================================================
     // HELPER METHODS
     // ============================================================================
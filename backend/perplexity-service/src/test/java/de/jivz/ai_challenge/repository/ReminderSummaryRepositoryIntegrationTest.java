@@ -0,0 +1,115 @@
+package de.jivz.ai_challenge.repository;
+
+import de.jivz.ai_challenge.entity.ReminderSummary;
+import de.jivz.ai_challenge.entity.ReminderSummary.Source;
+import de.jivz.ai_challenge.entity.ReminderSummary.SummaryType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for the ReminderDispatcher queries of ReminderSummaryRepository with H2.
+ *
+ * Both schedulers plan nextReminderAt; only PERPLEXITY rows belong to the dispatcher.
+ */
+@SpringBootTest(properties = {
+        "reminder.dispatcher.enabled=false",
+        "reminder.scheduler.enabled=false"
+})
+@ActiveProfiles("test")
+@DisplayName("ReminderSummaryRepository Integration Tests")
+class ReminderSummaryRepositoryIntegrationTest {
+
+    private static final String USER_ID = "reminder-user";
+
+    @Autowired
+    private ReminderSummaryRepository reminderRepository;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        reminderRepository.deleteAll();
+        now = LocalDateTime.now();
+    }
+
+    @Test
+    @DisplayName("Should only return due reminders of the requested source")
+    void shouldFindDueRemindersBySource() {
+        ReminderSummary perplexity = reminderRepository.save(reminder(Source.PERPLEXITY, now.minusMinutes(5)));
+        reminderRepository.save(reminder(Source.OPENROUTER, now.minusMinutes(5)));
+
+        List<ReminderSummary> due = reminderRepository.findDueReminders(
+                Source.PERPLEXITY, now, now, PageRequest.of(0, 10));
+
+        assertThat(due).extracting(ReminderSummary::getId).containsExactly(perplexity.getId());
+        assertThat(reminderRepository.existsByUserIdAndSourceAndNextReminderAtIsNotNull(USER_ID, Source.PERPLEXITY))
+                .isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep other schedulers' plans when superseding")
+    void shouldSupersedeOnlySameSource() {
+        ReminderSummary older = reminderRepository.save(reminder(Source.PERPLEXITY, now.minusMinutes(5)));
+        ReminderSummary openRouter = reminderRepository.save(reminder(Source.OPENROUTER, now.plusDays(1)));
+        ReminderSummary latest = reminderRepository.save(reminder(Source.PERPLEXITY, now.plusDays(1)));
+
+        int superseded = reminderRepository.supersedeReminders(USER_ID, Source.PERPLEXITY, latest.getId(), now);
+
+        assertThat(superseded).isEqualTo(1);
+        assertThat(reminderRepository.findById(older.getId()).orElseThrow().getNextReminderAt()).isNull();
+        assertThat(reminderRepository.findById(openRouter.getId()).orElseThrow().getNextReminderAt()).isNotNull();
+        assertThat(reminderRepository.findById(latest.getId()).orElseThrow().getNextReminderAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should not claim a second reminder of a user while one is claimed")
+    void shouldClaimOneReminderPerUserAndSource() {
+        ReminderSummary first = reminderRepository.save(reminder(Source.PERPLEXITY, now.minusMinutes(5)));
+        ReminderSummary second = reminderRepository.save(reminder(Source.PERPLEXITY, now.minusMinutes(1)));
+        ReminderSummary openRouter = reminderRepository.save(reminder(Source.OPENROUTER, now.minusMinutes(1)));
+        LocalDateTime until = now.plusMinutes(10);
+
+        assertThat(reminderRepository.claim(first.getId(), "instance-a", now, until)).isEqualTo(1);
+        assertThat(reminderRepository.claim(second.getId(), "instance-b", now, until)).isZero();
+        assertThat(reminderRepository.claim(openRouter.getId(), "instance-b", now, until)).isEqualTo(1);
+
+        // An expired claim no longer blocks the user
+        LocalDateTime later = until.plusSeconds(1);
+        assertThat(reminderRepository.claim(second.getId(), "instance-b", later, later.plusMinutes(10))).isEqualTo(1);
+        assertThat(reminderRepository.renewClaim(first.getId(), "instance-a", later.plusMinutes(10))).isEqualTo(1);
+        assertThat(reminderRepository.renewClaim(first.getId(), "instance-b", later.plusMinutes(10))).isZero();
+    }
+
+    @Test
+    @DisplayName("Should mark a summary as notified outside a caller transaction")
+    void shouldMarkAsNotified() {
+        ReminderSummary summary = reminderRepository.save(reminder(Source.PERPLEXITY, now.plusDays(1)));
+
+        assertThat(reminderRepository.markAsNotified(summary.getId(), now)).isEqualTo(1);
+
+        ReminderSummary reloaded = reminderRepository.findById(summary.getId()).orElseThrow();
+        assertThat(reloaded.getNotified()).isTrue();
+        assertThat(reloaded.getNotifiedAt()).isNotNull();
+    }
+
+    private static ReminderSummary reminder(Source source, LocalDateTime nextReminderAt) {
+        return ReminderSummary.builder()
+                .userId(USER_ID)
+                .summaryType(SummaryType.TASKS)
+                .title("Сводка по задачам")
+                .content("content")
+                .source(source)
+                .nextReminderAt(nextReminderAt)
+                .build();
+    }
+}
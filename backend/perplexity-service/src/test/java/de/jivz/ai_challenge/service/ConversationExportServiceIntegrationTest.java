@@ -0,0 +1,205 @@
+package de.jivz.ai_challenge.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jivz.ai_challenge.entity.MemoryEntry;
+import de.jivz.ai_challenge.repository.MemoryRepository;
+import de.jivz.ai_challenge.service.ConversationExportService.ExportFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests for ConversationExportService with H2 in-memory database.
+ *
+ * The page size is lowered to 3 so every export spans several keyset pages,
+ * and conversation A has more entries than a page with one shared timestamp.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "memory.export.page-size=3")
+@ActiveProfiles("test")
+@DisplayName("ConversationExportService Integration Tests")
+class ConversationExportServiceIntegrationTest {
+
+    private static final String USER_ID = "export-user";
+    private static final String OTHER_USER_ID = "export-other-user";
+    private static final String CONVERSATION_A = "export-conv-a";
+    private static final String CONVERSATION_B = "export-conv-b";
+    private static final String CONVERSATION_C = "export-conv-c";
+    private static final LocalDateTime TIED_TIME = LocalDateTime.of(2026, 1, 15, 10, 0);
+
+    @LocalServerPort
+    private int port;
+
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    @Autowired
+    private ConversationExportService exportService;
+
+    @Autowired
+    private MemoryRepository memoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private List<Long> conversationAIds;
+
+    @BeforeEach
+    void setUp() {
+        memoryRepository.deleteAll();
+
+        // 8 entries with the same timestamp - ordering and paging rely on the id tie-breaker
+        List<MemoryEntry> tied = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tied.add(entry(CONVERSATION_A, USER_ID, i % 2 == 0 ? "user" : "assistant", "Tied " + i, TIED_TIME));
+        }
+        // Summary without user ID still belongs to the user's conversation
+        MemoryEntry summary = entry(CONVERSATION_A, null, "system", "Summary", TIED_TIME.plusMinutes(5));
+        summary.setIsCompressed(true);
+        tied.add(summary);
+        conversationAIds = memoryRepository.saveAll(tied).stream().map(MemoryEntry::getId).sorted().toList();
+
+        memoryRepository.saveAll(List.of(
+                entry(CONVERSATION_B, USER_ID, "user", "B question", TIED_TIME.plusHours(1)),
+                entry(CONVERSATION_B, USER_ID, "assistant", "B answer", TIED_TIME.plusHours(1)),
+                entry(CONVERSATION_C, OTHER_USER_ID, "user", "C question", TIED_TIME),
+                entry(CONVERSATION_C, OTHER_USER_ID, "assistant", "C answer", TIED_TIME)));
+    }
+
+    @Test
+    @DisplayName("JSON export should page through tied timestamps without duplicates or gaps")
+    void shouldExportConversationJsonAcrossTiedPages() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportConversation(CONVERSATION_A, ExportFormat.JSON, out);
+
+        JsonNode root = objectMapper.readTree(out.toByteArray());
+        assertThat(count).isEqualTo(9);
+        assertThat(root.get("conversationId").asText()).isEqualTo(CONVERSATION_A);
+        assertThat(root.get("messageCount").asLong()).isEqualTo(9);
+        assertThat(ids(root.get("messages"))).containsExactlyElementsOf(conversationAIds);
+
+        JsonNode statistics = root.get("statistics");
+        assertThat(statistics.get("conversationId").asText()).isEqualTo(CONVERSATION_A);
+        assertThat(statistics.get("messageCount").asLong()).isEqualTo(9);
+        assertThat(statistics.get("totalTokens").asLong()).isEqualTo(90);
+        assertThat(statistics.get("firstMessageAt").asText()).isEqualTo(TIED_TIME.toString());
+        assertThat(statistics.get("duration").asText()).isEqualTo("5 minutes");
+    }
+
+    @Test
+    @DisplayName("NDJSON export should write one parsable entry per line")
+    void shouldExportConversationNdjson() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportConversation(CONVERSATION_A, ExportFormat.NDJSON, out);
+
+        List<JsonNode> lines = parseLines(out.toString(StandardCharsets.UTF_8));
+        assertThat(lines).extracting(line -> line.get("id").asLong()).containsExactlyElementsOf(conversationAIds);
+        assertThat(lines).allSatisfy(line ->
+                assertThat(line.get("conversationId").asText()).isEqualTo(CONVERSATION_A));
+    }
+
+    @Test
+    @DisplayName("Bulk JSON export should group a user's conversations including their summaries")
+    void shouldGroupBulkExportByConversation() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = exportService.exportAll(USER_ID, ExportFormat.JSON, out);
+
+        JsonNode root = objectMapper.readTree(out.toByteArray());
+        JsonNode conversations = root.get("conversations");
+        assertThat(count).isEqualTo(11);
+        assertThat(root.get("conversationCount").asLong()).isEqualTo(2);
+        assertThat(root.get("messageCount").asLong()).isEqualTo(11);
+        assertThat(conversations).hasSize(2);
+
+        assertThat(conversations.get(0).get("conversationId").asText()).isEqualTo(CONVERSATION_A);
+        assertThat(conversations.get(0).get("messageCount").asLong()).isEqualTo(9);
+        assertThat(ids(conversations.get(0).get("messages"))).containsExactlyElementsOf(conversationAIds);
+        assertThat(conversations.get(1).get("conversationId").asText()).isEqualTo(CONVERSATION_B);
+        assertThat(conversations.get(1).get("messageCount").asLong()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Bulk NDJSON export of all users should contain every entry once")
+    void shouldExportAllEntriesOnce() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.exportAll(null, ExportFormat.NDJSON, out);
+
+        List<JsonNode> lines = parseLines(out.toString(StandardCharsets.UTF_8));
+        assertThat(lines).hasSize(13);
+        assertThat(lines).extracting(line -> line.get("id").asLong()).doesNotHaveDuplicates();
+        assertThat(lines).extracting(line -> line.get("conversationId").asText())
+                .containsOnly(CONVERSATION_A, CONVERSATION_B, CONVERSATION_C)
+                .isSorted();
+    }
+
+    @Test
+    @DisplayName("gzip=true response should gunzip to the NDJSON export")
+    void shouldServeGzippedExport() throws IOException {
+        ResponseEntity<byte[]> response = restTemplate.getForEntity(
+                "http://localhost:" + port + "/api/memory/export?userId=" + USER_ID + "&format=ndjson&gzip=true",
+                byte[].class);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getHeaders().getContentType()).hasToString("application/gzip");
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<JsonNode> lines = parseLines(body);
+        assertThat(lines).hasSize(11);
+        assertThat(lines).extracting(line -> line.get("conversationId").asText())
+                .containsOnly(CONVERSATION_A, CONVERSATION_B);
+    }
+
+    private List<JsonNode> parseLines(String ndjson) throws IOException {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            if (!line.isBlank()) {
+                lines.add(objectMapper.readTree(line));
+            }
+        }
+        return lines;
+    }
+
+    private static List<Long> ids(JsonNode messages) {
+        List<Long> ids = new ArrayList<>();
+        messages.forEach(message -> ids.add(message.get("id").asLong()));
+        return ids;
+    }
+
+    private static MemoryEntry entry(String conversationId, String userId, String role, String content,
+                                     LocalDateTime timestamp) {
+        return MemoryEntry.builder()
+                .conversationId(conversationId)
+                .userId(userId)
+                .role(role)
+                .content(content)
+                .timestamp(timestamp)
+                .totalTokens(10)
+                .cost(BigDecimal.valueOf(0.001))
+                .isCompressed(false)
+                .build();
+    }
+}
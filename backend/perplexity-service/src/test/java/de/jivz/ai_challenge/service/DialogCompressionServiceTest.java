@@ -0,0 +1,162 @@
+package de.jivz.ai_challenge.service;
+
+import de.jivz.ai_challenge.entity.MemoryEntry;
+import de.jivz.ai_challenge.service.openrouter.OpenRouterToolClient;
+import de.jivz.ai_challenge.service.openrouter.model.OpenRouterResponseWithMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for DialogCompressionService: token trigger, kept tail and background dedup.
+ */
+@DisplayName("DialogCompressionService Tests")
+class DialogCompressionServiceTest {
+
+    private static final String CONVERSATION_ID = "conv-compress";
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private OpenRouterToolClient openRouterClient;
+    private MemoryService memoryService;
+    private DialogCompressionService service;
+
+    @BeforeEach
+    void setUp() {
+        openRouterClient = mock(OpenRouterToolClient.class);
+        memoryService = mock(MemoryService.class);
+
+        service = new DialogCompressionService(openRouterClient, memoryService);
+        ReflectionTestUtils.setField(service, "tokenThreshold", 100);
+        ReflectionTestUtils.setField(service, "keepRecentMessages", 2);
+        ReflectionTestUtils.setField(service, "workerThreads", 1);
+        service.start();
+
+        when(memoryService.getLastSummaryEntry(CONVERSATION_ID)).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should not compress while tail is under token budget")
+    void shouldSkipUnderBudget() {
+        when(memoryService.getEntriesAfterLastSummary(CONVERSATION_ID)).thenReturn(entries(6, 40));
+
+        assertThat(service.compressIfOverBudget(CONVERSATION_ID)).isFalse();
+
+        verify(openRouterClient, never()).requestCompletionWithMetrics(any(), any(), any());
+        verify(memoryService, never()).saveSummary(anyString(), anyString(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should summarize all but the recent messages when over budget")
+    void shouldCompressOverBudget() {
+        List<MemoryEntry> tail = entries(5, 200);
+        when(memoryService.getEntriesAfterLastSummary(CONVERSATION_ID)).thenReturn(tail);
+        when(openRouterClient.requestCompletionWithMetrics(any(), eq(0.3), isNull()))
+                .thenReturn(OpenRouterResponseWithMetrics.builder().reply("summary").build());
+
+        assertThat(service.compressIfOverBudget(CONVERSATION_ID)).isTrue();
+
+        // 3 of 5 summarized, summary timestamp = last summarized message
+        verify(memoryService).saveSummary(CONVERSATION_ID, "summary", 3, tail.get(2).getTimestamp());
+    }
+
+    @Test
+    @DisplayName("Should fold previous summary into the message count")
+    void shouldAccumulateCompressedCount() {
+        when(memoryService.getEntriesAfterLastSummary(CONVERSATION_ID)).thenReturn(entries(4, 200));
+        when(memoryService.getLastSummaryEntry(CONVERSATION_ID)).thenReturn(Optional.of(MemoryEntry.builder()
+                .conversationId(CONVERSATION_ID)
+                .role("system")
+                .content("old summary")
+                .compressedMessagesCount(10)
+                .timestamp(BASE_TIME.minusHours(1))
+                .build()));
+        when(openRouterClient.requestCompletionWithMetrics(any(), any(), any()))
+                .thenReturn(OpenRouterResponseWithMetrics.builder().reply("summary").build());
+
+        service.compressIfOverBudget(CONVERSATION_ID);
+
+        verify(memoryService).saveSummary(eq(CONVERSATION_ID), eq("summary"), eq(12), any());
+    }
+
+    @Test
+    @DisplayName("Should not store a summary when the model call fails")
+    void shouldNotSaveOnFailure() {
+        when(memoryService.getEntriesAfterLastSummary(CONVERSATION_ID)).thenReturn(entries(5, 200));
+        when(openRouterClient.requestCompletionWithMetrics(any(), any(), any()))
+                .thenThrow(new RuntimeException("API down"));
+
+        assertThat(service.compressIfOverBudget(CONVERSATION_ID)).isFalse();
+
+        verify(memoryService, never()).saveSummary(anyString(), anyString(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Should run one background job per conversation and re-check once")
+    void shouldDeduplicateScheduledJobs() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(memoryService.getEntriesAfterLastSummary(CONVERSATION_ID)).thenAnswer(inv -> {
+            started.countDown();
+            release.await(2, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        assertThat(service.scheduleCompression(CONVERSATION_ID)).isTrue();
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(service.scheduleCompression(CONVERSATION_ID)).isFalse();
+        assertThat(service.scheduleCompression(CONVERSATION_ID)).isFalse();
+        assertThat(service.getInFlightCount()).isEqualTo(1);
+
+        release.countDown();
+
+        // first run + a single re-check for both coalesced requests
+        verify(memoryService, timeout(2000).times(2)).getEntriesAfterLastSummary(CONVERSATION_ID);
+        long deadline = System.currentTimeMillis() + 2000;
+        while (service.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(service.getInFlightCount()).isZero();
+        verify(memoryService, times(2)).getEntriesAfterLastSummary(CONVERSATION_ID);
+    }
+
+    private static List<MemoryEntry> entries(int count, int contentLength) {
+        List<MemoryEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(MemoryEntry.builder()
+                    .conversationId(CONVERSATION_ID)
+                    .role(i % 2 == 0 ? "user" : "assistant")
+                    .content("x".repeat(contentLength))
+                    .timestamp(BASE_TIME.plusMinutes(i))
+                    .build());
+        }
+        return entries;
+    }
+}
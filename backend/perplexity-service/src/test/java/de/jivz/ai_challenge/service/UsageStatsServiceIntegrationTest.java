@@ -0,0 +1,171 @@
+package de.jivz.ai_challenge.service;
+
+import de.jivz.ai_challenge.dto.ResponseMetrics;
+import de.jivz.ai_challenge.entity.UsageStatsRollup;
+import de.jivz.ai_challenge.repository.MemoryRepository;
+import de.jivz.ai_challenge.repository.UsageStatsRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Integration tests for UsageStatsService with H2 in-memory database.
+ *
+ * Other tests write through MemoryRepository directly, so every test
+ * rebuilds the counters first and asserts deltas. Other instances are
+ * simulated by writing to the rollup through UsageStatsStore.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("UsageStatsService Integration Tests")
+class UsageStatsServiceIntegrationTest {
+
+    private static final String MODEL = "usage-test/model";
+
+    @Autowired
+    private UsageStatsService usageStatsService;
+
+    @Autowired
+    private MemoryService memoryService;
+
+    @Autowired
+    private MemoryRepository memoryRepository;
+
+    @Autowired
+    private UsageStatsRollupRepository rollupRepository;
+
+    @Autowired
+    private UsageStatsStore store;
+
+    @BeforeEach
+    void syncCounters() {
+        usageStatsService.rebuild();
+    }
+
+    @Test
+    @DisplayName("Should count saved messages without querying memory_entries")
+    void shouldCountSavedMessages() {
+        Map<String, Object> before = usageStatsService.getTotals();
+        String conversationId = "usage-conv-" + System.nanoTime();
+
+        memoryService.saveMessage(conversationId, "usage-user", "user", "Hello", null, null);
+        memoryService.saveMessage(conversationId, "usage-user", "assistant", "Hi", MODEL, metrics(120, 0.002));
+        memoryService.saveMessage(conversationId, "usage-user", "assistant", "Again", MODEL, metrics(80, 0.001));
+
+        Map<String, Object> after = usageStatsService.getTotals();
+        assertThat(delta(before, after, "totalConversations")).isEqualTo(1);
+        assertThat(delta(before, after, "totalMessages")).isEqualTo(3);
+        assertThat(delta(before, after, "totalTokens")).isEqualTo(200);
+        assertThat((Double) after.get("totalCost") - (Double) before.get("totalCost"))
+                .isCloseTo(0.003, within(1e-9));
+
+        List<Map<String, Object>> models = usageStatsService.getModelBreakdown(LocalDate.now(), LocalDate.now());
+        assertThat(models).anySatisfy(row -> {
+            assertThat(row).containsEntry("model", MODEL);
+            assertThat(row).containsEntry("messages", 2L);
+            assertThat(row).containsEntry("tokens", 200L);
+        });
+    }
+
+    @Test
+    @DisplayName("Should checkpoint deltas so rollup matches counters")
+    void shouldCheckpointToRollup() {
+        String conversationId = "usage-conv-" + System.nanoTime();
+        memoryService.saveMessage(conversationId, "usage-user", "user", "Hello", null, null);
+        memoryService.saveMessage(conversationId, "usage-user", "assistant", "Hi", MODEL, metrics(50, 0.0005));
+
+        assertThat(usageStatsService.checkpoint()).isPositive();
+        assertThat(usageStatsService.checkpoint()).isZero();
+
+        List<UsageStatsRollup> rows = rollupRepository.findAll();
+        Map<String, Object> totals = usageStatsService.getTotals();
+        assertThat(rows.stream().mapToLong(UsageStatsRollup::getMessageCount).sum())
+                .isEqualTo(totals.get("totalMessages"));
+        assertThat(rows.stream().mapToLong(UsageStatsRollup::getConversationCount).sum())
+                .isEqualTo(totals.get("totalConversations"));
+        assertThat(rows.stream().map(UsageStatsRollup::getTotalCost).reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo(BigDecimal.valueOf((Double) totals.get("totalCost")));
+    }
+
+    @Test
+    @DisplayName("Should subtract deleted conversation")
+    void shouldSubtractDeletedConversation() {
+        String conversationId = "usage-conv-" + System.nanoTime();
+        memoryService.saveMessage(conversationId, "usage-user", "user", "Hello", null, null);
+        memoryService.saveMessage(conversationId, "usage-user", "assistant", "Hi", MODEL, metrics(70, 0.001));
+        Map<String, Object> before = usageStatsService.getTotals();
+
+        memoryService.deleteConversation(conversationId);
+
+        Map<String, Object> after = usageStatsService.getTotals();
+        assertThat(delta(before, after, "totalConversations")).isEqualTo(-1);
+        assertThat(delta(before, after, "totalMessages")).isEqualTo(-2);
+        assertThat(delta(before, after, "totalTokens")).isEqualTo(-70);
+    }
+
+    @Test
+    @DisplayName("Should match memory_entries after rebuild")
+    void shouldMatchTableAfterRebuild() {
+        Map<String, Object> totals = usageStatsService.getTotals();
+
+        assertThat(totals.get("totalMessages")).isEqualTo(memoryRepository.count());
+        assertThat(totals.get("totalConversations"))
+                .isEqualTo((long) memoryRepository.findConversationStartTimes().size());
+    }
+
+    @Test
+    @DisplayName("Should serve other instances' checkpoints after the next checkpoint")
+    void shouldReadSharedRollupOnCheckpoint() {
+        usageStatsService.checkpoint();
+        Map<String, Object> before = usageStatsService.getTotals();
+        long epoch = store.load().epoch();
+
+        // Checkpoint of another instance
+        store.addDeltas(epoch, UsageStatsService.Bucket.of(LocalDate.now(), MODEL),
+                new UsageStatsService.Usage(0, 4, 400, 0.004));
+        usageStatsService.checkpoint();
+
+        Map<String, Object> after = usageStatsService.getTotals();
+        assertThat(delta(before, after, "totalMessages")).isEqualTo(4);
+        assertThat(delta(before, after, "totalTokens")).isEqualTo(400);
+    }
+
+    @Test
+    @DisplayName("Should not count unflushed deltas twice after a rebuild elsewhere")
+    void shouldDropDeltasContainedInRebuild() {
+        String conversationId = "usage-conv-" + System.nanoTime();
+        memoryService.saveMessage(conversationId, "usage-user", "user", "Hello", null, null);
+        memoryService.saveMessage(conversationId, "usage-user", "assistant", "Hi", MODEL, metrics(30, 0.0003));
+
+        // Rebuild by another instance while this one still holds the deltas
+        store.rebuild();
+        usageStatsService.checkpoint();
+
+        Map<String, Object> totals = usageStatsService.getTotals();
+        assertThat(totals.get("totalMessages")).isEqualTo(memoryRepository.count());
+        assertThat(rollupRepository.findAll().stream().mapToLong(UsageStatsRollup::getMessageCount).sum())
+                .isEqualTo(memoryRepository.count());
+    }
+
+    private static ResponseMetrics metrics(int tokens, double cost) {
+        return ResponseMetrics.builder()
+                .totalTokens(tokens)
+                .cost(cost)
+                .build();
+    }
+
+    private static long delta(Map<String, Object> before, Map<String, Object> after, String key) {
+        return (Long) after.get(key) - (Long) before.get(key);
+    }
+}
@@ -0,0 +1,37 @@
+package de.jivz.rag.benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа benchmarks.jar.
+ *
+ * Принимает обычные аргументы JMH и всегда добавляет GCProfiler,
+ * чтобы рядом с throughput в отчёте были gc.alloc.rate и gc.alloc.rate.norm (байт на операцию).
+ *
+ * Примеры:
+ *   java -jar target/benchmarks.jar
+ *   java -jar target/benchmarks.jar MergingBenchmark -p resultSize=10000
+ *   java -jar target/benchmarks.jar ChunkingBenchmark -p corpusChunks=1000000 -rf json -rff chunking.json
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()) {
+            Main.main(args);
+            return;
+        }
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
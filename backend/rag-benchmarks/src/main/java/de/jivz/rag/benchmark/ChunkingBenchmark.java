@@ -0,0 +1,58 @@
+package de.jivz.rag.benchmark;
+
+import de.jivz.rag.service.ChunkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChunkingService.chunkText (recursiveSplit + overlap) на документах из corpusChunks чанков.
+ *
+ * 1M чанков (~800MB текста) не входит в набор по умолчанию:
+ * java -Xmx8g -jar target/benchmarks.jar ChunkingBenchmark -p corpusChunks=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ChunkingBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int corpusChunks;
+
+    @Param({"800"})
+    private int chunkSize;
+
+    @Param({"100"})
+    private int chunkOverlap;
+
+    private ChunkingService chunkingService;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chunkingService = new ChunkingService();
+        SyntheticCorpus.setField(chunkingService, "chunkSize", chunkSize);
+        SyntheticCorpus.setField(chunkingService, "chunkOverlap", chunkOverlap);
+        text = SyntheticCorpus.documentText(corpusChunks, chunkSize, 42);
+    }
+
+    @Benchmark
+    public List<String> chunkText() {
+        return chunkingService.chunkText(text);
+    }
+}
@@ -0,0 +1,67 @@
+package de.jivz.rag.benchmark;
+
+import de.jivz.rag.dto.FinalRankingConfig;
+import de.jivz.rag.dto.FinalSearchResultDto;
+import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.service.FinalSearchResultService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FinalSearchResultService.finalizeResults: сортировка, порог, лимит на документ и top-K.
+ *
+ * removeDuplicates=true включает поиск почти-дубликатов (MinHash + LSH);
+ * сигнатуры в корпусе не заданы, поэтому считаются на лету — худший случай
+ * для чанков, загруженных до появления колонки minhash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FinalizationBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int corpusChunks;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int resultSize;
+
+    @Param({"false", "true"})
+    private boolean removeDuplicates;
+
+    private FinalSearchResultService finalService;
+    private FinalRankingConfig config;
+    private List<MergedSearchResultDto> results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        finalService = new FinalSearchResultService();
+        config = FinalRankingConfig.builder()
+                .minScoreThreshold(0.3)
+                .topK(10)
+                .maxChunksPerDocument(3)
+                .removeDuplicates(removeDuplicates)
+                .build();
+        results = new SyntheticCorpus(corpusChunks, 42).mergedResults(resultSize);
+    }
+
+    @Benchmark
+    public List<FinalSearchResultDto> finalizeResults() {
+        return finalService.finalizeResults(results, config);
+    }
+}
@@ -0,0 +1,56 @@
+package de.jivz.rag.benchmark;
+
+import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.dto.SearchResultDto;
+import de.jivz.rag.service.SearchResultMergingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchResultMergingService.mergeResults: объединение семантических и ключевых результатов
+ * (resultSize каждый, ~30% пересечения) из корпуса в corpusChunks чанков.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MergingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int corpusChunks;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int resultSize;
+
+    private SearchResultMergingService mergingService;
+    private List<SearchResultDto> semanticResults;
+    private List<SearchResultDto> keywordResults;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mergingService = new SearchResultMergingService();
+        SyntheticCorpus corpus = new SyntheticCorpus(corpusChunks, 42);
+        semanticResults = corpus.searchResults(resultSize);
+        keywordResults = corpus.overlapping(semanticResults, 0.3);
+    }
+
+    @Benchmark
+    public List<MergedSearchResultDto> mergeResults() {
+        return mergingService.mergeResults(semanticResults, keywordResults, 0.6, 0.4, resultSize);
+    }
+}
@@ -0,0 +1,62 @@
+package de.jivz.rag.benchmark;
+
+import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.dto.RerankingStrategyConfig;
+import de.jivz.rag.service.SearchResultRerankingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SearchResultRerankingService.rerank для стратегий WEIGHTED_SUM, MAX_SCORE и RRF.
+ *
+ * rerank возвращает новый отсортированный список и не меняет порядок входного,
+ * поэтому один набор результатов переиспользуется между вызовами.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RerankingBenchmark {
+
+    @Param({"WEIGHTED_SUM", "MAX_SCORE", "RRF"})
+    private RerankingStrategyConfig.Strategy strategy;
+
+    @Param({"1000", "1000000"})
+    private int corpusChunks;
+
+    @Param({"10", "100", "1000", "10000"})
+    private int resultSize;
+
+    private SearchResultRerankingService rerankingService;
+    private RerankingStrategyConfig config;
+    private List<MergedSearchResultDto> results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rerankingService = new SearchResultRerankingService();
+        config = RerankingStrategyConfig.builder()
+                .strategy(strategy)
+                .build();
+        results = new SyntheticCorpus(corpusChunks, 42).mergedResults(resultSize);
+    }
+
+    @Benchmark
+    public List<MergedSearchResultDto> rerank() {
+        return rerankingService.rerank(results, config);
+    }
+}
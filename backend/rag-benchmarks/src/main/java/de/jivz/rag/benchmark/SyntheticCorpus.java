@@ -0,0 +1,159 @@
+package de.jivz.rag.benchmark;
+
+import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.dto.SearchResultDto;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированные синтетические данные для бенчмарков.
+ *
+ * Корпус из corpusChunks чанков задаёт пространство chunkId/documentId;
+ * тексты берутся из небольшого пула, чтобы корпус в 1M чанков не занимал гигабайты.
+ * Результаты поиска — выборки из корпуса с реалистичными скорами.
+ */
+final class SyntheticCorpus {
+
+    private static final String[] WORDS = {
+            "поиск", "документ", "индекс", "вектор", "запрос", "модель", "чанк", "эмбеддинг",
+            "релевантность", "ранжирование", "search", "index", "vector", "query", "pipeline",
+            "latency", "throughput", "postgres", "hybrid", "keyword", "semantic", "score",
+            "merge", "rerank", "filter", "threshold", "document", "section", "paragraph"
+    };
+
+    private static final int TEXT_POOL_SIZE = 1024;
+    private static final int CHUNKS_PER_DOCUMENT = 50;
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private final SplittableRandom random;
+    private final int corpusChunks;
+    private final List<String> textPool;
+
+    SyntheticCorpus(int corpusChunks, long seed) {
+        this.random = new SplittableRandom(seed);
+        this.corpusChunks = corpusChunks;
+        this.textPool = new ArrayList<>(TEXT_POOL_SIZE);
+        for (int i = 0; i < TEXT_POOL_SIZE; i++) {
+            textPool.add(sentences(4 + random.nextInt(8)));
+        }
+    }
+
+    /**
+     * Текст документа примерно на chunks чанков по chunkSize символов
+     * (абзацы, строки и предложения — чтобы recursiveSplit прошёл все уровни сепараторов).
+     */
+    static String documentText(int chunks, int chunkSize, long seed) {
+        SyntheticCorpus corpus = new SyntheticCorpus(1, seed);
+        long target = (long) chunks * chunkSize;
+        StringBuilder text = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, target + chunkSize));
+        while (text.length() < target) {
+            text.append(corpus.textPool.get(corpus.random.nextInt(TEXT_POOL_SIZE)));
+            text.append(corpus.random.nextInt(4) == 0 ? "\n\n" : "\n");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Результаты семантического поиска: size случайных чанков корпуса с убывающим скором.
+     */
+    List<SearchResultDto> searchResults(int size) {
+        List<SearchResultDto> results = new ArrayList<>(size);
+        double score = 0.95;
+        for (int i = 0; i < size; i++) {
+            results.add(searchResult(randomChunkId(), score));
+            score = Math.max(0.05, score - random.nextDouble() * 0.9 / size);
+        }
+        return results;
+    }
+
+    /**
+     * Результаты ключевого поиска: доля overlap чанков совпадает с source.
+     */
+    List<SearchResultDto> overlapping(List<SearchResultDto> source, double overlap) {
+        List<SearchResultDto> results = new ArrayList<>(source.size());
+        for (SearchResultDto result : source) {
+            long chunkId = random.nextDouble() < overlap ? result.getChunkId() : randomChunkId();
+            results.add(searchResult(chunkId, 0.05 + random.nextDouble() * 0.9));
+        }
+        return results;
+    }
+
+    /**
+     * Объединённые результаты (как после SearchResultMergingService).
+     */
+    List<MergedSearchResultDto> mergedResults(int size) {
+        List<MergedSearchResultDto> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long chunkId = randomChunkId();
+            Double semantic = random.nextInt(4) == 0 ? null : random.nextDouble();
+            Double keyword = random.nextInt(3) == 0 ? null : random.nextDouble();
+            results.add(MergedSearchResultDto.builder()
+                    .chunkId(chunkId)
+                    .documentId(chunkId / CHUNKS_PER_DOCUMENT)
+                    .documentName("document-" + (chunkId / CHUNKS_PER_DOCUMENT) + ".pdf")
+                    .chunkIndex((int) (chunkId % CHUNKS_PER_DOCUMENT))
+                    .chunkText(text(chunkId))
+                    .metadata(Map.of())
+                    .createdAt(CREATED_AT)
+                    .semanticScore(semantic)
+                    .keywordScore(keyword)
+                    .mergedScore(0.6 * (semantic != null ? semantic : 0.0) + 0.4 * (keyword != null ? keyword : 0.0))
+                    .build());
+        }
+        return results;
+    }
+
+    /**
+     * Проставляет значение @Value-поля сервиса (бенчмарки работают без Spring контекста).
+     */
+    static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name + " on " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    private SearchResultDto searchResult(long chunkId, double similarity) {
+        return SearchResultDto.builder()
+                .chunkId(chunkId)
+                .documentId(chunkId / CHUNKS_PER_DOCUMENT)
+                .documentName("document-" + (chunkId / CHUNKS_PER_DOCUMENT) + ".pdf")
+                .chunkIndex((int) (chunkId % CHUNKS_PER_DOCUMENT))
+                .chunkText(text(chunkId))
+                .similarity(similarity)
+                .metadata(Map.of())
+                .createdAt(CREATED_AT)
+                .build();
+    }
+
+    private long randomChunkId() {
+        return random.nextInt(corpusChunks);
+    }
+
+    private String text(long chunkId) {
+        return textPool.get((int) (chunkId % TEXT_POOL_SIZE));
+    }
+
+    private String sentences(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < count; s++) {
+            int words = 6 + random.nextInt(12);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    text.append(w % 7 == 0 ? ", " : " ");
+                }
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            text.append(". ");
+        }
+        return text.toString();
+    }
+}
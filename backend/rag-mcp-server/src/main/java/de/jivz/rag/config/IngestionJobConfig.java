@@ -0,0 +1,42 @@
+package de.jivz.rag.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Конфигурация асинхронной очереди загрузки документов.
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+@Slf4j
+public class IngestionJobConfig {
+
+    /**
+     * Пул воркеров очереди загрузки: один поток на задачу.
+     */
+    @Bean(name = "ingestionJobExecutor")
+    public Executor ingestionJobExecutor(@Value("${rag.ingestion.jobs.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(Math.max(1, workers));
+        executor.setMaxPoolSize(Math.max(1, workers));
+        executor.setQueueCapacity(Math.max(1, workers));
+        executor.setThreadNamePrefix("ingestion-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+
+        executor.initialize();
+
+        log.info("✅ Ingestion executor initialized: workers={}", executor.getCorePoolSize());
+
+        return executor;
+    }
+}
@@ -2,6 +2,11 @@ package de.jivz.rag.controller;
 
 import de.jivz.rag.dto.DocumentDto;
 import de.jivz.rag.service.RagFacade;
+import de.jivz.rag.service.SemanticSearchService;
+import de.jivz.rag.service.cache.QueryEmbeddingCache;
+import de.jivz.rag.service.cache.SearchResultCache;
+import de.jivz.rag.service.vector.ReducedEmbeddingService;
+import de.jivz.rag.service.vector.VectorIndexService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
@@ -19,6 +24,15 @@ import java.util.Map;
  * - POST /api/index/document - индексировать документ
  * - GET /api/index/documents - список документов
  * - DELETE /api/index/document/{name} - удалить по имени
+ * - GET /api/index/vector/stats - состояние in-memory ANN индекса
+ * - POST /api/index/vector/rebuild - перестроить ANN индекс из БД
+ * - GET /api/index/vector/recall - recall@k двухфазного поиска против точного
+ * - GET /api/index/reduced/stats - состояние сокращённых эмбеддингов (pgvector HNSW)
+ * - POST /api/index/reduced/backfill - заполнить embedding_reduced у существующих чанков
+ * - GET /api/index/embedding-cache/stats - статистика кэша эмбеддингов запросов
+ * - DELETE /api/index/embedding-cache - очистить кэш эмбеддингов запросов
+ * - GET /api/index/search-cache/stats - статистика кэша результатов поиска
+ * - DELETE /api/index/search-cache - очистить кэш результатов поиска
  */
 @RestController
 @RequestMapping("/api/index")
@@ -28,6 +42,11 @@ import java.util.Map;
 public class IndexController {
 
     private final RagFacade ragFacade;
+    private final VectorIndexService vectorIndexService;
+    private final SemanticSearchService semanticSearchService;
+    private final ReducedEmbeddingService reducedEmbeddingService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final SearchResultCache searchResultCache;
 
     /**
      * Индексировать документ.
@@ -53,6 +72,8 @@ public class IndexController {
             return ResponseEntity.ok(Map.of(
                     "documentId", doc.getId(),
                     "chunksCount", doc.getChunkCount(),
+                    "embeddingsReused", doc.getEmbeddingsReused(),
+                    "embeddingsGenerated", doc.getEmbeddingsGenerated(),
                     "status", "indexed",
                     "processingTime", formatTime(processingTime)
             ));
@@ -103,6 +124,108 @@ public class IndexController {
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Состояние in-memory ANN индекса.
+     *
+     * GET /api/index/vector/stats
+     */
+    @GetMapping("/vector/stats")
+    public ResponseEntity<Map<String, Object>> getVectorIndexStats() {
+        return ResponseEntity.ok(vectorIndexService.getStats());
+    }
+
+    /**
+     * Перестроить ANN индекс из document_chunks (в фоне).
+     *
+     * POST /api/index/vector/rebuild
+     */
+    @PostMapping("/vector/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildVectorIndex() {
+        log.info("🧭 Vector index rebuild requested");
+        vectorIndexService.rebuildAsync();
+        return ResponseEntity.accepted().body(vectorIndexService.getStats());
+    }
+
+    /**
+     * Recall@k поиска через индекс (с квантизацией и пересчётом) против точного sequential scan.
+     *
+     * GET /api/index/vector/recall?samples=20&k=10
+     */
+    @GetMapping("/vector/recall")
+    public ResponseEntity<Map<String, Object>> measureVectorRecall(
+            @RequestParam(defaultValue = "20") int samples,
+            @RequestParam(defaultValue = "10") int k) {
+        log.info("🧭 Vector index recall requested: samples={}, k={}", samples, k);
+        return ResponseEntity.ok(semanticSearchService.measureIndexRecall(
+                Math.clamp(samples, 1, 200), Math.clamp(k, 1, 100)));
+    }
+
+    /**
+     * Состояние сокращённых эмбеддингов: backfill, оставшиеся строки, параметры поиска.
+     *
+     * GET /api/index/reduced/stats
+     */
+    @GetMapping("/reduced/stats")
+    public ResponseEntity<Map<String, Object>> getReducedEmbeddingStats() {
+        return ResponseEntity.ok(reducedEmbeddingService.getStats());
+    }
+
+    /**
+     * Запустить backfill embedding_reduced (в фоне; обрабатываются только строки с NULL).
+     *
+     * POST /api/index/reduced/backfill
+     */
+    @PostMapping("/reduced/backfill")
+    public ResponseEntity<Map<String, Object>> backfillReducedEmbeddings() {
+        log.info("📐 Reduced embedding backfill requested");
+        reducedEmbeddingService.backfillAsync();
+        return ResponseEntity.accepted().body(reducedEmbeddingService.getStats());
+    }
+
+    /**
+     * Статистика кэша эмбеддингов запросов (hit/miss, размер).
+     *
+     * GET /api/index/embedding-cache/stats
+     */
+    @GetMapping("/embedding-cache/stats")
+    public ResponseEntity<Map<String, Object>> getEmbeddingCacheStats() {
+        return ResponseEntity.ok(queryEmbeddingCache.getStats());
+    }
+
+    /**
+     * Очистить кэш эмбеддингов запросов (например, после смены модели).
+     *
+     * DELETE /api/index/embedding-cache
+     */
+    @DeleteMapping("/embedding-cache")
+    public ResponseEntity<Map<String, Object>> clearEmbeddingCache() {
+        log.info("🗄️ Query embedding cache clear requested");
+        queryEmbeddingCache.clear();
+        return ResponseEntity.ok(queryEmbeddingCache.getStats());
+    }
+
+    /**
+     * Статистика кэша результатов поиска (hit/miss, сэкономленное время, версия корпуса).
+     *
+     * GET /api/index/search-cache/stats
+     */
+    @GetMapping("/search-cache/stats")
+    public ResponseEntity<Map<String, Object>> getSearchCacheStats() {
+        return ResponseEntity.ok(searchResultCache.getStats());
+    }
+
+    /**
+     * Очистить кэш результатов поиска.
+     *
+     * DELETE /api/index/search-cache
+     */
+    @DeleteMapping("/search-cache")
+    public ResponseEntity<Map<String, Object>> clearSearchCache() {
+        log.info("🗄️ Search result cache clear requested");
+        searchResultCache.clear();
+        return ResponseEntity.ok(searchResultCache.getStats());
+    }
+
     private String formatTime(long millis) {
         if (millis < 1000) {
             return millis + "ms";
@@ -0,0 +1,111 @@
+package de.jivz.rag.controller;
+
+import de.jivz.rag.dto.IngestionJobDto;
+import de.jivz.rag.repository.entity.IngestionJob.JobStatus;
+import de.jivz.rag.service.ingestion.IngestionJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * REST контроллер асинхронной загрузки документов.
+ *
+ * Файл принимается сразу (202 Accepted) и обрабатывается воркерами очереди;
+ * клиент опрашивает прогресс задачи по id.
+ */
+@RestController
+@RequestMapping("/api/ingestion/jobs")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class IngestionJobController {
+
+    private final IngestionJobService jobService;
+
+    /**
+     * Поставить документ в очередь загрузки.
+     *
+     * POST /api/ingestion/jobs
+     * Content-Type: multipart/form-data
+     * @param file загружаемый файл
+     * @param metadata опциональные метаданные в формате JSON-строки
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> submit(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "metadata", required = false) String metadata) {
+        log.info("📥 Received async upload: {} ({} bytes), metadata: {}",
+                file.getOriginalFilename(), file.getSize(), metadata);
+
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "File is empty"));
+        }
+
+        try {
+            IngestionJobDto job = jobService.submit(file, metadata);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "success", true,
+                    "job", job,
+                    "message", "Document queued for ingestion"
+            ));
+        } catch (Exception e) {
+            log.error("❌ Failed to queue upload: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of(
+                            "success", false,
+                            "error", e.getMessage()
+                    ));
+        }
+    }
+
+    /**
+     * Статус и прогресс задачи.
+     *
+     * GET /api/ingestion/jobs/{id}
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getJob(@PathVariable Long id) {
+        Optional<IngestionJobDto> job = jobService.getJob(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    /**
+     * Последние задачи.
+     *
+     * GET /api/ingestion/jobs?status=RUNNING
+     */
+    @GetMapping
+    public ResponseEntity<List<IngestionJobDto>> getJobs(
+            @RequestParam(required = false) JobStatus status) {
+        return ResponseEntity.ok(jobService.getJobs(status));
+    }
+
+    /**
+     * Отменить задачу.
+     *
+     * POST /api/ingestion/jobs/{id}/cancel
+     */
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        Optional<IngestionJobDto> job = jobService.cancel(id);
+        if (job.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "job", job.get()
+        ));
+    }
+}
@@ -20,6 +20,8 @@ public class DocumentDto {
     private String fileType;
     private Long fileSize;
     private Integer chunkCount;
+    private Integer embeddingsReused;
+    private Integer embeddingsGenerated;
     private String status;
     private Map<String, Object> metadata;
     private LocalDateTime createdAt;
@@ -32,6 +34,8 @@ public class DocumentDto {
                 .fileType(doc.getFileType())
                 .fileSize(doc.getFileSize())
                 .chunkCount(doc.getChunkCount())
+                .embeddingsReused(doc.getEmbeddingsReused())
+                .embeddingsGenerated(doc.getEmbeddingsGenerated())
                 .status(doc.getStatus().name())
                 .metadata(doc.getMetadata())
                 .createdAt(doc.getCreatedAt())
@@ -0,0 +1,70 @@
+package de.jivz.rag.dto;
+
+import de.jivz.rag.repository.entity.IngestionJob;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO задачи асинхронной загрузки документа с прогрессом по стадиям.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionJobDto {
+
+    private Long id;
+    private String fileName;
+    private Long fileSize;
+    private String status;
+    private String stage;
+    private Integer chunksProduced;
+    /**
+     * null, пока парсинг не завершён.
+     */
+    private Integer chunksTotal;
+    private Integer chunksEmbedded;
+    private Integer chunksPersisted;
+    /**
+     * Доля эмбеддированных чанков (0..1), null пока общее число неизвестно.
+     */
+    private Double embeddingProgress;
+    private Long documentId;
+    private Integer attempts;
+    private Boolean cancelRequested;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime updatedAt;
+
+    public static IngestionJobDto fromEntity(IngestionJob job) {
+        Integer total = job.getChunksTotal();
+        Double progress = null;
+        if (total != null) {
+            progress = total == 0 ? 1.0 : Math.min(1.0, job.getChunksEmbedded() / (double) total);
+        }
+
+        return IngestionJobDto.builder()
+                .id(job.getId())
+                .fileName(job.getFileName())
+                .fileSize(job.getFileSize())
+                .status(job.getStatus().name())
+                .stage(job.getStage() != null ? job.getStage().name() : null)
+                .chunksProduced(job.getChunksProduced())
+                .chunksTotal(total)
+                .chunksEmbedded(job.getChunksEmbedded())
+                .chunksPersisted(job.getChunksPersisted())
+                .embeddingProgress(progress)
+                .documentId(job.getDocumentId())
+                .attempts(job.getAttempts())
+                .cancelRequested(job.getCancelRequested())
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .finishedAt(job.getFinishedAt())
+                .updatedAt(job.getUpdatedAt())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package de.jivz.rag.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -38,6 +39,11 @@ public class MergedSearchResultDto {
     private Map<String, Object> metadata;
     private LocalDateTime createdAt;
 
+    // MinHash сигнатура текста (FinalSearchResultService: удаление почти-дубликатов)
+    @JsonIgnore
+    @ToString.Exclude
+    private byte[] minHash;
+
     // Scores от разных методов поиска
     private Double semanticScore;
     private Double keywordScore;
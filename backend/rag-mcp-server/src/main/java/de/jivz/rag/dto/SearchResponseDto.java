@@ -24,6 +24,14 @@ public class SearchResponseDto {
     // Optional fields
     private final Long documentId;
     private final String rankingMethod;
+    /**
+     * Тайминги этапов (гибридный поиск): semanticMs, keywordMs, mergeMs, rerankMs, totalMs + статусы.
+     */
+    private final Map<String, Object> timings;
+    /**
+     * Кэш результатов поиска: status (hit/miss/bypass), savedMs, corpusVersion, hitRate.
+     */
+    private final Map<String, Object> cache;
 
     /**
      * Создать response из результатов поиска.
@@ -38,6 +46,8 @@ public class SearchResponseDto {
                 .results(formatResults(results, context.searchMode()))
                 .documentId(context.documentId())
                 .rankingMethod(context.rankingMethod())
+                .timings(context.timings())
+                .cache(context.cache())
                 .build();
     }
 
@@ -81,18 +91,28 @@ public class SearchResponseDto {
             String searchMode,
             long startTime,
             Long documentId,
-            String rankingMethod
+            String rankingMethod,
+            Map<String, Object> timings,
+            Map<String, Object> cache
     ) {
         public SearchContext(String query, String searchMode, long startTime) {
-            this(query, searchMode, startTime, null, null);
+            this(query, searchMode, startTime, null, null, null, null);
         }
 
         public SearchContext withDocumentId(Long documentId) {
-            return new SearchContext(query, searchMode, startTime, documentId, rankingMethod);
+            return new SearchContext(query, searchMode, startTime, documentId, rankingMethod, timings, cache);
         }
 
         public SearchContext withRankingMethod(String method) {
-            return new SearchContext(query, searchMode, startTime, documentId, method);
+            return new SearchContext(query, searchMode, startTime, documentId, method, timings, cache);
+        }
+
+        public SearchContext withTimings(Map<String, Object> stageTimings) {
+            return new SearchContext(query, searchMode, startTime, documentId, rankingMethod, stageTimings, cache);
+        }
+
+        public SearchContext withCache(Map<String, Object> cacheInfo) {
+            return new SearchContext(query, searchMode, startTime, documentId, rankingMethod, timings, cacheInfo);
         }
 
         public String formattedTime() {
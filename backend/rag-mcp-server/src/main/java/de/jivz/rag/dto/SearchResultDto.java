@@ -1,5 +1,6 @@
 package de.jivz.rag.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
 
 import java.time.LocalDateTime;
@@ -22,5 +23,12 @@ public class SearchResultDto {
     private Double similarity;
     private Map<String, Object> metadata;
     private LocalDateTime createdAt;
+
+    /**
+     * MinHash сигнатура текста чанка (для дедупликации, в API не отдаётся).
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    private byte[] minHash;
 }
 
@@ -0,0 +1,278 @@
+package de.jivz.rag.repository;
+
+import lombok.Builder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk-запись чанков в document_chunks.
+ *
+ * Режимы (rag.ingestion.write-mode):
+ * - copy (по умолчанию): COPY ... FROM STDIN (FORMAT BINARY).
+ *   Эмбеддинг уходит бинарно как float4[] (формат vector_recv),
+ *   без построения текстового литерала на 4096 чисел.
+ * - batch: JDBC batch INSERT (используется и как fallback для не-PostgreSQL БД).
+ *
+ * Запись выполняется на соединении текущей транзакции (JdbcTemplate + JpaTransactionManager).
+ */
+@Repository
+@Slf4j
+@RequiredArgsConstructor
+public class DocumentChunkBatchWriter {
+
+    private static final String COPY_SQL = """
+        COPY document_chunks (document_id, document_name, chunk_index, chunk_text, embedding, metadata, content_hash, minhash, embedding_reduced)
+        FROM STDIN (FORMAT BINARY)
+        """;
+
+    private static final String INSERT_SQL = """
+        INSERT INTO document_chunks
+        (document_id, document_name, chunk_index, chunk_text, embedding, metadata, content_hash, minhash,
+         embedding_reduced, created_at)
+        VALUES (?, ?, ?, ?, cast(? as vector), cast(? as jsonb), ?, ?, cast(? as vector), NOW())
+        """;
+
+    private static final String UPDATE_REDUCED_SQL = """
+        UPDATE document_chunks
+        SET embedding_reduced = cast(? as vector)
+        WHERE id = ?
+        """;
+
+    /**
+     * Заголовок бинарного формата COPY: сигнатура + flags + длина расширения.
+     */
+    private static final byte[] COPY_SIGNATURE =
+            "PGCOPY\n\377\r\n\0".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+    private static final byte JSONB_VERSION = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${rag.ingestion.write-mode:copy}")
+    private String writeMode;
+
+    @Value("${rag.ingestion.insert-batch-size:500}")
+    private int insertBatchSize;
+
+    /**
+     * Данные одного чанка для записи.
+     */
+    @Builder
+    public record ChunkRow(
+            Long documentId,
+            String documentName,
+            int chunkIndex,
+            String chunkText,
+            float[] embedding,
+            String metadataJson,
+            String contentHash,
+            byte[] minHash,
+            float[] embeddingReduced
+    ) {
+    }
+
+    /**
+     * Записывает чанки одной операцией (COPY) или пачками INSERT.
+     *
+     * @param rows чанки для записи
+     * @return количество записанных строк
+     */
+    public int writeChunks(List<ChunkRow> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Integer written = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            if ("copy".equalsIgnoreCase(writeMode) && connection.isWrapperFor(PGConnection.class)) {
+                return copyBinary(connection.unwrap(PGConnection.class), rows);
+            }
+            return batchInsert(connection, rows);
+        });
+
+        log.debug("💾 Wrote {} chunks in {}ms (mode={})",
+                written, System.currentTimeMillis() - startTime, writeMode);
+        return written != null ? written : 0;
+    }
+
+    // ==================== COPY BINARY ====================
+
+    private int copyBinary(PGConnection connection, List<ChunkRow> rows) throws SQLException {
+        PGCopyOutputStream copy = new PGCopyOutputStream(connection, COPY_SQL, COPY_BUFFER_SIZE);
+        try {
+            DataOutputStream out = new DataOutputStream(copy);
+            out.write(COPY_SIGNATURE);
+            out.writeInt(0); // flags
+            out.writeInt(0); // header extension length
+
+            for (ChunkRow row : rows) {
+                out.writeShort(9);
+                writeInt8(out, row.documentId());
+                writeText(out, row.documentName());
+                writeInt4(out, row.chunkIndex());
+                writeText(out, row.chunkText());
+                writeVector(out, row.embedding());
+                writeJsonb(out, row.metadataJson());
+                writeText(out, row.contentHash());
+                writeBytes(out, row.minHash());
+                writeVector(out, row.embeddingReduced());
+            }
+
+            out.writeShort(-1); // trailer
+            out.flush();
+            return (int) copy.endCopy();
+        } catch (IOException e) {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+            throw new SQLException("Failed to COPY document chunks", e);
+        }
+    }
+
+    private static void writeInt8(DataOutputStream out, Long value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(Long.BYTES);
+        out.writeLong(value);
+    }
+
+    private static void writeInt4(DataOutputStream out, int value) throws IOException {
+        out.writeInt(Integer.BYTES);
+        out.writeInt(value);
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Бинарный формат bytea: сами байты.
+     */
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    /**
+     * Бинарный формат pgvector: int16 dim, int16 unused, float4 × dim (network byte order).
+     */
+    private static void writeVector(DataOutputStream out, float[] vector) throws IOException {
+        if (vector == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(2 * Short.BYTES + vector.length * Float.BYTES);
+        out.writeShort(vector.length);
+        out.writeShort(0);
+        for (float v : vector) {
+            out.writeFloat(v);
+        }
+    }
+
+    /**
+     * Бинарный формат jsonb: байт версии (1) + JSON текст.
+     */
+    private static void writeJsonb(DataOutputStream out, String json) throws IOException {
+        if (json == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length + 1);
+        out.writeByte(JSONB_VERSION);
+        out.write(bytes);
+    }
+
+    // ==================== JDBC BATCH ====================
+
+    private int batchInsert(Connection connection, List<ChunkRow> rows) throws SQLException {
+        int batchSize = Math.max(1, insertBatchSize);
+        int written = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < rows.size(); i++) {
+                ChunkRow row = rows.get(i);
+                statement.setObject(1, row.documentId(), Types.BIGINT);
+                statement.setString(2, row.documentName());
+                statement.setInt(3, row.chunkIndex());
+                statement.setString(4, row.chunkText());
+                statement.setString(5, toVectorLiteral(row.embedding()));
+                statement.setString(6, row.metadataJson());
+                statement.setString(7, row.contentHash());
+                statement.setBytes(8, row.minHash());
+                statement.setString(9, toVectorLiteral(row.embeddingReduced()));
+                statement.addBatch();
+
+                if ((i + 1) % batchSize == 0 || i == rows.size() - 1) {
+                    for (int count : statement.executeBatch()) {
+                        written += count >= 0 ? count : 1;
+                    }
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Проставляет сокращённые эмбеддинги существующим чанкам (backfill).
+     *
+     * @param embeddings id чанка → сокращённый эмбеддинг
+     * @return количество обновлённых строк
+     */
+    public int updateReducedEmbeddings(Map<Long, float[]> embeddings) {
+        if (embeddings == null || embeddings.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> args = embeddings.entrySet().stream()
+                .map(e -> new Object[]{toVectorLiteral(e.getValue()), e.getKey()})
+                .toList();
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(UPDATE_REDUCED_SQL, args)) {
+            updated += count >= 0 ? count : 1;
+        }
+        return updated;
+    }
+
+    private static String toVectorLiteral(float[] vector) {
+        if (vector == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(vector.length * 12 + 2).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(vector[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
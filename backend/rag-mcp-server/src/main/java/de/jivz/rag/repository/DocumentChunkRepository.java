@@ -1,5 +1,7 @@
 package de.jivz.rag.repository;
 
+import de.jivz.rag.repository.entity.ChunkEmbeddingRow;
+import de.jivz.rag.repository.entity.ChunkHashEmbeddingRow;
 import de.jivz.rag.repository.entity.ChunkSearchResult;
 import de.jivz.rag.repository.entity.DocumentChunk;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -9,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -55,6 +58,22 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             @Param("metadata") String metadata
     );
 
+    /**
+     * Проставляет totalChunks в метаданных чанков документа.
+     * Нужно для потоковой загрузки, где общее число чанков известно только в конце.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE document_chunks
+        SET metadata = jsonb_set(COALESCE(metadata, CAST('{}' AS jsonb)), CAST('{totalChunks}' AS text[]), to_jsonb(CAST(:totalChunks AS integer)))
+        WHERE document_id = :documentId
+        """, nativeQuery = true)
+    int updateTotalChunks(
+            @Param("documentId") Long documentId,
+            @Param("totalChunks") Integer totalChunks
+    );
+
     // ==================== VECTOR SEARCH (Semantic) ====================
 
     /**
@@ -69,6 +88,7 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             c.chunk_text as chunkText,
             c.metadata as metadata,
             c.created_at as createdAt,
+            c.minhash as minHash,
             1 - (c.embedding <=> cast(:queryEmbedding as vector)) as similarity
         FROM document_chunks c
         WHERE c.embedding IS NOT NULL
@@ -93,6 +113,7 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             c.chunk_text as chunkText,
             c.metadata as metadata,
             c.created_at as createdAt,
+            c.minhash as minHash,
             1 - (c.embedding <=> cast(:queryEmbedding as vector)) as similarity
         FROM document_chunks c
         WHERE c.embedding IS NOT NULL
@@ -108,6 +129,210 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             @Param("threshold") double threshold
     );
 
+    /**
+     * Точный пересчёт сходства для кандидатов из in-memory ANN индекса.
+     * Postgres остаётся источником истины: удалённые чанки просто не вернутся.
+     */
+    @Query(value = """
+        SELECT c.id as id,
+            c.document_id as documentId,
+            c.document_name as documentName,
+            c.chunk_index as chunkIndex,
+            c.chunk_text as chunkText,
+            c.metadata as metadata,
+            c.created_at as createdAt,
+            c.minhash as minHash,
+            1 - (c.embedding <=> cast(:queryEmbedding as vector)) as similarity
+        FROM document_chunks c
+        WHERE c.id IN (:ids)
+          AND c.embedding IS NOT NULL
+          AND 1 - (c.embedding <=> cast(:queryEmbedding as vector)) >= :threshold
+        ORDER BY c.embedding <=> cast(:queryEmbedding as vector)
+        LIMIT :topK
+        """, nativeQuery = true)
+    List<ChunkSearchResult> findSimilarChunksByIdsProjection(
+            @Param("queryEmbedding") String queryEmbedding,
+            @Param("ids") List<Long> ids,
+            @Param("topK") int topK,
+            @Param("threshold") double threshold
+    );
+
+    /**
+     * Задаёт hnsw.ef_search до конца текущей транзакции (set_config с is_local = SET LOCAL).
+     * Вызывается в транзакции поиска по embedding_reduced.
+     */
+    @Query(value = "SELECT set_config('hnsw.ef_search', CAST(:efSearch AS text), true)", nativeQuery = true)
+    String setLocalHnswEfSearch(@Param("efSearch") int efSearch);
+
+    /**
+     * Кандидаты по сокращённому эмбеддингу (HNSW индекс pgvector на embedding_reduced),
+     * точное сходство пересчитывается по полному эмбеддингу.
+     */
+    @Query(value = """
+        WITH candidates AS (
+            SELECT c.id
+            FROM document_chunks c
+            WHERE c.embedding_reduced IS NOT NULL
+            ORDER BY c.embedding_reduced <=> cast(:reducedEmbedding as vector)
+            LIMIT :candidates
+        )
+        SELECT c.id as id,
+            c.document_id as documentId,
+            c.document_name as documentName,
+            c.chunk_index as chunkIndex,
+            c.chunk_text as chunkText,
+            c.metadata as metadata,
+            c.created_at as createdAt,
+            c.minhash as minHash,
+            1 - (c.embedding <=> cast(:queryEmbedding as vector)) as similarity
+        FROM document_chunks c
+        JOIN candidates k ON k.id = c.id
+        WHERE c.embedding IS NOT NULL
+          AND 1 - (c.embedding <=> cast(:queryEmbedding as vector)) >= :threshold
+        ORDER BY c.embedding <=> cast(:queryEmbedding as vector)
+        LIMIT :topK
+        """, nativeQuery = true)
+    List<ChunkSearchResult> findSimilarChunksByReducedProjection(
+            @Param("reducedEmbedding") String reducedEmbedding,
+            @Param("queryEmbedding") String queryEmbedding,
+            @Param("candidates") int candidates,
+            @Param("topK") int topK,
+            @Param("threshold") double threshold
+    );
+
+    /**
+     * Поиск только по сокращённому эмбеддингу (без пересчёта по полному).
+     * Порог применяется после выборки из индекса, чтобы HNSW индекс оставался применим.
+     */
+    @Query(value = """
+        SELECT * FROM (
+            SELECT c.id as id,
+                c.document_id as documentId,
+                c.document_name as documentName,
+                c.chunk_index as chunkIndex,
+                c.chunk_text as chunkText,
+                c.metadata as metadata,
+                c.created_at as createdAt,
+                c.minhash as minHash,
+                1 - (c.embedding_reduced <=> cast(:reducedEmbedding as vector)) as similarity
+            FROM document_chunks c
+            WHERE c.embedding_reduced IS NOT NULL
+            ORDER BY c.embedding_reduced <=> cast(:reducedEmbedding as vector)
+            LIMIT :topK
+        ) nearest
+        WHERE nearest.similarity >= :threshold
+        """, nativeQuery = true)
+    List<ChunkSearchResult> findSimilarChunksReducedOnlyProjection(
+            @Param("reducedEmbedding") String reducedEmbedding,
+            @Param("topK") int topK,
+            @Param("threshold") double threshold
+    );
+
+    // ==================== VECTOR INDEX LOADING ====================
+
+    /**
+     * Постраничная (keyset) выгрузка эмбеддингов для построения in-memory индекса.
+     */
+    @Query(value = """
+        SELECT c.id as id,
+            c.document_id as documentId,
+            cast(c.embedding as text) as embedding
+        FROM document_chunks c
+        WHERE c.embedding IS NOT NULL
+          AND c.id > :afterId
+        ORDER BY c.id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<ChunkEmbeddingRow> findEmbeddingsAfterId(
+            @Param("afterId") long afterId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Следующая страница чанков без сокращённого эмбеддинга (backfill embedding_reduced).
+     */
+    @Query(value = """
+        SELECT c.id as id,
+            c.document_id as documentId,
+            cast(c.embedding as text) as embedding
+        FROM document_chunks c
+        WHERE c.id > :afterId
+          AND c.embedding IS NOT NULL
+          AND c.embedding_reduced IS NULL
+        ORDER BY c.id
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<ChunkEmbeddingRow> findEmbeddingsWithoutReducedAfterId(
+            @Param("afterId") long afterId,
+            @Param("limit") int limit
+    );
+
+    /**
+     * Количество чанков, ожидающих backfill embedding_reduced.
+     */
+    @Query(value = """
+        SELECT count(*)
+        FROM document_chunks c
+        WHERE c.embedding IS NOT NULL
+          AND c.embedding_reduced IS NULL
+        """, nativeQuery = true)
+    long countWithoutReducedEmbedding();
+
+    /**
+     * Размерность колонки embedding_reduced (atttypmod для типа vector).
+     */
+    @Query(value = """
+        SELECT a.atttypmod
+        FROM pg_attribute a
+        WHERE a.attrelid = cast('document_chunks' as regclass)
+          AND a.attname = 'embedding_reduced'
+          AND NOT a.attisdropped
+        """, nativeQuery = true)
+    Integer findReducedEmbeddingColumnDimension();
+
+    /**
+     * Случайная выборка эмбеддингов (запросы для оценки recall индекса).
+     */
+    @Query(value = """
+        SELECT c.id as id,
+            c.document_id as documentId,
+            cast(c.embedding as text) as embedding
+        FROM document_chunks c
+        WHERE c.embedding IS NOT NULL
+        ORDER BY random()
+        LIMIT :limit
+        """, nativeQuery = true)
+    List<ChunkEmbeddingRow> findRandomEmbeddings(@Param("limit") int limit);
+
+    /**
+     * Эмбеддинги всех чанков документа (для инкрементального обновления индекса).
+     */
+    @Query(value = """
+        SELECT c.id as id,
+            c.document_id as documentId,
+            cast(c.embedding as text) as embedding
+        FROM document_chunks c
+        WHERE c.embedding IS NOT NULL
+          AND c.document_id = :documentId
+        ORDER BY c.id
+        """, nativeQuery = true)
+    List<ChunkEmbeddingRow> findEmbeddingsByDocumentId(@Param("documentId") Long documentId);
+
+    /**
+     * Готовые эмбеддинги по content_hash (по одному на хэш, самый свежий).
+     * Используется для повторного использования эмбеддингов неизменённых чанков.
+     */
+    @Query(value = """
+        SELECT DISTINCT ON (c.content_hash)
+            c.content_hash as contentHash,
+            cast(c.embedding as text) as embedding
+        FROM document_chunks c
+        WHERE c.content_hash IN (:hashes)
+          AND c.embedding IS NOT NULL
+        ORDER BY c.content_hash, c.id DESC
+        """, nativeQuery = true)
+    List<ChunkHashEmbeddingRow> findEmbeddingsByContentHashes(@Param("hashes") Collection<String> hashes);
+
     @Query("SELECT COUNT(c) FROM DocumentChunk c WHERE c.document.id = :documentId")
     long countByDocumentId(@Param("documentId") Long documentId);
 
@@ -125,7 +350,8 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             c.chunk_text,
             c.metadata,
             c.created_at,
-            ts_rank(c.text_vector, query) as relevance_score
+            ts_rank(c.text_vector, query) as relevance_score,
+            c.minhash
         FROM document_chunks c,
              plainto_tsquery('simple', :query) query
         WHERE c.text_vector @@ query
@@ -149,7 +375,8 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             c.chunk_text,
             c.metadata,
             c.created_at,
-            ts_rank(c.text_vector, query) as relevance_score
+            ts_rank(c.text_vector, query) as relevance_score,
+            c.minhash
         FROM document_chunks c,
              plainto_tsquery('simple', :query) query
         WHERE c.text_vector @@ query
@@ -175,7 +402,8 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             c.chunk_text,
             c.metadata,
             c.created_at,
-            ts_rank(c.text_vector, query) as relevance_score
+            ts_rank(c.text_vector, query) as relevance_score,
+            c.minhash
         FROM document_chunks c,
              to_tsquery('simple', :query) query
         WHERE c.text_vector @@ query
@@ -199,7 +427,8 @@ public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, Lo
             c.chunk_text,
             c.metadata,
             c.created_at,
-            ts_rank_cd(c.text_vector, query, 32) as relevance_score
+            ts_rank_cd(c.text_vector, query, 32) as relevance_score,
+            c.minhash
         FROM document_chunks c,
              plainto_tsquery('russian', :query) query
         WHERE c.text_vector @@ query
@@ -2,9 +2,13 @@ package de.jivz.rag.repository;
 
 import de.jivz.rag.repository.entity.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,5 +23,42 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     List<Document> findAllReady();
 
     boolean existsByFileName(String fileName);
+
+    /**
+     * Обновляет только статус документа.
+     * Не через save(): документ загрузки может быть detached, а merge его пустого
+     * списка chunks удалил бы записанные через COPY чанки (orphanRemoval).
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Document d SET d.status = :status, d.updatedAt = :updatedAt WHERE d.id = :id")
+    int updateStatus(
+            @Param("id") Long id,
+            @Param("status") Document.DocumentStatus status,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
+
+    /**
+     * Записывает результат обработки документа (статус, число чанков, статистику эмбеддингов).
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE Document d
+        SET d.status = :status,
+            d.chunkCount = :chunkCount,
+            d.embeddingsReused = :embeddingsReused,
+            d.embeddingsGenerated = :embeddingsGenerated,
+            d.updatedAt = :updatedAt
+        WHERE d.id = :id
+        """)
+    int updateProcessingResult(
+            @Param("id") Long id,
+            @Param("status") Document.DocumentStatus status,
+            @Param("chunkCount") int chunkCount,
+            @Param("embeddingsReused") int embeddingsReused,
+            @Param("embeddingsGenerated") int embeddingsGenerated,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
 }
 
@@ -0,0 +1,211 @@
+package de.jivz.rag.repository;
+
+import de.jivz.rag.repository.entity.IngestionJob;
+import de.jivz.rag.repository.entity.IngestionJob.JobStage;
+import de.jivz.rag.repository.entity.IngestionJob.JobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Репозиторий очереди задач загрузки документов.
+ */
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    List<IngestionJob> findTop50ByOrderByCreatedAtDesc();
+
+    List<IngestionJob> findTop50ByStatusOrderByCreatedAtDesc(JobStatus status);
+
+    long countByStatus(JobStatus status);
+
+    /**
+     * Блокирует самую старую задачу в очереди.
+     * SKIP LOCKED — задачи, захваченные другими воркерами/инстансами, пропускаются.
+     * Должен вызываться внутри транзакции.
+     */
+    @Query(value = """
+        SELECT j.id
+        FROM ingestion_jobs j
+        WHERE j.status = 'QUEUED'
+        ORDER BY j.created_at, j.id
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    Optional<Long> lockNextQueuedId();
+
+    /**
+     * Записывает прогресс задачи; заодно служит heartbeat'ом воркера (updated_at).
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IngestionJob j
+        SET j.stage = :stage,
+            j.chunksProduced = :produced,
+            j.chunksTotal = :total,
+            j.chunksEmbedded = :embedded,
+            j.chunksPersisted = :persisted,
+            j.documentId = :documentId,
+            j.updatedAt = CURRENT_TIMESTAMP
+        WHERE j.id = :id AND j.status = 'RUNNING'
+        """)
+    int updateProgress(
+            @Param("id") Long id,
+            @Param("stage") JobStage stage,
+            @Param("produced") int produced,
+            @Param("total") Integer total,
+            @Param("embedded") int embedded,
+            @Param("persisted") int persisted,
+            @Param("documentId") Long documentId
+    );
+
+    @Query("SELECT j.cancelRequested FROM IngestionJob j WHERE j.id = :id")
+    Optional<Boolean> findCancelRequested(@Param("id") Long id);
+
+    /**
+     * Продлевает аренду задачи, пока ею владеет этот воркер.
+     *
+     * @return 0 — задача уже не принадлежит воркеру (возвращена в очередь, отменена, завершена)
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IngestionJob j
+        SET j.leaseUntil = :leaseUntil
+        WHERE j.id = :id AND j.status = 'RUNNING' AND j.workerId = :workerId
+        """)
+    int renewLease(
+            @Param("id") Long id,
+            @Param("workerId") String workerId,
+            @Param("leaseUntil") LocalDateTime leaseUntil
+    );
+
+    /**
+     * Выставляет флаг отмены незавершённой задаче.
+     *
+     * @return 0 — задача не найдена или уже завершена
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IngestionJob j
+        SET j.cancelRequested = true, j.updatedAt = CURRENT_TIMESTAMP
+        WHERE j.id = :id AND j.status IN ('QUEUED', 'RUNNING')
+        """)
+    int requestCancel(@Param("id") Long id);
+
+    /**
+     * Отменяет задачу, которую ещё не захватил воркер.
+     *
+     * @return 0 — задача уже захвачена, завершена или не найдена
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IngestionJob j
+        SET j.status = :status, j.finishedAt = :now, j.updatedAt = :now
+        WHERE j.id = :id AND j.status = 'QUEUED'
+        """)
+    int cancelQueued(@Param("id") Long id, @Param("status") JobStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * Завершает задачу успешно, пока ею владеет этот воркер.
+     *
+     * @return 0 — задача уже не принадлежит воркеру (аренда потеряна, задача перезахвачена)
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IngestionJob j
+        SET j.status = :status,
+            j.stage = NULL,
+            j.leaseUntil = NULL,
+            j.documentId = :documentId,
+            j.chunksProduced = :chunkCount,
+            j.chunksTotal = :chunkCount,
+            j.chunksEmbedded = :chunkCount,
+            j.chunksPersisted = :chunkCount,
+            j.finishedAt = :now,
+            j.updatedAt = :now
+        WHERE j.id = :id AND j.status = 'RUNNING' AND j.workerId = :workerId
+        """)
+    int markCompleted(
+            @Param("id") Long id,
+            @Param("workerId") String workerId,
+            @Param("status") JobStatus status,
+            @Param("documentId") Long documentId,
+            @Param("chunkCount") int chunkCount,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Завершает задачу с ошибкой, пока ею владеет этот воркер.
+     *
+     * @return 0 — задача уже не принадлежит воркеру
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IngestionJob j
+        SET j.status = :status,
+            j.stage = NULL,
+            j.leaseUntil = NULL,
+            j.errorMessage = :errorMessage,
+            j.finishedAt = :now,
+            j.updatedAt = :now
+        WHERE j.id = :id AND j.status = 'RUNNING' AND j.workerId = :workerId
+        """)
+    int markFailed(
+            @Param("id") Long id,
+            @Param("workerId") String workerId,
+            @Param("status") JobStatus status,
+            @Param("errorMessage") String errorMessage,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Завершает отменённую задачу, пока ею владеет этот воркер.
+     *
+     * @return 0 — задача уже не принадлежит воркеру
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+        UPDATE IngestionJob j
+        SET j.status = :status,
+            j.stage = NULL,
+            j.leaseUntil = NULL,
+            j.documentId = NULL,
+            j.finishedAt = :now,
+            j.updatedAt = :now
+        WHERE j.id = :id AND j.status = 'RUNNING' AND j.workerId = :workerId
+        """)
+    int markCancelled(
+            @Param("id") Long id,
+            @Param("workerId") String workerId,
+            @Param("status") JobStatus status,
+            @Param("now") LocalDateTime now
+    );
+
+    /**
+     * Возвращает в очередь задачи с истёкшей арендой (воркер перестал слать heartbeat).
+     * Задачи без аренды (захвачены до её появления) — по давности последнего прогресса.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+        UPDATE ingestion_jobs
+        SET status = 'QUEUED', worker_id = NULL, lease_until = NULL, updated_at = NOW()
+        WHERE status = 'RUNNING'
+          AND (lease_until < :now OR (lease_until IS NULL AND updated_at < :staleBefore))
+        """, nativeQuery = true)
+    int requeueStale(@Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+}
@@ -0,0 +1,15 @@
+package de.jivz.rag.repository.entity;
+
+/**
+ * Projection для загрузки эмбеддингов чанков в in-memory индекс.
+ *
+ * Эмбеддинг возвращается в текстовом формате pgvector ("[0.1,0.2,...]").
+ */
+public interface ChunkEmbeddingRow {
+
+    Long getId();
+
+    Long getDocumentId();
+
+    String getEmbedding();
+}
@@ -0,0 +1,13 @@
+package de.jivz.rag.repository.entity;
+
+/**
+ * Projection для поиска готовых эмбеддингов по content_hash чанка.
+ *
+ * Эмбеддинг возвращается в текстовом формате pgvector ("[0.1,0.2,...]").
+ */
+public interface ChunkHashEmbeddingRow {
+
+    String getContentHash();
+
+    String getEmbedding();
+}
@@ -24,6 +24,11 @@ public interface ChunkSearchResult {
 
     LocalDateTime getCreatedAt();
 
+    /**
+     * MinHash сигнатура текста (может быть null для чанков, загруженных до её появления).
+     */
+    byte[] getMinHash();
+
     /**
      * Вычисляемое поле similarity из SQL запроса.
      */
@@ -37,6 +37,20 @@ public class Document {
     @Builder.Default
     private Integer chunkCount = 0;
 
+    /**
+     * Эмбеддинги, взятые из уже сохранённых чанков по content_hash (последняя загрузка).
+     */
+    @Column(name = "embeddings_reused")
+    @Builder.Default
+    private Integer embeddingsReused = 0;
+
+    /**
+     * Эмбеддинги, сгенерированные через API (последняя загрузка).
+     */
+    @Column(name = "embeddings_generated")
+    @Builder.Default
+    private Integer embeddingsGenerated = 0;
+
     @Column(name = "metadata", columnDefinition = "jsonb")
     @org.hibernate.annotations.JdbcTypeCode(org.hibernate.type.SqlTypes.JSON)
     private Map<String, Object> metadata;
@@ -37,6 +37,20 @@ public class DocumentChunk {
     @Column(name = "chunk_text", columnDefinition = "TEXT", nullable = false)
     private String chunkText;
 
+    /**
+     * SHA-256 от (модель, размерность, instruction prefix, текст чанка).
+     * По нему переиспользуются эмбеддинги неизменённых чанков при повторной загрузке.
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    /**
+     * MinHash сигнатура текста (128 × int4) для поиска почти-дубликатов.
+     * Считается при загрузке, см. MinHash.
+     */
+    @Column(name = "minhash")
+    private byte[] minHash;
+
     /**
      * Эмбеддинг вектор (768 размерность).
      * Хранится как vector в pgvector, но Hibernate verwaltet diese Spalte nicht direkt.
@@ -0,0 +1,133 @@
+package de.jivz.rag.repository.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity задачи асинхронной загрузки документа (таблица ingestion_jobs).
+ *
+ * Файл лежит в spool-директории до завершения задачи,
+ * прогресс обновляется воркером по ходу конвейера.
+ */
+@Entity
+@Table(name = "ingestion_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_name", nullable = false, length = 500)
+    private String fileName;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "spool_path", nullable = false, length = 1000)
+    private String spoolPath;
+
+    @Column(name = "metadata", columnDefinition = "TEXT")
+    private String metadata;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "stage", length = 20)
+    private JobStage stage;
+
+    @Column(name = "chunks_produced", nullable = false)
+    @Builder.Default
+    private Integer chunksProduced = 0;
+
+    /**
+     * Общее число чанков — известно после окончания парсинга.
+     */
+    @Column(name = "chunks_total")
+    private Integer chunksTotal;
+
+    @Column(name = "chunks_embedded", nullable = false)
+    @Builder.Default
+    private Integer chunksEmbedded = 0;
+
+    @Column(name = "chunks_persisted", nullable = false)
+    @Builder.Default
+    private Integer chunksPersisted = 0;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "cancel_requested", nullable = false)
+    @Builder.Default
+    private Boolean cancelRequested = false;
+
+    @Column(name = "worker_id", length = 100)
+    private String workerId;
+
+    /**
+     * Аренда задачи воркером: продлевается heartbeat'ом, пока воркер жив.
+     * Истёкшая аренда — признак упавшего воркера (requeueStale).
+     */
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at")
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "updated_at")
+    @Builder.Default
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * Самая ранняя незавершённая стадия конвейера (стадии перекрываются во времени).
+     */
+    public enum JobStage {
+        PARSING,
+        EMBEDDING,
+        PERSISTING,
+        INDEXING
+    }
+
+    public boolean isFinished() {
+        return status == JobStatus.COMPLETED || status == JobStatus.FAILED || status == JobStatus.CANCELLED;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
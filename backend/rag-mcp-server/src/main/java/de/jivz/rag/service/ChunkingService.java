@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Сервис для разбивки текста на чанки.
@@ -58,6 +59,19 @@ public class ChunkingService {
         return chunksWithOverlap;
     }
 
+    /**
+     * Создаёт инкрементальный чанкер для потоковой загрузки.
+     *
+     * Текст поступает фрагментами через {@link StreamingChunker#append(CharSequence)},
+     * готовые чанки (с overlap) сразу отдаются в sink. В памяти держится только
+     * окно необработанного текста, а не весь документ.
+     *
+     * @param chunkSink получатель готовых чанков
+     */
+    public StreamingChunker streamingChunker(Consumer<String> chunkSink) {
+        return new StreamingChunker(chunkSink);
+    }
+
     /**
      * Рекурсивная разбивка текста по сепараторам.
      */
@@ -151,26 +165,31 @@ public class ChunkingService {
         List<String> result = new ArrayList<>();
 
         for (int i = 0; i < chunks.size(); i++) {
-            StringBuilder chunkWithOverlap = new StringBuilder();
-
-            // Добавляем конец предыдущего чанка (overlap)
-            if (i > 0) {
-                String prevChunk = chunks.get(i - 1);
-                int overlapStart = Math.max(0, prevChunk.length() - chunkOverlap);
-                String overlap = prevChunk.substring(overlapStart);
-                chunkWithOverlap.append(overlap);
-                if (!overlap.endsWith(" ")) {
-                    chunkWithOverlap.append(" ");
-                }
-            }
-
-            chunkWithOverlap.append(chunks.get(i));
-            result.add(chunkWithOverlap.toString().trim());
+            result.add(withOverlap(i > 0 ? chunks.get(i - 1) : null, chunks.get(i)));
         }
 
         return result;
     }
 
+    /**
+     * Добавляет к чанку конец предыдущего чанка (overlap).
+     */
+    private String withOverlap(String prevChunk, String chunk) {
+        StringBuilder chunkWithOverlap = new StringBuilder();
+
+        if (prevChunk != null) {
+            int overlapStart = Math.max(0, prevChunk.length() - chunkOverlap);
+            String overlap = prevChunk.substring(overlapStart);
+            chunkWithOverlap.append(overlap);
+            if (!overlap.endsWith(" ")) {
+                chunkWithOverlap.append(" ");
+            }
+        }
+
+        chunkWithOverlap.append(chunk);
+        return chunkWithOverlap.toString().trim();
+    }
+
     /**
      * Получить текущие настройки.
      */
@@ -181,5 +200,89 @@ public class ChunkingService {
     public int getChunkOverlap() {
         return chunkOverlap;
     }
-}
 
+    /**
+     * Инкрементальный чанкер.
+     *
+     * Буферизует поступающий текст; когда буфер превышает окно
+     * (WINDOW_CHUNKS × chunkSize), режет его по последней границе параграфа
+     * (строки, предложения, слова) и разбивает готовую часть тем же
+     * recursiveSplit, что и {@link #chunkText(String)}. Хвост остаётся в буфере.
+     *
+     * Не потокобезопасен: рассчитан на один поток-производитель.
+     */
+    public final class StreamingChunker {
+
+        private static final int WINDOW_CHUNKS = 16;
+        private static final List<String> CUT_SEPARATORS = List.of("\n\n", "\n", ". ", " ");
+
+        private final Consumer<String> chunkSink;
+        private final StringBuilder buffer = new StringBuilder();
+        private String previousChunk;
+        private int chunkCount;
+        private long totalChars;
+
+        private StreamingChunker(Consumer<String> chunkSink) {
+            this.chunkSink = chunkSink;
+        }
+
+        /**
+         * Добавляет очередной фрагмент текста.
+         */
+        public void append(CharSequence text) {
+            if (text == null || text.isEmpty()) {
+                return;
+            }
+            buffer.append(text);
+            totalChars += text.length();
+
+            int window = Math.max(chunkSize, 1) * WINDOW_CHUNKS;
+            while (buffer.length() >= window) {
+                int cut = findCut(window / 2);
+                emit(buffer.substring(0, cut));
+                buffer.delete(0, cut);
+            }
+        }
+
+        /**
+         * Разбивает остаток буфера. Вызывается один раз после последнего фрагмента.
+         */
+        public void finish() {
+            if (!buffer.isEmpty()) {
+                emit(buffer.toString());
+                buffer.setLength(0);
+            }
+            log.info("✅ Streamed {} chunks from {} characters", chunkCount, totalChars);
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        /**
+         * Позиция разреза: после последнего сепаратора, но не раньше minCut,
+         * чтобы в буфере не копились мелкие куски.
+         */
+        private int findCut(int minCut) {
+            for (String separator : CUT_SEPARATORS) {
+                int index = buffer.lastIndexOf(separator);
+                if (index >= minCut) {
+                    return index + separator.length();
+                }
+            }
+            return buffer.length();
+        }
+
+        private void emit(String text) {
+            if (text.isBlank()) {
+                return;
+            }
+            for (String chunk : recursiveSplit(text, DEFAULT_SEPARATORS)) {
+                String result = chunkOverlap > 0 ? withOverlap(previousChunk, chunk) : chunk;
+                previousChunk = chunk;
+                chunkCount++;
+                chunkSink.accept(result);
+            }
+        }
+    }
+}
@@ -5,6 +5,8 @@ import de.jivz.rag.repository.entity.Document;
 import de.jivz.rag.repository.entity.DocumentChunk;
 import de.jivz.rag.repository.DocumentChunkRepository;
 import de.jivz.rag.repository.DocumentRepository;
+import de.jivz.rag.service.cache.CorpusVersionService;
+import de.jivz.rag.service.vector.VectorIndexService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -27,6 +29,8 @@ public class DocumentManagementService {
 
     private final DocumentRepository documentRepository;
     private final DocumentChunkRepository chunkRepository;
+    private final VectorIndexService vectorIndexService;
+    private final CorpusVersionService corpusVersionService;
 
     /**
      * Получить все документы.
@@ -75,6 +79,7 @@ public class DocumentManagementService {
 
         document.setMetadata(metadata);
         document = documentRepository.save(document);
+        corpusVersionService.bumpAfterCommit("metadata updated: id=" + id);
 
         log.info("Updated metadata for document id={}: {}", id, metadata);
         return DocumentDto.fromEntity(document);
@@ -105,6 +110,8 @@ public class DocumentManagementService {
         }
 
         documentRepository.deleteById(id);
+        vectorIndexService.removeDocumentAfterCommit(id);
+        corpusVersionService.bumpAfterCommit("document deleted: id=" + id);
         log.info("Deleted document: id={}", id);
         return true;
     }
@@ -121,6 +128,8 @@ public class DocumentManagementService {
         return documentRepository.findByFileName(fileName)
                 .map(doc -> {
                     documentRepository.delete(doc);
+                    vectorIndexService.removeDocumentAfterCommit(doc.getId());
+                    corpusVersionService.bumpAfterCommit("document deleted: id=" + doc.getId());
                     log.info("Deleted document: name={}", fileName);
                     return true;
                 })
@@ -11,7 +11,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
 
 /**
  * Сервис для парсинга документов различных форматов.
@@ -28,6 +34,11 @@ import java.nio.charset.StandardCharsets;
 @Slf4j
 public class DocumentParserService {
 
+    /**
+     * Размер фрагмента при потоковом чтении текста.
+     */
+    private static final int STREAM_BUFFER_CHARS = 64 * 1024;
+
     private final Tika tika;
 
     public DocumentParserService() {
@@ -62,6 +73,94 @@ public class DocumentParserService {
         };
     }
 
+    /**
+     * Потоковое извлечение текста: фрагменты передаются в sink по мере чтения,
+     * весь текст документа в памяти не собирается.
+     *
+     * - PDF: постранично, файл читается с диска (не загружается в byte[])
+     * - FB2: SAX с выдачей текста порциями
+     * - TXT/код: блоками по 64K символов
+     * - остальное: Tika ParsingReader
+     *
+     * @param file загруженный файл
+     * @param sink получатель фрагментов текста
+     */
+    public void streamText(MultipartFile file, Consumer<String> sink) throws IOException {
+        String fileName = file.getOriginalFilename();
+
+        log.info("📄 Streaming file: {} (type: {})", fileName, file.getContentType());
+
+        if (fileName == null) {
+            throw new IllegalArgumentException("File name is null");
+        }
+
+        switch (getFileExtension(fileName).toLowerCase()) {
+            case "pdf" -> streamFromPdf(file, sink);
+            case "fb2" -> streamFromFb2(file.getInputStream(), sink);
+            case "txt", "md", "markdown", "java", "py", "js", "ts", "cpp", "c", "h", "go", "rs", "kt", "scala"
+                    -> streamReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8), sink);
+            default -> streamReader(tika.parse(file.getInputStream()), sink);
+        }
+    }
+
+    /**
+     * Постраничное извлечение текста из PDF.
+     * PDFBox читает временный файл через RandomAccessReadBufferedFile.
+     */
+    private void streamFromPdf(MultipartFile file, Consumer<String> sink) throws IOException {
+        Path tempFile = Files.createTempFile("rag-upload-", ".pdf");
+        try {
+            try (InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            try (PDDocument document = Loader.loadPDF(tempFile.toFile())) {
+                PDFTextStripper stripper = new PDFTextStripper();
+                stripper.setSortByPosition(true);
+
+                int pages = document.getNumberOfPages();
+                for (int page = 1; page <= pages; page++) {
+                    stripper.setStartPage(page);
+                    stripper.setEndPage(page);
+                    sink.accept(stripper.getText(document));
+                }
+                log.info("✅ Streamed {} pages from PDF", pages);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Потоковый разбор FB2. Fallback на Tika здесь невозможен —
+     * часть текста уже передана дальше по конвейеру.
+     */
+    private void streamFromFb2(InputStream inputStream, Consumer<String> sink) throws IOException {
+        try (inputStream) {
+            createSaxParserFactory().newSAXParser().parse(inputStream, new FB2TextExtractor(sink));
+            log.info("✅ Streamed FB2 file");
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to parse FB2 file: " + e.getMessage(), e);
+        }
+    }
+
+    private void streamReader(Reader reader, Consumer<String> sink) throws IOException {
+        long totalChars = 0;
+        try (reader) {
+            char[] buffer = new char[STREAM_BUFFER_CHARS];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                if (read > 0) {
+                    sink.accept(new String(buffer, 0, read));
+                    totalChars += read;
+                }
+            }
+        }
+        log.info("✅ Streamed {} characters", totalChars);
+    }
+
     /**
      * Извлечение текста из PDF через PDFBox.
      */
@@ -88,17 +187,7 @@ public class DocumentParserService {
 
         try {
             // Используем SAX парсер для безопасную обработку XML
-            javax.xml.parsers.SAXParserFactory factory = javax.xml.parsers.SAXParserFactory.newInstance();
-
-            // Отключаем внешние DTD и сущности для безопасность
-            try {
-                factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-                factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
-                factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-                factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            } catch (Exception e) {
-                log.warn("Could not set all SAX parser features: {}", e.getMessage());
-            }
+            javax.xml.parsers.SAXParserFactory factory = createSaxParserFactory();
 
             FB2TextExtractor extractor = new FB2TextExtractor();
             factory.newSAXParser().parse(
@@ -124,6 +213,21 @@ public class DocumentParserService {
         }
     }
 
+    private javax.xml.parsers.SAXParserFactory createSaxParserFactory() {
+        javax.xml.parsers.SAXParserFactory factory = javax.xml.parsers.SAXParserFactory.newInstance();
+
+        // Отключаем внешние DTD и сущности для безопасность
+        try {
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        } catch (Exception e) {
+            log.warn("Could not set all SAX parser features: {}", e.getMessage());
+        }
+        return factory;
+    }
+
     /**
      * Прямое чтение текстовых файлов.
      */
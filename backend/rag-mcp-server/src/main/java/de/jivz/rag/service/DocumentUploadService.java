@@ -7,8 +7,15 @@ import de.jivz.rag.dto.DocumentDto;
 import de.jivz.rag.repository.entity.Document;
 import de.jivz.rag.repository.entity.Document.DocumentStatus;
 import de.jivz.rag.exception.DocumentProcessingException;
-import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.DocumentChunkBatchWriter;
+import de.jivz.rag.repository.DocumentChunkBatchWriter.ChunkRow;
 import de.jivz.rag.repository.DocumentRepository;
+import de.jivz.rag.service.cache.ChunkEmbeddingStore;
+import de.jivz.rag.service.cache.ChunkEmbeddingStore.Resolution;
+import de.jivz.rag.service.cache.CorpusVersionService;
+import de.jivz.rag.service.dedup.MinHash;
+import de.jivz.rag.service.vector.ReducedEmbeddingService;
+import de.jivz.rag.service.vector.VectorIndexService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,10 +23,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map;
 
 /**
  * Сервис загрузки и обработки документов.
@@ -31,8 +40,13 @@ import java.util.Map;
  * 1. Сохранение метаданных документа
  * 2. Извлечение текста (делегируется DocumentParserService)
  * 3. Разбиение на чанки (делегируется ChunkingService)
- * 4. Генерация эмбеддингов (делегируется EmbeddingService)
- * 5. Сохранение чанков в pgvector
+ * 4. Эмбеддинги (ChunkEmbeddingStore: неизменённые чанки по content_hash, новые через EmbeddingService)
+ * 5. Сохранение чанков в pgvector (bulk COPY через DocumentChunkBatchWriter)
+ * 6. Обновление in-memory ANN индекса (после коммита)
+ *
+ * Это буферизованный режим (весь текст в памяти, одна транзакция).
+ * Потоковый режим — StreamingIngestionService, он переиспользует
+ * package-private шаги этого сервиса.
  */
 @Service
 @Slf4j
@@ -40,11 +54,14 @@ import java.util.Map;
 public class DocumentUploadService {
 
     private final DocumentRepository documentRepository;
-    private final DocumentChunkRepository chunkRepository;
+    private final DocumentChunkBatchWriter chunkBatchWriter;
     private final DocumentParserService parserService;
     private final ChunkingService chunkingService;
-    private final EmbeddingService embeddingService;
+    private final ChunkEmbeddingStore embeddingStore;
     private final ObjectMapper objectMapper;
+    private final VectorIndexService vectorIndexService;
+    private final CorpusVersionService corpusVersionService;
+    private final ReducedEmbeddingService reducedEmbeddingService;
 
     /**
      * Загружает и обрабатывает документ.
@@ -83,7 +100,7 @@ public class DocumentUploadService {
         }
     }
 
-    private Map<String, Object> parseMetadata(String metadataJson) {
+    Map<String, Object> parseMetadata(String metadataJson) {
         if (metadataJson == null || metadataJson.trim().isEmpty()) {
             return new HashMap<>();
         }
@@ -96,7 +113,7 @@ public class DocumentUploadService {
         }
     }
 
-    private Document createDocumentRecord(MultipartFile file, Map<String, Object> metadata) {
+    Document createDocumentRecord(MultipartFile file, Map<String, Object> metadata) {
         Document document = Document.builder()
                 .fileName(file.getOriginalFilename())
                 .fileType(parserService.getFileType(file.getOriginalFilename()))
@@ -117,8 +134,8 @@ public class DocumentUploadService {
         // Шаг 2: Разбиение на чанки
         List<String> chunks = createChunks(text, document);
 
-        // Шаг 3: Генерация эмбеддингов
-        List<float[]> embeddings = generateEmbeddings(chunks, document);
+        // Шаг 3: Эмбеддинги (переиспользуются по content_hash)
+        Resolution embeddings = resolveEmbeddings(chunks, document);
 
         // Шаг 4: Сохранение чанков
         saveChunks(document, chunks, embeddings);
@@ -143,63 +160,97 @@ public class DocumentUploadService {
         return chunks;
     }
 
-    private List<float[]> generateEmbeddings(List<String> chunks, Document document) {
-        List<float[]> embeddings = embeddingService.generateEmbeddings(chunks);
-        log.debug("Generated {} embeddings for document id={}", embeddings.size(), document.getId());
-        return embeddings;
+    private Resolution resolveEmbeddings(List<String> chunks, Document document) {
+        Resolution resolution = embeddingStore.resolve(chunks);
+        document.setEmbeddingsReused(resolution.reused());
+        document.setEmbeddingsGenerated(resolution.generated());
+        log.debug("Embeddings for document id={}: {} reused, {} generated",
+                document.getId(), resolution.reused(), resolution.generated());
+        return resolution;
     }
 
-    private void saveChunks(Document document, List<String> chunks, List<float[]> embeddings) {
+    private void saveChunks(Document document, List<String> chunks, Resolution embeddings) {
+        List<ChunkRow> rows = new ArrayList<>(chunks.size());
         for (int i = 0; i < chunks.size(); i++) {
-            ChunkData chunkData = ChunkData.builder()
-                    .documentId(document.getId())
-                    .documentName(document.getFileName())
-                    .chunkIndex(i)
-                    .chunkText(chunks.get(i))
-                    .embedding(i < embeddings.size() ? embeddings.get(i) : null)
-                    .totalChunks(chunks.size())
-                    .build();
-
-            saveChunk(chunkData);
+            rows.add(buildChunkRow(document, i, chunks.get(i),
+                    embeddings.embeddings().get(i), embeddings.contentHashes().get(i), chunks.size()));
         }
+
+        int written = chunkBatchWriter.writeChunks(rows);
+        log.debug("Saved {} chunks for document id={}", written, document.getId());
     }
 
-    private void saveChunk(ChunkData chunkData) {
+    /**
+     * Строит строку для записи чанка.
+     *
+     * @param contentHash content_hash чанка (ChunkEmbeddingStore)
+     * @param totalChunks общее число чанков (null, если ещё неизвестно — потоковая загрузка)
+     */
+    ChunkRow buildChunkRow(Document document, int chunkIndex, String chunkText,
+                           float[] embedding, String contentHash, Integer totalChunks) {
+        return toChunkRow(ChunkData.builder()
+                .documentId(document.getId())
+                .documentName(document.getFileName())
+                .chunkIndex(chunkIndex)
+                .chunkText(chunkText)
+                .embedding(embedding)
+                .contentHash(contentHash)
+                .totalChunks(totalChunks)
+                .build());
+    }
+
+    private ChunkRow toChunkRow(ChunkData chunkData) {
         try {
-            String embeddingStr = embeddingService.embeddingToString(chunkData.embedding());
-            String metadataJson = objectMapper.writeValueAsString(chunkData.toMetadata());
-
-            chunkRepository.saveWithEmbedding(
-                    chunkData.documentId(),
-                    chunkData.documentName(),
-                    chunkData.chunkIndex(),
-                    chunkData.chunkText(),
-                    embeddingStr,
-                    metadataJson
-            );
+            return ChunkRow.builder()
+                    .documentId(chunkData.documentId())
+                    .documentName(chunkData.documentName())
+                    .chunkIndex(chunkData.chunkIndex())
+                    .chunkText(chunkData.chunkText())
+                    .embedding(chunkData.embedding())
+                    .metadataJson(objectMapper.writeValueAsString(chunkData.toMetadata()))
+                    .contentHash(chunkData.contentHash())
+                    .minHash(MinHash.toBytes(MinHash.signature(chunkData.chunkText())))
+                    .embeddingReduced(reducedEmbeddingService.reduce(chunkData.embedding()))
+                    .build();
         } catch (JsonProcessingException e) {
             throw new DocumentProcessingException("Failed to serialize chunk metadata", e);
         }
     }
 
-    private void finalizeDocument(Document document, int chunkCount) {
+    void finalizeDocument(Document document, int chunkCount) {
         document.setChunkCount(chunkCount);
         document.setStatus(DocumentStatus.READY);
-        documentRepository.save(document);
+        document.setUpdatedAt(LocalDateTime.now());
+        documentRepository.updateProcessingResult(document.getId(), DocumentStatus.READY, chunkCount,
+                valueOrZero(document.getEmbeddingsReused()), valueOrZero(document.getEmbeddingsGenerated()),
+                document.getUpdatedAt());
+        vectorIndexService.indexDocumentAfterCommit(document.getId());
+        corpusVersionService.bumpAfterCommit("document ready: id=" + document.getId());
 
-        log.info("Document processed successfully: {} ({} chunks)",
-                document.getFileName(), chunkCount);
+        log.info("Document processed successfully: {} ({} chunks, {} embeddings reused, {} generated)",
+                document.getFileName(), chunkCount,
+                document.getEmbeddingsReused(), document.getEmbeddingsGenerated());
     }
 
-    private void updateStatus(Document document, DocumentStatus status) {
+    /**
+     * Статус пишется точечным UPDATE, а не save(): в потоковом режиме документ detached,
+     * и merge его пустого списка chunks удалил бы уже записанные чанки (orphanRemoval).
+     */
+    void updateStatus(Document document, DocumentStatus status) {
         document.setStatus(status);
-        documentRepository.save(document);
+        document.setUpdatedAt(LocalDateTime.now());
+        documentRepository.updateStatus(document.getId(), status, document.getUpdatedAt());
     }
 
-    private void handleProcessingError(Document document, Exception e) {
+    void handleProcessingError(Document document, Exception e) {
         log.error("Error processing document id={}: {}", document.getId(), e.getMessage(), e);
-        document.setStatus(DocumentStatus.ERROR);
-        documentRepository.save(document);
+        updateStatus(document, DocumentStatus.ERROR);
+        // Частично записанные чанки могли попасть в закэшированные результаты
+        corpusVersionService.bumpAfterCommit("document failed: id=" + document.getId());
+    }
+
+    private static int valueOrZero(Integer value) {
+        return value != null ? value : 0;
     }
 
     /**
@@ -213,14 +264,17 @@ public class DocumentUploadService {
             int chunkIndex,
             String chunkText,
             float[] embedding,
-            int totalChunks
+            String contentHash,
+            Integer totalChunks
     ) {
         Map<String, Object> toMetadata() {
-            return Map.of(
-                    "chunkSize", chunkText.length(),
-                    "position", chunkIndex,
-                    "totalChunks", totalChunks
-            );
+            Map<String, Object> metadata = new LinkedHashMap<>();
+            metadata.put("chunkSize", chunkText.length());
+            metadata.put("position", chunkIndex);
+            if (totalChunks != null) {
+                metadata.put("totalChunks", totalChunks);
+            }
+            return metadata;
         }
     }
 }
\ No newline at end of file
@@ -7,14 +7,29 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Сервис для генерации эмбеддингов через OpenRouter API.
+ *
+ * Батчи отправляются конвейером: одновременно в полёте до rag.embedding.concurrency
+ * запросов, результаты собираются в исходном порядке (flatMapSequential).
+ * Размер батча ограничен и количеством текстов, и оценкой токенов.
+ * Повторы (429, 5xx, сетевые ошибки) выполняются для отдельного батча, а не для всей задачи.
  */
 @Service
 @Slf4j
@@ -38,6 +53,21 @@ public class EmbeddingService {
     @Value("${rag.embedding.retry-delay-ms:1000}")
     private long retryDelayMs;
 
+    /**
+     * Максимальное количество батчей, одновременно отправленных в API.
+     */
+    @Value("${rag.embedding.concurrency:4}")
+    private int concurrency;
+
+    /**
+     * Ограничение оценки токенов на один батч (0 — без ограничения).
+     */
+    @Value("${rag.embedding.max-tokens-per-batch:8000}")
+    private int maxTokensPerBatch;
+
+    @Value("${rag.embedding.request-timeout-seconds:60}")
+    private long requestTimeoutSeconds;
+
     /**
      * Включить instruction prefix для query эмбеддингов.
      * Улучшает качество поиска для instruction-based моделей (Qwen3, E5).
@@ -67,6 +97,35 @@ public class EmbeddingService {
         return embeddings.isEmpty() ? null : embeddings.getFirst();
     }
 
+    /**
+     * Сигнатура настроек, от которых зависит эмбеддинг запроса
+     * (модель, размерность, instruction prefix). Используется как namespace ключа кэша.
+     */
+    public String getQueryEmbeddingSignature() {
+        return signature(useInstructionPrefix ? queryInstruction : "");
+    }
+
+    /**
+     * Сигнатура настроек, от которых зависит эмбеддинг чанка документа
+     * (модель, размерность, document instruction). Входит в content_hash чанка.
+     */
+    public String getDocumentEmbeddingSignature() {
+        return signature(useInstructionPrefix ? documentInstruction : "");
+    }
+
+    /**
+     * Модель | размерность | SHA-256 instruction (hex) - одинаково для запросов и документов.
+     */
+    private String signature(String instruction) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(instruction.getBytes(StandardCharsets.UTF_8));
+            return embeddingModel + "|" + embeddingDimension + "|" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     /**
      * Генерирует эмбеддинги для документов (без instruction prefix для query).
      * Используется при индексации документов.
@@ -91,61 +150,114 @@ public class EmbeddingService {
 
     /**
      * Генерирует эмбеддинги для списка текстов (batch processing).
+     * Батчи обрабатываются параллельно, порядок результатов совпадает с порядком текстов.
      */
     public List<float[]> generateEmbeddingsRaw(List<String> texts) {
         if (texts == null || texts.isEmpty()) {
             return List.of();
         }
 
-        List<float[]> allEmbeddings = new ArrayList<>();
+        List<List<String>> batches = createBatches(texts);
+        int parallelism = Math.max(1, concurrency);
 
-        // Разбиваем на батчи
-        for (int i = 0; i < texts.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, texts.size());
-            List<String> batch = texts.subList(i, end);
+        log.debug("📤 Embedding {} texts in {} batches (concurrency={})",
+                texts.size(), batches.size(), parallelism);
 
-            log.debug("📤 Processing batch {}/{} ({} texts)",
-                    (i / batchSize) + 1,
-                    (texts.size() + batchSize - 1) / batchSize,
-                    batch.size());
+        try {
+            List<List<float[]>> results = Flux.range(0, batches.size())
+                    .flatMapSequential(i -> callEmbeddingApi(batches.get(i), i + 1, batches.size()),
+                            parallelism)
+                    .collectList()
+                    .block();
+
+            List<float[]> allEmbeddings = new ArrayList<>(texts.size());
+            if (results != null) {
+                results.forEach(allEmbeddings::addAll);
+            }
+            return allEmbeddings;
 
-            List<float[]> batchEmbeddings = callEmbeddingApi(batch);
-            allEmbeddings.addAll(batchEmbeddings);
+        } catch (Exception e) {
+            log.error("❌ Error calling embedding API: {}", e.getMessage());
+            throw new RuntimeException("Failed to generate embeddings", e);
         }
+    }
+
+    /**
+     * Разбивает тексты на батчи: не больше batchSize текстов
+     * и не больше maxTokensPerBatch оценочных токенов в батче.
+     */
+    List<List<String>> createBatches(List<String> texts) {
+        int maxTexts = batchSize > 0 ? batchSize : texts.size();
+        int maxTokens = maxTokensPerBatch > 0 ? maxTokensPerBatch : Integer.MAX_VALUE;
+
+        List<List<String>> batches = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int currentTokens = 0;
+
+        for (String text : texts) {
+            int tokens = estimateTokens(text);
+            boolean full = current.size() >= maxTexts || currentTokens + tokens > maxTokens;
+            if (!current.isEmpty() && full) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(text);
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
 
-        return allEmbeddings;
+    /**
+     * Грубая оценка количества токенов (~3 символа на токен, с запасом для кириллицы).
+     */
+    private int estimateTokens(String text) {
+        return text == null ? 0 : text.length() / 3 + 1;
     }
 
     /**
-     * Вызывает OpenRouter Embeddings API.
+     * Вызывает OpenRouter Embeddings API для одного батча.
+     * Повторяет только этот батч при 429/5xx/сетевых ошибках.
      */
-    private List<float[]> callEmbeddingApi(List<String> texts) {
+    private Mono<List<float[]>> callEmbeddingApi(List<String> texts, int batchNumber, int totalBatches) {
         EmbeddingRequest request = EmbeddingRequest.builder()
                 .input(texts)
                 .model(embeddingModel)
                 .build();
 
-        log.debug("📤 Calling embedding API with model: {}, texts count: {}",
-                embeddingModel, texts.size());
-
-        try {
-            EmbeddingResponse response = openRouterEmbeddingWebClient.post()
-                    .uri("/embeddings")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(EmbeddingResponse.class)
-                    .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelayMs))
-                            .doBeforeRetry(signal ->
-                                    log.warn("⚠️ Retrying embedding request, attempt: {}",
-                                            signal.totalRetries() + 1)))
-                    .block(Duration.ofSeconds(60));
-
-            return parseEmbeddingsResponse(response);
+        log.debug("📤 Processing batch {}/{} ({} texts, model: {})",
+                batchNumber, totalBatches, texts.size(), embeddingModel);
+
+        return openRouterEmbeddingWebClient.post()
+                .uri("/embeddings")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(EmbeddingResponse.class)
+                .timeout(Duration.ofSeconds(requestTimeoutSeconds > 0 ? requestTimeoutSeconds : 60))
+                .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelayMs))
+                        .jitter(0.5)
+                        .filter(this::isRetryable)
+                        .doBeforeRetry(signal ->
+                                log.warn("⚠️ Retrying embedding batch {}/{}, attempt: {} ({})",
+                                        batchNumber, totalBatches,
+                                        signal.totalRetries() + 1,
+                                        signal.failure().getMessage())))
+                .map(this::parseEmbeddingsResponse);
+    }
 
-        } catch (Exception e) {
-            log.error("❌ Error calling embedding API: {}", e.getMessage());
-            throw new RuntimeException("Failed to generate embeddings", e);
+    /**
+     * Повторяем только временные ошибки: rate limit, ошибки сервера, таймауты, сеть.
+     */
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException responseError) {
+            int status = responseError.getStatusCode().value();
+            return status == 429 || status >= 500;
         }
+        return error instanceof WebClientRequestException
+                || error instanceof TimeoutException;
     }
 
     /**
@@ -159,7 +271,12 @@ public class EmbeddingService {
 
         List<float[]> embeddings = new ArrayList<>();
 
-        for (EmbeddingResponse.EmbeddingData data : response.getData()) {
+        List<EmbeddingResponse.EmbeddingData> ordered = response.getData().stream()
+                .sorted(Comparator.comparing(EmbeddingResponse.EmbeddingData::getIndex,
+                        Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+
+        for (EmbeddingResponse.EmbeddingData data : ordered) {
             List<Double> embeddingList = data.getEmbedding();
             if (embeddingList != null && !embeddingList.isEmpty()) {
                 float[] embedding = new float[embeddingList.size()];
@@ -8,18 +8,28 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Stack;
+import java.util.function.Consumer;
 
 /**
  * SAX Handler für das Extrahieren von Text aus FB2 (FictionBook 2.0) Dateien.
  *
  * FB2 ist ein XML-basiertes Format für eBooks. Diese Klasse extrahiert
  * Text aus den wichtigsten Elementen und ignoriert Metadaten und Struktur-Tags.
+ *
+ * Mit einem Sink wird der Text nach Block-Elementen in Portionen weitergereicht
+ * (Streaming-Ingestion), statt das ganze Buch im Speicher zu sammeln.
  */
 @Slf4j
 public class FB2TextExtractor extends DefaultHandler {
 
+    /**
+     * Ab dieser Puffergröße wird im Streaming-Modus an den Sink übergeben.
+     */
+    private static final int FLUSH_THRESHOLD = 16 * 1024;
+
     private final StringBuilder textBuilder = new StringBuilder();
     private final Stack<String> elementStack = new Stack<>();
+    private final Consumer<String> sink;
 
     // Elemente, aus denen wir Text extrahieren möchten
     private static final Set<String> TEXT_ELEMENTS = new HashSet<>();
@@ -29,6 +39,17 @@ public class FB2TextExtractor extends DefaultHandler {
 
     private boolean collectText = false;
 
+    public FB2TextExtractor() {
+        this(null);
+    }
+
+    /**
+     * @param sink Empfänger der Textportionen (null = gesamten Text sammeln)
+     */
+    public FB2TextExtractor(Consumer<String> sink) {
+        this.sink = sink;
+    }
+
     static {
         // Text-enthaltende Elemente in FB2
         TEXT_ELEMENTS.add("p");          // Paragraphen
@@ -113,6 +134,9 @@ public class FB2TextExtractor extends DefaultHandler {
             if (textBuilder.length() > 0 && !textBuilder.toString().endsWith("\n")) {
                 textBuilder.append("\n");
             }
+            if (sink != null && textBuilder.length() >= FLUSH_THRESHOLD) {
+                flush();
+            }
         }
 
         // Wenn der Stack leer ist, haben wir alle Elemente verarbeitet
@@ -121,6 +145,23 @@ public class FB2TextExtractor extends DefaultHandler {
         }
     }
 
+    /**
+     * Übergibt den restlichen Text an den Sink (Streaming-Modus).
+     */
+    @Override
+    public void endDocument() throws SAXException {
+        if (sink != null) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (textBuilder.length() > 0) {
+            sink.accept(textBuilder.toString());
+            textBuilder.setLength(0);
+        }
+    }
+
     /**
      * Gibt den extrahierten Text zurück.
      */
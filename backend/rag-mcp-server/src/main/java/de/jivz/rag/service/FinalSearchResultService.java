@@ -3,6 +3,8 @@ package de.jivz.rag.service;
 import de.jivz.rag.dto.FinalRankingConfig;
 import de.jivz.rag.dto.FinalSearchResultDto;
 import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.service.dedup.MinHash;
+import de.jivz.rag.service.dedup.NearDuplicateDetector;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -151,7 +153,9 @@ public class FinalSearchResultService {
      *
      * Две версии:
      * 1. Точное совпадение текста
-     * 2. Похожесть текста (>95% совпадение)
+     * 2. Похожесть текста: оценка Jaccard по словам ≥ duplicateSimilarityThreshold.
+     *    Оценка берётся из MinHash сигнатур (сохранены при загрузке, для старых чанков
+     *    считаются здесь один раз), кандидаты ищутся через LSH — почти линейно по числу результатов.
      *
      * @param results результаты для дедупликации
      * @param config конфигурация
@@ -171,6 +175,9 @@ public class FinalSearchResultService {
 
         List<MergedSearchResultDto> deduped = new ArrayList<>();
         Set<String> seenTexts = new HashSet<>();
+        NearDuplicateDetector detector = config.getDuplicateSimilarityThreshold() < 1.0
+                ? new NearDuplicateDetector(config.getDuplicateSimilarityThreshold())
+                : null;
 
         for (MergedSearchResultDto result : results) {
             String text = result.getChunkText() != null ? result.getChunkText().trim() : "";
@@ -183,24 +190,13 @@ public class FinalSearchResultService {
             }
 
             // Проверяем похожесть (если требуется)
-            boolean isDuplicate = false;
-            if (config.getDuplicateSimilarityThreshold() < 1.0) {
-                for (String seenText : seenTexts) {
-                    double similarity = calculateTextSimilarity(text, seenText);
-                    if (similarity >= config.getDuplicateSimilarityThreshold()) {
-                        log.debug("  ⏭️  Skipped similar: chunkId={} (similarity={})",
-                                result.getChunkId(),
-                                String.format("%.2f", similarity));
-                        isDuplicate = true;
-                        break;
-                    }
-                }
+            if (detector != null && !detector.addIfUnique(signatureOf(result, text))) {
+                log.debug("  ⏭️  Skipped similar: chunkId={}", result.getChunkId());
+                continue;
             }
 
-            if (!isDuplicate) {
-                deduped.add(result);
-                seenTexts.add(text);
-            }
+            deduped.add(result);
+            seenTexts.add(text);
         }
 
         int removed = results.size() - deduped.size();
@@ -211,6 +207,11 @@ public class FinalSearchResultService {
         return deduped;
     }
 
+    private int[] signatureOf(MergedSearchResultDto result, String text) {
+        int[] stored = MinHash.fromBytes(result.getMinHash());
+        return stored != null ? stored : MinHash.signature(text);
+    }
+
     /**
      * Ограничивает максимальное количество чанков с одного документа.
      *
@@ -335,36 +336,6 @@ public class FinalSearchResultService {
         return finalized;
     }
 
-    /**
-     * Вычисляет похожесть двух текстов на основе Jaccard similarity.
-     *
-     * @param text1 первый текст
-     * @param text2 второй текст
-     * @return похожесть (0.0 - 1.0)
-     */
-    private double calculateTextSimilarity(String text1, String text2) {
-        if (text1.equals(text2)) {
-            return 1.0;
-        }
-
-        // Разбиваем на слова
-        Set<String> words1 = new HashSet<>(Arrays.asList(text1.toLowerCase().split("\\s+")));
-        Set<String> words2 = new HashSet<>(Arrays.asList(text2.toLowerCase().split("\\s+")));
-
-        // Вычисляем Jaccard similarity
-        Set<String> union = new HashSet<>(words1);
-        union.addAll(words2);
-
-        Set<String> intersection = new HashSet<>(words1);
-        intersection.retainAll(words2);
-
-        if (union.isEmpty()) {
-            return 0.0;
-        }
-
-        return (double) intersection.size() / union.size();
-    }
-
     // ============ Convenience методы ============
 
     /**
@@ -3,6 +3,7 @@ package de.jivz.rag.service;
 import de.jivz.rag.dto.FinalRankingConfig;
 import de.jivz.rag.dto.FinalSearchResultDto;
 import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.service.cache.SearchResultCache;
 import de.jivz.rag.service.filtering.RelevanceFilter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,8 @@ import java.util.List;
  * 3. Объединение результатов
  * 4. Переранжирование
  * 5. Финализация (фильтрация, дедупликация, diversification)
+ *
+ * Результаты кэшируются в SearchResultCache по (запрос, конфигурация, версия корпуса).
  */
 @Service
 @Slf4j
@@ -35,6 +38,7 @@ public class HybridSearchPipelineService {
 
     private final HybridSearchService hybridSearchService;
     private final FinalSearchResultService finalSearchService;
+    private final SearchResultCache searchResultCache;
 
     /**
      * Полный pipeline с конфигурацией.
@@ -44,16 +48,35 @@ public class HybridSearchPipelineService {
      * @return финальные результаты
      */
     public List<FinalSearchResultDto> search(String query, PipelineConfig config) {
+        return searchWithCacheInfo(query, config).value();
+    }
+
+    /**
+     * Полный pipeline с информацией о попадании в кэш результатов.
+     *
+     * @param query поисковый запрос
+     * @param config конфигурация pipeline
+     * @return финальные результаты и debug информация кэша
+     */
+    public SearchResultCache.Lookup<List<FinalSearchResultDto>> searchWithCacheInfo(String query,
+                                                                                    PipelineConfig config) {
+        return searchResultCache.get("pipeline", query, config.cacheKey(),
+                        () -> executePipeline(query, config), PipelineResult::complete)
+                .map(PipelineResult::results);
+    }
+
+    private PipelineResult executePipeline(String query, PipelineConfig config) {
         log.debug("Pipeline search: query='{}', config={}", query, config);
 
         // Этапы 1-4: Гибридный поиск
-        List<MergedSearchResultDto> merged = hybridSearchService.search(
-                query,
-                config.getTopK() * 2, // Берём больше для финализации
-                0.0, // Низкий threshold, фильтрация в финализации
-                config.getSemanticWeight(),
-                config.getKeywordWeight()
-        );
+        HybridSearchService.HybridSearchConfig hybridConfig = HybridSearchService.HybridSearchConfig.builder()
+                .topK(config.getTopK() * 2) // Берём больше для финализации
+                .threshold(0.0) // Низкий threshold, фильтрация в финализации
+                .semanticWeight(config.getSemanticWeight())
+                .keywordWeight(config.getKeywordWeight())
+                .build();
+        HybridSearchService.HybridSearchResult hybrid = hybridSearchService.searchWithTimings(query, hybridConfig);
+        List<MergedSearchResultDto> merged = hybrid.results();
 
         // Этап 5: Финализация
         FinalRankingConfig finalConfig = FinalRankingConfig.builder()
@@ -65,7 +88,13 @@ public class HybridSearchPipelineService {
         List<FinalSearchResultDto> results = finalSearchService.finalizeResults(merged, finalConfig);
 
         log.debug("Pipeline search completed: {} results", results.size());
-        return results;
+        return new PipelineResult(results, hybrid.isComplete());
+    }
+
+    /**
+     * Результат pipeline и признак полноты (все этапы гибридного поиска отработали).
+     */
+    private record PipelineResult(List<FinalSearchResultDto> results, boolean complete) {
     }
 
     /**
@@ -155,5 +184,17 @@ public class HybridSearchPipelineService {
          * Фильтр релевантности для применения перед финализацией (опционально).
          */
         private RelevanceFilter relevanceFilter;
+
+        /**
+         * Все параметры конфигурации — часть ключа кэша.
+         * Фильтр релевантности описывается классом и описанием (включает его порог).
+         */
+        String cacheKey() {
+            String filterKey = relevanceFilter != null
+                    ? relevanceFilter.getClass().getName() + ":" + relevanceFilter.getDescription()
+                    : "none";
+            return topK + "|" + threshold + "|" + maxChunksPerDocument + "|"
+                    + semanticWeight + "|" + keywordWeight + "|" + filterKey;
+        }
     }
 }
\ No newline at end of file
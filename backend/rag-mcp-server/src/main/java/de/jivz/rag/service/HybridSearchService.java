@@ -3,11 +3,22 @@ package de.jivz.rag.service;
 import de.jivz.rag.dto.MergedSearchResultDto;
 import de.jivz.rag.dto.RerankingStrategyConfig;
 import de.jivz.rag.dto.SearchResultDto;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Сервис гибридного поиска.
@@ -20,6 +31,10 @@ import java.util.List;
  * 2. Ключевой поиск (делегируется KeywordSearchService)
  * 3. Объединение результатов (делегируется SearchResultMergingService)
  * 4. Переранжирование (делегируется SearchResultRerankingService)
+ *
+ * Этапы 1 и 2 независимы и выполняются параллельно на виртуальных потоках,
+ * у каждого свой таймаут. Упавший или не успевший этап даёт пустой список —
+ * результат строится из оставшегося (деградация вместо ошибки).
  */
 @Service
 @Slf4j
@@ -35,6 +50,19 @@ public class HybridSearchService {
     private final SearchResultMergingService mergingService;
     private final SearchResultRerankingService rerankingService;
 
+    @Value("${rag.search.hybrid.semantic-timeout-ms:5000}")
+    private long semanticTimeoutMs;
+
+    @Value("${rag.search.hybrid.keyword-timeout-ms:2000}")
+    private long keywordTimeoutMs;
+
+    private final ExecutorService searchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    void shutdown() {
+        searchExecutor.shutdownNow();
+    }
+
     /**
      * Гибридный поиск с полной конфигурацией.
      *
@@ -43,23 +71,44 @@ public class HybridSearchService {
      * @return объединённые и переранжированные результаты
      */
     public List<MergedSearchResultDto> search(String query, HybridSearchConfig config) {
+        return searchWithTimings(query, config).results();
+    }
+
+    /**
+     * Гибридный поиск с замерами этапов.
+     *
+     * @param query поисковый запрос
+     * @param config конфигурация поиска
+     * @return результаты и тайминги (semanticMs/keywordMs/mergeMs/rerankMs/totalMs + статусы этапов)
+     */
+    public HybridSearchResult searchWithTimings(String query, HybridSearchConfig config) {
         log.debug("Hybrid search: query='{}', config={}", query, config);
+        long startTime = System.nanoTime();
+        Map<String, Object> timings = new LinkedHashMap<>();
 
-        // Этап 1: Семантический поиск
-        List<SearchResultDto> semanticResults = executeSemanticSearch(query, config);
+        // Этапы 1-2: Семантический и ключевой поиск параллельно
+        SearchLeg semanticLeg = startLeg(() -> executeSemanticSearch(query, config),
+                config.getSemanticWeight() >= 0.01);
+        SearchLeg keywordLeg = startLeg(() -> executeKeywordSearch(query, config),
+                config.getKeywordWeight() >= 0.01);
 
-        // Этап 2: Ключевой поиск
-        List<SearchResultDto> keywordResults = executeKeywordSearch(query, config);
+        List<SearchResultDto> semanticResults = semanticLeg.await("semantic", semanticTimeoutMs, timings);
+        List<SearchResultDto> keywordResults = keywordLeg.await("keyword", keywordTimeoutMs, timings);
 
         // Этап 3: Объединение
+        long stageStart = System.nanoTime();
         List<MergedSearchResultDto> mergedResults = mergeResults(
                 semanticResults, keywordResults, config);
+        timings.put("mergeMs", elapsedMs(stageStart));
 
         // Этап 4: Переранжирование
+        stageStart = System.nanoTime();
         List<MergedSearchResultDto> rerankedResults = rerankResults(mergedResults, config);
+        timings.put("rerankMs", elapsedMs(stageStart));
+        timings.put("totalMs", elapsedMs(startTime));
 
-        log.debug("Hybrid search completed: {} results", rerankedResults.size());
-        return rerankedResults;
+        log.debug("Hybrid search completed: {} results, timings={}", rerankedResults.size(), timings);
+        return new HybridSearchResult(rerankedResults, timings);
     }
 
     /**
@@ -98,14 +147,16 @@ public class HybridSearchService {
                                                         double semanticWeight,
                                                         double keywordWeight) {
         log.debug("Hybrid search in document: query='{}', docId={}", query, documentId);
+        Map<String, Object> timings = new LinkedHashMap<>();
 
-        // Этап 1: Семантический поиск в документе
-        List<SearchResultDto> semanticResults =
-                semanticSearchService.search(query, topK, threshold, documentId);
+        // Этапы 1-2: Семантический и ключевой поиск в документе параллельно
+        SearchLeg semanticLeg = startLeg(
+                () -> semanticSearchService.search(query, topK, threshold, documentId), true);
+        SearchLeg keywordLeg = startLeg(
+                () -> keywordSearchService.keywordSearchInDocument(query, documentId, topK), true);
 
-        // Этап 2: Ключевой поиск в документе
-        List<SearchResultDto> keywordResults =
-                keywordSearchService.keywordSearchInDocument(query, documentId, topK);
+        List<SearchResultDto> semanticResults = semanticLeg.await("semantic", semanticTimeoutMs, timings);
+        List<SearchResultDto> keywordResults = keywordLeg.await("keyword", keywordTimeoutMs, timings);
 
         // Этап 3-4: Объединение и переранжирование
         List<MergedSearchResultDto> merged = mergingService.mergeResults(
@@ -164,10 +215,56 @@ public class HybridSearchService {
 
     // === Приватные методы ===
 
-    private List<SearchResultDto> executeSemanticSearch(String query, HybridSearchConfig config) {
-        if (config.getSemanticWeight() < 0.01) {
-            return List.of();
+    private SearchLeg startLeg(Supplier<List<SearchResultDto>> search, boolean enabled) {
+        if (!enabled) {
+            return new SearchLeg(null, System.nanoTime());
+        }
+        return new SearchLeg(CompletableFuture.supplyAsync(search, searchExecutor), System.nanoTime());
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Запущенный этап поиска. Таймаут отсчитывается от старта этапа,
+     * поэтому ожидание первого этапа не «съедает» время второго.
+     */
+    private record SearchLeg(CompletableFuture<List<SearchResultDto>> future, long startNanos) {
+
+        List<SearchResultDto> await(String name, long timeoutMs, Map<String, Object> timings) {
+            if (future == null) {
+                timings.put(name + "Status", "skipped");
+                return List.of();
+            }
+
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs) - (System.nanoTime() - startNanos);
+            try {
+                List<SearchResultDto> results = future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+                timings.put(name + "Status", "ok");
+                return results != null ? results : List.of();
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("⏱️ Hybrid search: {} leg timed out after {}ms, continuing without it", name, timeoutMs);
+                timings.put(name + "Status", "timeout");
+                return List.of();
+            } catch (ExecutionException e) {
+                log.warn("⚠️ Hybrid search: {} leg failed, continuing without it: {}",
+                        name, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                timings.put(name + "Status", "error");
+                return List.of();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                timings.put(name + "Status", "interrupted");
+                return List.of();
+            } finally {
+                timings.put(name + "Ms", elapsedMs(startNanos));
+            }
         }
+    }
+
+    private List<SearchResultDto> executeSemanticSearch(String query, HybridSearchConfig config) {
         return semanticSearchService.search(
                 query,
                 config.getTopK() * 2, // Берём больше для объединения
@@ -177,9 +274,6 @@ public class HybridSearchService {
     }
 
     private List<SearchResultDto> executeKeywordSearch(String query, HybridSearchConfig config) {
-        if (config.getKeywordWeight() < 0.01) {
-            return List.of();
-        }
         if (config.getDocumentId() != null) {
             return keywordSearchService.keywordSearchInDocument(
                     query, config.getDocumentId(), config.getTopK() * 2);
@@ -208,6 +302,25 @@ public class HybridSearchService {
         );
     }
 
+    /**
+     * Результат гибридного поиска с таймингами этапов.
+     */
+    public record HybridSearchResult(
+            List<MergedSearchResultDto> results,
+            Map<String, Object> timings
+    ) {
+
+        /**
+         * Все этапы поиска отработали: статус каждого — ok или skipped (этап отключён весом).
+         * Результат после таймаута/ошибки этапа неполный и не должен кэшироваться.
+         */
+        public boolean isComplete() {
+            return timings.entrySet().stream()
+                    .filter(entry -> entry.getKey().endsWith("Status"))
+                    .allMatch(entry -> "ok".equals(entry.getValue()) || "skipped".equals(entry.getValue()));
+        }
+    }
+
     /**
      * Конфигурация гибридного поиска.
      */
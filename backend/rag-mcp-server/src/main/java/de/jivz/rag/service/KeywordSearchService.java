@@ -200,6 +200,7 @@ public class KeywordSearchService {
                         .metadata(parseMetadata(row[5]))
                         .createdAt(row[6] != null ? ((Timestamp) row[6]).toLocalDateTime() : null)
                         .similarity(row[7] != null ? ((Number) row[7]).doubleValue() : null)
+                        .minHash(row.length > 8 ? (byte[]) row[8] : null)
                         .build();
 
                 searchResults.add(dto);
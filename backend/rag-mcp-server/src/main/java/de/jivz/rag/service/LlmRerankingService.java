@@ -1,12 +1,19 @@
 package de.jivz.rag.service;
 
-import de.jivz.rag.dto.MergedSearchResultDto;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.service.cache.QueryEmbeddingCache;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
@@ -27,6 +34,11 @@ import java.util.stream.Collectors;
  * 4. Сохраняет в поле llmScore
  * 5. Сортирует по llmScore
  *
+ * Батчи отправляются в LLM параллельно (rag.reranking.concurrency) с общим дедлайном
+ * (rag.reranking.deadline-ms): батчи, не успевшие к дедлайну, получают синтетическую оценку.
+ * Оценки LLM кэшируются по (модель, нормализованный запрос, chunkId) —
+ * повторный запрос не обращается к LLM вовсе.
+ *
  * Поддерживаемые режимы:
  * - REAL_LLM (default): вызов реального LLM API
  * - SYNTHETIC: синтетическая оценка (fallback, быстро)
@@ -37,6 +49,7 @@ import java.util.stream.Collectors;
 public class LlmRerankingService {
 
     private final WebClient openRouterEmbeddingWebClient;
+    private final ObjectMapper objectMapper;
 
     @Value("${openrouter.api.reranking-model:openrouter/auto}")
     private String rerankingModel;
@@ -56,9 +69,50 @@ public class LlmRerankingService {
     @Value("${rag.reranking.timeout-seconds:60}")
     private long timeoutSeconds;
 
+    /**
+     * Максимум батчей, одновременно отправленных в LLM.
+     */
+    @Value("${rag.reranking.concurrency:4}")
+    private int concurrency;
+
+    /**
+     * Общий дедлайн переранжирования (мс) для всех батчей.
+     */
+    @Value("${rag.reranking.deadline-ms:15000}")
+    private long deadlineMs;
+
+    @Value("${rag.reranking.score-cache.enabled:true}")
+    private boolean scoreCacheEnabled;
+
+    @Value("${rag.reranking.score-cache.max-size:10000}")
+    private long scoreCacheMaxSize;
+
+    @Value("${rag.reranking.score-cache.ttl-minutes:60}")
+    private long scoreCacheTtlMinutes;
+
     private static final String REAL_LLM_MODE = "REAL_LLM";
     private static final String SYNTHETIC_MODE = "SYNTHETIC";
 
+    /**
+     * (модель, нормализованный запрос, chunkId) → llmScore.
+     * Id чанков не переиспользуются (BIGSERIAL), поэтому инвалидация не нужна — только TTL.
+     */
+    private Cache<ScoreKey, Double> scoreCache;
+
+    private record ScoreKey(String model, String query, Long chunkId) {
+    }
+
+    private record ScoredBatch(int index, List<Double> scores) {
+    }
+
+    @PostConstruct
+    void initScoreCache() {
+        scoreCache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, scoreCacheMaxSize))
+                .expireAfterWrite(Duration.ofMinutes(Math.max(1, scoreCacheTtlMinutes)))
+                .build();
+    }
+
     /**
      * Переранжирует результаты с использованием LLM-оценки релевантности.
      *
@@ -94,26 +148,32 @@ public class LlmRerankingService {
 
     /**
      * Переранжирует результаты с использованием реального LLM API.
-     * Вызывает LLM для каждого результата через WebClient (батчи).
+     * Оценки берутся из кэша; остальные результаты разбиваются на батчи,
+     * которые отправляются параллельно с общим дедлайном.
      */
     private List<MergedSearchResultDto> rerankWithRealLlm(
             List<MergedSearchResultDto> results,
             String query) {
 
-        log.info("📡 Calling LLM API (model: {}) for reranking...", rerankingModel);
-
-        // Разбиваем на батчи
-        for (int i = 0; i < results.size(); i += batchSize) {
-            int end = Math.min(i + batchSize, results.size());
-            List<MergedSearchResultDto> batch = results.subList(i, end);
-
-            log.debug("  Processing batch {}/{} ({} results)",
-                    (i / batchSize) + 1,
-                    (results.size() + batchSize - 1) / batchSize,
-                    batch.size());
+        String normalizedQuery = QueryEmbeddingCache.normalize(query);
+        List<MergedSearchResultDto> uncached = new ArrayList<>();
+        for (MergedSearchResultDto result : results) {
+            Double cached = scoreCacheEnabled && result.getChunkId() != null
+                    ? scoreCache.getIfPresent(scoreKey(normalizedQuery, result))
+                    : null;
+            if (cached != null) {
+                result.setLlmScore(cached);
+            } else {
+                uncached.add(result);
+            }
+        }
 
-            // Вызываем LLM для батча
-            callLlmRerankerApi(batch, query);
+        if (uncached.isEmpty()) {
+            log.info("⚡ All {} LLM scores served from cache", results.size());
+        } else {
+            log.info("📡 Calling LLM API (model: {}) for reranking {} results ({} cached)...",
+                    rerankingModel, uncached.size(), results.size() - uncached.size());
+            scoreConcurrently(uncached, query, normalizedQuery);
         }
 
         // Сортируем по llmScore в порядке убывания
@@ -130,10 +190,75 @@ public class LlmRerankingService {
     }
 
     /**
-     * Вызывает LLM API через WebClient для переранжирования батча результатов.
-     * Аналогично EmbeddingService.callEmbeddingApi()
+     * Отправляет батчи параллельно и ждёт не дольше общего дедлайна.
+     * Батчи без ответа к дедлайну (или с ошибкой) получают синтетическую оценку.
+     */
+    private void scoreConcurrently(List<MergedSearchResultDto> results, String query, String normalizedQuery) {
+        int size = Math.max(1, batchSize);
+        List<List<MergedSearchResultDto>> batches = new ArrayList<>();
+        for (int i = 0; i < results.size(); i += size) {
+            batches.add(results.subList(i, Math.min(i + size, results.size())));
+        }
+
+        long startTime = System.currentTimeMillis();
+        Map<Integer, List<Double>> scored = Flux.range(0, batches.size())
+                .flatMap(index -> callLlmRerankerApi(batches.get(index), query)
+                                .map(scores -> new ScoredBatch(index, scores)),
+                        Math.max(1, concurrency))
+                .take(Duration.ofMillis(deadlineMs))
+                .collectMap(ScoredBatch::index, ScoredBatch::scores)
+                .block(Duration.ofMillis(deadlineMs + 1000));
+
+        int missed = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            List<Double> scores = scored != null ? scored.get(i) : null;
+            if (scores != null) {
+                applyScores(batches.get(i), scores, normalizedQuery);
+            } else {
+                missed++;
+                applySyntheticScores(batches.get(i), query);
+            }
+        }
+
+        log.info("📡 LLM reranking: {} batches in {}ms (concurrency={}, {} fell back to SYNTHETIC)",
+                batches.size(), System.currentTimeMillis() - startTime, concurrency, missed);
+    }
+
+    /**
+     * Присваивает оценки LLM батчу и кладёт их в кэш.
+     * Результаты без оценки в ответе получают 0.0 (не кэшируются).
+     */
+    private void applyScores(List<MergedSearchResultDto> batch, List<Double> scores, String normalizedQuery) {
+        for (int i = 0; i < batch.size(); i++) {
+            MergedSearchResultDto result = batch.get(i);
+            if (i < scores.size()) {
+                double score = Math.min(1.0, Math.max(0.0, scores.get(i)));  // Нормализуем в [0, 1]
+                result.setLlmScore(score);
+                if (scoreCacheEnabled && result.getChunkId() != null) {
+                    scoreCache.put(scoreKey(normalizedQuery, result), score);
+                }
+                log.debug("  Result {} - llmScore: {}", i + 1, String.format("%.4f", score));
+            } else {
+                result.setLlmScore(0.0);
+            }
+        }
+    }
+
+    private void applySyntheticScores(List<MergedSearchResultDto> batch, String query) {
+        batch.forEach(result -> result.setLlmScore(
+                calculateSyntheticScore(query, result.getChunkText())
+        ));
+    }
+
+    private ScoreKey scoreKey(String normalizedQuery, MergedSearchResultDto result) {
+        return new ScoreKey(rerankingModel, normalizedQuery, result.getChunkId());
+    }
+
+    /**
+     * Вызывает LLM API через WebClient для оценки батча результатов.
+     * Пустой Mono — ошибка или ответ без оценок (батч получит синтетическую оценку).
      */
-    private void callLlmRerankerApi(List<MergedSearchResultDto> batch, String query) {
+    private Mono<List<Double>> callLlmRerankerApi(List<MergedSearchResultDto> batch, String query) {
         // Формируем prompt для LLM
         String prompt = buildRerankingPrompt(batch, query);
 
@@ -147,27 +272,21 @@ public class LlmRerankingService {
 
         log.debug("📤 Calling LLM API with prompt (length: {})", prompt.length());
 
-        try {
-            String response = openRouterEmbeddingWebClient.post()
-                    .uri("/chat/completions")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelayMs))
-                            .doBeforeRetry(signal ->
-                                    log.warn("⚠️ Retrying LLM reranking request, attempt: {}",
-                                            signal.totalRetries() + 1)))
-                    .block(Duration.ofSeconds(timeoutSeconds));
-
-            parseLlmResponse(response, batch);
-
-        } catch (Exception e) {
-            log.error("❌ Error calling LLM API: {}", e.getMessage());
-            // Fallback на синтетическую оценку
-            batch.forEach(result -> result.setLlmScore(
-                    calculateSyntheticScore(query, result.getChunkText())
-            ));
-        }
+        return openRouterEmbeddingWebClient.post()
+                .uri("/chat/completions")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(String.class)
+                .timeout(Duration.ofSeconds(timeoutSeconds))
+                .retryWhen(Retry.backoff(retryAttempts, Duration.ofMillis(retryDelayMs))
+                        .doBeforeRetry(signal ->
+                                log.warn("⚠️ Retrying LLM reranking request, attempt: {}",
+                                        signal.totalRetries() + 1)))
+                .flatMap(response -> Mono.justOrEmpty(parseLlmResponse(response)))
+                .onErrorResume(e -> {
+                    log.error("❌ Error calling LLM API: {}", e.getMessage());
+                    return Mono.empty();
+                });
     }
 
     /**
@@ -194,44 +313,45 @@ public class LlmRerankingService {
 
     /**
      * Парсит LLM response и извлекает оценки.
+     *
+     * @return оценки или null, если ответ не удалось разобрать
      */
-    private void parseLlmResponse(String response, List<MergedSearchResultDto> batch) {
+    private List<Double> parseLlmResponse(String response) {
         if (response == null || response.isBlank()) {
             log.error("❌ Empty LLM response");
-            fallbackToSynthetic(batch);
-            return;
+            return null;
         }
 
         try {
-            // Ищем JSON array в response
-            int startIdx = response.indexOf('[');
-            int endIdx = response.lastIndexOf(']');
+            // Ответ chat/completions: оценки в choices[0].message.content
+            String content = extractMessageContent(response);
+
+            // Ищем JSON array в content
+            int startIdx = content.indexOf('[');
+            int endIdx = content.lastIndexOf(']');
 
             if (startIdx == -1 || endIdx == -1) {
                 log.error("❌ No JSON array found in LLM response");
-                fallbackToSynthetic(batch);
-                return;
+                return null;
             }
 
-            String jsonString = response.substring(startIdx, endIdx + 1);
+            String jsonString = content.substring(startIdx, endIdx + 1);
             List<Double> scores = parseScoresFromJson(jsonString);
-
-            // Присваиваем оценки результатам
-            for (int i = 0; i < Math.min(scores.size(), batch.size()); i++) {
-                double score = Math.min(1.0, Math.max(0.0, scores.get(i)));  // Нормализуем в [0, 1]
-                batch.get(i).setLlmScore(score);
-
-                log.debug("  Result {} - llmScore: {}", i + 1, String.format("%.4f", score));
-            }
-
-            // Оставшиеся результаты получают 0.0
-            for (int i = scores.size(); i < batch.size(); i++) {
-                batch.get(i).setLlmScore(0.0);
-            }
+            return scores.isEmpty() ? null : scores;
 
         } catch (Exception e) {
             log.error("❌ Error parsing LLM response: {}", e.getMessage());
-            fallbackToSynthetic(batch);
+            return null;
+        }
+    }
+
+    private String extractMessageContent(String response) {
+        try {
+            JsonNode content = objectMapper.readTree(response)
+                    .path("choices").path(0).path("message").path("content");
+            return content.isTextual() ? content.asText() : response;
+        } catch (Exception e) {
+            return response;
         }
     }
 
@@ -263,14 +383,6 @@ public class LlmRerankingService {
         return scores;
     }
 
-    /**
-     * Fallback на синтетическую оценку для батча.
-     */
-    private void fallbackToSynthetic(List<MergedSearchResultDto> batch) {
-        log.warn("⚠️ Falling back to SYNTHETIC scoring for batch of {} results", batch.size());
-        // Будет заполнено при следующем вызове rerankWithSynthetic
-    }
-
     /**
      * Переранжирует результаты с использованием синтетической оценки.
      * Быстрая локальная оценка без вызовов API.
@@ -5,8 +5,10 @@ import de.jivz.rag.dto.FinalSearchResultDto;
 import de.jivz.rag.dto.MergedSearchResultDto;
 import de.jivz.rag.dto.SearchResultDto;
 import de.jivz.rag.repository.entity.DocumentChunk;
+import de.jivz.rag.service.cache.SearchResultCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -41,6 +43,14 @@ public class RagFacade {
     private final HybridSearchService hybridSearchService;
     private final HybridSearchPipelineService pipelineService;
     private final KeywordSearchService keywordSearchService;
+    private final StreamingIngestionService streamingIngestionService;
+    private final SearchResultCache searchResultCache;
+
+    /**
+     * Потоковая загрузка (parse → chunk → embed → persist с ограниченными очередями).
+     */
+    @Value("${rag.ingestion.streaming.enabled:true}")
+    private boolean streamingEnabled;
 
     // ==================== Документы ====================
 
@@ -48,7 +58,7 @@ public class RagFacade {
      * Загрузить документ.
      */
     public DocumentDto uploadDocument(MultipartFile file) throws IOException {
-        return uploadService.uploadDocument(file);
+        return uploadDocument(file, null);
     }
 
     /**
@@ -57,6 +67,9 @@ public class RagFacade {
      * @param metadata метаданные в формате JSON-строки (может быть null)
      */
     public DocumentDto uploadDocument(MultipartFile file, String metadata) throws IOException {
+        if (streamingEnabled) {
+            return streamingIngestionService.uploadDocument(file, metadata);
+        }
         return uploadService.uploadDocument(file, metadata);
     }
 
@@ -105,17 +118,21 @@ public class RagFacade {
     // ==================== Поиск ====================
 
     /**
-     * Семантический поиск.
+     * Семантический поиск, через кэш результатов (путь MCP инструмента search_documents).
+     * Пустой результат не кэшируется: его же возвращает сбой генерации эмбеддинга запроса.
      */
     public List<SearchResultDto> search(String query, int topK, double threshold, Long documentId) {
-        return semanticSearchService.search(query, topK, threshold, documentId);
+        String cacheKey = topK + "|" + threshold + "|" + documentId;
+        return searchResultCache.get("semantic", query, cacheKey,
+                () -> semanticSearchService.search(query, topK, threshold, documentId),
+                results -> !results.isEmpty()).value();
     }
 
     /**
      * Семантический поиск по всем документам.
      */
     public List<SearchResultDto> search(String query, int topK, double threshold) {
-        return semanticSearchService.search(query, topK, threshold);
+        return search(query, topK, threshold, null);
     }
 
     /**
@@ -171,6 +188,35 @@ public class RagFacade {
                 .toList();
     }
 
+    /**
+     * Гибридный поиск с одним весом и таймингами этапов, через кэш результатов.
+     * (keywordWeight = 1 - semanticWeight)
+     * При попадании в кэш тайминги — исходного вычисления.
+     * Результат с упавшим или не уложившимся в таймаут этапом не кэшируется.
+     */
+    public SearchResultCache.Lookup<HybridSearchService.HybridSearchResult> hybridSearchWithTimings(
+            String query, int topK, double threshold, double semanticWeight) {
+        HybridSearchService.HybridSearchConfig config = HybridSearchService.HybridSearchConfig.builder()
+                .topK(topK)
+                .threshold(threshold)
+                .semanticWeight(semanticWeight)
+                .keywordWeight(1.0 - semanticWeight)
+                .build();
+        String cacheKey = topK + "|" + threshold + "|" + semanticWeight;
+        return searchResultCache.get("hybrid", query, cacheKey,
+                () -> hybridSearchService.searchWithTimings(query, config),
+                HybridSearchService.HybridSearchResult::isComplete);
+    }
+
+    /**
+     * Преобразовать результаты гибридного поиска в SearchResultDto.
+     */
+    public List<SearchResultDto> toSearchResults(List<MergedSearchResultDto> results) {
+        return results.stream()
+                .map(this::toSearchResultDto)
+                .toList();
+    }
+
     /**
      * Гибридный поиск с весами по умолчанию — возвращает SearchResultDto.
      */
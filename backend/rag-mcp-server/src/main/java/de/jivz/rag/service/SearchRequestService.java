@@ -5,6 +5,7 @@ import de.jivz.rag.dto.SearchResponseDto;
 import de.jivz.rag.dto.SearchResponseDto.SearchContext;
 import de.jivz.rag.dto.SearchResultDto;
 import de.jivz.rag.service.RagFacade;
+import de.jivz.rag.service.cache.SearchResultCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -31,9 +32,20 @@ public class SearchRequestService {
         long startTime = System.currentTimeMillis();
         String mode = request.modeOrDefault();
 
-        List<SearchResultDto> results = executeSearch(request, mode);
-
         SearchContext context = new SearchContext(request.getQuery(), mode, startTime);
+
+        if ("hybrid".equals(mode)) {
+            SearchResultCache.Lookup<HybridSearchService.HybridSearchResult> hybrid =
+                    ragFacade.hybridSearchWithTimings(
+                            request.getQuery(),
+                            request.topKOrDefault(),
+                            request.thresholdOrDefault(),
+                            request.semanticWeightOrDefault());
+            return SearchResponseDto.from(ragFacade.toSearchResults(hybrid.value().results()),
+                    context.withTimings(hybrid.value().timings()).withCache(hybrid.toDebugInfo()));
+        }
+
+        List<SearchResultDto> results = executeSearch(request, mode);
         return SearchResponseDto.from(results, context);
     }
 
@@ -93,12 +105,6 @@ public class SearchRequestService {
                     request.getQuery(),
                     request.topKOrDefault());
 
-            case "hybrid" -> ragFacade.hybridSearch(
-                    request.getQuery(),
-                    request.topKOrDefault(),
-                    request.thresholdOrDefault(),
-                    request.semanticWeightOrDefault());
-
             default -> ragFacade.search(
                     request.getQuery(),
                     request.topKOrDefault(),
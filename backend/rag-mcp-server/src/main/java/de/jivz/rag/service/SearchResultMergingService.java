@@ -95,6 +95,7 @@ public class SearchResultMergingService {
                         .chunkText(result.getChunkText())
                         .metadata(result.getMetadata())
                         .createdAt(result.getCreatedAt())
+                        .minHash(result.getMinHash())
                         .semanticScore(result.getSimilarity())
                         .keywordScore(null)
                         .build();
@@ -126,6 +127,7 @@ public class SearchResultMergingService {
                             .chunkText(result.getChunkText())
                             .metadata(result.getMetadata())
                             .createdAt(result.getCreatedAt())
+                            .minHash(result.getMinHash())
                             .semanticScore(null)
                             .keywordScore(result.getSimilarity())
                             .build();
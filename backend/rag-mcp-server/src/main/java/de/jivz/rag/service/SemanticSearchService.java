@@ -4,18 +4,37 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.jivz.rag.dto.SearchResultDto;
 import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.entity.ChunkEmbeddingRow;
 import de.jivz.rag.repository.entity.ChunkSearchResult;
+import de.jivz.rag.service.cache.QueryEmbeddingCache;
+import de.jivz.rag.service.vector.HnswIndex;
+import de.jivz.rag.service.vector.ReducedEmbeddingService;
+import de.jivz.rag.service.vector.VectorIndexService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Сервис семантического поиска.
  * Выполняет векторный поиск по документам через pgvector.
+ *
+ * При готовом in-memory индексе (VectorIndexService) кандидаты берутся из HNSW,
+ * а точное сходство пересчитывается в Postgres только для них.
+ * Поиск внутри одного документа и поиск до построения индекса идут через sequential scan.
+ *
+ * Если включены сокращённые эмбеддинги (ReducedEmbeddingService) и backfill завершён,
+ * кандидаты берутся из HNSW индекса pgvector по embedding_reduced — этот путь имеет приоритет
+ * над in-memory индексом, так как не требует памяти и прогрева после рестарта.
+ *
+ * Эмбеддинг запроса берётся из QueryEmbeddingCache (повторные запросы без обращения к API).
  */
 @Service
 @Slf4j
@@ -25,6 +44,15 @@ public class SemanticSearchService {
     private final DocumentChunkRepository chunkRepository;
     private final EmbeddingService embeddingService;
     private final ObjectMapper objectMapper;
+    private final VectorIndexService vectorIndexService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final ReducedEmbeddingService reducedEmbeddingService;
+
+    /**
+     * Во сколько раз больше кандидатов брать из ANN индекса для точного пересчёта.
+     */
+    @Value("${rag.vector-index.oversampling:4}")
+    private int oversampling;
 
     /**
      * Семантический поиск по всем документам.
@@ -53,7 +81,7 @@ public class SemanticSearchService {
     }
 
     private float[] generateQueryEmbedding(String query) {
-        float[] embedding = embeddingService.generateEmbedding(query);
+        float[] embedding = queryEmbeddingCache.getEmbedding(query);
         if (embedding == null) {
             log.warn("Failed to generate embedding for query");
         }
@@ -64,6 +92,13 @@ public class SemanticSearchService {
                                                   double threshold, Long documentId) {
         String embeddingStr = embeddingService.embeddingToString(embedding);
 
+        if (documentId == null && reducedEmbeddingService.isSearchReady()) {
+            return executeReducedSearch(embedding, embeddingStr, topK, threshold);
+        }
+        if (documentId == null && vectorIndexService.isReady()) {
+            return executeIndexSearch(embedding, embeddingStr, topK, threshold);
+        }
+
         if (documentId != null) {
             return chunkRepository.findSimilarChunksInDocumentProjection(
                     embeddingStr, documentId, topK, threshold);
@@ -71,6 +106,97 @@ public class SemanticSearchService {
         return chunkRepository.findSimilarChunksProjection(embeddingStr, topK, threshold);
     }
 
+    private List<ChunkSearchResult> executeReducedSearch(float[] embedding, String embeddingStr,
+                                                         int topK, double threshold) {
+        float[] reduced = reducedEmbeddingService.reduce(embedding);
+        if (reduced == null) {
+            return chunkRepository.findSimilarChunksProjection(embeddingStr, topK, threshold);
+        }
+
+        return reducedEmbeddingService.search(
+                embeddingService.embeddingToString(reduced), embeddingStr, topK, threshold);
+    }
+
+    private List<ChunkSearchResult> executeIndexSearch(float[] embedding, String embeddingStr,
+                                                       int topK, double threshold) {
+        List<Long> candidateIds = vectorIndexService.findNearest(embedding, topK * oversampling)
+                .stream()
+                .map(HnswIndex.Neighbor::id)
+                .toList();
+
+        if (candidateIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        log.debug("ANN index returned {} candidates, rescoring in Postgres", candidateIds.size());
+        return chunkRepository.findSimilarChunksByIdsProjection(
+                embeddingStr, candidateIds, topK, threshold);
+    }
+
+    /**
+     * Оценка recall@k двухфазного поиска (кандидаты из индекса + точный пересчёт)
+     * относительно точного sequential scan. Запросы — случайные эмбеддинги чанков.
+     *
+     * @param samples количество запросов
+     * @param k       размер выдачи
+     * @return recall, recall индекса без пересчёта и средние задержки обоих путей
+     */
+    public Map<String, Object> measureIndexRecall(int samples, int k) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("ready", vectorIndexService.isReady());
+        if (!vectorIndexService.isReady()) {
+            return report;
+        }
+
+        int exactHits = 0;
+        int indexHits = 0;
+        int expectedTotal = 0;
+        long exactNanos = 0;
+        long twoPhaseNanos = 0;
+        List<ChunkEmbeddingRow> queries = chunkRepository.findRandomEmbeddings(samples);
+
+        for (ChunkEmbeddingRow row : queries) {
+            float[] vector = VectorIndexService.parseVector(row.getEmbedding());
+            if (vector == null) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            Set<Long> expected = idsOf(chunkRepository.findSimilarChunksProjection(row.getEmbedding(), k, -1.0));
+            exactNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Set<Long> twoPhase = idsOf(executeIndexSearch(vector, row.getEmbedding(), k, -1.0));
+            twoPhaseNanos += System.nanoTime() - start;
+
+            Set<Long> indexOnly = new HashSet<>();
+            vectorIndexService.findNearest(vector, k).forEach(n -> indexOnly.add(n.id()));
+
+            twoPhase.retainAll(expected);
+            indexOnly.retainAll(expected);
+            exactHits += twoPhase.size();
+            indexHits += indexOnly.size();
+            expectedTotal += expected.size();
+        }
+
+        int measured = queries.size();
+        report.put("samples", measured);
+        report.put("k", k);
+        report.put("oversampling", oversampling);
+        report.put("recall", expectedTotal == 0 ? null : exactHits / (double) expectedTotal);
+        report.put("indexOnlyRecall", expectedTotal == 0 ? null : indexHits / (double) expectedTotal);
+        report.put("exactAvgMs", measured == 0 ? null : exactNanos / 1_000_000.0 / measured);
+        report.put("twoPhaseAvgMs", measured == 0 ? null : twoPhaseNanos / 1_000_000.0 / measured);
+        report.put("index", vectorIndexService.getStats());
+        return report;
+    }
+
+    private static Set<Long> idsOf(List<ChunkSearchResult> results) {
+        Set<Long> ids = new HashSet<>();
+        results.forEach(r -> ids.add(r.getId()));
+        return ids;
+    }
+
     private List<SearchResultDto> mapToSearchResults(List<ChunkSearchResult> results) {
         return results.stream()
                 .map(this::mapToSearchResult)
@@ -87,6 +213,7 @@ public class SemanticSearchService {
                 .metadata(parseMetadata(result.getMetadata()))
                 .createdAt(result.getCreatedAt())
                 .similarity(result.getSimilarity())
+                .minHash(result.getMinHash())
                 .build();
     }
 
@@ -0,0 +1,334 @@
+package de.jivz.rag.service;
+
+import de.jivz.rag.dto.DocumentDto;
+import de.jivz.rag.exception.DocumentProcessingException;
+import de.jivz.rag.repository.DocumentChunkBatchWriter;
+import de.jivz.rag.repository.DocumentChunkBatchWriter.ChunkRow;
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.entity.Document;
+import de.jivz.rag.repository.entity.Document.DocumentStatus;
+import de.jivz.rag.service.cache.ChunkEmbeddingStore;
+import de.jivz.rag.service.ingestion.IngestionProgressListener;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Потоковая загрузка документов.
+ *
+ * Единственная ответственность (SRP):
+ * Конвейер parse → chunk → embed → persist с ограниченными очередями между стадиями.
+ *
+ * Стадии работают в отдельных виртуальных потоках и перекрываются во времени:
+ * 1. Парсер отдаёт текст фрагментами в StreamingChunker, чанки уходят в chunkQueue
+ * 2. Эмбеддинг забирает окно чанков и передаёт его в ChunkEmbeddingStore
+ *    (неизменённые чанки берутся по content_hash, новые — через EmbeddingService)
+ * 3. Запись сохраняет каждое окно через DocumentChunkBatchWriter (COPY)
+ *
+ * Память ограничена ёмкостью очередей и окном эмбеддинга, а не размером документа.
+ * Чанки пишутся вне общей транзакции: при ошибке уже записанные чанки удаляются,
+ * документ переводится в ERROR. При отмене (IngestionProgressListener#isCancelled)
+ * документ удаляется целиком и выбрасывается CancellationException.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StreamingIngestionService {
+
+    private final DocumentUploadService uploadService;
+    private final DocumentParserService parserService;
+    private final ChunkingService chunkingService;
+    private final ChunkEmbeddingStore embeddingStore;
+    private final DocumentChunkBatchWriter chunkBatchWriter;
+    private final DocumentChunkRepository chunkRepository;
+    private final DocumentManagementService documentService;
+
+    /**
+     * Максимум чанков, ожидающих эмбеддинга.
+     */
+    @Value("${rag.ingestion.streaming.chunk-queue-capacity:256}")
+    private int chunkQueueCapacity;
+
+    /**
+     * Чанков в одном вызове EmbeddingService (и в одной записи COPY).
+     */
+    @Value("${rag.ingestion.streaming.embedding-window:80}")
+    private int embeddingWindow;
+
+    /**
+     * Максимум окон с эмбеддингами, ожидающих записи.
+     */
+    @Value("${rag.ingestion.streaming.persist-queue-capacity:2}")
+    private int persistQueueCapacity;
+
+    private record ChunkItem(int index, String text) {
+        static final ChunkItem END = new ChunkItem(-1, null);
+    }
+
+    private record EmbeddedBatch(List<ChunkRow> rows) {
+        static final EmbeddedBatch END = new EmbeddedBatch(List.of());
+    }
+
+    private static final class EmbeddingCounts {
+        final AtomicInteger reused = new AtomicInteger();
+        final AtomicInteger generated = new AtomicInteger();
+    }
+
+    /**
+     * Загружает документ в потоковом режиме.
+     *
+     * @param file         загружаемый файл
+     * @param metadataJson метаданные в формате JSON-строки (может быть null)
+     * @return DTO загруженного документа
+     */
+    public DocumentDto uploadDocument(MultipartFile file, String metadataJson) throws IOException {
+        return uploadDocument(file, metadataJson, IngestionProgressListener.NONE);
+    }
+
+    /**
+     * Загружает документ в потоковом режиме с отчётом о прогрессе.
+     *
+     * @param file         загружаемый файл
+     * @param metadataJson метаданные в формате JSON-строки (может быть null)
+     * @param listener     наблюдатель прогресса и источник отмены
+     * @return DTO загруженного документа
+     * @throws CancellationException если загрузка отменена через listener
+     */
+    public DocumentDto uploadDocument(MultipartFile file, String metadataJson,
+                                      IngestionProgressListener listener) throws IOException {
+        String fileName = file.getOriginalFilename();
+        log.info("🌊 Streaming upload: {} with metadata: {}", fileName, metadataJson);
+
+        Document document = uploadService.createDocumentRecord(file, uploadService.parseMetadata(metadataJson));
+        listener.onDocumentCreated(document.getId());
+        long startTime = System.currentTimeMillis();
+
+        try {
+            uploadService.updateStatus(document, DocumentStatus.EMBEDDING);
+            int chunkCount = runPipeline(file, document, listener);
+
+            chunkRepository.updateTotalChunks(document.getId(), chunkCount);
+            uploadService.finalizeDocument(document, chunkCount);
+
+            log.info("🌊 Streaming upload finished: {} ({} chunks) in {}ms",
+                    fileName, chunkCount, System.currentTimeMillis() - startTime);
+            return DocumentDto.fromEntity(document);
+        } catch (CancellationException e) {
+            log.info("🛑 Streaming upload cancelled: {} (document id={})", fileName, document.getId());
+            discardChunks(document);
+            documentService.deleteDocument(document.getId());
+            throw e;
+        } catch (Exception e) {
+            discardChunks(document);
+            uploadService.handleProcessingError(document, e);
+            throw new DocumentProcessingException("Failed to process document: " + fileName, e);
+        }
+    }
+
+    // ==================== Конвейер ====================
+
+    private int runPipeline(MultipartFile file, Document document,
+                            IngestionProgressListener listener) throws Exception {
+        BlockingQueue<ChunkItem> chunkQueue = new ArrayBlockingQueue<>(Math.max(1, chunkQueueCapacity));
+        BlockingQueue<EmbeddedBatch> persistQueue = new ArrayBlockingQueue<>(Math.max(1, persistQueueCapacity));
+        Stages stages = new Stages();
+        AtomicInteger written = new AtomicInteger();
+        EmbeddingCounts counts = new EmbeddingCounts();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            stages.submit(executor, () -> parseAndChunk(file, chunkQueue, listener));
+            stages.submit(executor, () -> embed(document, chunkQueue, persistQueue, counts, listener));
+            stages.submit(executor, () -> persist(document, persistQueue, written, listener));
+            stages.await();
+        }
+
+        stages.throwIfFailed();
+        document.setEmbeddingsReused(counts.reused.get());
+        document.setEmbeddingsGenerated(counts.generated.get());
+        return written.get();
+    }
+
+    /**
+     * Стадия 1: текст из парсера → StreamingChunker → chunkQueue.
+     */
+    private void parseAndChunk(MultipartFile file, BlockingQueue<ChunkItem> chunkQueue,
+                               IngestionProgressListener listener) throws Exception {
+        AtomicInteger index = new AtomicInteger();
+        ChunkingService.StreamingChunker chunker = chunkingService.streamingChunker(chunk -> {
+            put(chunkQueue, new ChunkItem(index.getAndIncrement(), chunk));
+            listener.onChunksProduced(index.get());
+        });
+
+        parserService.streamText(file, chunker::append);
+        chunker.finish();
+        listener.onParsingFinished(chunker.getChunkCount());
+        chunkQueue.put(ChunkItem.END);
+    }
+
+    /**
+     * Стадия 2: окно чанков → эмбеддинги → persistQueue.
+     */
+    private void embed(Document document,
+                       BlockingQueue<ChunkItem> chunkQueue,
+                       BlockingQueue<EmbeddedBatch> persistQueue,
+                       EmbeddingCounts counts,
+                       IngestionProgressListener listener) throws InterruptedException {
+        int window = Math.max(1, embeddingWindow);
+        List<ChunkItem> pending = new ArrayList<>(window);
+        int embedded = 0;
+
+        while (true) {
+            ChunkItem item = chunkQueue.take();
+            if (item == ChunkItem.END) {
+                break;
+            }
+            pending.add(item);
+            if (pending.size() >= window) {
+                persistQueue.put(embedWindow(document, pending, counts, listener));
+                embedded += pending.size();
+                listener.onChunksEmbedded(embedded);
+                pending = new ArrayList<>(window);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            persistQueue.put(embedWindow(document, pending, counts, listener));
+            listener.onChunksEmbedded(embedded + pending.size());
+        }
+        persistQueue.put(EmbeddedBatch.END);
+    }
+
+    private EmbeddedBatch embedWindow(Document document, List<ChunkItem> items,
+                                      EmbeddingCounts counts,
+                                      IngestionProgressListener listener) {
+        if (listener.isCancelled()) {
+            throw new CancellationException("Ingestion cancelled");
+        }
+        List<String> texts = items.stream().map(ChunkItem::text).toList();
+        ChunkEmbeddingStore.Resolution resolution = embeddingStore.resolve(texts);
+        counts.reused.addAndGet(resolution.reused());
+        counts.generated.addAndGet(resolution.generated());
+
+        List<ChunkRow> rows = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ChunkItem item = items.get(i);
+            rows.add(uploadService.buildChunkRow(document, item.index(), item.text(),
+                    resolution.embeddings().get(i), resolution.contentHashes().get(i), null));
+        }
+        return new EmbeddedBatch(rows);
+    }
+
+    /**
+     * Стадия 3: запись окон в document_chunks.
+     */
+    private void persist(Document document,
+                         BlockingQueue<EmbeddedBatch> persistQueue,
+                         AtomicInteger written,
+                         IngestionProgressListener listener) throws InterruptedException {
+        while (true) {
+            EmbeddedBatch batch = persistQueue.take();
+            if (batch == EmbeddedBatch.END) {
+                return;
+            }
+            int count = chunkBatchWriter.writeChunks(batch.rows());
+            int total = written.addAndGet(count);
+            listener.onChunksPersisted(total);
+            log.debug("🌊 Persisted {} chunks of document id={} (total {})",
+                    count, document.getId(), total);
+        }
+    }
+
+    private void discardChunks(Document document) {
+        try {
+            chunkRepository.deleteByDocumentId(document.getId());
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to discard partial chunks of document id={}: {}",
+                    document.getId(), e.getMessage());
+        }
+    }
+
+    private static <T> void put(BlockingQueue<T> queue, T item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Streaming ingestion cancelled");
+        }
+    }
+
+    /**
+     * Стадии конвейера: первая ошибка отменяет остальные,
+     * чтобы они не остались заблокированными на очередях.
+     */
+    private static final class Stages {
+
+        private final List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        interface Stage {
+            void run() throws Exception;
+        }
+
+        void submit(ExecutorService executor, Stage stage) {
+            futures.add(executor.submit(() -> {
+                try {
+                    stage.run();
+                } catch (Throwable t) {
+                    fail(t);
+                }
+            }));
+            if (failure.get() != null) {
+                cancelAll();
+            }
+        }
+
+        void await() throws InterruptedException {
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (CancellationException | ExecutionException ignored) {
+                    // причина сохранена в failure
+                } catch (InterruptedException e) {
+                    cancelAll();
+                    throw e;
+                }
+            }
+        }
+
+        void throwIfFailed() throws Exception {
+            Throwable t = failure.get();
+            if (t instanceof Exception e) {
+                throw e;
+            }
+            if (t instanceof Error error) {
+                throw error;
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (failure.compareAndSet(null, t)) {
+                cancelAll();
+            }
+        }
+
+        private void cancelAll() {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+}
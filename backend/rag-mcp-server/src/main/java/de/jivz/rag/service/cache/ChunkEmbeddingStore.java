@@ -0,0 +1,161 @@
+package de.jivz.rag.service.cache;
+
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.entity.ChunkHashEmbeddingRow;
+import de.jivz.rag.service.EmbeddingService;
+import de.jivz.rag.service.vector.VectorIndexService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed хранилище эмбеддингов чанков.
+ *
+ * Единственная ответственность (SRP):
+ * Выдать эмбеддинги для списка чанков, генерируя через API только новые или изменённые.
+ *
+ * Ключ — content_hash = SHA-256(модель | размерность | document instruction | текст чанка).
+ * Хранилищем служит сама таблица document_chunks: эмбеддинг с тем же хэшем
+ * переиспользуется из любого документа. Повторная загрузка документа
+ * (или загрузка после смены настроек ChunkingService) эмбеддит только чанки,
+ * текст которых ещё не встречался. Одинаковые чанки внутри одного вызова
+ * эмбеддятся один раз. Смена модели или instruction меняет хэш — старые
+ * эмбеддинги не переиспользуются.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ChunkEmbeddingStore {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final DocumentChunkRepository chunkRepository;
+    private final EmbeddingService embeddingService;
+
+    /**
+     * Искать готовые эмбеддинги по content_hash (false — всегда генерировать заново).
+     */
+    @Value("${rag.embedding.reuse.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Максимум хэшей в одном запросе поиска.
+     */
+    @Value("${rag.embedding.reuse.lookup-batch-size:500}")
+    private int lookupBatchSize;
+
+    /**
+     * Результат: эмбеддинги и хэши в порядке входных текстов.
+     *
+     * @param reused    чанков, для которых эмбеддинг не запрашивался у API
+     * @param generated эмбеддингов, сгенерированных через API
+     */
+    public record Resolution(
+            List<float[]> embeddings,
+            List<String> contentHashes,
+            int reused,
+            int generated
+    ) {
+        static final Resolution EMPTY = new Resolution(List.of(), List.of(), 0, 0);
+    }
+
+    /**
+     * Возвращает эмбеддинги для текстов чанков, переиспользуя сохранённые.
+     *
+     * @param texts тексты чанков
+     * @return эмбеддинги (null, если API не вернул эмбеддинг) и content_hash каждого чанка
+     */
+    public Resolution resolve(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            return Resolution.EMPTY;
+        }
+
+        String signature = embeddingService.getDocumentEmbeddingSignature();
+        List<String> hashes = texts.stream()
+                .map(text -> contentHash(signature, text))
+                .toList();
+
+        Map<String, float[]> known = enabled
+                ? lookup(new LinkedHashSet<>(hashes))
+                : new HashMap<>();
+
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            if (!known.containsKey(hashes.get(i))) {
+                missing.putIfAbsent(hashes.get(i), texts.get(i));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<float[]> generated = embeddingService.generateEmbeddings(new ArrayList<>(missing.values()));
+            int index = 0;
+            for (String hash : missing.keySet()) {
+                if (index < generated.size() && generated.get(index) != null) {
+                    known.put(hash, generated.get(index));
+                }
+                index++;
+            }
+        }
+
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (String hash : hashes) {
+            embeddings.add(known.get(hash));
+        }
+
+        int reused = texts.size() - missing.size();
+        log.debug("♻️ Chunk embeddings: {} reused, {} generated ({} chunks)",
+                reused, missing.size(), texts.size());
+        return new Resolution(embeddings, hashes, reused, missing.size());
+    }
+
+    /**
+     * content_hash чанка: SHA-256 от сигнатуры эмбеддинга и текста (hex, 64 символа).
+     */
+    public static String contentHash(String signature, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(signature.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            return HEX.formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // ==================== Внутренние методы ====================
+
+    private Map<String, float[]> lookup(LinkedHashSet<String> hashes) {
+        Map<String, float[]> found = new HashMap<>();
+        List<String> all = new ArrayList<>(hashes);
+        int pageSize = Math.max(1, lookupBatchSize);
+
+        try {
+            for (int from = 0; from < all.size(); from += pageSize) {
+                List<String> page = all.subList(from, Math.min(all.size(), from + pageSize));
+                for (ChunkHashEmbeddingRow row : chunkRepository.findEmbeddingsByContentHashes(page)) {
+                    float[] vector = VectorIndexService.parseVector(row.getEmbedding());
+                    if (vector != null && vector.length > 0) {
+                        found.put(row.getContentHash(), vector);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Embedding reuse lookup failed, generating all embeddings: {}", e.getMessage());
+            return new HashMap<>();
+        }
+        return found;
+    }
+}
@@ -0,0 +1,57 @@
+package de.jivz.rag.service.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версия корпуса документов.
+ *
+ * Единственная ответственность (SRP):
+ * Монотонный счётчик, который увеличивается при каждом изменении корпуса
+ * (загрузка, удаление, смена метаданных документа). Входит в ключ
+ * SearchResultCache, поэтому результаты, посчитанные до изменения, больше не выдаются.
+ *
+ * Счётчик живёт в памяти процесса: изменения, сделанные другим инстансом,
+ * он не видит (для этого у кэша есть TTL).
+ */
+@Service
+@Slf4j
+public class CorpusVersionService {
+
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Текущая версия корпуса.
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Увеличивает версию после коммита текущей транзакции
+     * (до коммита новые данные ещё не видны поиску и не должны попасть в кэш под новой версией).
+     *
+     * @param reason причина изменения (для лога)
+     */
+    public void bumpAfterCommit(String reason) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(reason);
+                }
+            });
+        } else {
+            bump(reason);
+        }
+    }
+
+    private void bump(String reason) {
+        long next = version.incrementAndGet();
+        log.debug("📚 Corpus version {} ({})", next, reason);
+    }
+}
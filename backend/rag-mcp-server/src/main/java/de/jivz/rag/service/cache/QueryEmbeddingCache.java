@@ -0,0 +1,298 @@
+package de.jivz.rag.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import de.jivz.rag.service.EmbeddingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Кэш эмбеддингов поисковых запросов.
+ *
+ * Единственная ответственность (SRP):
+ * Избежать повторного запроса к OpenRouter для одинаковых запросов
+ * (support/team ассистенты часто повторяют одни и те же вопросы).
+ *
+ * - Ключ: сигнатура модели (EmbeddingService#getQueryEmbeddingSignature) + нормализованный запрос
+ *   (NFKC, lower case, схлопнутые пробелы)
+ * - Значение: float[] (~4 байта на измерение), вес записи считается в байтах
+ * - Вытеснение: по суммарному размеру (max-size-mb) и TTL от момента генерации
+ * - Метрики: hit/miss/eviction через Micrometer (cache=rag.query-embedding) и getStats()
+ * - Опционально: снимок на диск (persist-path), загружается при старте
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class QueryEmbeddingCache {
+
+    static final String CACHE_NAME = "rag.query-embedding";
+
+    private static final int FILE_MAGIC = 0x52514543; // "RQEC"
+    private static final int FILE_VERSION = 1;
+    private static final int MAX_QUERY_CHARS = 4096;
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+    private static final char NAMESPACE_SEPARATOR = '\n';
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingService embeddingService;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Value("${rag.embedding.query-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.embedding.query-cache.max-size-mb:64}")
+    private long maxSizeMb;
+
+    @Value("${rag.embedding.query-cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    /**
+     * Файл снимка кэша; пусто — без сохранения на диск.
+     */
+    @Value("${rag.embedding.query-cache.persist-path:}")
+    private String persistPath;
+
+    private Cache<String, CachedEmbedding> cache;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    /**
+     * Эмбеддинг и время его генерации (TTL не продлевается при загрузке снимка).
+     */
+    private record CachedEmbedding(float[] vector, long createdAtMillis) {
+    }
+
+    @PostConstruct
+    void init() {
+        long ttlNanos = TimeUnit.MINUTES.toNanos(Math.max(1, ttlMinutes));
+
+        cache = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, maxSizeMb) * 1024 * 1024)
+                .weigher((String key, CachedEmbedding value) ->
+                        key.length() * 2 + value.vector().length * Float.BYTES + ENTRY_OVERHEAD_BYTES)
+                .expireAfter(new Expiry<String, CachedEmbedding>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedEmbedding value, long currentTime) {
+                        long ageNanos = TimeUnit.MILLISECONDS.toNanos(
+                                System.currentTimeMillis() - value.createdAtMillis());
+                        return Math.max(0, ttlNanos - ageNanos);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedEmbedding value,
+                                                  long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedEmbedding value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        }
+
+        if (enabled) {
+            loadSnapshot();
+        }
+        log.info("🗄️ Query embedding cache: enabled={}, maxSize={}MB, ttl={}min, persist={}",
+                enabled, maxSizeMb, ttlMinutes, persistPath.isBlank() ? "off" : persistPath);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        saveSnapshot();
+    }
+
+    /**
+     * Возвращает эмбеддинг запроса из кэша или генерирует его через EmbeddingService.
+     * Неудачная генерация (null) не кэшируется.
+     *
+     * @param query текст поискового запроса
+     * @return эмбеддинг (копия, можно изменять) или null
+     */
+    public float[] getEmbedding(String query) {
+        if (!enabled || query == null || query.length() > MAX_QUERY_CHARS) {
+            return embeddingService.generateEmbedding(query);
+        }
+
+        String key = cacheKey(query);
+        CachedEmbedding cached = cache.getIfPresent(key);
+        if (cached != null) {
+            log.debug("🗄️ Query embedding cache hit");
+            return cached.vector().clone();
+        }
+
+        float[] embedding = embeddingService.generateEmbedding(query);
+        if (embedding != null) {
+            cache.put(key, new CachedEmbedding(embedding.clone(), System.currentTimeMillis()));
+            dirty.set(true);
+        }
+        return embedding;
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+        dirty.set(true);
+    }
+
+    /**
+     * Статистика кэша для диагностики.
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", cache.estimatedSize());
+        cache.policy().eviction().ifPresent(eviction -> eviction.weightedSize().ifPresent(
+                bytes -> result.put("sizeMb", String.format(Locale.ROOT, "%.2f", bytes / (1024.0 * 1024.0)))));
+        result.put("maxSizeMb", maxSizeMb);
+        result.put("ttlMinutes", ttlMinutes);
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("persistPath", persistPath.isBlank() ? null : persistPath);
+        return result;
+    }
+
+    /**
+     * Периодический снимок на диск (только если были изменения).
+     */
+    @Scheduled(fixedDelayString = "${rag.embedding.query-cache.snapshot-interval-ms:300000}",
+            initialDelayString = "${rag.embedding.query-cache.snapshot-interval-ms:300000}")
+    public void scheduledSnapshot() {
+        saveSnapshot();
+    }
+
+    /**
+     * Нормализация запроса: одинаковые по смыслу варианты написания дают один ключ.
+     */
+    public static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(normalized.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private String cacheKey(String query) {
+        return namespace() + normalize(query);
+    }
+
+    private String namespace() {
+        return embeddingService.getQueryEmbeddingSignature() + NAMESPACE_SEPARATOR;
+    }
+
+    // ==================== Снимок на диск ====================
+
+    /**
+     * Формат: magic, version, count, затем записи (key UTF, createdAt, dim, float × dim).
+     * Пишется во временный файл и атомарно переименовывается.
+     */
+    void saveSnapshot() {
+        if (!enabled || persistPath.isBlank() || !dirty.getAndSet(false)) {
+            return;
+        }
+
+        Path target = Path.of(persistPath);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<Map.Entry<String, CachedEmbedding>> entries = new ArrayList<>(cache.asMap().entrySet());
+
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, CachedEmbedding> entry : entries) {
+                    float[] vector = entry.getValue().vector();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().createdAtMillis());
+                    out.writeInt(vector.length);
+                    for (float v : vector) {
+                        out.writeFloat(v);
+                    }
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("🗄️ Saved {} query embeddings to {}", entries.size(), target);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("⚠️ Failed to save query embedding cache: {}", e.getMessage());
+        }
+    }
+
+    private void loadSnapshot() {
+        if (persistPath.isBlank()) {
+            return;
+        }
+        Path source = Path.of(persistPath);
+        if (!Files.exists(source)) {
+            return;
+        }
+
+        String namespace = namespace();
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(ttlMinutes);
+        int loaded = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(source)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                log.warn("⚠️ Unsupported query embedding cache file {}, ignoring", source);
+                return;
+            }
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long createdAt = in.readLong();
+                float[] vector = new float[in.readInt()];
+                for (int d = 0; d < vector.length; d++) {
+                    vector[d] = in.readFloat();
+                }
+                // другая модель/настройки или истёкший TTL — запись бесполезна
+                if (key.startsWith(namespace) && createdAt > expiredBefore) {
+                    cache.put(key, new CachedEmbedding(vector, createdAt));
+                    loaded++;
+                }
+            }
+            log.info("🗄️ Loaded {} query embeddings from {}", loaded, source);
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to load query embedding cache from {}: {}", source, e.getMessage());
+        }
+    }
+}
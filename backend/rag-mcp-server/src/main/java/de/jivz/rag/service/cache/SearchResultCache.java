@@ -0,0 +1,198 @@
+package de.jivz.rag.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов поиска (гибридный поиск и полный pipeline).
+ *
+ * Единственная ответственность (SRP):
+ * Не пересчитывать семантический поиск, FTS, объединение, реранкинг и финализацию
+ * для запросов, которые агенты повторяют в рамках одного диалога.
+ *
+ * - Ключ: область (semantic/hybrid/pipeline) + нормализованный запрос + параметры поиска + версия корпуса
+ * - Версия корпуса (CorpusVersionService) меняется при загрузке/удалении документов,
+ *   поэтому устаревшие результаты не выдаются; старые записи вытесняются по размеру/TTL
+ * - Значение хранится вместе с временем вычисления — это и есть сэкономленная задержка при hit
+ * - Неполные результаты (этап поиска упал или не уложился в таймаут) не кэшируются
+ * - Метрики: hit/miss/eviction через Micrometer (cache=rag.search-result) и getStats()
+ *
+ * Закэшированные значения разделяются между запросами и не должны изменяться вызывающим кодом.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SearchResultCache {
+
+    static final String CACHE_NAME = "rag.search-result";
+
+    private static final int MAX_QUERY_CHARS = 4096;
+
+    private final CorpusVersionService corpusVersionService;
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Value("${rag.search.result-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.search.result-cache.max-entries:1000}")
+    private long maxEntries;
+
+    @Value("${rag.search.result-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    private Cache<Key, Entry> cache;
+    private final LongAdder savedMs = new LongAdder();
+
+    private record Key(String scope, String query, String config, long corpusVersion) {
+    }
+
+    private record Entry(Object value, long computeMs) {
+    }
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxEntries))
+                .expireAfterWrite(Duration.ofMinutes(Math.max(1, ttlMinutes)))
+                .recordStats()
+                .build();
+
+        MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        }
+        log.info("🗄️ Search result cache: enabled={}, maxEntries={}, ttl={}min",
+                enabled, maxEntries, ttlMinutes);
+    }
+
+    /**
+     * Возвращает результат из кэша или вычисляет его через loader.
+     * Пустой результат (null) не кэшируется.
+     *
+     * @param scope область кэша (например, "hybrid" или "pipeline")
+     * @param query поисковый запрос (нормализуется)
+     * @param config параметры поиска, влияющие на результат, в виде стабильной строки
+     * @param loader вычисление результата при промахе
+     * @return результат и сведения о попадании для debug информации
+     */
+    public <T> Lookup<T> get(String scope, String query, String config, Supplier<T> loader) {
+        return get(scope, query, config, loader, value -> true);
+    }
+
+    /**
+     * Возвращает результат из кэша или вычисляет его через loader.
+     * Вычисленный результат сохраняется, только если он не null и проходит проверку cacheable —
+     * например, деградированный ответ после таймаута этапа поиска возвращается, но не кэшируется.
+     *
+     * @param scope область кэша (например, "hybrid" или "pipeline")
+     * @param query поисковый запрос (нормализуется)
+     * @param config параметры поиска, влияющие на результат, в виде стабильной строки
+     * @param loader вычисление результата при промахе
+     * @param cacheable можно ли сохранить вычисленный результат
+     * @return результат и сведения о попадании для debug информации
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Lookup<T> get(String scope, String query, String config, Supplier<T> loader,
+                             Predicate<? super T> cacheable) {
+        long corpusVersion = corpusVersionService.current();
+        if (!enabled || query == null || query.length() > MAX_QUERY_CHARS) {
+            return new Lookup<>(loader.get(), Status.BYPASS, 0, corpusVersion, 0.0);
+        }
+
+        Key key = new Key(scope, QueryEmbeddingCache.normalize(query), config, corpusVersion);
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            savedMs.add(cached.computeMs());
+            log.debug("🗄️ Search result cache hit: scope={}, saved {}ms", scope, cached.computeMs());
+            return new Lookup<>((T) cached.value(), Status.HIT, cached.computeMs(),
+                    corpusVersion, cache.stats().hitRate());
+        }
+
+        long start = System.nanoTime();
+        T value = loader.get();
+        long computeMs = (System.nanoTime() - start) / 1_000_000;
+        if (value != null && cacheable.test(value)) {
+            cache.put(key, new Entry(value, computeMs));
+        } else if (value != null) {
+            log.debug("🗄️ Search result not cached: scope={}, result is incomplete", scope);
+        }
+        return new Lookup<>(value, Status.MISS, 0, corpusVersion, cache.stats().hitRate());
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Статистика кэша для диагностики.
+     */
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("entries", cache.estimatedSize());
+        result.put("maxEntries", maxEntries);
+        result.put("ttlMinutes", ttlMinutes);
+        result.put("corpusVersion", corpusVersionService.current());
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictions", stats.evictionCount());
+        result.put("savedMs", savedMs.sum());
+        return result;
+    }
+
+    public enum Status {
+        HIT, MISS, BYPASS
+    }
+
+    /**
+     * Результат обращения к кэшу.
+     *
+     * @param value результат поиска
+     * @param status hit/miss/bypass (кэш выключен или запрос не кэшируется)
+     * @param savedMs время исходного вычисления, сэкономленное при hit
+     * @param corpusVersion версия корпуса, для которой получен результат
+     * @param hitRate доля попаданий кэша с момента старта
+     */
+    public record Lookup<T>(T value, Status status, long savedMs, long corpusVersion, double hitRate) {
+
+        /**
+         * Тот же результат обращения с преобразованным значением.
+         */
+        public <R> Lookup<R> map(Function<? super T, ? extends R> mapper) {
+            return new Lookup<>(value != null ? mapper.apply(value) : null,
+                    status, savedMs, corpusVersion, hitRate);
+        }
+
+        /**
+         * Debug информация для ответа поиска.
+         */
+        public Map<String, Object> toDebugInfo() {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("status", status.name().toLowerCase(Locale.ROOT));
+            info.put("savedMs", savedMs);
+            info.put("corpusVersion", corpusVersion);
+            info.put("hitRate", hitRate);
+            return info;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package de.jivz.rag.service.dedup;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash отпечаток текста чанка.
+ *
+ * Множество признаков — слова текста в нижнем регистре, разделённые пробельными символами
+ * (как в прежнем попарном Jaccard в FinalSearchResultService). Доля совпадающих позиций
+ * двух сигнатур — несмещённая оценка Jaccard similarity этих множеств
+ * (стандартная ошибка ≈ sqrt(J(1-J)/128), т.е. ~0.02 при J=0.95).
+ *
+ * Сигнатура считается один раз при загрузке и хранится в document_chunks.minhash
+ * (128 × int4 = 512 байт). Токенизация выполняется без промежуточных строк и коллекций.
+ */
+public final class MinHash {
+
+    /**
+     * Количество хэш-функций (длина сигнатуры).
+     */
+    public static final int NUM_HASHES = 128;
+
+    public static final int SIGNATURE_BYTES = NUM_HASHES * Integer.BYTES;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long[] MULTIPLIERS = new long[NUM_HASHES];
+    private static final long[] INCREMENTS = new long[NUM_HASHES];
+
+    static {
+        // Фиксированный seed: сигнатуры должны совпадать между перезапусками и инстансами
+        SplittableRandom random = new SplittableRandom(0x5EEDL);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            MULTIPLIERS[i] = random.nextLong() | 1L;
+            INCREMENTS[i] = random.nextLong();
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * Считает сигнатуру текста.
+     *
+     * @param text текст чанка (null — как пустой)
+     * @return сигнатура из {@link #NUM_HASHES} значений
+     */
+    public static int[] signature(String text) {
+        long[] minima = new long[NUM_HASHES];
+        Arrays.fill(minima, Long.MAX_VALUE);
+
+        if (text != null) {
+            long tokenHash = FNV_OFFSET;
+            boolean inToken = false;
+            for (int i = 0, length = text.length(); i < length; i++) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    if (inToken) {
+                        addToken(minima, tokenHash);
+                        tokenHash = FNV_OFFSET;
+                        inToken = false;
+                    }
+                } else {
+                    tokenHash = (tokenHash ^ Character.toLowerCase(c)) * FNV_PRIME;
+                    inToken = true;
+                }
+            }
+            if (inToken) {
+                addToken(minima, tokenHash);
+            }
+        }
+
+        int[] signature = new int[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            signature[i] = (int) (minima[i] >>> 31);
+        }
+        return signature;
+    }
+
+    /**
+     * Оценка Jaccard similarity по двум сигнатурам (доля совпавших позиций).
+     */
+    public static double similarity(int[] a, int[] b) {
+        int matches = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                matches++;
+            }
+        }
+        return matches / (double) NUM_HASHES;
+    }
+
+    /**
+     * Сериализация сигнатуры для колонки bytea (big-endian int4).
+     */
+    public static byte[] toBytes(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(SIGNATURE_BYTES);
+        for (int value : signature) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Десериализация сигнатуры из bytea.
+     *
+     * @return сигнатура или null, если длина не совпадает (другая версия формата)
+     */
+    public static int[] fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != SIGNATURE_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int[] signature = new int[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            signature[i] = buffer.getInt();
+        }
+        return signature;
+    }
+
+    private static void addToken(long[] minima, long tokenHash) {
+        long token = mix(tokenHash);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            // Неотрицательное 63-битное значение: сравнение со знаком корректно
+            long value = mix(token * MULTIPLIERS[i] + INCREMENTS[i]) >>> 1;
+            if (value < minima[i]) {
+                minima[i] = value;
+            }
+        }
+    }
+
+    /**
+     * Финализатор SplitMix64: хорошее перемешивание битов для линейных хэшей.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
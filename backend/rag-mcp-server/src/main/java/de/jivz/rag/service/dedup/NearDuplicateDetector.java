@@ -0,0 +1,97 @@
+package de.jivz.rag.service.dedup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск почти-дубликатов через LSH по MinHash сигнатурам.
+ *
+ * Сигнатура делится на bands полос по rows значений; кандидаты — тексты,
+ * совпавшие хотя бы в одной полосе. Только кандидаты сравниваются по сигнатуре,
+ * поэтому дедупликация n результатов почти линейна вместо O(n²).
+ *
+ * rows подбирается под порог: наибольшее значение, при котором пара с
+ * similarity = threshold становится кандидатом с вероятностью ≥ 99.5%.
+ * Экземпляр не потокобезопасен и используется в рамках одного вызова.
+ */
+public class NearDuplicateDetector {
+
+    private static final int[] ROW_OPTIONS = {32, 16, 8, 4, 2, 1};
+    private static final double MIN_CANDIDATE_PROBABILITY = 0.995;
+
+    private final double threshold;
+    private final int rows;
+    private final int bands;
+    private final List<int[]> kept = new ArrayList<>();
+    private final List<Map<Long, List<Integer>>> buckets;
+
+    /**
+     * @param threshold минимальная оценка Jaccard similarity для дубликата (0.0 - 1.0)
+     */
+    public NearDuplicateDetector(double threshold) {
+        this.threshold = threshold;
+        this.rows = chooseRows(threshold);
+        this.bands = MinHash.NUM_HASHES / rows;
+        this.buckets = new ArrayList<>(bands);
+        for (int band = 0; band < bands; band++) {
+            buckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Добавляет сигнатуру, если среди уже добавленных нет похожей.
+     *
+     * @param signature MinHash сигнатура текста
+     * @return true — текст уникален и добавлен, false — найден почти-дубликат
+     */
+    public boolean addIfUnique(int[] signature) {
+        if (threshold <= 0.0 && !kept.isEmpty()) {
+            return false;
+        }
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            keys[band] = bandKey(signature, band);
+            List<Integer> candidates = buckets.get(band).get(keys[band]);
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (MinHash.similarity(signature, kept.get(candidate)) >= threshold) {
+                    return false;
+                }
+            }
+        }
+
+        int id = kept.size();
+        kept.add(signature);
+        for (int band = 0; band < bands; band++) {
+            buckets.get(band).computeIfAbsent(keys[band], k -> new ArrayList<>(1)).add(id);
+        }
+        return true;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows, end = i + rows; i < end; i++) {
+            key = key * 0x9E3779B97F4A7C15L + signature[i];
+        }
+        return key;
+    }
+
+    private static int chooseRows(double threshold) {
+        for (int rows : ROW_OPTIONS) {
+            int bands = MinHash.NUM_HASHES / rows;
+            double probability = 1.0 - Math.pow(1.0 - Math.pow(threshold, rows), bands);
+            if (probability >= MIN_CANDIDATE_PROBABILITY) {
+                return rows;
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,80 @@
+package de.jivz.rag.service.ingestion;
+
+import de.jivz.rag.repository.entity.IngestionJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Опрос очереди ingestion_jobs.
+ *
+ * - pollQueue: пока есть свободные воркеры, захватывает задачи и отдаёт их IngestionJobWorker
+ * - requeueStaleJobs: возвращает в очередь задачи, воркер которых перестал слать heartbeat
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IngestionJobScheduler {
+
+    private static final String WORKER_ID = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final IngestionJobService jobService;
+    private final IngestionJobWorker worker;
+
+    @Value("${rag.ingestion.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.ingestion.jobs.stale-after-minutes:10}")
+    private long staleAfterMinutes;
+
+    @Scheduled(fixedDelayString = "${rag.ingestion.jobs.poll-interval-ms:1000}")
+    public void pollQueue() {
+        if (!enabled) {
+            return;
+        }
+
+        while (worker.tryReserveSlot()) {
+            Optional<IngestionJob> job;
+            try {
+                job = jobService.claimNext(WORKER_ID);
+            } catch (Exception e) {
+                worker.releaseSlot();
+                log.warn("⚠️ Failed to poll ingestion queue: {}", e.getMessage());
+                return;
+            }
+
+            if (job.isEmpty()) {
+                worker.releaseSlot();
+                return;
+            }
+
+            try {
+                worker.process(job.get());
+            } catch (TaskRejectedException e) {
+                // задача останется RUNNING и вернётся в очередь через requeueStaleJobs
+                worker.releaseSlot();
+                log.warn("⚠️ Ingestion executor rejected job id={}: {}", job.get().getId(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rag.ingestion.jobs.recovery-interval-ms:60000}")
+    public void requeueStaleJobs() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jobService.requeueStale(Duration.ofMinutes(staleAfterMinutes));
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to requeue stale ingestion jobs: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package de.jivz.rag.service.ingestion;
+
+import de.jivz.rag.dto.IngestionJobDto;
+import de.jivz.rag.repository.IngestionJobRepository;
+import de.jivz.rag.repository.entity.IngestionJob;
+import de.jivz.rag.repository.entity.IngestionJob.JobStage;
+import de.jivz.rag.repository.entity.IngestionJob.JobStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Очередь задач асинхронной загрузки документов.
+ *
+ * Единственная ответственность (SRP):
+ * Жизненный цикл записей ingestion_jobs — постановка в очередь (файл в spool-директорию),
+ * захват воркером (FOR UPDATE SKIP LOCKED), завершение, отмена и возврат зависших задач.
+ *
+ * Spool-директория должна быть общей, если очередь обслуживают несколько инстансов.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IngestionJobService {
+
+    private static final int MAX_CLAIM_SKIPS = 10;
+
+    private final IngestionJobRepository jobRepository;
+
+    @Value("${rag.ingestion.jobs.spool-dir:${java.io.tmpdir}/rag-ingestion-spool}")
+    private String spoolDir;
+
+    @Value("${rag.ingestion.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${rag.ingestion.jobs.lease-seconds:60}")
+    private long leaseSeconds;
+
+    /**
+     * Сохраняет файл в spool-директорию и ставит задачу в очередь.
+     *
+     * @param file         загружаемый файл
+     * @param metadataJson метаданные в формате JSON-строки (может быть null)
+     * @return DTO созданной задачи (status=QUEUED)
+     */
+    public IngestionJobDto submit(MultipartFile file, String metadataJson) throws IOException {
+        Path directory = Path.of(spoolDir);
+        Files.createDirectories(directory);
+        Path spoolFile = directory.resolve(UUID.randomUUID() + ".upload");
+        file.transferTo(spoolFile);
+
+        try {
+            IngestionJob job = jobRepository.save(IngestionJob.builder()
+                    .fileName(file.getOriginalFilename())
+                    .contentType(file.getContentType())
+                    .fileSize(file.getSize())
+                    .spoolPath(spoolFile.toString())
+                    .metadata(metadataJson)
+                    .build());
+
+            log.info("📥 Queued ingestion job id={} for {} ({} bytes)",
+                    job.getId(), job.getFileName(), job.getFileSize());
+            return IngestionJobDto.fromEntity(job);
+        } catch (RuntimeException e) {
+            Files.deleteIfExists(spoolFile);
+            throw e;
+        }
+    }
+
+    public Optional<IngestionJobDto> getJob(Long id) {
+        return jobRepository.findById(id).map(IngestionJobDto::fromEntity);
+    }
+
+    /**
+     * Последние задачи (не более 50), опционально по статусу.
+     */
+    public List<IngestionJobDto> getJobs(JobStatus status) {
+        List<IngestionJob> jobs = status != null
+                ? jobRepository.findTop50ByStatusOrderByCreatedAtDesc(status)
+                : jobRepository.findTop50ByOrderByCreatedAtDesc();
+        return jobs.stream().map(IngestionJobDto::fromEntity).toList();
+    }
+
+    /**
+     * Отменяет задачу.
+     * QUEUED — сразу CANCELLED; RUNNING — выставляется флаг, воркер остановит
+     * конвейер при следующей проверке прогресса; завершённые задачи не меняются.
+     *
+     * Только условные UPDATE по статусу — отмена, гонящаяся с воркером,
+     * не перезаписывает его статус, аренду и прогресс.
+     */
+    @Transactional
+    public Optional<IngestionJobDto> cancel(Long id) {
+        boolean requested = jobRepository.requestCancel(id) > 0;
+        boolean cancelledQueued = requested
+                && jobRepository.cancelQueued(id, JobStatus.CANCELLED, LocalDateTime.now()) > 0;
+
+        return jobRepository.findById(id).map(job -> {
+            if (cancelledQueued) {
+                deleteSpoolFile(job);
+            }
+            if (requested) {
+                log.info("🛑 Cancel requested for ingestion job id={} (status={})", id, job.getStatus());
+            }
+            return IngestionJobDto.fromEntity(job);
+        });
+    }
+
+    /**
+     * Захватывает следующую задачу из очереди.
+     * Задачи, исчерпавшие max-attempts (воркер падал), переводятся в FAILED.
+     *
+     * @param workerId идентификатор воркера (для диагностики)
+     */
+    @Transactional
+    public Optional<IngestionJob> claimNext(String workerId) {
+        for (int i = 0; i < MAX_CLAIM_SKIPS; i++) {
+            Optional<IngestionJob> next = jobRepository.lockNextQueuedId().flatMap(jobRepository::findById);
+            if (next.isEmpty()) {
+                return Optional.empty();
+            }
+
+            IngestionJob job = next.get();
+            if (job.getAttempts() >= maxAttempts) {
+                job.setStatus(JobStatus.FAILED);
+                job.setErrorMessage("Exceeded max attempts (" + maxAttempts + ")");
+                job.setFinishedAt(LocalDateTime.now());
+                jobRepository.save(job);
+                deleteSpoolFile(job);
+                log.warn("⚠️ Ingestion job id={} failed after {} attempts", job.getId(), job.getAttempts());
+                continue;
+            }
+
+            job.setStatus(JobStatus.RUNNING);
+            job.setStage(JobStage.PARSING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setWorkerId(workerId);
+            job.setStartedAt(LocalDateTime.now());
+            job.setLeaseUntil(LocalDateTime.now().plusSeconds(leaseSeconds));
+            job.setChunksProduced(0);
+            job.setChunksTotal(null);
+            job.setChunksEmbedded(0);
+            job.setChunksPersisted(0);
+            return Optional.of(jobRepository.save(job));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Завершение задачи воркером. Срабатывает, только пока задача RUNNING и принадлежит
+     * этому воркеру; иначе (аренда потеряна, задача перезахвачена или отменена) — ничего не меняет.
+     *
+     * @return false — задача больше не принадлежит воркеру
+     */
+    public boolean markCompleted(IngestionJob job, Long documentId, int chunkCount) {
+        return finish(job, jobRepository.markCompleted(
+                job.getId(), job.getWorkerId(), JobStatus.COMPLETED, documentId, chunkCount, LocalDateTime.now()));
+    }
+
+    public boolean markFailed(IngestionJob job, String errorMessage) {
+        return finish(job, jobRepository.markFailed(
+                job.getId(), job.getWorkerId(), JobStatus.FAILED, errorMessage, LocalDateTime.now()));
+    }
+
+    public boolean markCancelled(IngestionJob job) {
+        return finish(job, jobRepository.markCancelled(
+                job.getId(), job.getWorkerId(), JobStatus.CANCELLED, LocalDateTime.now()));
+    }
+
+    /**
+     * Продлевает аренду задачи на lease-seconds.
+     *
+     * @return false — задача больше не принадлежит воркеру
+     */
+    public boolean renewLease(Long id, String workerId) {
+        return jobRepository.renewLease(id, workerId, LocalDateTime.now().plusSeconds(leaseSeconds)) > 0;
+    }
+
+    public long getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    /**
+     * Возвращает в очередь задачи с истёкшей арендой.
+     * staleAfter применяется только к задачам без аренды (захваченным до её появления).
+     */
+    public int requeueStale(Duration staleAfter) {
+        LocalDateTime now = LocalDateTime.now();
+        int requeued = jobRepository.requeueStale(now, now.minus(staleAfter));
+        if (requeued > 0) {
+            log.warn("⚠️ Requeued {} stale ingestion jobs", requeued);
+        }
+        return requeued;
+    }
+
+    private boolean finish(IngestionJob job, int updated) {
+        if (updated == 0) {
+            // Spool-файл теперь принадлежит новому владельцу задачи
+            log.warn("⚠️ Ingestion job id={} no longer owned by worker {}, result discarded",
+                    job.getId(), job.getWorkerId());
+            return false;
+        }
+        deleteSpoolFile(job);
+        return true;
+    }
+
+    private void deleteSpoolFile(IngestionJob job) {
+        try {
+            Files.deleteIfExists(Path.of(job.getSpoolPath()));
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to delete spool file {}: {}", job.getSpoolPath(), e.getMessage());
+        }
+    }
+}
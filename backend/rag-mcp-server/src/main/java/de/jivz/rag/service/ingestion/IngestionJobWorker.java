@@ -0,0 +1,158 @@
+package de.jivz.rag.service.ingestion;
+
+import de.jivz.rag.dto.DocumentDto;
+import de.jivz.rag.repository.IngestionJobRepository;
+import de.jivz.rag.repository.entity.IngestionJob;
+import de.jivz.rag.service.DocumentManagementService;
+import de.jivz.rag.service.StreamingIngestionService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Воркер очереди загрузки: выполняет захваченную задачу через потоковый конвейер.
+ *
+ * Число одновременно выполняемых задач ограничено rag.ingestion.jobs.workers
+ * (слоты резервирует IngestionJobScheduler до захвата задачи).
+ *
+ * Пока задача выполняется, отдельный поток продлевает её аренду (lease_until) —
+ * независимо от прогресса конвейера, поэтому долгий вызов API эмбеддингов
+ * не делает задачу "зависшей" для requeueStale.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IngestionJobWorker {
+
+    private final IngestionJobService jobService;
+    private final IngestionJobRepository jobRepository;
+    private final StreamingIngestionService streamingIngestionService;
+    private final DocumentManagementService documentService;
+
+    @Value("${rag.ingestion.jobs.workers:2}")
+    private int workers;
+
+    @Value("${rag.ingestion.jobs.progress-flush-interval-ms:1000}")
+    private long progressFlushIntervalMs;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private ScheduledExecutorService heartbeat;
+
+    @PostConstruct
+    void start() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("ingestion-heartbeat")
+                .daemon(true)
+                .factory());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Резервирует слот под задачу; false — все воркеры заняты.
+     */
+    public boolean tryReserveSlot() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= Math.max(1, workers)) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void releaseSlot() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getActiveJobs() {
+        return inFlight.get();
+    }
+
+    /**
+     * Выполняет задачу. Слот освобождается по завершении.
+     */
+    @Async("ingestionJobExecutor")
+    public void process(IngestionJob job) {
+        long startTime = System.currentTimeMillis();
+        log.info("⚙️ Processing ingestion job id={} ({}), attempt {}",
+                job.getId(), job.getFileName(), job.getAttempts());
+
+        JobProgressTracker tracker = new JobProgressTracker(job.getId(), jobRepository, progressFlushIntervalMs);
+        ScheduledFuture<?> lease = scheduleLeaseRenewal(job);
+        try {
+            discardPreviousAttempt(job);
+
+            SpooledMultipartFile file = new SpooledMultipartFile(
+                    Path.of(job.getSpoolPath()), job.getFileName(), job.getContentType());
+            DocumentDto document = streamingIngestionService.uploadDocument(file, job.getMetadata(), tracker);
+
+            if (!jobService.markCompleted(job, document.getId(), document.getChunkCount())) {
+                return;
+            }
+            log.info("✅ Ingestion job id={} completed: document id={}, {} chunks in {}ms",
+                    job.getId(), document.getId(), document.getChunkCount(),
+                    System.currentTimeMillis() - startTime);
+        } catch (CancellationException e) {
+            if (jobService.markCancelled(job)) {
+                log.info("🛑 Ingestion job id={} cancelled", job.getId());
+            }
+        } catch (Exception e) {
+            jobService.markFailed(job, rootMessage(e));
+            log.error("❌ Ingestion job id={} failed: {}", job.getId(), e.getMessage(), e);
+        } finally {
+            lease.cancel(false);
+            releaseSlot();
+        }
+    }
+
+    /**
+     * Продлевает аренду каждые lease-seconds / 3, пока задача выполняется.
+     */
+    private ScheduledFuture<?> scheduleLeaseRenewal(IngestionJob job) {
+        long periodMs = Math.max(1000, jobService.getLeaseSeconds() * 1000 / 3);
+        return heartbeat.scheduleAtFixedRate(() -> {
+            try {
+                if (!jobService.renewLease(job.getId(), job.getWorkerId())) {
+                    log.warn("⚠️ Lost lease of ingestion job id={}", job.getId());
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Failed to renew lease of ingestion job id={}: {}", job.getId(), e.getMessage());
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Задача возвращена в очередь после падения воркера — удаляем недозагруженный документ.
+     */
+    private void discardPreviousAttempt(IngestionJob job) {
+        if (job.getDocumentId() != null && documentService.deleteDocument(job.getDocumentId())) {
+            log.info("🧹 Removed partial document id={} of previous attempt", job.getDocumentId());
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root == e ? e.getMessage() : e.getMessage() + ": " + root.getMessage();
+    }
+}
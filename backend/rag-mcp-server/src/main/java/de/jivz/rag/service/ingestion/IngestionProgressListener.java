@@ -0,0 +1,38 @@
+package de.jivz.rag.service.ingestion;
+
+/**
+ * Наблюдатель прогресса потоковой загрузки.
+ *
+ * Методы вызываются из потоков стадий конвейера, реализации должны быть потокобезопасны.
+ * Счётчики передаются нарастающим итогом.
+ */
+public interface IngestionProgressListener {
+
+    IngestionProgressListener NONE = new IngestionProgressListener() {
+    };
+
+    default void onDocumentCreated(Long documentId) {
+    }
+
+    default void onChunksProduced(int produced) {
+    }
+
+    /**
+     * Парсинг завершён — общее число чанков известно.
+     */
+    default void onParsingFinished(int totalChunks) {
+    }
+
+    default void onChunksEmbedded(int embedded) {
+    }
+
+    default void onChunksPersisted(int persisted) {
+    }
+
+    /**
+     * Проверяется перед каждым окном эмбеддинга; true — конвейер останавливается.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
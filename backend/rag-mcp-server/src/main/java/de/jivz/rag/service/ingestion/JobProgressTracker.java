@@ -0,0 +1,113 @@
+package de.jivz.rag.service.ingestion;
+
+import de.jivz.rag.repository.IngestionJobRepository;
+import de.jivz.rag.repository.entity.IngestionJob.JobStage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Прогресс одной задачи загрузки.
+ *
+ * Счётчики копятся в памяти и сбрасываются в ingestion_jobs не чаще flushIntervalMs
+ * (и сразу при смене стадии). Каждый сброс — heartbeat воркера и проверка флага отмены.
+ */
+@Slf4j
+class JobProgressTracker implements IngestionProgressListener {
+
+    private final Long jobId;
+    private final IngestionJobRepository jobRepository;
+    private final long flushIntervalMs;
+
+    private final AtomicInteger produced = new AtomicInteger();
+    private final AtomicInteger embedded = new AtomicInteger();
+    private final AtomicInteger persisted = new AtomicInteger();
+    private volatile Integer total;
+    private volatile Long documentId;
+    private volatile boolean cancelled;
+    private volatile long lastFlushAt;
+
+    JobProgressTracker(Long jobId, IngestionJobRepository jobRepository, long flushIntervalMs) {
+        this.jobId = jobId;
+        this.jobRepository = jobRepository;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @Override
+    public void onDocumentCreated(Long documentId) {
+        this.documentId = documentId;
+        flush();
+    }
+
+    @Override
+    public void onChunksProduced(int produced) {
+        this.produced.set(produced);
+        flushIfDue();
+    }
+
+    @Override
+    public void onParsingFinished(int totalChunks) {
+        this.produced.set(totalChunks);
+        this.total = totalChunks;
+        flush();
+    }
+
+    @Override
+    public void onChunksEmbedded(int embedded) {
+        this.embedded.set(embedded);
+        flushIfDue();
+    }
+
+    @Override
+    public void onChunksPersisted(int persisted) {
+        this.persisted.set(persisted);
+        flushIfDue();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        flushIfDue();
+        return cancelled;
+    }
+
+    Long getDocumentId() {
+        return documentId;
+    }
+
+    /**
+     * Самая ранняя незавершённая стадия.
+     */
+    JobStage currentStage() {
+        Integer totalChunks = total;
+        if (totalChunks == null) {
+            return JobStage.PARSING;
+        }
+        if (embedded.get() < totalChunks) {
+            return JobStage.EMBEDDING;
+        }
+        if (persisted.get() < totalChunks) {
+            return JobStage.PERSISTING;
+        }
+        return JobStage.INDEXING;
+    }
+
+    private void flushIfDue() {
+        if (System.currentTimeMillis() - lastFlushAt >= flushIntervalMs) {
+            flush();
+        }
+    }
+
+    synchronized void flush() {
+        lastFlushAt = System.currentTimeMillis();
+        try {
+            int updated = jobRepository.updateProgress(jobId, currentStage(), produced.get(), total,
+                    embedded.get(), persisted.get(), documentId);
+            // 0 строк — задача уже не RUNNING (отменена, пока стояла в очереди на захват)
+            if (updated == 0 || jobRepository.findCancelRequested(jobId).orElse(true)) {
+                cancelled = true;
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to update progress of ingestion job id={}: {}", jobId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,466 @@
+package de.jivz.rag.service.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory HNSW индекс (Hierarchical Navigable Small World) для приближённого
+ * поиска ближайших соседей по косинусному сходству.
+ *
+ * Особенности:
+ * - Векторы нормализуются при добавлении, поэтому cosine = скалярное произведение
+ * - Векторы хранятся в float32 или в квантованном виде (int8 / 1 бит, см. VectorQuantization):
+ *   сходство тогда приближённое и годится для отбора кандидатов, а не для итоговой оценки
+ * - Поиск выполняется под read-lock, вставка и удаление — под write-lock
+ * - Удаление ленивое (tombstone): узел остаётся в графе для навигации,
+ *   но не попадает в выдачу. При большой доле удалённых узлов индекс перестраивается.
+ *
+ * Класс не зависит от Spring и БД — жизненным циклом управляет VectorIndexService.
+ */
+public class HnswIndex {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int[] NO_LINKS = new int[0];
+
+    /**
+     * Найденный сосед: id чанка и косинусное сходство с запросом.
+     */
+    public record Neighbor(long id, float similarity) {
+    }
+
+    private record Candidate(int node, float similarity) {
+    }
+
+    private static final Comparator<Candidate> BY_SIMILARITY_DESC =
+            Comparator.comparingDouble(Candidate::similarity).reversed();
+    private static final Comparator<Candidate> BY_SIMILARITY_ASC =
+            Comparator.comparingDouble(Candidate::similarity);
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+    private final VectorQuantization quantization;
+    private final VectorStore vectors;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[][][] links = new int[INITIAL_CAPACITY][][];
+    private final BitSet deleted = new BitSet();
+    private final Map<Long, Integer> nodeById = new HashMap<>();
+    private final Map<Long, List<Integer>> nodesByDocument = new HashMap<>();
+
+    private int size;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param dimension      размерность векторов
+     * @param m              максимальное число связей узла на верхних уровнях (на уровне 0 — 2·M)
+     * @param efConstruction ширина поиска при построении графа
+     */
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this(dimension, m, efConstruction, VectorQuantization.NONE);
+    }
+
+    /**
+     * @param quantization представление векторов в памяти
+     */
+    public HnswIndex(int dimension, int m, int efConstruction, VectorQuantization quantization) {
+        this(dimension, m, efConstruction, quantization, new Random(42));
+    }
+
+    HnswIndex(int dimension, int m, int efConstruction, Random random) {
+        this(dimension, m, efConstruction, VectorQuantization.NONE, random);
+    }
+
+    HnswIndex(int dimension, int m, int efConstruction, VectorQuantization quantization, Random random) {
+        if (dimension <= 0 || m < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid HNSW parameters: dimension=%d, m=%d, efConstruction=%d",
+                    dimension, m, efConstruction));
+        }
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = random;
+        this.quantization = quantization;
+        this.vectors = quantization.newStore(dimension, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Добавляет вектор в индекс.
+     *
+     * @param id         id чанка
+     * @param documentId id документа (для удаления по документу)
+     * @param vector     эмбеддинг
+     * @return false если чанк с таким id уже есть в индексе
+     */
+    public boolean add(long id, long documentId, float[] vector) {
+        float[] normalized = normalize(vector);
+
+        lock.writeLock().lock();
+        try {
+            if (nodeById.containsKey(id)) {
+                return false;
+            }
+
+            int node = size++;
+            ensureCapacity(size);
+
+            int level = randomLevel();
+            vectors.set(node, normalized);
+            ids[node] = id;
+            links[node] = new int[level + 1][];
+            Arrays.fill(links[node], NO_LINKS);
+
+            nodeById.put(id, node);
+            nodesByDocument.computeIfAbsent(documentId, k -> new ArrayList<>()).add(node);
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return true;
+            }
+
+            VectorStore.Scorer scorer = vectors.scorer(normalized);
+            int current = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                current = greedySearch(scorer, current, l);
+            }
+
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                List<Candidate> candidates = searchLayer(scorer, current, efConstruction, l);
+                int[] selected = selectNeighbors(candidates, m);
+                links[node][l] = selected;
+
+                int maxConnections = l == 0 ? maxM0 : m;
+                for (int neighbor : selected) {
+                    connect(neighbor, node, l, maxConnections);
+                }
+                current = candidates.getFirst().node();
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = node;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет k ближайших соседей запроса.
+     *
+     * @param query запрос (нормализуется внутри)
+     * @param k     количество результатов
+     * @param ef    ширина поиска на уровне 0 (≥ k, больше → выше recall, медленнее)
+     * @return соседи, отсортированные по убыванию сходства
+     */
+    public List<Neighbor> search(float[] query, int k, int ef) {
+        if (k <= 0) {
+            return List.of();
+        }
+        float[] normalized = normalize(query);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+
+            VectorStore.Scorer scorer = vectors.scorer(normalized);
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedySearch(scorer, current, l);
+            }
+
+            List<Candidate> candidates = searchLayer(scorer, current, Math.max(ef, k), 0);
+
+            List<Neighbor> result = new ArrayList<>(k);
+            for (Candidate candidate : candidates) {
+                if (deleted.get(candidate.node())) {
+                    continue;
+                }
+                result.add(new Neighbor(ids[candidate.node()], candidate.similarity()));
+                if (result.size() == k) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Помечает все чанки документа как удалённые.
+     *
+     * @return количество удалённых узлов
+     */
+    public int removeDocument(long documentId) {
+        lock.writeLock().lock();
+        try {
+            List<Integer> nodes = nodesByDocument.remove(documentId);
+            if (nodes == null) {
+                return 0;
+            }
+            for (int node : nodes) {
+                if (!deleted.get(node)) {
+                    deleted.set(node);
+                    nodeById.remove(ids[node]);
+                    deletedCount++;
+                }
+            }
+            return nodes.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, есть ли чанк в индексе.
+     */
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return nodeById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Количество живых (не удалённых) векторов.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Доля удалённых узлов в графе (0.0 - 1.0).
+     */
+    public double deletedRatio() {
+        lock.readLock().lock();
+        try {
+            return size == 0 ? 0.0 : deletedCount / (double) size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public VectorQuantization getQuantization() {
+        return quantization;
+    }
+
+    /**
+     * Приблизительный объём памяти под векторы и связи (в байтах).
+     */
+    public long estimateMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long vectorBytes = (long) size * vectors.bytesPerVector();
+            long linkBytes = (long) size * maxM0 * Integer.BYTES;
+            return vectorBytes + linkBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== Внутренние методы ====================
+
+    /**
+     * Жадный спуск по уровню: переходим к соседу, пока сходство растёт.
+     */
+    private int greedySearch(VectorStore.Scorer query, int start, int level) {
+        int current = start;
+        float currentSimilarity = query.similarity(current);
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : linksAt(current, level)) {
+                float similarity = query.similarity(neighbor);
+                if (similarity > currentSimilarity) {
+                    currentSimilarity = similarity;
+                    current = neighbor;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Поиск ef ближайших кандидатов на одном уровне графа (Algorithm 2 из статьи HNSW).
+     *
+     * @return кандидаты, отсортированные по убыванию сходства
+     */
+    private List<Candidate> searchLayer(VectorStore.Scorer query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        visited.set(start);
+
+        Candidate first = new Candidate(start, query.similarity(start));
+        PriorityQueue<Candidate> toVisit = new PriorityQueue<>(BY_SIMILARITY_DESC);
+        PriorityQueue<Candidate> found = new PriorityQueue<>(BY_SIMILARITY_ASC);
+        toVisit.add(first);
+        found.add(first);
+
+        while (!toVisit.isEmpty()) {
+            Candidate current = toVisit.poll();
+            if (current.similarity() < found.peek().similarity() && found.size() >= ef) {
+                break;
+            }
+
+            for (int neighbor : linksAt(current.node(), level)) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+
+                float similarity = query.similarity(neighbor);
+                if (found.size() < ef || similarity > found.peek().similarity()) {
+                    Candidate candidate = new Candidate(neighbor, similarity);
+                    toVisit.add(candidate);
+                    found.add(candidate);
+                    if (found.size() > ef) {
+                        found.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> result = new ArrayList<>(found);
+        result.sort(BY_SIMILARITY_DESC);
+        return result;
+    }
+
+    /**
+     * Эвристика выбора соседей (Algorithm 4): кандидат берётся, только если он ближе
+     * к базовому узлу, чем к уже выбранным соседям. Остаток добирается отброшенными
+     * кандидатами, чтобы граф оставался связным.
+     *
+     * @param candidates кандидаты, отсортированные по убыванию сходства с базовым узлом
+     */
+    private int[] selectNeighbors(List<Candidate> candidates, int maxCount) {
+        if (candidates.size() <= maxCount) {
+            return candidates.stream().mapToInt(Candidate::node).toArray();
+        }
+
+        List<Candidate> selected = new ArrayList<>(maxCount);
+        List<Candidate> pruned = new ArrayList<>();
+
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= maxCount) {
+                break;
+            }
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (vectors.similarity(candidate.node(), chosen.node()) > candidate.similarity()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+
+        for (int i = 0; i < pruned.size() && selected.size() < maxCount; i++) {
+            selected.add(pruned.get(i));
+        }
+
+        return selected.stream().mapToInt(Candidate::node).toArray();
+    }
+
+    /**
+     * Добавляет обратную связь neighbor → node, при переполнении сокращает список соседей.
+     */
+    private void connect(int neighbor, int node, int level, int maxConnections) {
+        int[] existing = linksAt(neighbor, level);
+
+        if (existing.length < maxConnections) {
+            int[] extended = Arrays.copyOf(existing, existing.length + 1);
+            extended[existing.length] = node;
+            links[neighbor][level] = extended;
+            return;
+        }
+
+        List<Candidate> candidates = new ArrayList<>(existing.length + 1);
+        for (int linked : existing) {
+            candidates.add(new Candidate(linked, vectors.similarity(neighbor, linked)));
+        }
+        candidates.add(new Candidate(node, vectors.similarity(neighbor, node)));
+        candidates.sort(BY_SIMILARITY_DESC);
+
+        links[neighbor][level] = selectNeighbors(candidates, maxConnections);
+    }
+
+    private int[] linksAt(int node, int level) {
+        int[][] nodeLinks = links[node];
+        return level < nodeLinks.length ? nodeLinks[level] : NO_LINKS;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(required, ids.length * 2);
+        vectors.ensureCapacity(newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        links = Arrays.copyOf(links, newCapacity);
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector == null || vector.length != dimension) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected vector of dimension %d, got %s",
+                    dimension, vector == null ? "null" : vector.length));
+        }
+        double norm = 0.0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+
+        float[] normalized = new float[dimension];
+        if (norm == 0.0) {
+            return normalized;
+        }
+        for (int i = 0; i < dimension; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,243 @@
+package de.jivz.rag.service.vector;
+
+import de.jivz.rag.repository.DocumentChunkBatchWriter;
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.entity.ChunkEmbeddingRow;
+import de.jivz.rag.repository.entity.ChunkSearchResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сокращённая копия эмбеддингов для HNSW индекса pgvector (колонка embedding_reduced, V12).
+ *
+ * Единственная ответственность (SRP):
+ * Построение сокращённого вектора (первые N компонент, заново нормализованные —
+ * Matryoshka-усечение, которое поддерживает qwen3-embedding) и его backfill для существующих чанков.
+ *
+ * pgvector индексирует не более 2000 измерений, поэтому полный 4096-мерный эмбеддинг
+ * ищется только sequential scan. Сокращённый вектор отдаёт кандидатов через индекс,
+ * а итоговое сходство (rescore=true) считается по полному эмбеддингу.
+ *
+ * Поиск переключается на сокращённые векторы только после полного прохода backfill,
+ * иначе чанки без embedding_reduced выпали бы из выдачи.
+ *
+ * hnsw.ef_search поднимается только в транзакции этого поиска (SET LOCAL через set_config),
+ * остальные векторные запросы пула соединений работают с настройкой по умолчанию.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ReducedEmbeddingService {
+
+    private final DocumentChunkRepository chunkRepository;
+    private final DocumentChunkBatchWriter chunkBatchWriter;
+
+    @Value("${rag.embedding.reduced.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rag.embedding.reduced.dimension:1024}")
+    private int dimension;
+
+    /**
+     * Пересчитывать сходство кандидатов по полному эмбеддингу.
+     */
+    @Value("${rag.embedding.reduced.rescore:true}")
+    private boolean rescore;
+
+    @Value("${rag.embedding.reduced.oversampling:4}")
+    private int oversampling;
+
+    @Value("${rag.embedding.reduced.max-candidates:200}")
+    private int maxCandidates;
+
+    /**
+     * hnsw.ef_search для поиска по embedding_reduced; не меньше числа запрашиваемых строк,
+     * иначе индекс вернёт меньше строк.
+     */
+    @Value("${rag.embedding.reduced.ef-search:200}")
+    private int efSearch;
+
+    @Value("${rag.embedding.reduced.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    private final AtomicBoolean columnCompatible = new AtomicBoolean(false);
+    private final AtomicBoolean backfilled = new AtomicBoolean(false);
+    private final AtomicBoolean backfilling = new AtomicBoolean(false);
+    private final AtomicLong backfilledRows = new AtomicLong();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Integer columnDimension = chunkRepository.findReducedEmbeddingColumnDimension();
+        if (columnDimension == null || columnDimension != dimension) {
+            log.error("❌ Reduced embeddings disabled: embedding_reduced column has dimension {}, configured {}",
+                    columnDimension, dimension);
+            return;
+        }
+        columnCompatible.set(true);
+        backfillAsync();
+    }
+
+    /**
+     * Сокращённые векторы пишутся при загрузке (колонка есть и совместима с конфигурацией).
+     */
+    public boolean isEnabled() {
+        return enabled && columnCompatible.get();
+    }
+
+    /**
+     * Поиск может идти через индекс embedding_reduced (backfill завершён).
+     */
+    public boolean isSearchReady() {
+        return isEnabled() && backfilled.get();
+    }
+
+    /**
+     * Количество кандидатов из индекса для выдачи topK.
+     */
+    public int candidatesFor(int topK) {
+        return Math.max(topK, Math.min(maxCandidates, topK * oversampling));
+    }
+
+    /**
+     * Поиск через HNSW индекс embedding_reduced; при rescore=true сходство кандидатов
+     * пересчитывается по полному эмбеддингу.
+     *
+     * @param reducedEmbedding сокращённый вектор запроса (reduce)
+     * @param queryEmbedding полный вектор запроса
+     */
+    @Transactional(readOnly = true)
+    public List<ChunkSearchResult> search(String reducedEmbedding, String queryEmbedding, int topK, double threshold) {
+        if (!rescore) {
+            applyEfSearch(topK);
+            return chunkRepository.findSimilarChunksReducedOnlyProjection(reducedEmbedding, topK, threshold);
+        }
+        int candidates = candidatesFor(topK);
+        applyEfSearch(candidates);
+        return chunkRepository.findSimilarChunksByReducedProjection(
+                reducedEmbedding, queryEmbedding, candidates, topK, threshold);
+    }
+
+    /**
+     * Сокращённый вектор для записи/поиска.
+     *
+     * @return вектор размерности rag.embedding.reduced.dimension или null (режим выключен / вектор короче)
+     */
+    public float[] reduce(float[] embedding) {
+        if (!isEnabled() || embedding == null || embedding.length < dimension) {
+            return null;
+        }
+        return truncate(embedding, dimension);
+    }
+
+    /**
+     * Первые dimension компонент, нормализованные к единичной длине.
+     */
+    static float[] truncate(float[] embedding, int dimension) {
+        float[] reduced = new float[dimension];
+        double norm = 0.0;
+        for (int i = 0; i < dimension; i++) {
+            reduced[i] = embedding[i];
+            norm += embedding[i] * embedding[i];
+        }
+        if (norm == 0.0) {
+            return reduced;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dimension; i++) {
+            reduced[i] *= scale;
+        }
+        return reduced;
+    }
+
+    /**
+     * Заполняет embedding_reduced у существующих чанков в фоновом потоке.
+     * Повторный запуск безопасен: обрабатываются только строки с NULL.
+     */
+    public void backfillAsync() {
+        if (!isEnabled() || !backfilling.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofPlatform()
+                .name("reduced-embedding-backfill")
+                .daemon(true)
+                .start(this::backfill);
+    }
+
+    /**
+     * Состояние режима для диагностики.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("columnCompatible", columnCompatible.get());
+        stats.put("searchReady", isSearchReady());
+        stats.put("backfilling", backfilling.get());
+        stats.put("backfilledRows", backfilledRows.get());
+        if (isEnabled()) {
+            stats.put("pendingRows", chunkRepository.countWithoutReducedEmbedding());
+        }
+        stats.put("dimension", dimension);
+        stats.put("rescore", rescore);
+        stats.put("oversampling", oversampling);
+        stats.put("maxCandidates", maxCandidates);
+        stats.put("efSearch", efSearch);
+        return stats;
+    }
+
+    // ==================== Внутренние методы ====================
+
+    /**
+     * Действует до конца текущей транзакции.
+     */
+    private void applyEfSearch(int rows) {
+        chunkRepository.setLocalHnswEfSearch(Math.max(efSearch, rows));
+    }
+
+    private void backfill() {
+        long startTime = System.currentTimeMillis();
+        long updated = 0;
+        try {
+            long afterId = 0;
+            List<ChunkEmbeddingRow> page;
+            do {
+                page = chunkRepository.findEmbeddingsWithoutReducedAfterId(afterId, backfillBatchSize);
+                Map<Long, float[]> reduced = new LinkedHashMap<>();
+                for (ChunkEmbeddingRow row : page) {
+                    float[] vector = reduce(VectorIndexService.parseVector(row.getEmbedding()));
+                    if (vector != null) {
+                        reduced.put(row.getId(), vector);
+                    }
+                }
+                int count = chunkBatchWriter.updateReducedEmbeddings(reduced);
+                updated += count;
+                backfilledRows.addAndGet(count);
+                if (!page.isEmpty()) {
+                    afterId = page.getLast().getId();
+                }
+            } while (page.size() == backfillBatchSize);
+
+            backfilled.set(true);
+            log.info("✅ Reduced embeddings backfilled: {} chunks (dim={}) in {}ms",
+                    updated, dimension, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("❌ Reduced embedding backfill failed after {} chunks, search keeps full-dimension path: {}",
+                    updated, e.getMessage());
+        } finally {
+            backfilling.set(false);
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package de.jivz.rag.service.vector;
+
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.entity.ChunkEmbeddingRow;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Сервис in-memory ANN индекса эмбеддингов.
+ *
+ * Единственная ответственность (SRP):
+ * Жизненный цикл HnswIndex — загрузка из document_chunks, инкрементальные
+ * обновления при загрузке/удалении документов и поиск кандидатов.
+ *
+ * Postgres остаётся источником истины: индекс отдаёт только id кандидатов,
+ * точное сходство пересчитывается в SemanticSearchService через pgvector.
+ * Пока индекс строится (или выключен), поиск работает через sequential scan.
+ *
+ * С квантизацией (rag.vector-index.quantization=int8|binary) индекс хранит коды вместо float
+ * векторов: в 4 / 32 раза меньше памяти, а точность восстанавливается тем же пересчётом в Postgres.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class VectorIndexService {
+
+    private final DocumentChunkRepository chunkRepository;
+
+    @Value("${rag.vector-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rag.embedding.dimension:768}")
+    private int dimension;
+
+    @Value("${rag.vector-index.m:16}")
+    private int m;
+
+    @Value("${rag.vector-index.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${rag.vector-index.ef-search:100}")
+    private int efSearch;
+
+    /**
+     * Представление векторов в памяти: none (float32) | int8 | binary.
+     */
+    @Value("${rag.vector-index.quantization:none}")
+    private String quantization;
+
+    @Value("${rag.vector-index.load-page-size:500}")
+    private int loadPageSize;
+
+    /**
+     * Доля удалённых узлов, при которой индекс перестраивается из БД.
+     */
+    @Value("${rag.vector-index.rebuild-deleted-ratio:0.3}")
+    private double rebuildDeletedRatio;
+
+    private final AtomicReference<HnswIndex> index = new AtomicReference<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+    /**
+     * Изменения, пришедшие во время перестроения — применяются к новому индексу после замены.
+     */
+    private final Queue<IndexUpdate> pendingUpdates = new ConcurrentLinkedQueue<>();
+
+    private record IndexUpdate(Long documentId, boolean removal) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            log.info("🧭 Vector index disabled (rag.vector-index.enabled=false), using sequential scan");
+            return;
+        }
+        rebuildAsync();
+    }
+
+    /**
+     * Индекс построен и может обслуживать поиск.
+     */
+    public boolean isReady() {
+        return enabled && index.get() != null;
+    }
+
+    /**
+     * Ищет кандидатов для последующего точного пересчёта в БД.
+     *
+     * @param queryEmbedding эмбеддинг запроса
+     * @param candidates     количество кандидатов
+     * @return кандидаты, отсортированные по убыванию приближённого сходства
+     */
+    public List<HnswIndex.Neighbor> findNearest(float[] queryEmbedding, int candidates) {
+        HnswIndex current = index.get();
+        if (current == null) {
+            return List.of();
+        }
+        return current.search(queryEmbedding, candidates, Math.max(efSearch, candidates));
+    }
+
+    /**
+     * Добавляет чанки документа в индекс после коммита текущей транзакции.
+     */
+    public void indexDocumentAfterCommit(Long documentId) {
+        runAfterCommit(() -> indexDocument(documentId));
+    }
+
+    /**
+     * Удаляет чанки документа из индекса после коммита текущей транзакции.
+     */
+    public void removeDocumentAfterCommit(Long documentId) {
+        runAfterCommit(() -> removeDocument(documentId));
+    }
+
+    /**
+     * Загружает эмбеддинги документа из БД и добавляет их в индекс.
+     */
+    public void indexDocument(Long documentId) {
+        if (!enabled || documentId == null) {
+            return;
+        }
+        if (rebuilding.get()) {
+            pendingUpdates.add(new IndexUpdate(documentId, false));
+        }
+        HnswIndex current = index.get();
+        if (current == null) {
+            return;
+        }
+
+        try {
+            int added = addRows(current, chunkRepository.findEmbeddingsByDocumentId(documentId));
+            log.debug("🧭 Indexed {} chunks of document id={}", added, documentId);
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to index document id={}: {}", documentId, e.getMessage());
+        }
+    }
+
+    /**
+     * Помечает чанки документа удалёнными; при большой доле удалений перестраивает индекс.
+     */
+    public void removeDocument(Long documentId) {
+        if (!enabled || documentId == null) {
+            return;
+        }
+        if (rebuilding.get()) {
+            pendingUpdates.add(new IndexUpdate(documentId, true));
+        }
+        HnswIndex current = index.get();
+        if (current == null) {
+            return;
+        }
+
+        int removed = current.removeDocument(documentId);
+        log.debug("🧭 Removed {} chunks of document id={} from vector index", removed, documentId);
+
+        if (current.deletedRatio() > rebuildDeletedRatio) {
+            log.info("🧭 Deleted ratio {} exceeds {}, rebuilding vector index",
+                    String.format("%.2f", current.deletedRatio()), rebuildDeletedRatio);
+            rebuildAsync();
+        }
+    }
+
+    /**
+     * Перестраивает индекс из БД в фоновом потоке.
+     * Старый индекс продолжает обслуживать поиск до замены.
+     */
+    public void rebuildAsync() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofPlatform()
+                .name("vector-index-loader")
+                .daemon(true)
+                .start(this::rebuild);
+    }
+
+    /**
+     * Статистика индекса для диагностики.
+     */
+    public Map<String, Object> getStats() {
+        HnswIndex current = index.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", current != null);
+        stats.put("rebuilding", rebuilding.get());
+        if (current != null) {
+            stats.put("vectors", current.size());
+            stats.put("dimension", current.getDimension());
+            stats.put("quantization", current.getQuantization().name().toLowerCase(Locale.ROOT));
+            stats.put("deletedRatio", current.deletedRatio());
+            stats.put("estimatedMemoryMb", current.estimateMemoryBytes() / (1024 * 1024));
+        }
+        stats.put("m", m);
+        stats.put("efConstruction", efConstruction);
+        stats.put("efSearch", efSearch);
+        return stats;
+    }
+
+    // ==================== Внутренние методы ====================
+
+    private void rebuild() {
+        long startTime = System.currentTimeMillis();
+        try {
+            HnswIndex fresh = new HnswIndex(dimension, m, efConstruction,
+                    VectorQuantization.fromString(quantization));
+
+            long afterId = 0;
+            List<ChunkEmbeddingRow> page;
+            do {
+                page = chunkRepository.findEmbeddingsAfterId(afterId, loadPageSize);
+                addRows(fresh, page);
+                if (!page.isEmpty()) {
+                    afterId = page.getLast().getId();
+                }
+            } while (page.size() == loadPageSize);
+
+            index.set(fresh);
+            log.info("✅ Vector index built: {} vectors (dim={}, {}, ~{}MB) in {}ms",
+                    fresh.size(), dimension, fresh.getQuantization(),
+                    fresh.estimateMemoryBytes() / (1024 * 1024),
+                    System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("❌ Failed to build vector index, falling back to sequential scan: {}",
+                    e.getMessage());
+        } finally {
+            rebuilding.set(false);
+            applyPendingUpdates();
+        }
+    }
+
+    private void applyPendingUpdates() {
+        IndexUpdate update;
+        while ((update = pendingUpdates.poll()) != null) {
+            if (update.removal()) {
+                removeDocument(update.documentId());
+            } else {
+                indexDocument(update.documentId());
+            }
+        }
+    }
+
+    private int addRows(HnswIndex target, List<ChunkEmbeddingRow> rows) {
+        int added = 0;
+        for (ChunkEmbeddingRow row : rows) {
+            float[] vector = parseVector(row.getEmbedding());
+            if (vector == null || vector.length != target.getDimension()) {
+                continue;
+            }
+            if (target.add(row.getId(), row.getDocumentId(), vector)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Парсит текстовое представление pgvector ("[0.1,0.2,...]") в float[].
+     */
+    public static float[] parseVector(String text) {
+        if (text == null || text.length() < 2) {
+            return null;
+        }
+        try {
+            String body = text.substring(1, text.length() - 1);
+            if (body.isBlank()) {
+                return new float[0];
+            }
+            String[] parts = body.split(",");
+            float[] vector = new float[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                vector[i] = Float.parseFloat(parts[i]);
+            }
+            return vector;
+        } catch (NumberFormatException e) {
+            log.warn("Failed to parse vector: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
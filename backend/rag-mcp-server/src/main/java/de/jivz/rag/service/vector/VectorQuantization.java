@@ -0,0 +1,43 @@
+package de.jivz.rag.service.vector;
+
+import java.util.Locale;
+
+/**
+ * Представление векторов внутри HnswIndex.
+ *
+ * Индекс только отбирает кандидатов — точное сходство пересчитывается по float вектору
+ * из Postgres, поэтому для навигации по графу достаточно приближённого сходства.
+ *
+ * - NONE: float32, 4 байта на измерение (16KB на вектор 4096)
+ * - INT8: скалярная квантизация, 1 байт на измерение (в 4 раза меньше)
+ * - BINARY: 1 бит на измерение, сходство по расстоянию Хэмминга (в 32 раза меньше)
+ */
+public enum VectorQuantization {
+
+    NONE,
+    INT8,
+    BINARY;
+
+    /**
+     * Разбор значения из конфигурации (без учёта регистра, пусто — NONE).
+     */
+    public static VectorQuantization fromString(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(
+                    "Unknown vector quantization: " + value + " (expected none, int8 or binary)");
+        }
+    }
+
+    VectorStore newStore(int dimension, int initialCapacity) {
+        return switch (this) {
+            case NONE -> new VectorStore.Float32(dimension, initialCapacity);
+            case INT8 -> new VectorStore.Int8(dimension, initialCapacity);
+            case BINARY -> new VectorStore.Binary(dimension, initialCapacity);
+        };
+    }
+}
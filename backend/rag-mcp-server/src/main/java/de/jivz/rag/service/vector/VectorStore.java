@@ -0,0 +1,219 @@
+package de.jivz.rag.service.vector;
+
+import java.util.Arrays;
+
+/**
+ * Хранилище векторов узлов HnswIndex в выбранном представлении (см. VectorQuantization).
+ *
+ * Все векторы на входе уже нормализованы, поэтому сходство — оценка косинуса.
+ * Синхронизацией управляет HnswIndex (запись под write-lock, чтение под read-lock).
+ */
+interface VectorStore {
+
+    /**
+     * Сходство запроса с узлами; запрос кодируется один раз на поиск.
+     */
+    interface Scorer {
+        float similarity(int node);
+    }
+
+    void set(int node, float[] normalized);
+
+    Scorer scorer(float[] normalized);
+
+    float similarity(int a, int b);
+
+    void ensureCapacity(int capacity);
+
+    int bytesPerVector();
+
+    // ==================== float32 ====================
+
+    final class Float32 implements VectorStore {
+
+        private final int dimension;
+        private float[][] vectors;
+
+        Float32(int dimension, int initialCapacity) {
+            this.dimension = dimension;
+            this.vectors = new float[initialCapacity][];
+        }
+
+        @Override
+        public void set(int node, float[] normalized) {
+            vectors[node] = normalized;
+        }
+
+        @Override
+        public Scorer scorer(float[] normalized) {
+            return node -> dot(normalized, vectors[node]);
+        }
+
+        @Override
+        public float similarity(int a, int b) {
+            return dot(vectors[a], vectors[b]);
+        }
+
+        @Override
+        public void ensureCapacity(int capacity) {
+            vectors = Arrays.copyOf(vectors, capacity);
+        }
+
+        @Override
+        public int bytesPerVector() {
+            return dimension * Float.BYTES;
+        }
+
+        private static float dot(float[] a, float[] b) {
+            float sum = 0f;
+            for (int i = 0; i < a.length; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+    }
+
+    // ==================== int8 ====================
+
+    /**
+     * Симметричная скалярная квантизация: code = round(v / scale), scale = max|v| / 127
+     * (отдельный scale на вектор). Скалярное произведение считается в целых числах.
+     */
+    final class Int8 implements VectorStore {
+
+        private final int dimension;
+        private byte[][] codes;
+        private float[] scales;
+
+        Int8(int dimension, int initialCapacity) {
+            this.dimension = dimension;
+            this.codes = new byte[initialCapacity][];
+            this.scales = new float[initialCapacity];
+        }
+
+        @Override
+        public void set(int node, float[] normalized) {
+            float[] scale = new float[1];
+            codes[node] = encode(normalized, scale);
+            scales[node] = scale[0];
+        }
+
+        @Override
+        public Scorer scorer(float[] normalized) {
+            float[] scale = new float[1];
+            byte[] query = encode(normalized, scale);
+            float queryScale = scale[0];
+            return node -> queryScale * scales[node] * dot(query, codes[node]);
+        }
+
+        @Override
+        public float similarity(int a, int b) {
+            return scales[a] * scales[b] * dot(codes[a], codes[b]);
+        }
+
+        @Override
+        public void ensureCapacity(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+            scales = Arrays.copyOf(scales, capacity);
+        }
+
+        @Override
+        public int bytesPerVector() {
+            return dimension + Float.BYTES;
+        }
+
+        private static byte[] encode(float[] vector, float[] scaleOut) {
+            float maxAbs = 0f;
+            for (float v : vector) {
+                maxAbs = Math.max(maxAbs, Math.abs(v));
+            }
+            byte[] code = new byte[vector.length];
+            if (maxAbs == 0f) {
+                scaleOut[0] = 0f;
+                return code;
+            }
+            float scale = maxAbs / 127f;
+            for (int i = 0; i < vector.length; i++) {
+                code[i] = (byte) Math.round(vector[i] / scale);
+            }
+            scaleOut[0] = scale;
+            return code;
+        }
+
+        private static int dot(byte[] a, byte[] b) {
+            int sum = 0;
+            for (int i = 0; i < a.length; i++) {
+                sum += a[i] * b[i];
+            }
+            return sum;
+        }
+    }
+
+    // ==================== 1 bit ====================
+
+    /**
+     * Бит на измерение (знак компоненты). Угол между векторами оценивается как
+     * π · hamming / dimension, сходство — cos этого угла (монотонно по Хэммингу).
+     */
+    final class Binary implements VectorStore {
+
+        private final int dimension;
+        private final int words;
+        private final float[] cosineByDistance;
+        private long[][] codes;
+
+        Binary(int dimension, int initialCapacity) {
+            this.dimension = dimension;
+            this.words = (dimension + Long.SIZE - 1) / Long.SIZE;
+            this.codes = new long[initialCapacity][];
+            this.cosineByDistance = new float[dimension + 1];
+            for (int distance = 0; distance <= dimension; distance++) {
+                cosineByDistance[distance] = (float) Math.cos(Math.PI * distance / dimension);
+            }
+        }
+
+        @Override
+        public void set(int node, float[] normalized) {
+            codes[node] = encode(normalized);
+        }
+
+        @Override
+        public Scorer scorer(float[] normalized) {
+            long[] query = encode(normalized);
+            return node -> cosineByDistance[hamming(query, codes[node])];
+        }
+
+        @Override
+        public float similarity(int a, int b) {
+            return cosineByDistance[hamming(codes[a], codes[b])];
+        }
+
+        @Override
+        public void ensureCapacity(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        public int bytesPerVector() {
+            return words * Long.BYTES;
+        }
+
+        private long[] encode(float[] vector) {
+            long[] code = new long[words];
+            for (int i = 0; i < vector.length; i++) {
+                if (vector[i] > 0f) {
+                    code[i >>> 6] |= 1L << (i & 63);
+                }
+            }
+            return code;
+        }
+
+        private static int hamming(long[] a, long[] b) {
+            int distance = 0;
+            for (int i = 0; i < a.length; i++) {
+                distance += Long.bitCount(a[i] ^ b[i]);
+            }
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+-- Content-addressed embeddings: each chunk stores a hash of
+-- (embedding model, dimension, document instruction, chunk text).
+-- Re-uploads look up existing embeddings by hash and only embed new or changed chunks.
+-- Existing chunks keep NULL until their document is uploaded again.
+
+ALTER TABLE document_chunks
+    ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+CREATE INDEX IF NOT EXISTS idx_document_chunks_content_hash
+ON document_chunks(content_hash)
+WHERE content_hash IS NOT NULL;
+
+-- How many chunk embeddings were reused vs generated on the last upload
+ALTER TABLE documents
+    ADD COLUMN IF NOT EXISTS embeddings_reused INTEGER DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS embeddings_generated INTEGER DEFAULT 0;
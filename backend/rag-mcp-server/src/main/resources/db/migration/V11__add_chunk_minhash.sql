@@ -0,0 +1,7 @@
+-- MinHash signature of each chunk's word set (128 x int4, big-endian).
+-- Computed once at ingestion; FinalSearchResultService uses it for LSH-based
+-- near-duplicate removal instead of pairwise word-set comparison.
+-- Chunks ingested earlier keep NULL and are fingerprinted on the fly.
+
+ALTER TABLE document_chunks
+    ADD COLUMN IF NOT EXISTS minhash BYTEA;
@@ -0,0 +1,13 @@
+-- Reduced-dimension copy of each chunk embedding for pgvector HNSW indexing.
+-- pgvector indexes at most 2000 dimensions, so the full 4096-dim embedding
+-- can only be searched by sequential scan (see V1). The reduced copy holds the
+-- first 1024 components of the embedding, L2-renormalized (Matryoshka truncation),
+-- and serves candidate generation; candidates are rescored with the full embedding.
+-- The dimension must match rag.embedding.reduced.dimension.
+-- Existing rows keep NULL until the backfill job (ReducedEmbeddingService) fills them.
+
+ALTER TABLE document_chunks
+    ADD COLUMN IF NOT EXISTS embedding_reduced vector(1024);
+
+CREATE INDEX IF NOT EXISTS idx_document_chunks_embedding_reduced
+ON document_chunks USING hnsw (embedding_reduced vector_cosine_ops);
@@ -0,0 +1,11 @@
+-- Lease of a running ingestion job. The worker renews it from a heartbeat
+-- thread independent of pipeline progress; only jobs with an expired lease
+-- are returned to the queue. Jobs claimed before this column existed keep
+-- NULL and are recovered by updated_at as before.
+
+ALTER TABLE ingestion_jobs
+    ADD COLUMN IF NOT EXISTS lease_until TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_lease
+ON ingestion_jobs (lease_until)
+WHERE status = 'RUNNING';
@@ -0,0 +1,39 @@
+-- Persistent queue for asynchronous document ingestion.
+-- Workers claim jobs with SELECT ... FOR UPDATE SKIP LOCKED, so several
+-- rag-mcp-server instances can share the queue.
+
+CREATE TABLE IF NOT EXISTS ingestion_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    file_name VARCHAR(500) NOT NULL,
+    content_type VARCHAR(255),
+    file_size BIGINT,
+    spool_path VARCHAR(1000) NOT NULL,
+    metadata TEXT,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    stage VARCHAR(20),
+    chunks_produced INTEGER NOT NULL DEFAULT 0,
+    chunks_total INTEGER,
+    chunks_embedded INTEGER NOT NULL DEFAULT 0,
+    chunks_persisted INTEGER NOT NULL DEFAULT 0,
+    document_id BIGINT,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    cancel_requested BOOLEAN NOT NULL DEFAULT FALSE,
+    worker_id VARCHAR(100),
+    error_message TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Claiming the oldest queued job
+CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_queued
+ON ingestion_jobs (created_at, id)
+WHERE status = 'QUEUED';
+
+-- Recovery of jobs whose worker stopped sending heartbeats
+CREATE INDEX IF NOT EXISTS idx_ingestion_jobs_running
+ON ingestion_jobs (updated_at)
+WHERE status = 'RUNNING';
+
+COMMENT ON TABLE ingestion_jobs IS 'Asynchronous document ingestion jobs with per-stage progress';
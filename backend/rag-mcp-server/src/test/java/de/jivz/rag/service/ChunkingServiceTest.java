@@ -5,6 +5,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -106,5 +107,43 @@ class ChunkingServiceTest {
         assertThat(result).isNotEmpty();
         // Каждый чанк должен заканчиваться на точку (если возможно)
     }
-}
 
+    @Test
+    @DisplayName("Streaming chunker should match batch chunking for small text")
+    void streamingShouldMatchBatchForSmallText() {
+        String text = "First paragraph with some content.\n\n" +
+                      "Second paragraph with more content that is a bit longer than the first one.\n\n" +
+                      "Third paragraph.";
+
+        List<String> streamed = new ArrayList<>();
+        ChunkingService.StreamingChunker chunker = chunkingService.streamingChunker(streamed::add);
+        chunker.append(text.substring(0, 20));
+        chunker.append(text.substring(20));
+        chunker.finish();
+
+        assertThat(streamed).isEqualTo(chunkingService.chunkText(text));
+        assertThat(chunker.getChunkCount()).isEqualTo(streamed.size());
+    }
+
+    @Test
+    @DisplayName("Streaming chunker should emit chunks before input ends")
+    void streamingShouldEmitIncrementally() {
+        List<String> streamed = new ArrayList<>();
+        ChunkingService.StreamingChunker chunker = chunkingService.streamingChunker(streamed::add);
+
+        int emittedBeforeFinish = 0;
+        for (int i = 0; i < 500; i++) {
+            chunker.append("Paragraph number " + i + " with a few words of content.\n\n");
+            if (i == 249) {
+                emittedBeforeFinish = streamed.size();
+            }
+        }
+        chunker.finish();
+
+        assertThat(emittedBeforeFinish).isGreaterThan(0);
+        assertThat(streamed).hasSizeGreaterThan(emittedBeforeFinish);
+        // chunkSize + overlap + разделитель
+        assertThat(streamed).allMatch(chunk -> chunk.length() <= 100 + 20 + 1);
+        assertThat(streamed.getLast()).contains("Paragraph number 499");
+    }
+}
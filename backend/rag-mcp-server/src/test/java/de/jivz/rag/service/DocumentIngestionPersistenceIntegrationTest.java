@@ -0,0 +1,127 @@
+package de.jivz.rag.service;
+
+import de.jivz.rag.dto.DocumentDto;
+import de.jivz.rag.repository.DocumentChunkBatchWriter;
+import de.jivz.rag.repository.DocumentChunkBatchWriter.ChunkRow;
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.DocumentRepository;
+import de.jivz.rag.repository.entity.Document;
+import de.jivz.rag.repository.entity.Document.DocumentStatus;
+import de.jivz.rag.repository.entity.DocumentChunk;
+import de.jivz.rag.service.cache.ChunkEmbeddingStore;
+import de.jivz.rag.service.cache.ChunkEmbeddingStore.Resolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration тесты: чанки, записанные в обход JPA (COPY), переживают финализацию документа.
+ *
+ * Запись COPY и эмбеддинги заменены заглушками (H2 без pgvector): заглушка пишет
+ * чанки через репозиторий, не затрагивая коллекцию Document.chunks — как и COPY.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("Document ingestion persistence")
+class DocumentIngestionPersistenceIntegrationTest {
+
+    private static final String TEXT = "Streaming ingestion keeps chunks written outside of JPA. ".repeat(40);
+
+    @Autowired
+    private StreamingIngestionService streamingIngestionService;
+
+    @Autowired
+    private DocumentUploadService documentUploadService;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @MockitoSpyBean
+    private DocumentChunkRepository chunkRepository;
+
+    @MockitoBean
+    private DocumentChunkBatchWriter chunkBatchWriter;
+
+    @MockitoBean
+    private ChunkEmbeddingStore embeddingStore;
+
+    @BeforeEach
+    void setUp() {
+        chunkRepository.deleteAll();
+        documentRepository.deleteAll();
+
+        when(embeddingStore.resolve(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            return new Resolution(
+                    texts.stream().map(text -> new float[]{1.0f, 0.0f, 0.0f}).toList(),
+                    texts.stream().map(text -> "hash-" + text.hashCode()).toList(),
+                    0,
+                    texts.size());
+        });
+        when(chunkBatchWriter.writeChunks(anyList())).thenAnswer(invocation -> {
+            List<ChunkRow> rows = invocation.getArgument(0);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            Document document = documentRepository.findById(rows.get(0).documentId()).orElseThrow();
+            for (ChunkRow row : rows) {
+                chunkRepository.save(DocumentChunk.builder()
+                        .document(document)
+                        .documentName(row.documentName())
+                        .chunkIndex(row.chunkIndex())
+                        .chunkText(row.chunkText())
+                        .contentHash(row.contentHash())
+                        .build());
+            }
+            return rows.size();
+        });
+        // jsonb_set недоступен в H2
+        doReturn(0).when(chunkRepository).updateTotalChunks(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Streaming upload should keep all chunks after finalization")
+    void streamingUploadShouldKeepChunks() throws Exception {
+        DocumentDto document = streamingIngestionService.uploadDocument(textFile("streaming.txt"), null);
+
+        assertThat(document.getChunkCount()).isGreaterThan(1);
+        assertPersisted(document);
+    }
+
+    @Test
+    @DisplayName("Buffered upload should keep all chunks after finalization")
+    void bufferedUploadShouldKeepChunks() throws Exception {
+        DocumentDto document = documentUploadService.uploadDocument(textFile("buffered.txt"), null);
+
+        assertThat(document.getChunkCount()).isGreaterThan(1);
+        assertPersisted(document);
+    }
+
+    private void assertPersisted(DocumentDto document) {
+        Document stored = documentRepository.findById(document.getId()).orElseThrow();
+        assertThat(stored.getStatus()).isEqualTo(DocumentStatus.READY);
+        assertThat(stored.getChunkCount()).isEqualTo(document.getChunkCount());
+        assertThat(stored.getEmbeddingsGenerated()).isEqualTo(document.getChunkCount());
+        assertThat(chunkRepository.countByDocumentId(document.getId())).isEqualTo(stored.getChunkCount().longValue());
+    }
+
+    private static MockMultipartFile textFile(String name) {
+        return new MockMultipartFile("file", name, "text/plain", TEXT.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,188 @@
+package de.jivz.rag.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты конвейера эмбеддингов против локального stub-эндпоинта (MockWebServer).
+ *
+ * Stub считает одновременные запросы и кодирует номер текста в эмбеддинг,
+ * поэтому проверяется и параллелизм, и сохранение порядка результатов (без замеров времени).
+ */
+@DisplayName("EmbeddingService concurrency")
+class EmbeddingServiceConcurrencyTest {
+
+    private static final long STUB_LATENCY_MS = 50;
+    private static final long GATE_TIMEOUT_SECONDS = 5;
+    private static final int TEXTS = 80;
+    private static final int BATCH_SIZE = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockWebServer stubServer;
+    private final AtomicBoolean rateLimitOnce = new AtomicBoolean(false);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private volatile CountDownLatch concurrencyGate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stubServer = new MockWebServer();
+        stubServer.setDispatcher(new StubEmbeddingDispatcher());
+        stubServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        stubServer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should send exactly the configured number of batches concurrently")
+    void shouldReachConfiguredConcurrency() {
+        List<String> texts = IntStream.range(0, TEXTS).mapToObj(i -> "text-" + i).toList();
+        int concurrency = 4;
+        // Первые запросы ждут, пока одновременно не придут все concurrency батчей
+        concurrencyGate = new CountDownLatch(concurrency);
+
+        List<float[]> embeddings = createService(concurrency).generateEmbeddingsRaw(texts);
+
+        assertThat(embeddings).hasSize(TEXTS);
+        assertThat(peakInFlight.get()).isEqualTo(concurrency);
+    }
+
+    @Test
+    @DisplayName("Should send batches one by one with concurrency 1")
+    void shouldRunSequentiallyWithConcurrencyOne() {
+        List<String> texts = IntStream.range(0, TEXTS).mapToObj(i -> "text-" + i).toList();
+
+        List<float[]> embeddings = createService(1).generateEmbeddingsRaw(texts);
+
+        assertThat(embeddings).hasSize(TEXTS);
+        assertThat(peakInFlight.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should keep original order with concurrent batches")
+    void shouldKeepOriginalOrder() {
+        List<String> texts = IntStream.range(0, TEXTS).mapToObj(i -> "text-" + i).toList();
+
+        List<float[]> embeddings = createService(8).generateEmbeddingsRaw(texts);
+
+        assertThat(embeddings).hasSize(TEXTS);
+        for (int i = 0; i < TEXTS; i++) {
+            assertThat(embeddings.get(i)[0]).isEqualTo((float) i);
+        }
+    }
+
+    @Test
+    @DisplayName("Should retry only the rate-limited batch")
+    void shouldRetryOnlyRateLimitedBatch() {
+        rateLimitOnce.set(true);
+        List<String> texts = IntStream.range(0, 30).mapToObj(i -> "text-" + i).toList();
+
+        List<float[]> embeddings = createService(4).generateEmbeddingsRaw(texts);
+
+        assertThat(embeddings).hasSize(30);
+        // 3 батча + один повтор после 429
+        assertThat(stubServer.getRequestCount()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should split batches by estimated tokens")
+    void shouldSplitBatchesByTokens() {
+        EmbeddingService service = createService(4);
+        ReflectionTestUtils.setField(service, "maxTokensPerBatch", 100);
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            texts.add("x".repeat(150)); // ~51 токен
+        }
+
+        List<List<String>> batches = service.createBatches(texts);
+
+        assertThat(batches).hasSize(6);
+        assertThat(batches).allMatch(batch -> batch.size() == 1);
+    }
+
+    private EmbeddingService createService(int concurrency) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl(stubServer.url("/").toString())
+                .build();
+
+        EmbeddingService service = new EmbeddingService(webClient);
+        ReflectionTestUtils.setField(service, "embeddingModel", "stub-model");
+        ReflectionTestUtils.setField(service, "batchSize", BATCH_SIZE);
+        ReflectionTestUtils.setField(service, "retryAttempts", 2);
+        ReflectionTestUtils.setField(service, "retryDelayMs", 10L);
+        ReflectionTestUtils.setField(service, "concurrency", concurrency);
+        ReflectionTestUtils.setField(service, "maxTokensPerBatch", 0);
+        ReflectionTestUtils.setField(service, "requestTimeoutSeconds", 10L);
+        return service;
+    }
+
+    /**
+     * Stub: эмбеддинг текста "text-N" = [N, 0, 0], ответ с фиксированной задержкой.
+     */
+    private class StubEmbeddingDispatcher extends Dispatcher {
+
+        @NotNull
+        @Override
+        public MockResponse dispatch(@NotNull RecordedRequest request) {
+            if (rateLimitOnce.compareAndSet(true, false)) {
+                return new MockResponse().setResponseCode(429).setBody("Too Many Requests");
+            }
+
+            int current = inFlight.incrementAndGet();
+            peakInFlight.accumulateAndGet(current, Math::max);
+            try {
+                CountDownLatch gate = concurrencyGate;
+                if (gate != null) {
+                    gate.countDown();
+                    gate.await(GATE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                }
+                Thread.sleep(STUB_LATENCY_MS);
+                JsonNode body = objectMapper.readTree(request.getBody().readUtf8());
+
+                StringBuilder data = new StringBuilder();
+                JsonNode input = body.get("input");
+                for (int i = 0; i < input.size(); i++) {
+                    int number = Integer.parseInt(input.get(i).asText().substring("text-".length()));
+                    if (i > 0) {
+                        data.append(',');
+                    }
+                    data.append(String.format("{\"embedding\":[%d.0,0.0,0.0],\"index\":%d}", number, i));
+                }
+
+                return new MockResponse()
+                        .addHeader("Content-Type", "application/json")
+                        .setBody("{\"data\":[" + data + "]}");
+            } catch (Exception e) {
+                return new MockResponse().setResponseCode(500).setBody(e.getMessage());
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -137,5 +137,21 @@ class EmbeddingServiceTest {
         assertThatThrownBy(() -> embeddingService.generateEmbedding("test"))
                 .isInstanceOf(RuntimeException.class);
     }
-}
 
+    @Test
+    @DisplayName("Query and document signatures should hash the instruction the same way")
+    void signaturesShouldHashInstruction() {
+        ReflectionTestUtils.setField(embeddingService, "useInstructionPrefix", true);
+        ReflectionTestUtils.setField(embeddingService, "queryInstruction", "Instruct: same");
+        ReflectionTestUtils.setField(embeddingService, "documentInstruction", "Instruct: same");
+
+        String querySignature = embeddingService.getQueryEmbeddingSignature();
+
+        assertThat(querySignature).isEqualTo(embeddingService.getDocumentEmbeddingSignature());
+        assertThat(querySignature).startsWith("test-model|768|").doesNotContain("Instruct");
+        assertThat(querySignature.substring("test-model|768|".length())).hasSize(64);
+
+        ReflectionTestUtils.setField(embeddingService, "documentInstruction", "Instruct: other");
+        assertThat(embeddingService.getDocumentEmbeddingSignature()).isNotEqualTo(querySignature);
+    }
+}
@@ -0,0 +1,97 @@
+package de.jivz.rag.service;
+
+import de.jivz.rag.dto.FinalSearchResultDto;
+import de.jivz.rag.service.HybridSearchPipelineService.PipelineConfig;
+import de.jivz.rag.service.cache.CorpusVersionService;
+import de.jivz.rag.service.cache.SearchResultCache;
+import de.jivz.rag.service.filtering.LlmFilterRelevanceFilter;
+import de.jivz.rag.service.filtering.ThresholdRelevanceFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для HybridSearchPipelineService: ключ кэша и кэширование только полных результатов.
+ */
+@DisplayName("HybridSearchPipelineService cache Tests")
+class HybridSearchPipelineServiceTest {
+
+    private HybridSearchService hybridSearchService;
+    private HybridSearchPipelineService pipelineService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        hybridSearchService = mock(HybridSearchService.class);
+        FinalSearchResultService finalSearchService = mock(FinalSearchResultService.class);
+        when(finalSearchService.finalizeResults(any(), any()))
+                .thenReturn(List.of(FinalSearchResultDto.builder().chunkId(1L).build()));
+
+        SearchResultCache cache = new SearchResultCache(new CorpusVersionService(), mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 10L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+
+        pipelineService = new HybridSearchPipelineService(hybridSearchService, finalSearchService, cache);
+    }
+
+    @Test
+    @DisplayName("Should serve a complete pipeline result from cache")
+    void shouldCacheCompleteResult() {
+        stubHybrid(Map.of("semanticStatus", "ok", "keywordStatus", "ok"));
+
+        pipelineService.searchWithCacheInfo("query", PipelineConfig.builder().build());
+        SearchResultCache.Lookup<List<FinalSearchResultDto>> second =
+                pipelineService.searchWithCacheInfo("query", PipelineConfig.builder().build());
+
+        assertThat(second.status()).isEqualTo(SearchResultCache.Status.HIT);
+        assertThat(second.value()).hasSize(1);
+        verify(hybridSearchService, times(1)).searchWithTimings(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should not cache a result degraded by a timed out leg")
+    void shouldNotCacheDegradedResult() {
+        stubHybrid(Map.of("semanticStatus", "timeout", "keywordStatus", "ok"));
+
+        pipelineService.searchWithCacheInfo("query", PipelineConfig.builder().build());
+        SearchResultCache.Lookup<List<FinalSearchResultDto>> second =
+                pipelineService.searchWithCacheInfo("query", PipelineConfig.builder().build());
+
+        assertThat(second.status()).isEqualTo(SearchResultCache.Status.MISS);
+        verify(hybridSearchService, times(2)).searchWithTimings(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Cache key should include the relevance filter")
+    void cacheKeyShouldIncludeRelevanceFilter() {
+        String none = PipelineConfig.builder().build().cacheKey();
+        String threshold = PipelineConfig.builder()
+                .relevanceFilter(new ThresholdRelevanceFilter(0.5)).build().cacheKey();
+        String otherThreshold = PipelineConfig.builder()
+                .relevanceFilter(new ThresholdRelevanceFilter(0.7)).build().cacheKey();
+        String llm = PipelineConfig.builder()
+                .relevanceFilter(new LlmFilterRelevanceFilter(0.5)).build().cacheKey();
+
+        assertThat(List.of(none, threshold, otherThreshold, llm)).doesNotHaveDuplicates();
+    }
+
+    private void stubHybrid(Map<String, Object> timings) {
+        when(hybridSearchService.searchWithTimings(anyString(), any()))
+                .thenReturn(new HybridSearchService.HybridSearchResult(List.of(), timings));
+    }
+}
@@ -0,0 +1,144 @@
+package de.jivz.rag.service;
+
+import de.jivz.rag.dto.MergedSearchResultDto;
+import de.jivz.rag.dto.SearchResultDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для HybridSearchService: параллельный fan-out, таймауты, деградация.
+ */
+@DisplayName("HybridSearchService fan-out Tests")
+class HybridSearchServiceTest {
+
+    private static final long LEG_LATENCY_MS = 300;
+
+    private SemanticSearchService semanticSearchService;
+    private KeywordSearchService keywordSearchService;
+    private HybridSearchService hybridSearchService;
+
+    @BeforeEach
+    void setUp() {
+        semanticSearchService = mock(SemanticSearchService.class);
+        keywordSearchService = mock(KeywordSearchService.class);
+        hybridSearchService = new HybridSearchService(
+                semanticSearchService,
+                keywordSearchService,
+                new SearchResultMergingService(),
+                new SearchResultRerankingService());
+        ReflectionTestUtils.setField(hybridSearchService, "semanticTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(hybridSearchService, "keywordTimeoutMs", 2000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hybridSearchService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should run semantic and keyword legs concurrently")
+    void shouldRunLegsConcurrently() {
+        stubSemantic(LEG_LATENCY_MS);
+        stubKeyword(LEG_LATENCY_MS);
+
+        long start = System.currentTimeMillis();
+        HybridSearchService.HybridSearchResult result = hybridSearchService.searchWithTimings(
+                "query", HybridSearchService.HybridSearchConfig.builder().topK(5).threshold(0.0).build());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertThat(result.results()).extracting(MergedSearchResultDto::getChunkId)
+                .containsExactlyInAnyOrder(1L, 2L);
+        assertThat(elapsed).isLessThan(2 * LEG_LATENCY_MS);
+        assertThat(result.timings())
+                .containsEntry("semanticStatus", "ok")
+                .containsEntry("keywordStatus", "ok")
+                .containsKeys("semanticMs", "keywordMs", "mergeMs", "rerankMs", "totalMs");
+        assertThat(result.isComplete()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should return keyword results alone when semantic leg times out")
+    void shouldDegradeWhenSemanticTimesOut() {
+        ReflectionTestUtils.setField(hybridSearchService, "semanticTimeoutMs", 100L);
+        stubSemantic(1500);
+        stubKeyword(10);
+
+        long start = System.currentTimeMillis();
+        HybridSearchService.HybridSearchResult result = hybridSearchService.searchWithTimings(
+                "query", HybridSearchService.HybridSearchConfig.builder().topK(5).threshold(0.0).build());
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(1000);
+        assertThat(result.results()).extracting(MergedSearchResultDto::getChunkId).containsExactly(2L);
+        assertThat(result.timings()).containsEntry("semanticStatus", "timeout");
+        assertThat(result.isComplete()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should return semantic results alone when keyword leg fails")
+    void shouldDegradeWhenKeywordFails() {
+        stubSemantic(10);
+        when(keywordSearchService.keywordSearch(anyString(), anyInt()))
+                .thenThrow(new IllegalStateException("FTS unavailable"));
+
+        HybridSearchService.HybridSearchResult result = hybridSearchService.searchWithTimings(
+                "query", HybridSearchService.HybridSearchConfig.builder().topK(5).threshold(0.0).build());
+
+        assertThat(result.results()).extracting(MergedSearchResultDto::getChunkId).containsExactly(1L);
+        assertThat(result.timings()).containsEntry("keywordStatus", "error");
+        assertThat(result.isComplete()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should skip leg with zero weight")
+    void shouldSkipZeroWeightLeg() {
+        stubKeyword(10);
+
+        HybridSearchService.HybridSearchResult result = hybridSearchService.searchWithTimings(
+                "query", HybridSearchService.HybridSearchConfig.builder()
+                        .topK(5).threshold(0.0).semanticWeight(0.0).keywordWeight(1.0).build());
+
+        assertThat(result.timings()).containsEntry("semanticStatus", "skipped");
+        assertThat(result.results()).hasSize(1);
+        assertThat(result.isComplete()).isTrue();
+    }
+
+    private void stubSemantic(long latencyMs) {
+        when(semanticSearchService.search(anyString(), anyInt(), anyDouble(), isNull()))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(latencyMs);
+                    return List.of(result(1L, 0.9));
+                });
+    }
+
+    private void stubKeyword(long latencyMs) {
+        when(keywordSearchService.keywordSearch(anyString(), anyInt()))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(latencyMs);
+                    return List.of(result(2L, 0.8));
+                });
+    }
+
+    private static SearchResultDto result(Long chunkId, double similarity) {
+        return SearchResultDto.builder()
+                .chunkId(chunkId)
+                .documentId(1L)
+                .documentName("doc.txt")
+                .chunkIndex(chunkId.intValue())
+                .chunkText("chunk " + chunkId)
+                .similarity(similarity)
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package de.jivz.rag.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.jivz.rag.dto.MergedSearchResultDto;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit тесты для LlmRerankingService: параллельные батчи, дедлайн, кэш оценок.
+ *
+ * Stub LLM отвечает оценкой 0.9 на каждый пассаж; пассажи с текстом "slow"
+ * отвечают дольше дедлайна.
+ */
+@DisplayName("LlmRerankingService Tests")
+class LlmRerankingServiceTest {
+
+    private static final long STUB_LATENCY_MS = 300;
+    private static final long SLOW_LATENCY_MS = 4000;
+    private static final long DEADLINE_MS = 2000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MockWebServer stubServer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stubServer = new MockWebServer();
+        stubServer.setDispatcher(new StubLlmDispatcher());
+        stubServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        stubServer.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should dispatch batches concurrently")
+    void shouldDispatchBatchesConcurrently() {
+        LlmRerankingService service = createService(DEADLINE_MS);
+        List<MergedSearchResultDto> results = results(20, "passage");
+        service.rerankWithLlm(results(1, "warmup"), "warmup");
+
+        long start = System.nanoTime();
+        List<MergedSearchResultDto> reranked = service.rerankWithLlm(results, "query");
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(reranked).hasSize(20).allMatch(r -> r.getLlmScore() == 0.9);
+        assertThat(stubServer.getRequestCount()).isEqualTo(1 + 4);
+        // 4 батча по 300ms последовательно заняли бы ≥ 1200ms
+        assertThat(elapsedMs).isLessThan(4 * STUB_LATENCY_MS);
+    }
+
+    @Test
+    @DisplayName("Should fall back to synthetic score for batches missing the deadline")
+    void shouldUseSyntheticScoreAfterDeadline() {
+        LlmRerankingService service = createService(DEADLINE_MS);
+        List<MergedSearchResultDto> results = results(5, "passage");
+        results.addAll(results(5, "slow query passage"));
+
+        List<MergedSearchResultDto> reranked = service.rerankWithLlm(results, "query");
+
+        assertThat(reranked).hasSize(10);
+        assertThat(reranked).filteredOn(r -> r.getChunkText().startsWith("slow"))
+                .allMatch(r -> r.getLlmScore() != null && r.getLlmScore() != 0.9);
+        assertThat(reranked).filteredOn(r -> !r.getChunkText().startsWith("slow"))
+                .allMatch(r -> r.getLlmScore() == 0.9);
+    }
+
+    @Test
+    @DisplayName("Should serve repeated query from score cache")
+    void shouldServeRepeatedQueryFromCache() {
+        LlmRerankingService service = createService(DEADLINE_MS);
+
+        service.rerankWithLlm(results(10, "passage"), "How to reset password?");
+        int requestsAfterFirst = stubServer.getRequestCount();
+        List<MergedSearchResultDto> second =
+                service.rerankWithLlm(results(10, "passage"), "  how to RESET password? ");
+
+        assertThat(requestsAfterFirst).isEqualTo(2);
+        assertThat(stubServer.getRequestCount()).isEqualTo(requestsAfterFirst);
+        assertThat(second).allMatch(r -> r.getLlmScore() == 0.9);
+    }
+
+    private LlmRerankingService createService(long deadlineMs) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl(stubServer.url("/").toString())
+                .build();
+
+        LlmRerankingService service = new LlmRerankingService(webClient, objectMapper);
+        ReflectionTestUtils.setField(service, "rerankingModel", "stub-model");
+        ReflectionTestUtils.setField(service, "rerankingMode", "REAL_LLM");
+        ReflectionTestUtils.setField(service, "batchSize", 5);
+        ReflectionTestUtils.setField(service, "retryAttempts", 0);
+        ReflectionTestUtils.setField(service, "retryDelayMs", 10L);
+        ReflectionTestUtils.setField(service, "timeoutSeconds", 10L);
+        ReflectionTestUtils.setField(service, "concurrency", 4);
+        ReflectionTestUtils.setField(service, "deadlineMs", deadlineMs);
+        ReflectionTestUtils.setField(service, "scoreCacheEnabled", true);
+        ReflectionTestUtils.setField(service, "scoreCacheMaxSize", 100L);
+        ReflectionTestUtils.setField(service, "scoreCacheTtlMinutes", 10L);
+        service.initScoreCache();
+        return service;
+    }
+
+    private static List<MergedSearchResultDto> results(int count, String textPrefix) {
+        long offset = textPrefix.startsWith("slow") ? 1000 : 0;
+        return new ArrayList<>(IntStream.range(0, count)
+                .mapToObj(i -> MergedSearchResultDto.builder()
+                        .chunkId(offset + i)
+                        .chunkText(textPrefix + " " + i)
+                        .build())
+                .toList());
+    }
+
+    /**
+     * Stub chat/completions: оценка 0.9 для каждого пассажа в prompt.
+     */
+    private class StubLlmDispatcher extends Dispatcher {
+
+        @NotNull
+        @Override
+        public MockResponse dispatch(@NotNull RecordedRequest request) {
+            try {
+                JsonNode body = objectMapper.readTree(request.getBody().readUtf8());
+                String prompt = body.path("messages").path(0).path("content").asText();
+                Thread.sleep(prompt.contains("slow") ? SLOW_LATENCY_MS : STUB_LATENCY_MS);
+
+                long passages = prompt.lines().filter(line -> line.matches("\\d+\\. .*")).count();
+                String scores = String.join(", ", Collections.nCopies((int) passages, "0.9"));
+                String content = objectMapper.writeValueAsString("[" + scores + "]");
+
+                return new MockResponse()
+                        .addHeader("Content-Type", "application/json")
+                        .setBody("{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":" + content + "}}]}");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new MockResponse().setResponseCode(500);
+            } catch (Exception e) {
+                return new MockResponse().setResponseCode(500).setBody(e.getMessage());
+            }
+        }
+    }
+}
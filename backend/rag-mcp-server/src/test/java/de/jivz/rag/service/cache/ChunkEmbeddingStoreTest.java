@@ -0,0 +1,111 @@
+package de.jivz.rag.service.cache;
+
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.entity.ChunkHashEmbeddingRow;
+import de.jivz.rag.service.EmbeddingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для ChunkEmbeddingStore: переиспользование по content_hash.
+ */
+@DisplayName("ChunkEmbeddingStore Tests")
+class ChunkEmbeddingStoreTest {
+
+    private static final String SIGNATURE = "model-a|3|";
+
+    private DocumentChunkRepository chunkRepository;
+    private EmbeddingService embeddingService;
+    private ChunkEmbeddingStore store;
+
+    @BeforeEach
+    void setUp() {
+        chunkRepository = mock(DocumentChunkRepository.class);
+        embeddingService = mock(EmbeddingService.class);
+        when(embeddingService.getDocumentEmbeddingSignature()).thenReturn(SIGNATURE);
+
+        store = new ChunkEmbeddingStore(chunkRepository, embeddingService);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "lookupBatchSize", 500);
+    }
+
+    @Test
+    @DisplayName("Should embed only chunks without stored embedding")
+    void shouldEmbedOnlyChangedChunks() {
+        String unchangedHash = ChunkEmbeddingStore.contentHash(SIGNATURE, "unchanged");
+        when(chunkRepository.findEmbeddingsByContentHashes(anyCollection()))
+                .thenReturn(List.of(row(unchangedHash, "[1.0,1.0,1.0]")));
+        when(embeddingService.generateEmbeddings(List.of("changed")))
+                .thenReturn(List.of(new float[]{2f, 2f, 2f}));
+
+        ChunkEmbeddingStore.Resolution resolution = store.resolve(List.of("unchanged", "changed"));
+
+        assertThat(resolution.reused()).isEqualTo(1);
+        assertThat(resolution.generated()).isEqualTo(1);
+        assertThat(resolution.embeddings().get(0)).containsExactly(1f, 1f, 1f);
+        assertThat(resolution.embeddings().get(1)).containsExactly(2f, 2f, 2f);
+        assertThat(resolution.contentHashes().get(0)).isEqualTo(unchangedHash);
+    }
+
+    @Test
+    @DisplayName("Should not call API when all chunks are known")
+    void shouldSkipApiWhenAllKnown() {
+        when(chunkRepository.findEmbeddingsByContentHashes(anyCollection())).thenReturn(List.of(
+                row(ChunkEmbeddingStore.contentHash(SIGNATURE, "a"), "[1.0]"),
+                row(ChunkEmbeddingStore.contentHash(SIGNATURE, "b"), "[2.0]")));
+
+        ChunkEmbeddingStore.Resolution resolution = store.resolve(List.of("a", "b"));
+
+        assertThat(resolution.reused()).isEqualTo(2);
+        assertThat(resolution.generated()).isZero();
+        verify(embeddingService, never()).generateEmbeddings(anyList());
+    }
+
+    @Test
+    @DisplayName("Should embed duplicate chunks once")
+    void shouldEmbedDuplicatesOnce() {
+        when(chunkRepository.findEmbeddingsByContentHashes(anyCollection())).thenReturn(List.of());
+        when(embeddingService.generateEmbeddings(List.of("same")))
+                .thenReturn(List.of(new float[]{3f}));
+
+        ChunkEmbeddingStore.Resolution resolution = store.resolve(List.of("same", "same"));
+
+        assertThat(resolution.generated()).isEqualTo(1);
+        assertThat(resolution.reused()).isEqualTo(1);
+        assertThat(resolution.embeddings()).allSatisfy(e -> assertThat(e).containsExactly(3f));
+    }
+
+    @Test
+    @DisplayName("Hash should depend on embedding signature")
+    void hashShouldDependOnSignature() {
+        assertThat(ChunkEmbeddingStore.contentHash("model-a|3|", "text"))
+                .isNotEqualTo(ChunkEmbeddingStore.contentHash("model-b|3|", "text"))
+                .hasSize(64);
+    }
+
+    private static ChunkHashEmbeddingRow row(String hash, String embedding) {
+        return new ChunkHashEmbeddingRow() {
+            @Override
+            public String getContentHash() {
+                return hash;
+            }
+
+            @Override
+            public String getEmbedding() {
+                return embedding;
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package de.jivz.rag.service.cache;
+
+import de.jivz.rag.service.EmbeddingService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для QueryEmbeddingCache: попадания, нормализация, снимок на диск.
+ */
+@DisplayName("QueryEmbeddingCache Tests")
+class QueryEmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddingService embeddingService;
+
+    @BeforeEach
+    void setUp() {
+        embeddingService = mock(EmbeddingService.class);
+        when(embeddingService.getQueryEmbeddingSignature()).thenReturn("model-a|3|0");
+        when(embeddingService.generateEmbedding(anyString())).thenReturn(new float[]{1f, 2f, 3f});
+    }
+
+    @Test
+    @DisplayName("Should call API once for repeated queries")
+    void shouldCacheRepeatedQueries() {
+        QueryEmbeddingCache cache = createCache("");
+
+        float[] first = cache.getEmbedding("How to reset password?");
+        float[] second = cache.getEmbedding("How to reset password?");
+
+        assertThat(second).containsExactly(first);
+        verify(embeddingService, times(1)).generateEmbedding(anyString());
+        assertThat(cache.getStats()).containsEntry("hits", 1L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    @DisplayName("Should share entry for queries differing only in case and whitespace")
+    void shouldNormalizeQueries() {
+        QueryEmbeddingCache cache = createCache("");
+
+        cache.getEmbedding("  How to   RESET password? ");
+        cache.getEmbedding("how to reset\tpassword?");
+
+        verify(embeddingService, times(1)).generateEmbedding(anyString());
+    }
+
+    @Test
+    @DisplayName("Should not cache failed embeddings")
+    void shouldNotCacheNull() {
+        when(embeddingService.generateEmbedding(anyString())).thenReturn(null);
+        QueryEmbeddingCache cache = createCache("");
+
+        assertThat(cache.getEmbedding("query")).isNull();
+        assertThat(cache.getEmbedding("query")).isNull();
+
+        verify(embeddingService, times(2)).generateEmbedding(anyString());
+    }
+
+    @Test
+    @DisplayName("Should return copies so callers cannot corrupt cached vectors")
+    void shouldReturnCopies() {
+        QueryEmbeddingCache cache = createCache("");
+
+        cache.getEmbedding("query")[0] = 42f;
+
+        assertThat(cache.getEmbedding("query")[0]).isEqualTo(1f);
+    }
+
+    @Test
+    @DisplayName("Should restore entries from disk snapshot after restart")
+    void shouldRestoreSnapshot() {
+        String file = tempDir.resolve("query-cache.bin").toString();
+        QueryEmbeddingCache cache = createCache(file);
+        cache.getEmbedding("query");
+        cache.saveSnapshot();
+
+        QueryEmbeddingCache restarted = createCache(file);
+        float[] restored = restarted.getEmbedding("query");
+
+        assertThat(restored).containsExactly(1f, 2f, 3f);
+        verify(embeddingService, times(1)).generateEmbedding(anyString());
+    }
+
+    @Test
+    @DisplayName("Should ignore snapshot entries of another model")
+    void shouldIgnoreSnapshotOfAnotherModel() {
+        String file = tempDir.resolve("query-cache.bin").toString();
+        QueryEmbeddingCache cache = createCache(file);
+        cache.getEmbedding("query");
+        cache.saveSnapshot();
+
+        when(embeddingService.getQueryEmbeddingSignature()).thenReturn("model-b|3|0");
+        QueryEmbeddingCache restarted = createCache(file);
+        restarted.getEmbedding("query");
+
+        verify(embeddingService, times(2)).generateEmbedding(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private QueryEmbeddingCache createCache(String persistPath) {
+        ObjectProvider<MeterRegistry> registryProvider = mock(ObjectProvider.class);
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(embeddingService, registryProvider);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSizeMb", 1L);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(cache, "persistPath", persistPath);
+        cache.init();
+        return cache;
+    }
+}
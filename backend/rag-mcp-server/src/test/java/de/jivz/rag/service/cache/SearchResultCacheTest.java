@@ -0,0 +1,116 @@
+package de.jivz.rag.service.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit тесты для SearchResultCache: ключ по запросу/параметрам/версии корпуса.
+ */
+@DisplayName("SearchResultCache Tests")
+class SearchResultCacheTest {
+
+    private CorpusVersionService corpusVersionService;
+    private SearchResultCache cache;
+    private AtomicInteger computations;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        corpusVersionService = new CorpusVersionService();
+        cache = new SearchResultCache(corpusVersionService, mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100L);
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 10L);
+        cache.init();
+        computations = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should serve normalized repeated query from cache")
+    void shouldServeRepeatedQuery() {
+        SearchResultCache.Lookup<List<String>> first = cache.get("pipeline", "Reset password", "5", loader());
+        SearchResultCache.Lookup<List<String>> second = cache.get("pipeline", "  reset   PASSWORD ", "5", loader());
+
+        assertThat(first.status()).isEqualTo(SearchResultCache.Status.MISS);
+        assertThat(second.status()).isEqualTo(SearchResultCache.Status.HIT);
+        assertThat(second.value()).isSameAs(first.value());
+        assertThat(second.hitRate()).isEqualTo(0.5);
+        assertThat(computations).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should recompute after corpus version bump")
+    void shouldRecomputeAfterCorpusChange() {
+        cache.get("pipeline", "query", "5", loader());
+        corpusVersionService.bumpAfterCommit("test");
+
+        SearchResultCache.Lookup<List<String>> lookup = cache.get("pipeline", "query", "5", loader());
+
+        assertThat(lookup.status()).isEqualTo(SearchResultCache.Status.MISS);
+        assertThat(lookup.corpusVersion()).isEqualTo(1);
+        assertThat(computations).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should separate entries by scope and config")
+    void shouldSeparateScopeAndConfig() {
+        cache.get("pipeline", "query", "5", loader());
+        cache.get("pipeline", "query", "10", loader());
+        cache.get("hybrid", "query", "5", loader());
+
+        assertThat(computations).hasValue(3);
+        assertThat(cache.getStats()).containsEntry("entries", 3L);
+    }
+
+    @Test
+    @DisplayName("Should bypass cache when disabled")
+    void shouldBypassWhenDisabled() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        cache.get("pipeline", "query", "5", loader());
+        SearchResultCache.Lookup<List<String>> lookup = cache.get("pipeline", "query", "5", loader());
+
+        assertThat(lookup.status()).isEqualTo(SearchResultCache.Status.BYPASS);
+        assertThat(lookup.toDebugInfo()).containsEntry("status", "bypass");
+        assertThat(computations).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should return but not store results rejected as incomplete")
+    void shouldNotStoreIncompleteResults() {
+        SearchResultCache.Lookup<List<String>> first =
+                cache.get("hybrid", "query", "5", loader(), value -> false);
+        SearchResultCache.Lookup<List<String>> second =
+                cache.get("hybrid", "query", "5", loader(), value -> false);
+
+        assertThat(first.value()).containsExactly("result-1");
+        assertThat(second.status()).isEqualTo(SearchResultCache.Status.MISS);
+        assertThat(second.value()).containsExactly("result-2");
+        assertThat(cache.getStats()).containsEntry("entries", 0L);
+    }
+
+    @Test
+    @DisplayName("Should keep lookup status when mapping the value")
+    void shouldMapLookupValue() {
+        cache.get("pipeline", "query", "5", loader());
+
+        SearchResultCache.Lookup<Integer> lookup = cache.get("pipeline", "query", "5", loader()).map(List::size);
+
+        assertThat(lookup.status()).isEqualTo(SearchResultCache.Status.HIT);
+        assertThat(lookup.value()).isEqualTo(1);
+    }
+
+    private Supplier<List<String>> loader() {
+        return () -> List.of("result-" + computations.incrementAndGet());
+    }
+}
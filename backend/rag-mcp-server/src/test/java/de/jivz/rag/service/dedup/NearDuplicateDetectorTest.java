@@ -0,0 +1,89 @@
+package de.jivz.rag.service.dedup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit тесты для MinHash и NearDuplicateDetector.
+ */
+@DisplayName("NearDuplicateDetector Tests")
+class NearDuplicateDetectorTest {
+
+    @Test
+    @DisplayName("Signature should ignore case and whitespace like word-set Jaccard")
+    void signatureShouldIgnoreCaseAndWhitespace() {
+        int[] a = MinHash.signature("Reset   the PASSWORD\nin settings");
+        int[] b = MinHash.signature("reset the password in\tsettings ");
+
+        assertThat(MinHash.similarity(a, b)).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Similarity estimate should be close to exact Jaccard")
+    void similarityShouldEstimateJaccard() {
+        List<String> words = words(0, 100);
+        String first = String.join(" ", words);
+        // 90 общих слов из 110 уникальных: J = 0.818
+        String second = String.join(" ", words.subList(0, 90)) + " " + String.join(" ", words(1000, 20));
+
+        double estimate = MinHash.similarity(MinHash.signature(first), MinHash.signature(second));
+
+        assertThat(estimate).isCloseTo(90.0 / 110.0, within(0.1));
+    }
+
+    @Test
+    @DisplayName("Should round-trip signature through bytes")
+    void shouldRoundTripBytes() {
+        int[] signature = MinHash.signature("some chunk text");
+
+        byte[] bytes = MinHash.toBytes(signature);
+
+        assertThat(bytes).hasSize(MinHash.SIGNATURE_BYTES);
+        assertThat(MinHash.fromBytes(bytes)).containsExactly(signature);
+        assertThat(MinHash.fromBytes(new byte[3])).isNull();
+    }
+
+    @Test
+    @DisplayName("Should detect near-duplicate and keep distinct texts")
+    void shouldDetectNearDuplicates() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(0.95);
+        List<String> words = words(0, 100);
+        String original = String.join(" ", words);
+        // Одно слово заменено: J = 99/101 = 0.98
+        List<String> edited = new ArrayList<>(words);
+        edited.set(50, "replaced");
+
+        assertThat(detector.addIfUnique(MinHash.signature(original))).isTrue();
+        assertThat(detector.addIfUnique(MinHash.signature(String.join(" ", edited)))).isFalse();
+        assertThat(detector.addIfUnique(MinHash.signature(String.join(" ", words(500, 100))))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep all distinct texts among many candidates")
+    void shouldKeepDistinctTexts() {
+        NearDuplicateDetector detector = new NearDuplicateDetector(0.95);
+
+        long kept = IntStream.range(0, 2000)
+                .mapToObj(i -> String.join(" ", words(i * 10, 30)))
+                .filter(text -> detector.addIfUnique(MinHash.signature(text)))
+                .count();
+
+        // Соседние тексты пересекаются на 20 из 40 слов (J = 0.5) — не дубликаты
+        assertThat(kept).isEqualTo(2000);
+        assertThat(detector.getRows()).isEqualTo(8);
+    }
+
+    private static List<String> words(int from, int count) {
+        return IntStream.range(from, from + count)
+                .mapToObj(i -> "word" + i)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,235 @@
+package de.jivz.rag.service.ingestion;
+
+import de.jivz.rag.repository.DocumentChunkBatchWriter;
+import de.jivz.rag.repository.DocumentChunkBatchWriter.ChunkRow;
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.DocumentRepository;
+import de.jivz.rag.repository.IngestionJobRepository;
+import de.jivz.rag.repository.entity.Document;
+import de.jivz.rag.repository.entity.Document.DocumentStatus;
+import de.jivz.rag.repository.entity.DocumentChunk;
+import de.jivz.rag.repository.entity.IngestionJob;
+import de.jivz.rag.repository.entity.IngestionJob.JobStatus;
+import de.jivz.rag.service.cache.ChunkEmbeddingStore;
+import de.jivz.rag.service.cache.ChunkEmbeddingStore.Resolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Integration тесты воркера очереди загрузки: чанки переживают завершение задачи,
+ * возврат в очередь учитывает аренду задачи, отмена и завершение — только условные UPDATE.
+ *
+ * Опрос очереди отключён, задача передаётся воркеру напрямую.
+ * Запись COPY и эмбеддинги заменены заглушками (H2 без pgvector).
+ */
+@SpringBootTest(properties = "rag.ingestion.jobs.enabled=false")
+@ActiveProfiles("test")
+@DisplayName("IngestionJobWorker integration")
+class IngestionJobWorkerIntegrationTest {
+
+    private static final String WORKER_ID = "test-worker";
+    private static final String TEXT = "Queued ingestion keeps chunks after job completion. ".repeat(40);
+
+    @TempDir
+    Path spoolDir;
+
+    @Autowired
+    private IngestionJobWorker worker;
+
+    @Autowired
+    private IngestionJobService jobService;
+
+    @Autowired
+    private IngestionJobRepository jobRepository;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @MockitoSpyBean
+    private DocumentChunkRepository chunkRepository;
+
+    @MockitoBean
+    private DocumentChunkBatchWriter chunkBatchWriter;
+
+    @MockitoBean
+    private ChunkEmbeddingStore embeddingStore;
+
+    @BeforeEach
+    void setUp() {
+        jobRepository.deleteAll();
+        chunkRepository.deleteAll();
+        documentRepository.deleteAll();
+
+        when(embeddingStore.resolve(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            return new Resolution(
+                    texts.stream().map(text -> new float[]{1.0f, 0.0f, 0.0f}).toList(),
+                    texts.stream().map(text -> "hash-" + text.hashCode()).toList(),
+                    0,
+                    texts.size());
+        });
+        when(chunkBatchWriter.writeChunks(anyList())).thenAnswer(invocation -> {
+            List<ChunkRow> rows = invocation.getArgument(0);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+            Document document = documentRepository.findById(rows.get(0).documentId()).orElseThrow();
+            for (ChunkRow row : rows) {
+                chunkRepository.save(DocumentChunk.builder()
+                        .document(document)
+                        .documentName(row.documentName())
+                        .chunkIndex(row.chunkIndex())
+                        .chunkText(row.chunkText())
+                        .contentHash(row.contentHash())
+                        .build());
+            }
+            return rows.size();
+        });
+        // jsonb_set недоступен в H2
+        doReturn(0).when(chunkRepository).updateTotalChunks(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Chunks should survive job completion")
+    void chunksShouldSurviveJobCompletion() throws Exception {
+        Path spoolFile = spoolDir.resolve("job.upload");
+        Files.writeString(spoolFile, TEXT);
+        IngestionJob job = jobRepository.save(runningJob("queued.txt", spoolFile.toString(),
+                LocalDateTime.now().plusMinutes(1)));
+
+        assertThat(worker.tryReserveSlot()).isTrue();
+        worker.process(job);
+
+        IngestionJob finished = awaitFinished(job.getId());
+        assertThat(finished.getStatus()).isEqualTo(JobStatus.COMPLETED);
+        assertThat(finished.getLeaseUntil()).isNull();
+
+        Document document = documentRepository.findById(finished.getDocumentId()).orElseThrow();
+        assertThat(document.getStatus()).isEqualTo(DocumentStatus.READY);
+        assertThat(document.getChunkCount()).isGreaterThan(1);
+        assertThat(chunkRepository.countByDocumentId(document.getId()))
+                .isEqualTo(document.getChunkCount().longValue());
+    }
+
+    @Test
+    @DisplayName("Should requeue only jobs whose lease expired")
+    void shouldRequeueOnlyExpiredLeases() {
+        IngestionJob alive = runningJob("alive.txt", "/tmp/alive.upload", LocalDateTime.now().plusMinutes(1));
+        alive.setUpdatedAt(LocalDateTime.now().minusHours(1));
+        alive = jobRepository.save(alive);
+        IngestionJob dead = jobRepository.save(runningJob("dead.txt", "/tmp/dead.upload",
+                LocalDateTime.now().minusMinutes(1)));
+
+        int requeued = jobService.requeueStale(Duration.ofMinutes(10));
+
+        assertThat(requeued).isEqualTo(1);
+        assertThat(jobRepository.findById(alive.getId()).orElseThrow().getStatus()).isEqualTo(JobStatus.RUNNING);
+        assertThat(jobRepository.findById(dead.getId()).orElseThrow().getStatus()).isEqualTo(JobStatus.QUEUED);
+    }
+
+    @Test
+    @DisplayName("Lease renewal should fail once the job belongs to another worker")
+    void leaseRenewalShouldRequireOwnership() {
+        IngestionJob job = jobRepository.save(runningJob("owned.txt", "/tmp/owned.upload",
+                LocalDateTime.now().plusMinutes(1)));
+
+        assertThat(jobService.renewLease(job.getId(), WORKER_ID)).isTrue();
+        assertThat(jobService.renewLease(job.getId(), "other-worker")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Cancel should not touch finished jobs and only flag running ones")
+    void cancelShouldOnlyAffectUnfinishedJobs() {
+        IngestionJob completed = runningJob("done.txt", "/tmp/done.upload", null);
+        completed.setStatus(JobStatus.COMPLETED);
+        completed = jobRepository.save(completed);
+        IngestionJob running = jobRepository.save(runningJob("running.txt", "/tmp/running.upload",
+                LocalDateTime.now().plusMinutes(1)));
+        IngestionJob queued = runningJob("queued.txt", "/tmp/queued.upload", null);
+        queued.setStatus(JobStatus.QUEUED);
+        queued.setWorkerId(null);
+        queued = jobRepository.save(queued);
+
+        jobService.cancel(completed.getId());
+        jobService.cancel(running.getId());
+        jobService.cancel(queued.getId());
+
+        IngestionJob completedAfter = jobRepository.findById(completed.getId()).orElseThrow();
+        assertThat(completedAfter.getStatus()).isEqualTo(JobStatus.COMPLETED);
+        assertThat(completedAfter.getCancelRequested()).isFalse();
+
+        IngestionJob runningAfter = jobRepository.findById(running.getId()).orElseThrow();
+        assertThat(runningAfter.getStatus()).isEqualTo(JobStatus.RUNNING);
+        assertThat(runningAfter.getCancelRequested()).isTrue();
+        assertThat(runningAfter.getLeaseUntil()).isNotNull();
+
+        assertThat(jobRepository.findById(queued.getId()).orElseThrow().getStatus())
+                .isEqualTo(JobStatus.CANCELLED);
+    }
+
+    @Test
+    @DisplayName("A worker that lost the job should not overwrite the new owner's state")
+    void finishShouldRequireOwnership() {
+        IngestionJob job = jobRepository.save(runningJob("reclaimed.txt", "/tmp/reclaimed.upload",
+                LocalDateTime.now().plusMinutes(1)));
+        IngestionJob staleCopy = runningJob("reclaimed.txt", "/tmp/reclaimed.upload", null);
+        staleCopy.setId(job.getId());
+        staleCopy.setWorkerId("previous-worker");
+
+        assertThat(jobService.markFailed(staleCopy, "lease lost")).isFalse();
+        assertThat(jobService.markCompleted(staleCopy, 1L, 3)).isFalse();
+
+        IngestionJob current = jobRepository.findById(job.getId()).orElseThrow();
+        assertThat(current.getStatus()).isEqualTo(JobStatus.RUNNING);
+        assertThat(current.getWorkerId()).isEqualTo(WORKER_ID);
+        assertThat(current.getErrorMessage()).isNull();
+
+        assertThat(jobService.markFailed(job, "boom")).isTrue();
+        assertThat(jobRepository.findById(job.getId()).orElseThrow().getStatus()).isEqualTo(JobStatus.FAILED);
+    }
+
+    private static IngestionJob runningJob(String fileName, String spoolPath, LocalDateTime leaseUntil) {
+        return IngestionJob.builder()
+                .fileName(fileName)
+                .contentType("text/plain")
+                .spoolPath(spoolPath)
+                .status(JobStatus.RUNNING)
+                .attempts(1)
+                .workerId(WORKER_ID)
+                .startedAt(LocalDateTime.now())
+                .leaseUntil(leaseUntil)
+                .build();
+    }
+
+    private IngestionJob awaitFinished(Long jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            IngestionJob job = jobRepository.findById(jobId).orElseThrow();
+            if (job.isFinished()) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Ingestion job " + jobId + " did not finish in time");
+    }
+}
@@ -0,0 +1,90 @@
+package de.jivz.rag.service.ingestion;
+
+import de.jivz.rag.repository.IngestionJobRepository;
+import de.jivz.rag.repository.entity.IngestionJob.JobStage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для JobProgressTracker: стадии, троттлинг записи прогресса, отмена.
+ */
+@DisplayName("JobProgressTracker Tests")
+class JobProgressTrackerTest {
+
+    private static final Long JOB_ID = 42L;
+
+    private IngestionJobRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IngestionJobRepository.class);
+        when(repository.updateProgress(any(), any(), anyInt(), any(), anyInt(), anyInt(), any())).thenReturn(1);
+        when(repository.findCancelRequested(JOB_ID)).thenReturn(Optional.of(false));
+    }
+
+    @Test
+    @DisplayName("Should report earliest unfinished stage")
+    void shouldReportEarliestUnfinishedStage() {
+        JobProgressTracker tracker = new JobProgressTracker(JOB_ID, repository, 0);
+
+        tracker.onChunksProduced(10);
+        assertThat(tracker.currentStage()).isEqualTo(JobStage.PARSING);
+
+        tracker.onParsingFinished(20);
+        assertThat(tracker.currentStage()).isEqualTo(JobStage.EMBEDDING);
+
+        tracker.onChunksEmbedded(20);
+        assertThat(tracker.currentStage()).isEqualTo(JobStage.PERSISTING);
+
+        tracker.onChunksPersisted(20);
+        assertThat(tracker.currentStage()).isEqualTo(JobStage.INDEXING);
+    }
+
+    @Test
+    @DisplayName("Should throttle progress writes but flush on stage change")
+    void shouldThrottleProgressWrites() {
+        JobProgressTracker tracker = new JobProgressTracker(JOB_ID, repository, 60_000);
+
+        tracker.onDocumentCreated(7L);
+        for (int i = 1; i <= 100; i++) {
+            tracker.onChunksProduced(i);
+        }
+        tracker.onParsingFinished(100);
+
+        verify(repository, times(2)).updateProgress(eq(JOB_ID), any(), anyInt(), any(), anyInt(), anyInt(), eq(7L));
+        verify(repository).updateProgress(JOB_ID, JobStage.EMBEDDING, 100, 100, 0, 0, 7L);
+    }
+
+    @Test
+    @DisplayName("Should detect cancel flag on flush")
+    void shouldDetectCancelFlag() {
+        JobProgressTracker tracker = new JobProgressTracker(JOB_ID, repository, 0);
+        assertThat(tracker.isCancelled()).isFalse();
+
+        when(repository.findCancelRequested(JOB_ID)).thenReturn(Optional.of(true));
+
+        assertThat(tracker.isCancelled()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should treat job that is no longer running as cancelled")
+    void shouldTreatMissingRunningJobAsCancelled() {
+        when(repository.updateProgress(any(), any(), anyInt(), isNull(), anyInt(), anyInt(), any())).thenReturn(0);
+        JobProgressTracker tracker = new JobProgressTracker(JOB_ID, repository, 0);
+
+        assertThat(tracker.isCancelled()).isTrue();
+    }
+}
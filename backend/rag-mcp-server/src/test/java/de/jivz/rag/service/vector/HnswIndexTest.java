@@ -0,0 +1,238 @@
+package de.jivz.rag.service.vector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Unit тесты для HnswIndex: recall против brute-force, удаление, идемпотентность,
+ * квантизация с точным пересчётом кандидатов.
+ */
+@DisplayName("HnswIndex Tests")
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+    private static final int VECTORS = 2000;
+
+    private float[][] data;
+    private HnswIndex index;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        data = new float[VECTORS][];
+        index = new HnswIndex(DIMENSION, 16, 100, new Random(1));
+
+        for (int i = 0; i < VECTORS; i++) {
+            data[i] = randomVector(random);
+            index.add(i, i % 20, data[i]);
+        }
+    }
+
+    @Test
+    @DisplayName("Should reach high recall@10 compared to brute force")
+    void shouldReachHighRecall() {
+        Random random = new Random(99);
+        int queries = 50;
+        int k = 10;
+        int hits = 0;
+
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector(random);
+
+            Set<Long> expected = bruteForce(query, k);
+            Set<Long> actual = new HashSet<>();
+            index.search(query, k, 64).forEach(n -> actual.add(n.id()));
+
+            actual.retainAll(expected);
+            hits += actual.size();
+        }
+
+        double recall = hits / (double) (queries * k);
+        assertThat(recall).isGreaterThan(0.9);
+    }
+
+    @Test
+    @DisplayName("Should return results sorted by similarity")
+    void shouldReturnSortedResults() {
+        List<HnswIndex.Neighbor> result = index.search(data[5], 10, 50);
+
+        assertThat(result).hasSize(10);
+        assertThat(result.getFirst().id()).isEqualTo(5L);
+        assertThat(result.getFirst().similarity()).isCloseTo(1.0f, offset(1e-4f));
+        assertThat(result).isSortedAccordingTo(
+                Comparator.comparingDouble(HnswIndex.Neighbor::similarity).reversed());
+    }
+
+    @Test
+    @DisplayName("Should exclude removed documents from results")
+    void shouldExcludeRemovedDocuments() {
+        int removed = index.removeDocument(5);
+
+        assertThat(removed).isEqualTo(VECTORS / 20);
+        assertThat(index.size()).isEqualTo(VECTORS - removed);
+        assertThat(index.deletedRatio()).isCloseTo(0.05, offset(1e-9));
+        assertThat(index.contains(5)).isFalse();
+
+        List<HnswIndex.Neighbor> result = index.search(data[5], 20, 100);
+        assertThat(result).isNotEmpty();
+        assertThat(result).noneMatch(n -> n.id() % 20 == 5);
+    }
+
+    @Test
+    @DisplayName("Should ignore duplicate chunk ids")
+    void shouldIgnoreDuplicates() {
+        assertThat(index.add(1, 1, data[1])).isFalse();
+        assertThat(index.size()).isEqualTo(VECTORS);
+    }
+
+    @Test
+    @DisplayName("Should reject vectors of wrong dimension")
+    void shouldRejectWrongDimension() {
+        assertThatThrownBy(() -> index.add(VECTORS + 1, 0, new float[DIMENSION + 1]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should return empty result for empty index")
+    void shouldHandleEmptyIndex() {
+        HnswIndex empty = new HnswIndex(DIMENSION, 16, 100);
+        assertThat(empty.search(data[0], 5, 50)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Quantized index with exact rescoring should keep high recall@10")
+    void shouldKeepRecallWithQuantization() {
+        int dimension = 256;
+        Random random = new Random(11);
+        float[][] vectors = clusteredVectors(random, dimension);
+
+        HnswIndex int8 = new HnswIndex(dimension, 16, 100, VectorQuantization.INT8, new Random(1));
+        HnswIndex binary = new HnswIndex(dimension, 16, 100, VectorQuantization.BINARY, new Random(1));
+        HnswIndex full = new HnswIndex(dimension, 16, 100, VectorQuantization.NONE, new Random(1));
+        for (int i = 0; i < vectors.length; i++) {
+            int8.add(i, 0, vectors[i]);
+            binary.add(i, 0, vectors[i]);
+            full.add(i, 0, vectors[i]);
+        }
+
+        assertThat(twoPhaseRecall(int8, vectors, random, 4)).isGreaterThan(0.9);
+        assertThat(twoPhaseRecall(binary, vectors, random, 10)).isGreaterThan(0.8);
+        assertThat(int8.estimateMemoryBytes()).isLessThan(full.estimateMemoryBytes());
+        assertThat(binary.estimateMemoryBytes()).isLessThan(int8.estimateMemoryBytes());
+    }
+
+    @Test
+    @DisplayName("Should parse quantization from configuration")
+    void shouldParseQuantization() {
+        assertThat(VectorQuantization.fromString(" Int8 ")).isEqualTo(VectorQuantization.INT8);
+        assertThat(VectorQuantization.fromString("")).isEqualTo(VectorQuantization.NONE);
+        assertThatThrownBy(() -> VectorQuantization.fromString("int4"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Recall@10 двухфазного поиска: k · oversampling кандидатов из индекса,
+     * затем точный пересчёт косинуса по float векторам (как в SemanticSearchService).
+     */
+    private static double twoPhaseRecall(HnswIndex index, float[][] vectors, Random random, int oversampling) {
+        int queries = 30;
+        int k = 10;
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = normalize(vectors[random.nextInt(vectors.length)].clone());
+            query[q % query.length] += 0.05f;
+
+            Set<Long> expected = topK(vectors, query, IntStream.range(0, vectors.length).boxed().toList(), k);
+            List<Integer> candidates = index.search(query, k * oversampling, 100).stream()
+                    .map(n -> (int) n.id())
+                    .toList();
+            Set<Long> actual = topK(vectors, query, candidates, k);
+
+            actual.retainAll(expected);
+            hits += actual.size();
+        }
+        return hits / (double) (queries * k);
+    }
+
+    private static Set<Long> topK(float[][] vectors, float[] query, List<Integer> ids, int k) {
+        float[] q = normalize(query);
+        Set<Long> result = new HashSet<>();
+        ids.stream()
+                .sorted(Comparator.comparingDouble((Integer i) -> dot(q, normalize(vectors[i]))).reversed())
+                .limit(k)
+                .forEach(i -> result.add((long) i));
+        return result;
+    }
+
+    /**
+     * Векторы вокруг 40 центров — ближе к реальным эмбеддингам, чем равномерный шум.
+     */
+    private static float[][] clusteredVectors(Random random, int dimension) {
+        float[][] centers = new float[40][dimension];
+        for (float[] center : centers) {
+            for (int d = 0; d < dimension; d++) {
+                center[d] = (float) random.nextGaussian();
+            }
+        }
+        float[][] vectors = new float[VECTORS][dimension];
+        for (int i = 0; i < VECTORS; i++) {
+            float[] center = centers[i % centers.length];
+            for (int d = 0; d < dimension; d++) {
+                vectors[i][d] = center[d] + 0.5f * (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    private Set<Long> bruteForce(float[] query, int k) {
+        float[] q = normalize(query);
+        Set<Long> result = new HashSet<>();
+        IntStream.range(0, VECTORS)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer i) -> dot(q, normalize(data[i]))).reversed())
+                .limit(k)
+                .forEach(i -> result.add((long) i));
+        return result;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) {
+            norm += x * x;
+        }
+        norm = Math.sqrt(norm);
+        float[] result = new float[v.length];
+        for (int i = 0; i < v.length; i++) {
+            result[i] = (float) (v[i] / norm);
+        }
+        return result;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,136 @@
+package de.jivz.rag.service.vector;
+
+import de.jivz.rag.repository.DocumentChunkBatchWriter;
+import de.jivz.rag.repository.DocumentChunkRepository;
+import de.jivz.rag.repository.entity.ChunkEmbeddingRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit тесты для ReducedEmbeddingService: усечение, проверка колонки, backfill.
+ */
+@DisplayName("ReducedEmbeddingService Tests")
+class ReducedEmbeddingServiceTest {
+
+    private DocumentChunkRepository chunkRepository;
+    private DocumentChunkBatchWriter chunkBatchWriter;
+    private ReducedEmbeddingService service;
+
+    @BeforeEach
+    void setUp() {
+        chunkRepository = mock(DocumentChunkRepository.class);
+        chunkBatchWriter = mock(DocumentChunkBatchWriter.class);
+
+        service = new ReducedEmbeddingService(chunkRepository, chunkBatchWriter);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "dimension", 2);
+        ReflectionTestUtils.setField(service, "rescore", true);
+        ReflectionTestUtils.setField(service, "oversampling", 4);
+        ReflectionTestUtils.setField(service, "maxCandidates", 200);
+        ReflectionTestUtils.setField(service, "efSearch", 100);
+        ReflectionTestUtils.setField(service, "backfillBatchSize", 2);
+    }
+
+    @Test
+    @DisplayName("Should truncate and renormalize embedding")
+    void shouldTruncateAndRenormalize() {
+        float[] reduced = ReducedEmbeddingService.truncate(new float[]{3f, 4f, 100f}, 2);
+
+        assertThat(reduced).containsExactly(new float[]{0.6f, 0.8f}, offset(1e-6f));
+    }
+
+    @Test
+    @DisplayName("Should stay disabled when column dimension does not match")
+    void shouldStayDisabledOnDimensionMismatch() {
+        when(chunkRepository.findReducedEmbeddingColumnDimension()).thenReturn(1024);
+
+        service.onApplicationReady();
+
+        assertThat(service.isEnabled()).isFalse();
+        assertThat(service.reduce(new float[]{1f, 2f, 3f})).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Should backfill all pages and then enable search")
+    void shouldBackfillAndEnableSearch() {
+        when(chunkRepository.findReducedEmbeddingColumnDimension()).thenReturn(2);
+        when(chunkRepository.findEmbeddingsWithoutReducedAfterId(anyLong(), anyInt()))
+                .thenReturn(List.of(row(1, "[3.0,4.0,1.0]"), row(2, "[0.0,2.0,1.0]")))
+                .thenReturn(List.of(row(3, "[1.0,0.0,1.0]")));
+        when(chunkBatchWriter.updateReducedEmbeddings(anyMap()))
+                .thenAnswer(inv -> ((Map<Long, float[]>) inv.getArgument(0)).size());
+
+        service.onApplicationReady();
+
+        verify(chunkRepository, timeout(2000)).findEmbeddingsWithoutReducedAfterId(2L, 2);
+        ArgumentCaptor<Map<Long, float[]>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(chunkBatchWriter, timeout(2000).times(2)).updateReducedEmbeddings(captor.capture());
+        assertThat(captor.getAllValues().getFirst().get(1L)).containsExactly(new float[]{0.6f, 0.8f}, offset(1e-6f));
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!service.isSearchReady() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(service.isSearchReady()).isTrue();
+        assertThat(service.getStats()).containsEntry("backfilledRows", 3L);
+    }
+
+    @Test
+    @DisplayName("Should bound candidate count")
+    void shouldBoundCandidates() {
+        assertThat(service.candidatesFor(10)).isEqualTo(40);
+        assertThat(service.candidatesFor(100)).isEqualTo(200);
+        assertThat(service.candidatesFor(300)).isEqualTo(300);
+    }
+
+    @Test
+    @DisplayName("Should set ef_search for the search transaction only, at least the candidate count")
+    void shouldSetEfSearchPerSearch() {
+        service.search("[0.6,0.8]", "[3.0,4.0,1.0]", 10, 0.5);
+        service.search("[0.6,0.8]", "[3.0,4.0,1.0]", 100, 0.5);
+
+        InOrder inOrder = inOrder(chunkRepository);
+        inOrder.verify(chunkRepository).setLocalHnswEfSearch(100);
+        inOrder.verify(chunkRepository).findSimilarChunksByReducedProjection("[0.6,0.8]", "[3.0,4.0,1.0]", 40, 10, 0.5);
+        inOrder.verify(chunkRepository).setLocalHnswEfSearch(200);
+        inOrder.verify(chunkRepository).findSimilarChunksByReducedProjection("[0.6,0.8]", "[3.0,4.0,1.0]", 200, 100, 0.5);
+    }
+
+    private static ChunkEmbeddingRow row(long id, String embedding) {
+        return new ChunkEmbeddingRow() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getDocumentId() {
+                return 1L;
+            }
+
+            @Override
+            public String getEmbedding() {
+                return embedding;
+            }
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package de.jivz.shared.webclient;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Gemeinsame HTTP-Einstellungen für alle WebClients, die die OpenRouter API aufrufen.
+ *
+ * Vorher hatte jeder Service eigene Konstanten (30s Connect, 120s Timeout, 16MB Puffer)
+ * und einen ungetunten Connection-Pool. Jetzt gelten überall dieselben Werte unter openrouter.http.*
+ */
+@Data
+@ConfigurationProperties(prefix = "openrouter.http")
+public class OpenRouterHttpProperties {
+
+    /**
+     * Timeout für den Verbindungsaufbau (ms).
+     */
+    private int connectTimeoutMs = 30000;
+
+    /**
+     * Maximale Pause zwischen zwei Reads einer Antwort (s); gilt auch für SSE-Streams.
+     */
+    private int responseTimeoutSeconds = 120;
+
+    /**
+     * Maximale Größe eines gepufferten Antwort-Bodys (Bytes).
+     */
+    private int maxInMemorySize = 16 * 1024 * 1024;
+
+    /**
+     * Request-Details (inkl. Header) im DEBUG-Log der Codecs; standardmäßig aus,
+     * da sonst der Authorization-Header im Log landen kann.
+     */
+    private boolean logRequestDetails = false;
+
+    /**
+     * HTTP/2 per ALPN anbieten (nur bei https-Base-URL, sonst HTTP/1.1).
+     */
+    private boolean http2 = false;
+
+    /**
+     * Micrometer-Metriken pro Route und Pool-Metriken von Reactor Netty.
+     */
+    private boolean metricsEnabled = true;
+
+    private Pool pool = new Pool();
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Maximale Anzahl Verbindungen pro Client (pro Remote-Adresse).
+         */
+        private int maxConnections = 50;
+
+        /**
+         * Wartezeit auf eine freie Verbindung, bevor der Request fehlschlägt (ms).
+         */
+        private long pendingAcquireTimeoutMs = 45000;
+
+        /**
+         * Idle-Verbindungen werden danach geschlossen (s); kürzer als der Idle-Timeout
+         * von Load Balancern, damit keine halb geschlossenen Verbindungen wiederverwendet werden.
+         */
+        private long maxIdleTimeSeconds = 30;
+
+        /**
+         * Maximale Lebensdauer einer Verbindung (s), damit DNS-Änderungen greifen.
+         */
+        private long maxLifeTimeSeconds = 300;
+
+        /**
+         * Intervall der Hintergrund-Eviction abgelaufener Verbindungen (s); 0 = aus.
+         */
+        private long evictInBackgroundSeconds = 30;
+    }
+}
@@ -0,0 +1,123 @@
+package de.jivz.shared.webclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Erzeugt WebClients für die OpenRouter API mit gemeinsamem Connection-Pool-Tuning,
+ * einheitlichen Timeouts und Metriken.
+ *
+ * Pro Client-Name gibt es einen eigenen ConnectionProvider (Pool-Metriken von Reactor Netty:
+ * reactor.netty.connection.provider.*, u.a. pending.connections.time = Wartezeit auf den Pool).
+ * Die Pools werden beim Herunterfahren des Contexts geschlossen.
+ */
+@Slf4j
+public class OpenRouterWebClientFactory implements DisposableBean {
+
+    private final OpenRouterHttpProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ConnectionProvider> providers = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry Registry für Routen-Metriken, null = ohne Metriken
+     */
+    public OpenRouterWebClientFactory(OpenRouterHttpProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * WebClient mit Base-URL und Bearer-Authentifizierung.
+     *
+     * @param clientName Name für Pool und Metrik-Tag client (z.B. "openrouter")
+     */
+    public WebClient create(String clientName, String baseUrl, String apiKey) {
+        WebClient webClient = builder(clientName, baseUrl)
+                .defaultHeader("Authorization", "Bearer " + apiKey)
+                .defaultHeader("Content-Type", "application/json")
+                .build();
+
+        log.info("🌐 WebClient '{}' configured: baseUrl={}, maxConnections={}, responseTimeout={}s, http2={}",
+                clientName, baseUrl, properties.getPool().getMaxConnections(),
+                properties.getResponseTimeoutSeconds(), useHttp2(baseUrl));
+        return webClient;
+    }
+
+    /**
+     * Vorkonfigurierter Builder (Pool, Timeouts, Codecs, Metriken) für eigene Header.
+     */
+    public WebClient.Builder builder(String clientName, String baseUrl) {
+        ExchangeStrategies exchangeStrategies = ExchangeStrategies.builder()
+                .codecs(configurer -> {
+                    configurer.defaultCodecs().maxInMemorySize(properties.getMaxInMemorySize());
+                    configurer.defaultCodecs().enableLoggingRequestDetails(properties.isLogRequestDetails());
+                })
+                .build();
+
+        WebClient.Builder builder = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient(clientName, baseUrl)))
+                .exchangeStrategies(exchangeStrategies);
+
+        if (properties.isMetricsEnabled() && meterRegistry != null) {
+            builder.filter(new WebClientMetricsFilter(meterRegistry, clientName));
+        }
+        return builder;
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+        providers.clear();
+    }
+
+    HttpClient httpClient(String clientName, String baseUrl) {
+        int responseTimeoutSeconds = properties.getResponseTimeoutSeconds();
+        // responseTimeout statt ReadTimeoutHandler: der Handler bliebe an der Pool-Verbindung
+        // hängen und würde auch Verbindungen schließen, die nur idle im Pool liegen
+        HttpClient httpClient = HttpClient.create(connectionProvider(clientName))
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, properties.getConnectTimeoutMs())
+                .responseTimeout(Duration.ofSeconds(responseTimeoutSeconds))
+                .doOnConnected(conn -> conn
+                        .addHandlerLast(new WriteTimeoutHandler(responseTimeoutSeconds, TimeUnit.SECONDS)));
+
+        if (useHttp2(baseUrl)) {
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        return httpClient;
+    }
+
+    ConnectionProvider connectionProvider(String clientName) {
+        return providers.computeIfAbsent(clientName, name -> {
+            OpenRouterHttpProperties.Pool pool = properties.getPool();
+            ConnectionProvider.Builder builder = ConnectionProvider.builder(name)
+                    .maxConnections(pool.getMaxConnections())
+                    .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMs()))
+                    .maxIdleTime(Duration.ofSeconds(pool.getMaxIdleTimeSeconds()))
+                    .maxLifeTime(Duration.ofSeconds(pool.getMaxLifeTimeSeconds()))
+                    .metrics(properties.isMetricsEnabled());
+            if (pool.getEvictInBackgroundSeconds() > 0) {
+                builder.evictInBackground(Duration.ofSeconds(pool.getEvictInBackgroundSeconds()));
+            }
+            return builder.build();
+        });
+    }
+
+    private boolean useHttp2(String baseUrl) {
+        return properties.isHttp2() && baseUrl != null && baseUrl.startsWith("https://");
+    }
+}
@@ -0,0 +1,23 @@
+package de.jivz.shared.webclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Stellt OpenRouterWebClientFactory in jedem Service mit shared-webclient im Classpath bereit.
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(OpenRouterHttpProperties.class)
+public class SharedWebClientAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OpenRouterWebClientFactory openRouterWebClientFactory(OpenRouterHttpProperties properties,
+                                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        return new OpenRouterWebClientFactory(properties, meterRegistry.getIfAvailable());
+    }
+}
@@ -0,0 +1,83 @@
+package de.jivz.shared.webclient;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Metriken pro Route für einen WebClient.
+ *
+ * - openrouter.http.client.requests: Timer mit Histogramm (client, method, route, status)
+ * - openrouter.http.client.inflight: laufende Requests (client)
+ *
+ * Gemessen wird bis zum Eintreffen der Antwort-Header; bei Streams ist das die Zeit bis zum ersten Byte.
+ * IDs im Pfad werden zu {id} zusammengefasst, damit die Kardinalität der route-Tags begrenzt bleibt.
+ */
+class WebClientMetricsFilter implements ExchangeFilterFunction {
+
+    static final String REQUESTS_METRIC = "openrouter.http.client.requests";
+    static final String INFLIGHT_METRIC = "openrouter.http.client.inflight";
+
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+            "/(\\d+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}|[0-9a-fA-F]{24,})(?=/|$)");
+
+    private final MeterRegistry registry;
+    private final String clientName;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    WebClientMetricsFilter(MeterRegistry registry, String clientName) {
+        this.registry = registry;
+        this.clientName = clientName;
+        Gauge.builder(INFLIGHT_METRIC, inFlight, AtomicInteger::get)
+                .description("In-flight HTTP requests")
+                .tag("client", clientName)
+                .register(registry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            inFlight.incrementAndGet();
+            return next.exchange(request)
+                    .doOnSuccess(response -> record(request, start, recorded,
+                            response != null ? String.valueOf(response.statusCode().value()) : "NONE"))
+                    .doOnError(error -> record(request, start, recorded, "IO_ERROR"))
+                    .doOnCancel(() -> record(request, start, recorded, "CANCELLED"));
+        });
+    }
+
+    static String route(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        return ID_SEGMENT.matcher(path).replaceAll("/{id}");
+    }
+
+    private void record(ClientRequest request, long start, AtomicBoolean recorded, String status) {
+        if (!recorded.compareAndSet(false, true)) {
+            return;
+        }
+        inFlight.decrementAndGet();
+        Timer.builder(REQUESTS_METRIC)
+                .description("HTTP client request latency until response headers")
+                .tag("client", clientName)
+                .tag("method", request.method().name())
+                .tag("route", route(request.url().getPath()))
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,46 @@
+package de.jivz.shared.webclient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OpenRouterWebClientFactoryTest {
+
+    private OpenRouterHttpProperties properties;
+    private OpenRouterWebClientFactory factory;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OpenRouterHttpProperties();
+        properties.getPool().setMaxConnections(7);
+        factory = new OpenRouterWebClientFactory(properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.destroy();
+    }
+
+    @Test
+    void testReusesPoolPerClientName() {
+        factory.create("openrouter", "https://openrouter.ai/api/v1", "key");
+        factory.create("openrouter", "https://openrouter.ai/api/v1", "key");
+
+        assertThat(factory.connectionProvider("openrouter")).isSameAs(factory.connectionProvider("openrouter"));
+        assertThat(factory.connectionProvider("other")).isNotSameAs(factory.connectionProvider("openrouter"));
+        assertThat(factory.connectionProvider("openrouter").maxConnections()).isEqualTo(7);
+    }
+
+    @Test
+    void testHttp2OnlyForHttps() {
+        properties.setHttp2(true);
+
+        assertThat(factory.httpClient("openrouter", "https://openrouter.ai/api/v1").configuration().protocols())
+                .extracting(Enum::name).contains("H2");
+        assertThat(factory.httpClient("local", "http://localhost:8080").configuration().protocols())
+                .extracting(Enum::name).containsExactly("HTTP11");
+    }
+}
@@ -0,0 +1,83 @@
+package de.jivz.shared.webclient;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WebClientMetricsFilterTest {
+
+    private SimpleMeterRegistry registry;
+    private WebClientMetricsFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        filter = new WebClientMetricsFilter(registry, "openrouter");
+    }
+
+    @Test
+    void testRecordsLatencyPerRouteAndStatus() {
+        ExchangeFunction ok = request -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+        filter.filter(request("https://openrouter.ai/api/v1/chat/completions"), ok).block();
+        filter.filter(request("https://openrouter.ai/api/v1/generation/12345"), ok).block();
+
+        Timer chat = registry.find(WebClientMetricsFilter.REQUESTS_METRIC)
+                .tags("client", "openrouter", "route", "/api/v1/chat/completions", "status", "200").timer();
+        assertThat(chat).isNotNull();
+        assertThat(chat.count()).isEqualTo(1);
+        assertThat(registry.find(WebClientMetricsFilter.REQUESTS_METRIC)
+                .tag("route", "/api/v1/generation/{id}").timer()).isNotNull();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void testTracksInFlightAndErrors() {
+        Sinks.One<ClientResponse> pending = Sinks.one();
+        ExchangeFunction slow = request -> pending.asMono();
+
+        var subscription = filter.filter(request("https://openrouter.ai/api/v1/chat/completions"), slow).subscribe();
+        assertThat(inFlight()).isEqualTo(1);
+        subscription.dispose();
+        assertThat(inFlight()).isZero();
+
+        ExchangeFunction failing = request -> Mono.error(new IOException("connection reset"));
+        assertThatThrownBy(() -> filter.filter(request("https://openrouter.ai/api/v1/models"), failing).block())
+                .hasCauseInstanceOf(IOException.class);
+
+        assertThat(registry.find(WebClientMetricsFilter.REQUESTS_METRIC).tag("status", "CANCELLED").timer()).isNotNull();
+        assertThat(registry.find(WebClientMetricsFilter.REQUESTS_METRIC).tag("status", "IO_ERROR").timer()).isNotNull();
+        assertThat(inFlight()).isZero();
+    }
+
+    @Test
+    void testRouteNormalization() {
+        assertThat(WebClientMetricsFilter.route("/api/v1/chat/completions")).isEqualTo("/api/v1/chat/completions");
+        assertThat(WebClientMetricsFilter.route("/items/42/details")).isEqualTo("/items/{id}/details");
+        assertThat(WebClientMetricsFilter.route("/runs/3f2b1c4d-1111-2222-3333-444455556666"))
+                .isEqualTo("/runs/{id}");
+        assertThat(WebClientMetricsFilter.route("")).isEqualTo("/");
+    }
+
+    private double inFlight() {
+        return registry.get(WebClientMetricsFilter.INFLIGHT_METRIC).tag("client", "openrouter").gauge().value();
+    }
+
+    private static ClientRequest request(String url) {
+        return ClientRequest.create(HttpMethod.POST, URI.create(url)).build();
+    }
+}